@@ -0,0 +1,199 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.storm3j.protocol.core.Request;
+
+/**
+ * Writes the JSON of requests as UTF-8 straight into a transport's output, rather than first
+ * building a string which is then encoded again. The envelope field names, the version and the
+ * names of the most frequently called methods are pre-encoded.
+ *
+ * <p>The JSON is the same as that of {@link ObjectMapper#writeValueAsString(Object)}. Instances
+ * are thread safe.
+ */
+public final class RequestEncoder {
+
+    /** Per thread buffers that grow beyond this are not kept for reuse. */
+    static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+    private static final SerializedString JSONRPC = new SerializedString("jsonrpc");
+    private static final SerializedString METHOD = new SerializedString("method");
+    private static final SerializedString PARAMS = new SerializedString("params");
+    private static final SerializedString ID = new SerializedString("id");
+    private static final String VERSION = "2.0";
+    private static final SerializedString ENCODED_VERSION = new SerializedString(VERSION);
+
+    private static final Map<String, SerializedString> ENCODED_METHODS = new HashMap<>();
+
+    static {
+        for (String method :
+                new String[] {
+                    "fst_call",
+                    "fst_getTransactionReceipt",
+                    "fst_sendRawTransaction",
+                    "fst_getTransactionCount",
+                    "fst_blockNumber",
+                    "fst_getBalance",
+                    "fst_estimateGas"
+                }) {
+            ENCODED_METHODS.put(method, new SerializedString(method));
+        }
+    }
+
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter paramsWriter;
+    private final ThreadLocal<PooledBuffer> buffers = ThreadLocal.withInitial(PooledBuffer::new);
+
+    public RequestEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.paramsWriter =
+                objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    }
+
+    /**
+     * Writes a request. The output is not closed.
+     *
+     * @param request request to write
+     * @param out output to write the JSON to
+     * @throws IOException if the request cannot be serialized or written
+     */
+    public void write(Request<?, ?> request, OutputStream out) throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            writeRequest(request, generator);
+        }
+    }
+
+    /**
+     * Writes the requests of a batch as a JSON array. The output is not closed.
+     *
+     * @param requests requests to write
+     * @param out output to write the JSON to
+     * @throws IOException if the requests cannot be serialized or written
+     */
+    public void write(List<? extends Request<?, ?>> requests, OutputStream out)
+            throws IOException {
+        try (JsonGenerator generator = createGenerator(out)) {
+            generator.writeStartArray();
+            for (Request<?, ?> request : requests) {
+                writeRequest(request, generator);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Encodes a request into a buffer owned by the calling thread, avoiding an allocation per
+     * request. The buffer is overwritten by the next call on the same thread, so it must be
+     * consumed before then.
+     *
+     * @param request request to encode
+     * @return the JSON of the request
+     * @throws IOException if the request cannot be serialized
+     */
+    public ByteBuffer encode(Request<?, ?> request) throws IOException {
+        PooledBuffer buffer = buffer();
+        write(request, buffer);
+        return buffer.toByteBuffer();
+    }
+
+    /**
+     * Encodes the requests of a batch into a buffer owned by the calling thread, see {@link
+     * #encode(Request)}.
+     *
+     * @param requests requests to encode
+     * @return the JSON of the requests
+     * @throws IOException if the requests cannot be serialized
+     */
+    public ByteBuffer encode(List<? extends Request<?, ?>> requests) throws IOException {
+        PooledBuffer buffer = buffer();
+        write(requests, buffer);
+        return buffer.toByteBuffer();
+    }
+
+    private PooledBuffer buffer() {
+        PooledBuffer buffer = buffers.get();
+        if (buffer.capacity() > MAX_POOLED_BUFFER_SIZE) {
+            // Don't hold on to the buffer of an unusually large request
+            buffer = new PooledBuffer();
+            buffers.set(buffer);
+        }
+        buffer.reset();
+        return buffer;
+    }
+
+    private JsonGenerator createGenerator(OutputStream out) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return generator;
+    }
+
+    private void writeRequest(Request<?, ?> request, JsonGenerator generator) throws IOException {
+        if (request.getClass() != Request.class) {
+            // Subclasses may add properties
+            paramsWriter.writeValue(generator, request);
+            return;
+        }
+
+        generator.writeStartObject();
+        generator.writeFieldName(JSONRPC);
+        if (VERSION.equals(request.getJsonrpc())) {
+            generator.writeString(ENCODED_VERSION);
+        } else {
+            generator.writeString(request.getJsonrpc());
+        }
+        generator.writeFieldName(METHOD);
+        SerializedString method = ENCODED_METHODS.get(request.getMethod());
+        if (method != null) {
+            generator.writeString(method);
+        } else {
+            generator.writeString(request.getMethod());
+        }
+        generator.writeFieldName(PARAMS);
+        paramsWriter.writeValue(generator, request.getParams());
+        generator.writeFieldName(ID);
+        generator.writeNumber(request.getId());
+        generator.writeEndObject();
+    }
+
+    /** A reusable byte buffer, which exposes its contents without copying them. */
+    private static class PooledBuffer extends ByteArrayOutputStream {
+
+        PooledBuffer() {
+            super(1024);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+
+        ByteBuffer toByteBuffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+}
@@ -14,13 +14,24 @@ package org.storm3j.protocol;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.reactivex.Flowable;
 
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
 import org.storm3j.protocol.core.Request;
 import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.deserializer.ResultElementReader;
+import org.storm3j.protocol.deserializer.ResultStream;
 import org.storm3j.protocol.websocket.events.Notification;
 import org.storm3j.utils.Async;
 
@@ -28,18 +39,42 @@ import org.storm3j.utils.Async;
 public abstract class Service implements Storm3jService {
 
     protected final ObjectMapper objectMapper;
+    protected final RequestEncoder requestEncoder;
 
     public Service(boolean includeRawResponses) {
         objectMapper = ObjectMapperFactory.getObjectMapper(includeRawResponses);
+        requestEncoder = new RequestEncoder(objectMapper);
     }
 
     protected abstract InputStream performIO(String payload) throws IOException;
 
+    /**
+     * Performs a request. By default its JSON is built as a string for {@link
+     * #performIO(String)}. Transports that send bytes override this to write the JSON straight
+     * into their output with {@link #requestEncoder}.
+     *
+     * @param request request to perform
+     * @return the response, or null if there is none
+     * @throws IOException thrown if failed to perform the request
+     */
+    protected InputStream performIO(Request<?, ?> request) throws IOException {
+        return performIO(objectMapper.writeValueAsString(request));
+    }
+
+    /**
+     * Performs the requests of a batch, see {@link #performIO(Request)}.
+     *
+     * @param requests requests to perform
+     * @return the response, or null if there is none
+     * @throws IOException thrown if failed to perform the requests
+     */
+    protected InputStream performIO(List<? extends Request<?, ?>> requests) throws IOException {
+        return performIO(objectMapper.writeValueAsString(requests));
+    }
+
     @Override
     public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
-        String payload = objectMapper.writeValueAsString(request);
-
-        try (InputStream result = performIO(payload)) {
+        try (InputStream result = performIO((Request<?, ?>) request)) {
             if (result != null) {
                 return objectMapper.readValue(result, responseType);
             } else {
@@ -54,6 +89,90 @@ public abstract class Service implements Storm3jService {
         return Async.run(() -> send(jsonRpc20Request, responseType));
     }
 
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return new BatchResponse(requests, Collections.emptyList());
+        }
+
+        try (InputStream result = performIO(requests)) {
+            if (result != null) {
+                return readBatchResponse(requests, objectMapper.readTree(result));
+            } else {
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return Async.run(() -> sendBatch(batchRequest));
+    }
+
+    /**
+     * Maps the replies of a batch back onto its requests by id, as nodes are free to return them
+     * in any order. A batch in which the node left any request unanswered fails as a whole.
+     */
+    protected BatchResponse readBatchResponse(
+            List<Request<?, ? extends Response<?>>> requests, JsonNode replyJson)
+            throws IOException {
+        if (!replyJson.isArray()) {
+            // The node rejected the batch as a whole and replied with a single error
+            Response<?> reply = objectMapper.treeToValue(replyJson, Response.class);
+            String message = reply.hasError() ? reply.getError().getMessage() : "N/A";
+            throw new IOException("Batch request failed: " + message);
+        }
+
+        Map<Long, Integer> indexForId = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            indexForId.put(requests.get(i).getId(), i);
+        }
+
+        Response<?>[] responses = new Response<?>[requests.size()];
+        for (JsonNode reply : replyJson) {
+            JsonNode idField = reply.get("id");
+            Integer index = idField == null ? null : indexForId.get(idField.asLong());
+            if (index == null) {
+                throw new IOException(
+                        String.format(
+                                "Received batch reply for unexpected request id: %s", idField));
+            }
+            responses[index] =
+                    objectMapper.treeToValue(reply, requests.get(index).getResponseType());
+        }
+
+        List<Long> unanswered = new ArrayList<>();
+        for (int i = 0; i < responses.length; i++) {
+            if (responses[i] == null) {
+                unanswered.add(requests.get(i).getId());
+            }
+        }
+        if (!unanswered.isEmpty()) {
+            throw new IOException("No batch reply for request ids: " + unanswered);
+        }
+
+        return new BatchResponse(requests, Arrays.asList(responses));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The response is read from the stream returned by {@link #performIO(String)}, which is
+     * closed once the result has been read, on error, or when the subscription is cancelled.
+     */
+    @Override
+    public <T> Flowable<T> sendStreaming(Request request, ResultElementReader<T> elementReader) {
+        return Flowable.generate(
+                () ->
+                        ResultStream.open(
+                                objectMapper,
+                                performIO((Request<?, ?>) request),
+                                elementReader),
+                ResultStream<T>::emitNext,
+                ResultStream::close);
+    }
+
     @Override
     public <T extends Notification<?>> Flowable<T> subscribe(
             Request request, String unsubscribeMethod, Class<T> responseType) {
@@ -14,12 +14,14 @@ package org.storm3j.protocol;
 
 import java.util.concurrent.ScheduledExecutorService;
 
+import org.storm3j.protocol.core.Batcher;
 import org.storm3j.protocol.core.Fst;
 import org.storm3j.protocol.core.JsonRpc2_0Storm3j;
 import org.storm3j.protocol.rx.Storm3jRx;
+import org.storm3j.utils.PollingPolicy;
 
 /** JSON-RPC Request object building factory. */
-public interface Storm3j extends Fst, Storm3jRx {
+public interface Storm3j extends Fst, Storm3jRx, Batcher {
 
     /**
      * Construct a new Storm3j instance.
@@ -47,6 +49,36 @@ public interface Storm3j extends Fst, Storm3jRx {
         return new JsonRpc2_0Storm3j(storm3jService, pollingInterval, scheduledExecutorService);
     }
 
+    /**
+     * Construct a new Storm3j instance.
+     *
+     * @param storm3jService storm3j service instance - i.e. HTTP or IPC
+     * @param pollingInterval polling interval for responses from network nodes
+     * @param scheduledExecutorService executor service to use for scheduled tasks. <strong>You are
+     *     responsible for terminating this thread pool</strong>
+     * @param pollingPolicy policy deciding when filters and transaction receipt processors poll
+     *     the node, such as an {@link org.storm3j.utils.AdaptivePollingPolicy}
+     * @return new Storm3j instance
+     */
+    static Storm3j build(
+            Storm3jService storm3jService,
+            long pollingInterval,
+            ScheduledExecutorService scheduledExecutorService,
+            PollingPolicy pollingPolicy) {
+        return new JsonRpc2_0Storm3j(
+                storm3jService, pollingInterval, scheduledExecutorService, pollingPolicy);
+    }
+
+    /**
+     * Returns the policy deciding when the components polling the node through this instance,
+     * such as filters and transaction receipt processors, poll next.
+     *
+     * @return polling policy
+     */
+    default PollingPolicy getPollingPolicy() {
+        return PollingPolicy.fixedRate();
+    }
+
     /** Shutdowns a Storm3j instance and closes opened resources. */
     void shutdown();
 }
@@ -13,8 +13,11 @@
 package org.storm3j.protocol;
 
 import io.reactivex.Flowable;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
 import org.storm3j.protocol.core.Request;
 import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.deserializer.ResultElementReader;
 import org.storm3j.protocol.websocket.events.Notification;
 
 import java.io.IOException;
@@ -45,6 +48,46 @@ public interface Storm3jService {
      */
     <T extends Response> CompletableFuture<T> sendAsync(Request request, Class<T> responseType);
 
+    /**
+     * Perform a synchronous JSON-RPC batch request.
+     *
+     * @param batchRequest batch of requests to perform in a single round trip
+     * @return responses to the batched requests
+     * @throws IOException thrown if failed to perform the batch request
+     */
+    BatchResponse sendBatch(BatchRequest batchRequest) throws IOException;
+
+    /**
+     * Performs an asynchronous JSON-RPC batch request.
+     *
+     * @param batchRequest batch of requests to perform in a single round trip
+     * @return CompletableFuture that will be completed when the responses are returned or if the
+     *     batch request has failed
+     */
+    CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest);
+
+    /**
+     * Performs a JSON-RPC request whose result holds an array, such as the logs of fst_getLogs,
+     * emitting the elements of the array as they are read from the response rather than once the
+     * whole response has been read. The request is sent when the returned {@link Flowable} is
+     * subscribed to, and the response is read as the subscriber requests elements, so memory use
+     * does not grow with the size of the response.
+     *
+     * <p>Reading blocks the subscribing thread, see {@link Flowable#subscribeOn}. A JSON-RPC error
+     * reply is signalled as an {@link IOException}.
+     *
+     * @param request request to perform
+     * @param elementReader reader of the elements of the result
+     * @param <T> type of the elements
+     * @return a {@link Flowable} instance that emits the elements of the result
+     */
+    default <T> Flowable<T> sendStreaming(Request request, ResultElementReader<T> elementReader) {
+        throw new UnsupportedOperationException(
+                String.format(
+                        "Service %s does not support streaming results",
+                        this.getClass().getSimpleName()));
+    }
+
     /**
      * Subscribe to a stream of notifications. A stream of notifications is opened by by performing
      * a specified JSON-RPC request and is closed by calling the unsubscribe method. Different
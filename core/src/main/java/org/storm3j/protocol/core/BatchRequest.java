@@ -0,0 +1,53 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.storm3j.protocol.Storm3jService;
+
+/**
+ * A JSON-RPC 2.0 batch of requests, sent to the node as a single payload.
+ *
+ * <p>Requests are correlated with their responses by id, so each request added to a batch should
+ * carry a distinct id. This is always the case for requests created via {@link Fst}.
+ */
+public class BatchRequest {
+
+    private final Storm3jService storm3jService;
+    private final List<Request<?, ? extends Response<?>>> requests = new ArrayList<>();
+
+    public BatchRequest(Storm3jService storm3jService) {
+        this.storm3jService = storm3jService;
+    }
+
+    public BatchRequest add(Request<?, ? extends Response<?>> request) {
+        requests.add(request);
+        return this;
+    }
+
+    public List<Request<?, ? extends Response<?>>> getRequests() {
+        return requests;
+    }
+
+    public BatchResponse send() throws IOException {
+        return storm3jService.sendBatch(this);
+    }
+
+    public CompletableFuture<BatchResponse> sendAsync() {
+        return storm3jService.sendBatchAsync(this);
+    }
+}
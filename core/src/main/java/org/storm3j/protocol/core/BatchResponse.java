@@ -0,0 +1,55 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core;
+
+import java.util.List;
+
+/**
+ * Responses to a {@link BatchRequest}.
+ *
+ * <p>Responses are held in the same order as the requests of the batch, regardless of the order
+ * in which the node returned them.
+ */
+public class BatchResponse {
+
+    private final List<Request<?, ? extends Response<?>>> requests;
+    private final List<? extends Response<?>> responses;
+
+    public BatchResponse(
+            List<Request<?, ? extends Response<?>>> requests,
+            List<? extends Response<?>> responses) {
+        this.requests = requests;
+        this.responses = responses;
+    }
+
+    public List<Request<?, ? extends Response<?>>> getRequests() {
+        return requests;
+    }
+
+    public List<? extends Response<?>> getResponses() {
+        return responses;
+    }
+
+    /**
+     * Returns the response to the given request.
+     *
+     * @param request a request that was part of the batch
+     * @param <T> type of the response
+     * @return the response, or null if the request was not part of the batch
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Response<?>> T getResponse(Request<?, T> request) {
+        int index = requests.indexOf(request);
+        return index < 0 ? null : (T) responses.get(index);
+    }
+}
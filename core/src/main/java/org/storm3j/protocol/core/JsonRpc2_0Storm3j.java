@@ -20,11 +20,14 @@ import org.storm3j.protocol.core.methods.request.ShhFilter;
 import org.storm3j.protocol.core.methods.request.ShhPost;
 import org.storm3j.protocol.core.methods.request.Transaction;
 import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.deserializer.StreamingModelReader;
+import org.storm3j.protocol.rx.ChainEvent;
 import org.storm3j.protocol.rx.JsonRpc2_0Rx;
 import org.storm3j.protocol.websocket.events.LogNotification;
 import org.storm3j.protocol.websocket.events.NewHeadsNotification;
 import org.storm3j.utils.Async;
 import org.storm3j.utils.Numeric;
+import org.storm3j.utils.PollingPolicy;
 
 import java.io.IOException;
 import java.math.BigInteger;
@@ -40,6 +43,7 @@ public class JsonRpc2_0Storm3j implements Storm3j {
     private final JsonRpc2_0Rx storm3jRx;
     private final long blockTime;
     private final ScheduledExecutorService scheduledExecutorService;
+    private final PollingPolicy pollingPolicy;
 
     public JsonRpc2_0Storm3j(Storm3jService storm3jService) {
         this(storm3jService, DEFAULT_BLOCK_TIME, Async.defaultExecutorService());
@@ -49,10 +53,23 @@ public class JsonRpc2_0Storm3j implements Storm3j {
             Storm3jService storm3jService,
             long pollingInterval,
             ScheduledExecutorService scheduledExecutorService) {
+        this(
+                storm3jService,
+                pollingInterval,
+                scheduledExecutorService,
+                PollingPolicy.fixedRate());
+    }
+
+    public JsonRpc2_0Storm3j(
+            Storm3jService storm3jService,
+            long pollingInterval,
+            ScheduledExecutorService scheduledExecutorService,
+            PollingPolicy pollingPolicy) {
         this.storm3jService = storm3jService;
-        this.storm3jRx = new JsonRpc2_0Rx(this, scheduledExecutorService);
+        this.storm3jRx = new JsonRpc2_0Rx(this, scheduledExecutorService, pollingPolicy);
         this.blockTime = pollingInterval;
         this.scheduledExecutorService = scheduledExecutorService;
+        this.pollingPolicy = pollingPolicy;
     }
 
     @Override
@@ -708,6 +725,45 @@ public class JsonRpc2_0Storm3j implements Storm3j {
         return storm3jRx.replayPastAndFutureTransactionsFlowable(startBlock, blockTime);
     }
 
+    @Override
+    public Flowable<ChainEvent> canonicalBlockFlowable(
+            boolean fullTransactionObjects,
+            org.storm3j.protocol.core.methods.request.FstFilter logFilter) {
+        return storm3jRx.canonicalBlockFlowable(fullTransactionObjects, logFilter, blockTime);
+    }
+
+    @Override
+    public Flowable<ChainEvent> replayPastAndFutureCanonicalBlocksFlowable(
+            DefaultBlockParameter startBlock,
+            boolean fullTransactionObjects,
+            org.storm3j.protocol.core.methods.request.FstFilter logFilter) {
+        return storm3jRx.replayPastAndFutureCanonicalBlocksFlowable(
+                startBlock, fullTransactionObjects, logFilter, blockTime);
+    }
+
+    @Override
+    public Flowable<Log> streamLogsFlowable(
+            org.storm3j.protocol.core.methods.request.FstFilter fstFilter) {
+        return fstGetLogs(fstFilter).streamResult(StreamingModelReader.LOGS);
+    }
+
+    @Override
+    public Flowable<org.storm3j.protocol.core.methods.response.Transaction>
+            streamBlockTransactionsFlowable(DefaultBlockParameter block) {
+        return fstGetBlockByNumber(block, true)
+                .streamResult(StreamingModelReader.BLOCK_TRANSACTIONS);
+    }
+
+    @Override
+    public BatchRequest newBatch() {
+        return new BatchRequest(storm3jService);
+    }
+
+    @Override
+    public PollingPolicy getPollingPolicy() {
+        return pollingPolicy;
+    }
+
     @Override
     public void shutdown() {
         scheduledExecutorService.shutdown();
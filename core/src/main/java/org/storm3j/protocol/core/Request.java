@@ -17,9 +17,11 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.reactivex.Flowable;
 
 import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.deserializer.ResultElementReader;
 
 public class Request<S, T extends Response> {
     private static AtomicLong nextId = new AtomicLong(0);
@@ -77,6 +79,11 @@ public class Request<S, T extends Response> {
         this.id = id;
     }
 
+    @JsonIgnore
+    public Class<T> getResponseType() {
+        return responseType;
+    }
+
     public T send() throws IOException {
         return storm3jService.send(this, responseType);
     }
@@ -88,4 +95,13 @@ public class Request<S, T extends Response> {
     public Flowable<T> flowable() {
         return new RemoteCall<>(this::send).flowable();
     }
+
+    /**
+     * Emits the elements of the result as they are read from the response.
+     *
+     * @see Storm3jService#sendStreaming(Request, ResultElementReader)
+     */
+    public <E> Flowable<E> streamResult(ResultElementReader<E> elementReader) {
+        return storm3jService.sendStreaming(this, elementReader);
+    }
 }
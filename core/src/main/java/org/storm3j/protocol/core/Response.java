@@ -77,6 +77,12 @@ public class Response<T> {
     }
 
     public static class Error {
+        /**
+         * Error code used by nodes and hosted providers when a request rate or a query limit, such
+         * as the number of logs returned, is exceeded.
+         */
+        public static final int LIMIT_EXCEEDED = -32005;
+
         private int code;
         private String message;
 
@@ -43,6 +43,8 @@ public abstract class Filter<T> {
 
     private volatile BigInteger filterId;
 
+    private volatile boolean cancelled;
+
     private ScheduledFuture<?> schedule;
 
     private ScheduledExecutorService scheduledExecutorService;
@@ -55,6 +57,47 @@ public abstract class Filter<T> {
     }
 
     public void run(ScheduledExecutorService scheduledExecutorService, long blockTime) {
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.blockTime = blockTime;
+        // this runs in the caller thread as if any exceptions are encountered, we shouldn't
+        // proceed with creating the scheduled task below
+        install();
+
+        /*
+        We want the filter to be resilient against client issues. On numerous occasions
+        users have reported socket timeout exceptions when connected over HTTP to Geth and
+        Parity clients. For examples, refer to
+        https://github.com/storm3j/storm3j/issues/144 and
+        https://github.com/ethereum/go-ethereum/issues/15243.
+
+        Hence we consume errors and log them as errors, allowing our polling for changes to
+        resume. The downside of this approach is that users will not be notified of
+        downstream connection issues. But given the intermittent nature of the connection
+        issues, this seems like a reasonable compromise.
+
+        The alternative approach would be to have another thread that blocks waiting on
+        schedule.get(), catching any Exceptions thrown, and passing them back up to the
+        caller. However, the user would then be required to recreate subscriptions manually
+        which isn't ideal given the aforementioned issues.
+        */
+        schedule =
+                scheduledExecutorService.scheduleAtFixedRate(
+                        () -> {
+                            try {
+                                this.pollFilter();
+                            } catch (Throwable e) {
+                                // All exceptions must be caught, otherwise our job terminates
+                                // without any notification
+                                log.error("Error sending request", e);
+                            }
+                        },
+                        0,
+                        blockTime,
+                        TimeUnit.MILLISECONDS);
+    }
+
+    /** Installs the filter on the node and processes its initial logs. */
+    void install() {
         try {
             FstFilter fstFilter = sendRequest();
             if (fstFilter.hasError()) {
@@ -62,44 +105,7 @@ public abstract class Filter<T> {
             }
 
             filterId = fstFilter.getFilterId();
-            this.scheduledExecutorService = scheduledExecutorService;
-            this.blockTime = blockTime;
-            // this runs in the caller thread as if any exceptions are encountered, we shouldn't
-            // proceed with creating the scheduled task below
             getInitialFilterLogs();
-
-            /*
-            We want the filter to be resilient against client issues. On numerous occasions
-            users have reported socket timeout exceptions when connected over HTTP to Geth and
-            Parity clients. For examples, refer to
-            https://github.com/storm3j/storm3j/issues/144 and
-            https://github.com/ethereum/go-ethereum/issues/15243.
-
-            Hence we consume errors and log them as errors, allowing our polling for changes to
-            resume. The downside of this approach is that users will not be notified of
-            downstream connection issues. But given the intermittent nature of the connection
-            issues, this seems like a reasonable compromise.
-
-            The alternative approach would be to have another thread that blocks waiting on
-            schedule.get(), catching any Exceptions thrown, and passing them back up to the
-            caller. However, the user would then be required to recreate subscriptions manually
-            which isn't ideal given the aforementioned issues.
-            */
-            schedule =
-                    scheduledExecutorService.scheduleAtFixedRate(
-                            () -> {
-                                try {
-                                    this.pollFilter(fstFilter);
-                                } catch (Throwable e) {
-                                    // All exceptions must be caught, otherwise our job terminates
-                                    // without
-                                    // any notification
-                                    log.error("Error sending request", e);
-                                }
-                            },
-                            0,
-                            blockTime,
-                            TimeUnit.MILLISECONDS);
         } catch (IOException e) {
             throwException(e);
         }
@@ -122,13 +128,28 @@ public abstract class Filter<T> {
         }
     }
 
-    private void pollFilter(FstFilter fstFilter) {
+    private void pollFilter() {
         FstLog fstLog = null;
         try {
-            fstLog = storm3j.fstGetFilterChanges(filterId).send();
+            fstLog = getFilterChanges().send();
         } catch (IOException e) {
             throwException(e);
         }
+        processFilterChanges(fstLog);
+    }
+
+    /** Creates the request for the changes of the filter since it was last polled. */
+    Request<?, FstLog> getFilterChanges() {
+        return storm3j.fstGetFilterChanges(filterId);
+    }
+
+    /**
+     * Processes a reply to {@link #getFilterChanges()}, re-installing the filter if the node no
+     * longer knows it.
+     *
+     * @return true if the reply held any changes
+     */
+    boolean processFilterChanges(FstLog fstLog) {
         if (fstLog.hasError()) {
             Error error = fstLog.getError();
             switch (error.getCode()) {
@@ -139,8 +160,11 @@ public abstract class Filter<T> {
                     throwException(error);
                     break;
             }
+            return false;
         } else {
-            process(fstLog.getLogs());
+            List<FstLog.LogResult> logResults = fstLog.getLogs();
+            process(logResults);
+            return !logResults.isEmpty();
         }
     }
 
@@ -149,13 +173,25 @@ public abstract class Filter<T> {
     abstract void process(List<FstLog.LogResult> logResults);
 
     private void reinstallFilter() {
+        if (cancelled) {
+            // The reply raced with the filter being uninstalled
+            return;
+        }
         log.warn("The filter has not been found. Filter id: " + filterId);
+        if (schedule == null) {
+            // Polled by a FilterPoller, which will pick up the new filter id on its next tick
+            install();
+            return;
+        }
         schedule.cancel(true);
         this.run(scheduledExecutorService, blockTime);
     }
 
     public void cancel() {
-        schedule.cancel(false);
+        cancelled = true;
+        if (schedule != null) {
+            schedule.cancel(false);
+        }
 
         try {
             FstUninstallFilter fstUninstallFilter = storm3j.fstUninstallFilter(filterId).send();
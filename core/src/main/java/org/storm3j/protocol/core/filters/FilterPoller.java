@@ -0,0 +1,280 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.filters;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.utils.PollingPolicy;
+
+/**
+ * Polls the changes of all the filters of a {@link Storm3j} instance together, instead of each
+ * filter running its own task.
+ *
+ * <p>Filters polled at the same interval share a single scheduled task. On each tick the
+ * fst_getFilterChanges requests of all of them are sent in one JSON-RPC batch, and each reply is
+ * passed to the callback of its filter. As with {@link Filter#run(ScheduledExecutorService,
+ * long)}, errors are logged and polling resumes on the next tick.
+ *
+ * <p>The delay between ticks is decided by a {@link PollingPolicy}, polling at the configured
+ * interval by default. It is counted from the start of the last tick, so the time taken by polls
+ * does not add up to it. If the policy learns the block time of the chain, the header of the
+ * newest block reported by the block and log filters is fetched for it after each tick that had
+ * one.
+ */
+public class FilterPoller {
+
+    private static final Logger log = LoggerFactory.getLogger(FilterPoller.class);
+
+    private final Storm3j storm3j;
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final PollingPolicy pollingPolicy;
+    private final LongSupplier clock;
+
+    private final Map<Long, PollingGroup> groups = new HashMap<>();
+
+    // Hash of the last block passed to the policy
+    private volatile String lastBlockHash;
+
+    public FilterPoller(Storm3j storm3j, ScheduledExecutorService scheduledExecutorService) {
+        this(storm3j, scheduledExecutorService, PollingPolicy.fixedRate());
+    }
+
+    public FilterPoller(
+            Storm3j storm3j,
+            ScheduledExecutorService scheduledExecutorService,
+            PollingPolicy pollingPolicy) {
+        this(storm3j, scheduledExecutorService, pollingPolicy, System::currentTimeMillis);
+    }
+
+    FilterPoller(
+            Storm3j storm3j,
+            ScheduledExecutorService scheduledExecutorService,
+            PollingPolicy pollingPolicy,
+            LongSupplier clock) {
+        this.storm3j = storm3j;
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.pollingPolicy = pollingPolicy;
+        this.clock = clock;
+    }
+
+    /**
+     * Installs a filter and polls its changes from then on. Errors installing the filter are
+     * thrown in the caller thread, in which case the filter is not polled.
+     *
+     * @param filter filter to install
+     * @param pollingInterval interval between polls, in milliseconds
+     */
+    public void register(Filter<?> filter, long pollingInterval) {
+        filter.install();
+
+        synchronized (groups) {
+            PollingGroup group = groups.get(pollingInterval);
+            if (group == null) {
+                group = new PollingGroup(pollingPolicy.newSchedule(pollingInterval));
+                groups.put(pollingInterval, group);
+                group.filters.add(filter);
+                group.scheduleTick(0);
+            } else {
+                group.filters.add(filter);
+            }
+        }
+    }
+
+    /**
+     * Stops polling a filter and uninstalls it from the node.
+     *
+     * @param filter filter to cancel
+     */
+    public void cancel(Filter<?> filter) {
+        synchronized (groups) {
+            groups.values()
+                    .removeIf(
+                            group -> {
+                                if (group.filters.remove(filter) && group.filters.isEmpty()) {
+                                    group.cancel();
+                                    return true;
+                                }
+                                return false;
+                            });
+        }
+
+        filter.cancel();
+    }
+
+    /**
+     * Returns the number of filters currently polled.
+     *
+     * @return number of filters
+     */
+    public int getFilterCount() {
+        synchronized (groups) {
+            return groups.values().stream().mapToInt(group -> group.filters.size()).sum();
+        }
+    }
+
+    /** @return true if any of the filters had changes */
+    private boolean poll(List<Filter<?>> filters) {
+        List<Filter<?>> polled = new ArrayList<>(filters);
+        List<FstLog> changes = new ArrayList<>();
+        boolean changed = false;
+        try {
+            if (polled.size() == 1) {
+                // Nothing to share a round trip with
+                Filter<?> filter = polled.get(0);
+                changes.add(filter.getFilterChanges().send());
+                changed = process(filter, changes.get(0));
+            } else if (!polled.isEmpty()) {
+                BatchRequest batch = storm3j.newBatch();
+                for (Filter<?> filter : polled) {
+                    batch.add(filter.getFilterChanges());
+                }
+
+                // Responses are held in the order of the requests
+                BatchResponse batchResponse = batch.send();
+                for (int i = 0; i < polled.size(); i++) {
+                    changes.add((FstLog) batchResponse.getResponses().get(i));
+                    changed |= process(polled.get(i), changes.get(i));
+                }
+            }
+
+            if (changed && pollingPolicy.learnsBlockTime()) {
+                learnBlockTime(newestBlockHash(polled, changes));
+            }
+        } catch (Throwable e) {
+            // All exceptions must be caught, otherwise our job terminates without any
+            // notification
+            log.error("Error sending request", e);
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the hash of the newest block in the changes of the filters: the last head reported
+     * by a block filter, else the block of the newest log reported by a log filter.
+     */
+    private static String newestBlockHash(List<Filter<?>> filters, List<FstLog> changes) {
+        String logBlockHash = null;
+        BigInteger logBlockNumber = null;
+        for (int i = 0; i < changes.size(); i++) {
+            FstLog fstLog = changes.get(i);
+            if (fstLog == null || fstLog.hasError() || fstLog.getLogs() == null) {
+                continue;
+            }
+
+            Filter<?> filter = filters.get(i);
+            List<FstLog.LogResult> logResults = fstLog.getLogs();
+            if (filter instanceof BlockFilter && !logResults.isEmpty()) {
+                // Heads are reported in order, none of the logs can be newer
+                FstLog.LogResult head = logResults.get(logResults.size() - 1);
+                if (head instanceof FstLog.Hash) {
+                    return ((FstLog.Hash) head).get();
+                }
+            } else if (filter instanceof LogFilter) {
+                for (FstLog.LogResult logResult : logResults) {
+                    if (!(logResult instanceof FstLog.LogObject)) {
+                        continue;
+                    }
+                    FstLog.LogObject logObject = (FstLog.LogObject) logResult;
+                    if (logObject.getBlockHash() != null
+                            && logObject.getBlockNumberRaw() != null
+                            && (logBlockNumber == null
+                                    || logObject.getBlockNumber().compareTo(logBlockNumber) > 0)) {
+                        logBlockHash = logObject.getBlockHash();
+                        logBlockNumber = logObject.getBlockNumber();
+                    }
+                }
+            }
+        }
+        return logBlockHash;
+    }
+
+    /** Passes the number and timestamp of a block to the polling policy, once per block. */
+    private void learnBlockTime(String blockHash) {
+        if (blockHash == null || blockHash.equals(lastBlockHash)) {
+            return;
+        }
+        lastBlockHash = blockHash;
+
+        try {
+            FstBlock.Block block = storm3j.fstGetBlockByHash(blockHash, false).send().getBlock();
+            if (block != null && block.getNumberRaw() != null && block.getTimestampRaw() != null) {
+                pollingPolicy.onBlock(block.getNumber(), block.getTimestamp());
+            }
+        } catch (Throwable e) {
+            // The changes have been delivered already, only the policy misses this block
+            log.warn("Error fetching block {}", blockHash, e);
+        }
+    }
+
+    private static boolean process(Filter<?> filter, FstLog fstLog) {
+        try {
+            return filter.processFilterChanges(fstLog);
+        } catch (Throwable e) {
+            // Don't let one filter keep the others from receiving their changes
+            log.error("Error processing filter changes", e);
+            return false;
+        }
+    }
+
+    /** Filters polled at the same interval, by a task rescheduling itself after each tick. */
+    private class PollingGroup implements Runnable {
+        private final List<Filter<?>> filters = new CopyOnWriteArrayList<>();
+        private final PollingPolicy.Schedule schedule;
+
+        // Guarded by groups
+        private ScheduledFuture<?> tick;
+        private boolean cancelled;
+
+        PollingGroup(PollingPolicy.Schedule schedule) {
+            this.schedule = schedule;
+        }
+
+        @Override
+        public void run() {
+            long start = clock.getAsLong();
+            boolean changed = poll(filters);
+            long delay = schedule.nextDelay(changed) - (clock.getAsLong() - start);
+            synchronized (groups) {
+                if (!cancelled) {
+                    scheduleTick(Math.max(0, delay));
+                }
+            }
+        }
+
+        void scheduleTick(long delay) {
+            tick = scheduledExecutorService.schedule(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        void cancel() {
+            cancelled = true;
+            tick.cancel(false);
+        }
+    }
+}
@@ -24,6 +24,7 @@ import org.storm3j.protocol.core.DefaultBlockParameter;
 public class FstFilter extends Filter<FstFilter> {
     private DefaultBlockParameter fromBlock; // optional, params - defaults to latest for both
     private DefaultBlockParameter toBlock;
+    private String blockHash; // optional, replaces the block range as per EIP-234
     private List<String> address; // spec. implies this can be single address as string or list
 
     public FstFilter() {
@@ -51,10 +52,44 @@ public class FstFilter extends Filter<FstFilter> {
         return toBlock;
     }
 
+    public String getBlockHash() {
+        return blockHash;
+    }
+
     public List<String> getAddress() {
         return address;
     }
 
+    /**
+     * Creates a copy of this filter matching the same addresses and topics over another block
+     * range.
+     *
+     * @param fromBlock first block of the range
+     * @param toBlock last block of the range
+     * @return a new filter
+     */
+    public FstFilter withBlockRange(
+            DefaultBlockParameter fromBlock, DefaultBlockParameter toBlock) {
+        FstFilter filter = new FstFilter(fromBlock, toBlock, address);
+        filter.getTopics().addAll(getTopics());
+        return filter;
+    }
+
+    /**
+     * Creates a copy of this filter matching the same addresses and topics in a single block, as
+     * per <a href="https://eips.ethereum.org/EIPS/eip-234">EIP-234</a>. Unlike a block number, the
+     * hash identifies the block even if the chain has been reorganised.
+     *
+     * @param blockHash hash of the block
+     * @return a new filter
+     */
+    public FstFilter withBlockHash(String blockHash) {
+        FstFilter filter = new FstFilter(null, null, address);
+        filter.blockHash = blockHash;
+        filter.getTopics().addAll(getTopics());
+        return filter;
+    }
+
     @Override
     FstFilter getThis() {
         return this;
@@ -14,19 +14,15 @@ package org.storm3j.protocol.core.methods.response;
 
 import java.io.IOException;
 import java.math.BigInteger;
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-import org.storm3j.protocol.ObjectMapperFactory;
 import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.deserializer.StreamingModelReader;
 import org.storm3j.utils.Numeric;
 
 /**
@@ -587,49 +583,22 @@ public class FstBlock extends Response<FstBlock.Block> {
     public static class ResultTransactionDeserialiser
             extends JsonDeserializer<List<TransactionResult>> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public List<TransactionResult> deserialize(
                 JsonParser jsonParser, DeserializationContext deserializationContext)
                 throws IOException {
-
-            List<TransactionResult> transactionResults = new ArrayList<>();
-            JsonToken nextToken = jsonParser.nextToken();
-
-            if (nextToken == JsonToken.START_OBJECT) {
-                Iterator<TransactionObject> transactionObjectIterator =
-                        objectReader.readValues(jsonParser, TransactionObject.class);
-                while (transactionObjectIterator.hasNext()) {
-                    transactionResults.add(transactionObjectIterator.next());
-                }
-            } else if (nextToken == JsonToken.VALUE_STRING) {
-                jsonParser.getValueAsString();
-
-                Iterator<TransactionHash> transactionHashIterator =
-                        objectReader.readValues(jsonParser, TransactionHash.class);
-                while (transactionHashIterator.hasNext()) {
-                    transactionResults.add(transactionHashIterator.next());
-                }
-            }
-
-            return transactionResults;
+            return StreamingModelReader.readTransactionResults(jsonParser);
         }
     }
 
     public static class ResponseDeserialiser extends JsonDeserializer<Block> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public Block deserialize(
                 JsonParser jsonParser, DeserializationContext deserializationContext)
                 throws IOException {
-            if (jsonParser.getCurrentToken() != JsonToken.VALUE_NULL) {
-                return objectReader.readValue(jsonParser, Block.class);
-            } else {
-                return null; // null is wrapped by Optional in above getter
-            }
+            // null is wrapped by Optional in above getter
+            return StreamingModelReader.readBlock(jsonParser);
         }
     }
 }
@@ -16,34 +16,34 @@ import java.io.IOException;
 import java.util.Optional;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-import org.storm3j.protocol.ObjectMapperFactory;
 import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.deserializer.StreamingModelReader;
 
 /** eth_getTransactionReceipt. */
 public class FstGetTransactionReceipt extends Response<TransactionReceipt> {
 
+    @Override
+    @JsonDeserialize(using = FstGetTransactionReceipt.ResponseDeserialiser.class)
+    public void setResult(TransactionReceipt result) {
+        super.setResult(result);
+    }
+
     public Optional<TransactionReceipt> getTransactionReceipt() {
         return Optional.ofNullable(getResult());
     }
 
     public static class ResponseDeserialiser extends JsonDeserializer<TransactionReceipt> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public TransactionReceipt deserialize(
                 JsonParser jsonParser, DeserializationContext deserializationContext)
                 throws IOException {
-            if (jsonParser.getCurrentToken() != JsonToken.VALUE_NULL) {
-                return objectReader.readValue(jsonParser, TransactionReceipt.class);
-            } else {
-                return null; // null is wrapped by Optional in above getter
-            }
+            // null is wrapped by Optional in above getter
+            return StreamingModelReader.readTransactionReceipt(jsonParser);
         }
     }
 }
@@ -16,13 +16,12 @@ import java.io.IOException;
 import java.util.Optional;
 
 import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationContext;
 import com.fasterxml.jackson.databind.JsonDeserializer;
-import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 
-import org.storm3j.protocol.ObjectMapperFactory;
 import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.deserializer.StreamingModelReader;
 
 /**
  * Transaction object returned by:
@@ -40,23 +39,24 @@ import org.storm3j.protocol.core.Response;
  */
 public class FstTransaction extends Response<Transaction> {
 
+    @Override
+    @JsonDeserialize(using = FstTransaction.ResponseDeserialiser.class)
+    public void setResult(Transaction result) {
+        super.setResult(result);
+    }
+
     public Optional<Transaction> getTransaction() {
         return Optional.ofNullable(getResult());
     }
 
     public static class ResponseDeserialiser extends JsonDeserializer<Transaction> {
 
-        private ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
-
         @Override
         public Transaction deserialize(
                 JsonParser jsonParser, DeserializationContext deserializationContext)
                 throws IOException {
-            if (jsonParser.getCurrentToken() != JsonToken.VALUE_NULL) {
-                return objectReader.readValue(jsonParser, Transaction.class);
-            } else {
-                return null; // null is wrapped by Optional in above getter
-            }
+            // null is wrapped by Optional in above getter
+            return StreamingModelReader.readTransaction(jsonParser, new Transaction());
         }
     }
 }
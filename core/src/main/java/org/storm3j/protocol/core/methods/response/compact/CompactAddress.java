@@ -0,0 +1,104 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import org.storm3j.exceptions.MessageDecodingException;
+
+/**
+ * A 20 byte account address held in two longs and an int rather than a 42 character string. The
+ * hash code is computed once, so instances are cheap map keys.
+ *
+ * <p>Checksum capitalisation is not kept, {@link #toString()} is lower case.
+ */
+public final class CompactAddress {
+
+    public static final int SIZE = 20;
+
+    private final long word0;
+    private final long word1;
+    private final int word2;
+    private final int hashCode;
+
+    private CompactAddress(long word0, long word1, int word2) {
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.hashCode = (int) (word0 ^ (word0 >>> 32) ^ word1 ^ (word1 >>> 32)) ^ word2;
+    }
+
+    /**
+     * Parses an address.
+     *
+     * @param value hex encoded address with a 0x prefix, or null
+     * @return the address, or null if the value is null
+     * @throws MessageDecodingException if the value is not 20 hex encoded bytes
+     */
+    public static CompactAddress of(String value) {
+        if (value == null) {
+            return null;
+        }
+        HexValues.checkFixed(value, SIZE);
+        return new CompactAddress(
+                HexValues.word(value, 2, 18),
+                HexValues.word(value, 18, 34),
+                (int) HexValues.word(value, 34, 42));
+    }
+
+    public static CompactAddress of(byte[] value) {
+        if (value.length != SIZE) {
+            throw new IllegalArgumentException("Address must be " + SIZE + " bytes");
+        }
+        return new CompactAddress(
+                HexValues.word(value, 0, 8),
+                HexValues.word(value, 8, 8),
+                (int) HexValues.word(value, 16, 4));
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[SIZE];
+        HexValues.word(word0, bytes, 0, 8);
+        HexValues.word(word1, bytes, 8, 8);
+        HexValues.word(word2, bytes, 16, 4);
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactAddress)) {
+            return false;
+        }
+
+        CompactAddress that = (CompactAddress) o;
+        return word0 == that.word0 && word1 == that.word1 && word2 == that.word2;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /** Returns the lower case hex encoding with a 0x prefix. */
+    @Override
+    public String toString() {
+        char[] chars = new char[2 + SIZE * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        HexValues.word(word0, 16, chars, 2);
+        HexValues.word(word1, 16, chars, 18);
+        HexValues.word(word2, 8, chars, 34);
+        return new String(chars);
+    }
+}
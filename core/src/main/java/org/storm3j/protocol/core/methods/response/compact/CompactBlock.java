@@ -0,0 +1,325 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.storm3j.protocol.core.methods.response.FstBlock;
+
+/**
+ * Compact form of {@link FstBlock.Block}.
+ *
+ * <p>Hashes and addresses are held as {@link CompactHash} and {@link CompactAddress}, and
+ * quantities that fit as primitive longs, which are {@code -1} where the node returned null, as it
+ * does for the number of a pending block. Full transactions are {@link CompactTransaction}s
+ * sharing the block hash instance. Parity's {@code sealFields} are not kept. {@link #toBlock()}
+ * recreates the string based form.
+ */
+public final class CompactBlock {
+
+    private static final CompactHash[] NO_HASHES = new CompactHash[0];
+    private static final CompactTransaction[] NO_TRANSACTIONS = new CompactTransaction[0];
+
+    private final long number;
+    private final CompactHash hash;
+    private final CompactHash parentHash;
+    private final byte[] nonce;
+    private final CompactHash sha3Uncles;
+    private final byte[] logsBloom;
+    private final CompactHash transactionsRoot;
+    private final CompactHash stateRoot;
+    private final CompactHash receiptsRoot;
+    private final CompactAddress author;
+    private final CompactAddress miner;
+    private final CompactHash mixHash;
+    private final BigInteger difficulty;
+    private final BigInteger totalDifficulty;
+    private final byte[] extraData;
+    private final long size;
+    private final long gasLimit;
+    private final long gasUsed;
+    private final long timestamp;
+    private final CompactHash[] transactionHashes;
+    private final CompactTransaction[] transactions;
+    private final CompactHash[] uncles;
+
+    private CompactBlock(FstBlock.Block block) {
+        this.number = HexValues.quantity(block.getNumberRaw());
+        this.hash = CompactHash.of(block.getHash());
+        this.parentHash = CompactHash.of(block.getParentHash());
+        this.nonce = HexValues.bytes(block.getNonceRaw());
+        this.sha3Uncles = CompactHash.of(block.getSha3Uncles());
+        this.logsBloom = HexValues.bytes(block.getLogsBloom());
+        this.transactionsRoot = CompactHash.of(block.getTransactionsRoot());
+        this.stateRoot = CompactHash.of(block.getStateRoot());
+        this.receiptsRoot = CompactHash.of(block.getReceiptsRoot());
+        this.author = CompactAddress.of(block.getAuthor());
+        this.miner = CompactAddress.of(block.getMiner());
+        this.mixHash = CompactHash.of(block.getMixHash());
+        this.difficulty = HexValues.bigQuantity(block.getDifficultyRaw());
+        this.totalDifficulty = HexValues.bigQuantity(block.getTotalDifficultyRaw());
+        this.extraData = HexValues.bytes(block.getExtraData());
+        this.size = HexValues.quantity(block.getSizeRaw());
+        this.gasLimit = HexValues.quantity(block.getGasLimitRaw());
+        this.gasUsed = HexValues.quantity(block.getGasUsedRaw());
+        this.timestamp = HexValues.quantity(block.getTimestampRaw());
+
+        List<FstBlock.TransactionResult> results = block.getTransactions();
+        if (results == null || results.isEmpty()) {
+            this.transactionHashes = NO_HASHES;
+            this.transactions = NO_TRANSACTIONS;
+        } else if (results.get(0) instanceof FstBlock.TransactionObject) {
+            this.transactionHashes = null;
+            this.transactions = new CompactTransaction[results.size()];
+            for (int i = 0; i < transactions.length; i++) {
+                FstBlock.TransactionObject transaction =
+                        (FstBlock.TransactionObject) results.get(i);
+                transactions[i] = CompactTransaction.from(transaction, hash);
+            }
+        } else {
+            this.transactionHashes = new CompactHash[results.size()];
+            this.transactions = NO_TRANSACTIONS;
+            for (int i = 0; i < transactionHashes.length; i++) {
+                transactionHashes[i] = CompactHash.of((String) results.get(i).get());
+            }
+        }
+
+        this.uncles = toHashes(block.getUncles());
+    }
+
+    public static CompactBlock from(FstBlock.Block block) {
+        return new CompactBlock(block);
+    }
+
+    private static CompactHash[] toHashes(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return NO_HASHES;
+        }
+        CompactHash[] hashes = new CompactHash[values.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = CompactHash.of(values.get(i));
+        }
+        return hashes;
+    }
+
+    public long getNumber() {
+        return number;
+    }
+
+    public CompactHash getHash() {
+        return hash;
+    }
+
+    public CompactHash getParentHash() {
+        return parentHash;
+    }
+
+    public byte[] getNonce() {
+        return nonce == null ? null : nonce.clone();
+    }
+
+    public CompactHash getSha3Uncles() {
+        return sha3Uncles;
+    }
+
+    public byte[] getLogsBloom() {
+        return logsBloom == null ? null : logsBloom.clone();
+    }
+
+    public CompactHash getTransactionsRoot() {
+        return transactionsRoot;
+    }
+
+    public CompactHash getStateRoot() {
+        return stateRoot;
+    }
+
+    public CompactHash getReceiptsRoot() {
+        return receiptsRoot;
+    }
+
+    public CompactAddress getAuthor() {
+        return author;
+    }
+
+    public CompactAddress getMiner() {
+        return miner;
+    }
+
+    public CompactHash getMixHash() {
+        return mixHash;
+    }
+
+    public BigInteger getDifficulty() {
+        return difficulty;
+    }
+
+    public BigInteger getTotalDifficulty() {
+        return totalDifficulty;
+    }
+
+    public byte[] getExtraData() {
+        return extraData == null ? null : extraData.clone();
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getGasLimit() {
+        return gasLimit;
+    }
+
+    public long getGasUsed() {
+        return gasUsed;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /** Returns the hashes of the transactions, whether or not the full transactions were read. */
+    public List<CompactHash> getTransactionHashes() {
+        if (transactionHashes != null) {
+            return Collections.unmodifiableList(Arrays.asList(transactionHashes));
+        }
+        List<CompactHash> hashes = new ArrayList<>(transactions.length);
+        for (CompactTransaction transaction : transactions) {
+            hashes.add(transaction.getHash());
+        }
+        return Collections.unmodifiableList(hashes);
+    }
+
+    /** Returns the full transactions, which are empty if the block was read with hashes only. */
+    public List<CompactTransaction> getTransactions() {
+        return Collections.unmodifiableList(Arrays.asList(transactions));
+    }
+
+    public List<CompactHash> getUncles() {
+        return Collections.unmodifiableList(Arrays.asList(uncles));
+    }
+
+    /**
+     * Recreates the string based form of this block. Hex values are lower case, and quantities
+     * carry no leading zeros.
+     *
+     * @return a new block
+     */
+    public FstBlock.Block toBlock() {
+        List<FstBlock.TransactionResult> results = new ArrayList<>();
+        if (transactionHashes != null) {
+            for (CompactHash transactionHash : transactionHashes) {
+                results.add(new FstBlock.TransactionHash(transactionHash.toString()));
+            }
+        } else {
+            for (CompactTransaction transaction : transactions) {
+                results.add(transaction.copyTo(new FstBlock.TransactionObject()));
+            }
+        }
+
+        List<String> stringUncles = new ArrayList<>(uncles.length);
+        for (CompactHash uncle : uncles) {
+            stringUncles.add(uncle.toString());
+        }
+
+        return new FstBlock.Block(
+                HexValues.quantity(number),
+                CompactLog.toString(hash),
+                CompactLog.toString(parentHash),
+                HexValues.bytes(nonce),
+                CompactLog.toString(sha3Uncles),
+                HexValues.bytes(logsBloom),
+                CompactLog.toString(transactionsRoot),
+                CompactLog.toString(stateRoot),
+                CompactLog.toString(receiptsRoot),
+                CompactLog.toString(author),
+                CompactLog.toString(miner),
+                CompactLog.toString(mixHash),
+                HexValues.bigQuantity(difficulty),
+                HexValues.bigQuantity(totalDifficulty),
+                HexValues.bytes(extraData),
+                HexValues.quantity(size),
+                HexValues.quantity(gasLimit),
+                HexValues.quantity(gasUsed),
+                HexValues.quantity(timestamp),
+                results,
+                stringUncles,
+                null);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactBlock)) {
+            return false;
+        }
+
+        CompactBlock that = (CompactBlock) o;
+        return number == that.number
+                && size == that.size
+                && gasLimit == that.gasLimit
+                && gasUsed == that.gasUsed
+                && timestamp == that.timestamp
+                && Objects.equals(hash, that.hash)
+                && Objects.equals(parentHash, that.parentHash)
+                && Arrays.equals(nonce, that.nonce)
+                && Objects.equals(sha3Uncles, that.sha3Uncles)
+                && Arrays.equals(logsBloom, that.logsBloom)
+                && Objects.equals(transactionsRoot, that.transactionsRoot)
+                && Objects.equals(stateRoot, that.stateRoot)
+                && Objects.equals(receiptsRoot, that.receiptsRoot)
+                && Objects.equals(author, that.author)
+                && Objects.equals(miner, that.miner)
+                && Objects.equals(mixHash, that.mixHash)
+                && Objects.equals(difficulty, that.difficulty)
+                && Objects.equals(totalDifficulty, that.totalDifficulty)
+                && Arrays.equals(extraData, that.extraData)
+                && Arrays.equals(transactionHashes, that.transactionHashes)
+                && Arrays.equals(transactions, that.transactions)
+                && Arrays.equals(uncles, that.uncles);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hashCode(hash);
+        result = 31 * result + Long.hashCode(number);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactBlock{"
+                + "number="
+                + number
+                + ", hash="
+                + hash
+                + ", parentHash="
+                + parentHash
+                + ", miner="
+                + miner
+                + ", gasUsed="
+                + gasUsed
+                + ", timestamp="
+                + timestamp
+                + ", transactions="
+                + (transactionHashes != null ? transactionHashes.length : transactions.length)
+                + '}';
+    }
+}
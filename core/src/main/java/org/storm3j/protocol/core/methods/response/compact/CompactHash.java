@@ -0,0 +1,112 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import org.storm3j.exceptions.MessageDecodingException;
+
+/**
+ * A 32 byte hash, such as a block or transaction hash or a log topic, held in four longs rather
+ * than a 66 character string. The hash code is computed once, so instances are cheap map keys.
+ */
+public final class CompactHash {
+
+    public static final int SIZE = 32;
+
+    private final long word0;
+    private final long word1;
+    private final long word2;
+    private final long word3;
+    private final int hashCode;
+
+    private CompactHash(long word0, long word1, long word2, long word3) {
+        this.word0 = word0;
+        this.word1 = word1;
+        this.word2 = word2;
+        this.word3 = word3;
+        this.hashCode = (int) (word0 ^ (word0 >>> 32) ^ word1 ^ (word2 >>> 32) ^ word3);
+    }
+
+    /**
+     * Parses a hash.
+     *
+     * @param value hex encoded hash with a 0x prefix, or null
+     * @return the hash, or null if the value is null
+     * @throws MessageDecodingException if the value is not 32 hex encoded bytes
+     */
+    public static CompactHash of(String value) {
+        if (value == null) {
+            return null;
+        }
+        HexValues.checkFixed(value, SIZE);
+        return new CompactHash(
+                HexValues.word(value, 2, 18),
+                HexValues.word(value, 18, 34),
+                HexValues.word(value, 34, 50),
+                HexValues.word(value, 50, 66));
+    }
+
+    public static CompactHash of(byte[] value) {
+        if (value.length != SIZE) {
+            throw new IllegalArgumentException("Hash must be " + SIZE + " bytes");
+        }
+        return new CompactHash(
+                HexValues.word(value, 0, 8),
+                HexValues.word(value, 8, 8),
+                HexValues.word(value, 16, 8),
+                HexValues.word(value, 24, 8));
+    }
+
+    public byte[] toBytes() {
+        byte[] bytes = new byte[SIZE];
+        HexValues.word(word0, bytes, 0, 8);
+        HexValues.word(word1, bytes, 8, 8);
+        HexValues.word(word2, bytes, 16, 8);
+        HexValues.word(word3, bytes, 24, 8);
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactHash)) {
+            return false;
+        }
+
+        CompactHash that = (CompactHash) o;
+        return hashCode == that.hashCode
+                && word0 == that.word0
+                && word1 == that.word1
+                && word2 == that.word2
+                && word3 == that.word3;
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    /** Returns the lower case hex encoding with a 0x prefix. */
+    @Override
+    public String toString() {
+        char[] chars = new char[2 + SIZE * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        HexValues.word(word0, 16, chars, 2);
+        HexValues.word(word1, 16, chars, 18);
+        HexValues.word(word2, 16, chars, 34);
+        HexValues.word(word3, 16, chars, 50);
+        return new String(chars);
+    }
+}
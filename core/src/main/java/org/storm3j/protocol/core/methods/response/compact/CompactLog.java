@@ -0,0 +1,268 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.storm3j.protocol.core.methods.response.Log;
+
+/**
+ * Compact form of {@link Log}, for holding many logs in memory, for example over a reorg window.
+ *
+ * <p>Hashes, topics and the address are held as {@link CompactHash} and {@link CompactAddress},
+ * quantities as primitive longs, which are {@code -1} where the node returned null, as it does for
+ * pending logs. {@link #toLog()} recreates the string based form.
+ */
+public final class CompactLog {
+
+    private static final CompactHash[] NO_TOPICS = new CompactHash[0];
+
+    private final boolean removed;
+    private final long logIndex;
+    private final long transactionIndex;
+    private final CompactHash transactionHash;
+    private final CompactHash blockHash;
+    private final long blockNumber;
+    private final CompactAddress address;
+    private final byte[] data;
+    private final String type;
+    private final CompactHash[] topics;
+
+    public CompactLog(
+            boolean removed,
+            long logIndex,
+            long transactionIndex,
+            CompactHash transactionHash,
+            CompactHash blockHash,
+            long blockNumber,
+            CompactAddress address,
+            byte[] data,
+            String type,
+            List<CompactHash> topics) {
+        this(
+                removed,
+                logIndex,
+                transactionIndex,
+                transactionHash,
+                blockHash,
+                blockNumber,
+                address,
+                data,
+                type,
+                topics.toArray(NO_TOPICS));
+    }
+
+    private CompactLog(
+            boolean removed,
+            long logIndex,
+            long transactionIndex,
+            CompactHash transactionHash,
+            CompactHash blockHash,
+            long blockNumber,
+            CompactAddress address,
+            byte[] data,
+            String type,
+            CompactHash[] topics) {
+        this.removed = removed;
+        this.logIndex = logIndex;
+        this.transactionIndex = transactionIndex;
+        this.transactionHash = transactionHash;
+        this.blockHash = blockHash;
+        this.blockNumber = blockNumber;
+        this.address = address;
+        this.data = data;
+        this.type = type == null ? null : type.intern();
+        this.topics = topics;
+    }
+
+    public static CompactLog from(Log log) {
+        return from(log, null, null);
+    }
+
+    /**
+     * Converts a list of logs. Consecutive logs from the same block and transaction, which is how
+     * nodes order them, share their block and transaction hash instances.
+     *
+     * @param logs the logs
+     * @return the compact logs, in the same order
+     */
+    public static List<CompactLog> from(List<? extends Log> logs) {
+        List<CompactLog> result = new ArrayList<>(logs.size());
+        CompactLog previous = null;
+        for (Log log : logs) {
+            previous =
+                    previous == null
+                            ? from(log)
+                            : from(log, previous.blockHash, previous.transactionHash);
+            result.add(previous);
+        }
+        return result;
+    }
+
+    static CompactLog from(
+            Log log, CompactHash sharedBlockHash, CompactHash sharedTransactionHash) {
+        List<String> topics = log.getTopics();
+        CompactHash[] compactTopics = NO_TOPICS;
+        if (topics != null && !topics.isEmpty()) {
+            compactTopics = new CompactHash[topics.size()];
+            for (int i = 0; i < compactTopics.length; i++) {
+                compactTopics[i] = CompactHash.of(topics.get(i));
+            }
+        }
+
+        return new CompactLog(
+                log.isRemoved(),
+                HexValues.quantity(log.getLogIndexRaw()),
+                HexValues.quantity(log.getTransactionIndexRaw()),
+                share(CompactHash.of(log.getTransactionHash()), sharedTransactionHash),
+                share(CompactHash.of(log.getBlockHash()), sharedBlockHash),
+                HexValues.quantity(log.getBlockNumberRaw()),
+                CompactAddress.of(log.getAddress()),
+                HexValues.bytes(log.getData()),
+                log.getType(),
+                compactTopics);
+    }
+
+    /** Returns the shared instance if it is equal to the hash, so the hash can be collected. */
+    static CompactHash share(CompactHash hash, CompactHash shared) {
+        return hash != null && hash.equals(shared) ? shared : hash;
+    }
+
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    public long getLogIndex() {
+        return logIndex;
+    }
+
+    public long getTransactionIndex() {
+        return transactionIndex;
+    }
+
+    public CompactHash getTransactionHash() {
+        return transactionHash;
+    }
+
+    public CompactHash getBlockHash() {
+        return blockHash;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public CompactAddress getAddress() {
+        return address;
+    }
+
+    public byte[] getData() {
+        return data == null ? null : data.clone();
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public List<CompactHash> getTopics() {
+        return Collections.unmodifiableList(Arrays.asList(topics));
+    }
+
+    /**
+     * Recreates the string based form of this log. Hex values are lower case, and quantities
+     * carry no leading zeros.
+     *
+     * @return a new log
+     */
+    public Log toLog() {
+        List<String> stringTopics = new ArrayList<>(topics.length);
+        for (CompactHash topic : topics) {
+            stringTopics.add(topic.toString());
+        }
+        return new Log(
+                removed,
+                HexValues.quantity(logIndex),
+                HexValues.quantity(transactionIndex),
+                toString(transactionHash),
+                toString(blockHash),
+                HexValues.quantity(blockNumber),
+                toString(address),
+                HexValues.bytes(data),
+                type,
+                stringTopics);
+    }
+
+    static String toString(Object value) {
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactLog)) {
+            return false;
+        }
+
+        CompactLog that = (CompactLog) o;
+        return removed == that.removed
+                && logIndex == that.logIndex
+                && transactionIndex == that.transactionIndex
+                && blockNumber == that.blockNumber
+                && Objects.equals(transactionHash, that.transactionHash)
+                && Objects.equals(blockHash, that.blockHash)
+                && Objects.equals(address, that.address)
+                && Arrays.equals(data, that.data)
+                && Objects.equals(type, that.type)
+                && Arrays.equals(topics, that.topics);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hashCode(transactionHash);
+        result = 31 * result + Long.hashCode(logIndex);
+        result = 31 * result + Objects.hashCode(blockHash);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactLog{"
+                + "removed="
+                + removed
+                + ", logIndex="
+                + logIndex
+                + ", transactionIndex="
+                + transactionIndex
+                + ", transactionHash="
+                + transactionHash
+                + ", blockHash="
+                + blockHash
+                + ", blockNumber="
+                + blockNumber
+                + ", address="
+                + address
+                + ", data="
+                + HexValues.bytes(data)
+                + ", type="
+                + type
+                + ", topics="
+                + Arrays.toString(topics)
+                + '}';
+    }
+}
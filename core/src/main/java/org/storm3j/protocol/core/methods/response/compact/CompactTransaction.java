@@ -0,0 +1,261 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.storm3j.protocol.core.methods.response.Transaction;
+
+/**
+ * Compact form of {@link Transaction}.
+ *
+ * <p>Hashes and addresses are held as {@link CompactHash} and {@link CompactAddress}, and
+ * quantities that fit as primitive longs, which are {@code -1} where the node returned null, as it
+ * does for the block of a pending transaction. Parity's {@code publicKey} and {@code raw} fields
+ * are not kept. {@link #toTransaction()} recreates the string based form.
+ */
+public final class CompactTransaction {
+
+    private final CompactHash hash;
+    private final long nonce;
+    private final CompactHash blockHash;
+    private final long blockNumber;
+    private final long transactionIndex;
+    private final CompactAddress from;
+    private final CompactAddress to;
+    private final BigInteger value;
+    private final BigInteger gasPrice;
+    private final long gas;
+    private final byte[] input;
+    private final CompactAddress creates;
+    private final BigInteger r;
+    private final BigInteger s;
+    private final long v;
+
+    public CompactTransaction(
+            CompactHash hash,
+            long nonce,
+            CompactHash blockHash,
+            long blockNumber,
+            long transactionIndex,
+            CompactAddress from,
+            CompactAddress to,
+            BigInteger value,
+            BigInteger gasPrice,
+            long gas,
+            byte[] input,
+            CompactAddress creates,
+            BigInteger r,
+            BigInteger s,
+            long v) {
+        this.hash = hash;
+        this.nonce = nonce;
+        this.blockHash = blockHash;
+        this.blockNumber = blockNumber;
+        this.transactionIndex = transactionIndex;
+        this.from = from;
+        this.to = to;
+        this.value = value;
+        this.gasPrice = gasPrice;
+        this.gas = gas;
+        this.input = input;
+        this.creates = creates;
+        this.r = r;
+        this.s = s;
+        this.v = v;
+    }
+
+    public static CompactTransaction from(Transaction transaction) {
+        return from(transaction, null);
+    }
+
+    static CompactTransaction from(Transaction transaction, CompactHash sharedBlockHash) {
+        return new CompactTransaction(
+                CompactHash.of(transaction.getHash()),
+                HexValues.quantity(transaction.getNonceRaw()),
+                CompactLog.share(CompactHash.of(transaction.getBlockHash()), sharedBlockHash),
+                HexValues.quantity(transaction.getBlockNumberRaw()),
+                HexValues.quantity(transaction.getTransactionIndexRaw()),
+                CompactAddress.of(transaction.getFrom()),
+                CompactAddress.of(transaction.getTo()),
+                HexValues.bigQuantity(transaction.getValueRaw()),
+                HexValues.bigQuantity(transaction.getGasPriceRaw()),
+                HexValues.quantity(transaction.getGasRaw()),
+                HexValues.bytes(transaction.getInput()),
+                CompactAddress.of(transaction.getCreates()),
+                HexValues.bigQuantity(transaction.getR()),
+                HexValues.bigQuantity(transaction.getS()),
+                transaction.getV());
+    }
+
+    public CompactHash getHash() {
+        return hash;
+    }
+
+    public long getNonce() {
+        return nonce;
+    }
+
+    public CompactHash getBlockHash() {
+        return blockHash;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public long getTransactionIndex() {
+        return transactionIndex;
+    }
+
+    public CompactAddress getFrom() {
+        return from;
+    }
+
+    public CompactAddress getTo() {
+        return to;
+    }
+
+    public BigInteger getValue() {
+        return value;
+    }
+
+    public BigInteger getGasPrice() {
+        return gasPrice;
+    }
+
+    public long getGas() {
+        return gas;
+    }
+
+    public byte[] getInput() {
+        return input == null ? null : input.clone();
+    }
+
+    public CompactAddress getCreates() {
+        return creates;
+    }
+
+    public BigInteger getR() {
+        return r;
+    }
+
+    public BigInteger getS() {
+        return s;
+    }
+
+    public long getV() {
+        return v;
+    }
+
+    /**
+     * Recreates the string based form of this transaction. Hex values are lower case, and
+     * quantities carry no leading zeros.
+     *
+     * @return a new transaction
+     */
+    public Transaction toTransaction() {
+        return copyTo(new Transaction());
+    }
+
+    <T extends Transaction> T copyTo(T transaction) {
+        transaction.setHash(CompactLog.toString(hash));
+        transaction.setNonce(HexValues.quantity(nonce));
+        transaction.setBlockHash(CompactLog.toString(blockHash));
+        transaction.setBlockNumber(HexValues.quantity(blockNumber));
+        transaction.setTransactionIndex(HexValues.quantity(transactionIndex));
+        transaction.setFrom(CompactLog.toString(from));
+        transaction.setTo(CompactLog.toString(to));
+        transaction.setValue(HexValues.bigQuantity(value));
+        transaction.setGasPrice(HexValues.bigQuantity(gasPrice));
+        transaction.setGas(HexValues.quantity(gas));
+        transaction.setInput(HexValues.bytes(input));
+        transaction.setCreates(CompactLog.toString(creates));
+        transaction.setR(HexValues.bigQuantity(r));
+        transaction.setS(HexValues.bigQuantity(s));
+        transaction.setV(v);
+        return transaction;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactTransaction)) {
+            return false;
+        }
+
+        CompactTransaction that = (CompactTransaction) o;
+        return nonce == that.nonce
+                && blockNumber == that.blockNumber
+                && transactionIndex == that.transactionIndex
+                && gas == that.gas
+                && v == that.v
+                && Objects.equals(hash, that.hash)
+                && Objects.equals(blockHash, that.blockHash)
+                && Objects.equals(from, that.from)
+                && Objects.equals(to, that.to)
+                && Objects.equals(value, that.value)
+                && Objects.equals(gasPrice, that.gasPrice)
+                && Arrays.equals(input, that.input)
+                && Objects.equals(creates, that.creates)
+                && Objects.equals(r, that.r)
+                && Objects.equals(s, that.s);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hashCode(hash);
+        result = 31 * result + Objects.hashCode(blockHash);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactTransaction{"
+                + "hash="
+                + hash
+                + ", nonce="
+                + nonce
+                + ", blockHash="
+                + blockHash
+                + ", blockNumber="
+                + blockNumber
+                + ", transactionIndex="
+                + transactionIndex
+                + ", from="
+                + from
+                + ", to="
+                + to
+                + ", value="
+                + value
+                + ", gasPrice="
+                + gasPrice
+                + ", gas="
+                + gas
+                + ", input="
+                + HexValues.bytes(input)
+                + ", creates="
+                + creates
+                + ", r="
+                + r
+                + ", s="
+                + s
+                + ", v="
+                + v
+                + '}';
+    }
+}
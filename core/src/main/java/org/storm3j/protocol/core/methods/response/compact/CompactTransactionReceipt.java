@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Compact form of {@link TransactionReceipt}.
+ *
+ * <p>Hashes and addresses are held as {@link CompactHash} and {@link CompactAddress}, quantities
+ * as primitive longs, which are {@code -1} where the node returned null, such as the status of a
+ * receipt from before Byzantium. The logs are {@link CompactLog}s sharing the receipt's block and
+ * transaction hash instances. {@link #toTransactionReceipt()} recreates the string based form.
+ */
+public final class CompactTransactionReceipt {
+
+    private static final CompactLog[] NO_LOGS = new CompactLog[0];
+
+    private final CompactHash transactionHash;
+    private final long transactionIndex;
+    private final CompactHash blockHash;
+    private final long blockNumber;
+    private final long cumulativeGasUsed;
+    private final long gasUsed;
+    private final CompactAddress contractAddress;
+    private final CompactHash root;
+    private final long status;
+    private final CompactAddress from;
+    private final CompactAddress to;
+    private final CompactLog[] logs;
+    private final byte[] logsBloom;
+
+    public CompactTransactionReceipt(
+            CompactHash transactionHash,
+            long transactionIndex,
+            CompactHash blockHash,
+            long blockNumber,
+            long cumulativeGasUsed,
+            long gasUsed,
+            CompactAddress contractAddress,
+            CompactHash root,
+            long status,
+            CompactAddress from,
+            CompactAddress to,
+            List<CompactLog> logs,
+            byte[] logsBloom) {
+        this.transactionHash = transactionHash;
+        this.transactionIndex = transactionIndex;
+        this.blockHash = blockHash;
+        this.blockNumber = blockNumber;
+        this.cumulativeGasUsed = cumulativeGasUsed;
+        this.gasUsed = gasUsed;
+        this.contractAddress = contractAddress;
+        this.root = root;
+        this.status = status;
+        this.from = from;
+        this.to = to;
+        this.logs = logs.toArray(NO_LOGS);
+        this.logsBloom = logsBloom;
+    }
+
+    public static CompactTransactionReceipt from(TransactionReceipt receipt) {
+        CompactHash transactionHash = CompactHash.of(receipt.getTransactionHash());
+        CompactHash blockHash = CompactHash.of(receipt.getBlockHash());
+
+        List<CompactLog> logs = new ArrayList<>();
+        if (receipt.getLogs() != null) {
+            for (Log log : receipt.getLogs()) {
+                logs.add(CompactLog.from(log, blockHash, transactionHash));
+            }
+        }
+
+        return new CompactTransactionReceipt(
+                transactionHash,
+                HexValues.quantity(receipt.getTransactionIndexRaw()),
+                blockHash,
+                HexValues.quantity(receipt.getBlockNumberRaw()),
+                HexValues.quantity(receipt.getCumulativeGasUsedRaw()),
+                HexValues.quantity(receipt.getGasUsedRaw()),
+                CompactAddress.of(receipt.getContractAddress()),
+                CompactHash.of(receipt.getRoot()),
+                HexValues.quantity(receipt.getStatus()),
+                CompactAddress.of(receipt.getFrom()),
+                CompactAddress.of(receipt.getTo()),
+                logs,
+                HexValues.bytes(receipt.getLogsBloom()));
+    }
+
+    public CompactHash getTransactionHash() {
+        return transactionHash;
+    }
+
+    public long getTransactionIndex() {
+        return transactionIndex;
+    }
+
+    public CompactHash getBlockHash() {
+        return blockHash;
+    }
+
+    public long getBlockNumber() {
+        return blockNumber;
+    }
+
+    public long getCumulativeGasUsed() {
+        return cumulativeGasUsed;
+    }
+
+    public long getGasUsed() {
+        return gasUsed;
+    }
+
+    public CompactAddress getContractAddress() {
+        return contractAddress;
+    }
+
+    public CompactHash getRoot() {
+        return root;
+    }
+
+    public long getStatus() {
+        return status;
+    }
+
+    public boolean isStatusOK() {
+        return status == HexValues.ABSENT || status == 1;
+    }
+
+    public CompactAddress getFrom() {
+        return from;
+    }
+
+    public CompactAddress getTo() {
+        return to;
+    }
+
+    public List<CompactLog> getLogs() {
+        return Collections.unmodifiableList(Arrays.asList(logs));
+    }
+
+    public byte[] getLogsBloom() {
+        return logsBloom == null ? null : logsBloom.clone();
+    }
+
+    /**
+     * Recreates the string based form of this receipt. Hex values are lower case, and quantities
+     * carry no leading zeros.
+     *
+     * @return a new receipt
+     */
+    public TransactionReceipt toTransactionReceipt() {
+        List<Log> stringLogs = new ArrayList<>(logs.length);
+        for (CompactLog log : logs) {
+            stringLogs.add(log.toLog());
+        }
+        return new TransactionReceipt(
+                CompactLog.toString(transactionHash),
+                HexValues.quantity(transactionIndex),
+                CompactLog.toString(blockHash),
+                HexValues.quantity(blockNumber),
+                HexValues.quantity(cumulativeGasUsed),
+                HexValues.quantity(gasUsed),
+                CompactLog.toString(contractAddress),
+                CompactLog.toString(root),
+                HexValues.quantity(status),
+                CompactLog.toString(from),
+                CompactLog.toString(to),
+                stringLogs,
+                HexValues.bytes(logsBloom));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof CompactTransactionReceipt)) {
+            return false;
+        }
+
+        CompactTransactionReceipt that = (CompactTransactionReceipt) o;
+        return transactionIndex == that.transactionIndex
+                && blockNumber == that.blockNumber
+                && cumulativeGasUsed == that.cumulativeGasUsed
+                && gasUsed == that.gasUsed
+                && status == that.status
+                && Objects.equals(transactionHash, that.transactionHash)
+                && Objects.equals(blockHash, that.blockHash)
+                && Objects.equals(contractAddress, that.contractAddress)
+                && Objects.equals(root, that.root)
+                && Objects.equals(from, that.from)
+                && Objects.equals(to, that.to)
+                && Arrays.equals(logs, that.logs)
+                && Arrays.equals(logsBloom, that.logsBloom);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Objects.hashCode(transactionHash);
+        result = 31 * result + Objects.hashCode(blockHash);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactTransactionReceipt{"
+                + "transactionHash="
+                + transactionHash
+                + ", transactionIndex="
+                + transactionIndex
+                + ", blockHash="
+                + blockHash
+                + ", blockNumber="
+                + blockNumber
+                + ", cumulativeGasUsed="
+                + cumulativeGasUsed
+                + ", gasUsed="
+                + gasUsed
+                + ", contractAddress="
+                + contractAddress
+                + ", root="
+                + root
+                + ", status="
+                + status
+                + ", from="
+                + from
+                + ", to="
+                + to
+                + ", logs="
+                + Arrays.toString(logs)
+                + ", logsBloom="
+                + HexValues.bytes(logsBloom)
+                + '}';
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import java.math.BigInteger;
+
+import org.storm3j.exceptions.MessageDecodingException;
+import org.storm3j.utils.Numeric;
+
+/** Hex parsing and formatting for the compact model, without intermediate objects. */
+final class HexValues {
+
+    /** Value used for quantities which are absent, such as the block number of a pending log. */
+    static final long ABSENT = -1;
+
+    private static final char[] DIGITS = "0123456789abcdef".toCharArray();
+
+    private HexValues() {}
+
+    static long quantity(String value) {
+        if (value == null) {
+            return ABSENT;
+        }
+        int length = value.length();
+        if (length < 3 || !Numeric.containsHexPrefix(value) || length > 18) {
+            throw new MessageDecodingException("Value must be a quantity below 2^63: " + value);
+        }
+        long result = word(value, 2, length);
+        if (result < 0) {
+            throw new MessageDecodingException("Value must be a quantity below 2^63: " + value);
+        }
+        return result;
+    }
+
+    static String quantity(long value) {
+        return value == ABSENT ? null : "0x" + Long.toHexString(value);
+    }
+
+    static BigInteger bigQuantity(String value) {
+        return value == null ? null : Numeric.decodeQuantity(value);
+    }
+
+    static String bigQuantity(BigInteger value) {
+        return value == null ? null : Numeric.encodeQuantity(value);
+    }
+
+    static byte[] bytes(String value) {
+        return value == null ? null : Numeric.hexStringToByteArray(value);
+    }
+
+    static String bytes(byte[] value) {
+        if (value == null) {
+            return null;
+        }
+        char[] chars = new char[2 + value.length * 2];
+        chars[0] = '0';
+        chars[1] = 'x';
+        for (int i = 0; i < value.length; i++) {
+            chars[2 + i * 2] = DIGITS[(value[i] >> 4) & 0xf];
+            chars[3 + i * 2] = DIGITS[value[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Checks that a value is a prefixed hex string of a fixed number of bytes.
+     *
+     * @param value the value
+     * @param size the number of bytes
+     */
+    static void checkFixed(String value, int size) {
+        if (value.length() != 2 + size * 2 || !Numeric.containsHexPrefix(value)) {
+            throw new MessageDecodingException(
+                    "Value must be " + size + " hex encoded bytes: " + value);
+        }
+    }
+
+    /** Parses the hex digits from {@code start} to {@code end}, at most 16 of them. */
+    static long word(String value, int start, int end) {
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                throw new MessageDecodingException("Invalid hex value: " + value);
+            }
+            result = (result << 4) | digit;
+        }
+        return result;
+    }
+
+    /** Writes the low {@code digits} hex digits of a word to {@code chars} at {@code offset}. */
+    static void word(long value, int digits, char[] chars, int offset) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = DIGITS[(int) value & 0xf];
+            value >>>= 4;
+        }
+    }
+
+    static long word(byte[] bytes, int offset, int length) {
+        long result = 0;
+        for (int i = offset; i < offset + length; i++) {
+            result = (result << 8) | (bytes[i] & 0xff);
+        }
+        return result;
+    }
+
+    static void word(long value, byte[] bytes, int offset, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            bytes[i] = (byte) value;
+            value >>>= 8;
+        }
+    }
+}
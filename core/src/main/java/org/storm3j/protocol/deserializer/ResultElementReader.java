@@ -0,0 +1,47 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.deserializer;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Reads the elements of an array held in a JSON-RPC result one at a time, so that a large result
+ * does not need to be held in memory as a whole.
+ *
+ * @param <T> type of the elements
+ * @see org.storm3j.protocol.Storm3jService#sendStreaming(org.storm3j.protocol.core.Request,
+ *     ResultElementReader)
+ */
+public interface ResultElementReader<T> {
+
+    /**
+     * Moves the parser from the first token of the result to the start of the array of elements.
+     *
+     * @param parser parser positioned on the first token of the result
+     * @return true if the parser is on the start of the array, false if there are no elements, as
+     *     for a null result
+     * @throws IOException if the JSON is invalid
+     */
+    boolean startElements(JsonParser parser) throws IOException;
+
+    /**
+     * Reads an element, leaving the parser on its last token.
+     *
+     * @param parser parser positioned on the first token of the element
+     * @return the element, or null if it is to be skipped
+     * @throws IOException if the JSON is invalid
+     */
+    T readElement(JsonParser parser) throws IOException;
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.deserializer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Emitter;
+
+import org.storm3j.protocol.core.Response;
+
+/**
+ * The state of a streamed JSON-RPC result, read one element per request of the subscriber. Used
+ * by services to implement {@link
+ * org.storm3j.protocol.Storm3jService#sendStreaming(org.storm3j.protocol.core.Request,
+ * ResultElementReader)} with {@link io.reactivex.Flowable#generate}.
+ *
+ * @param <T> type of the elements
+ */
+public class ResultStream<T> implements Closeable {
+
+    private final InputStream inputStream;
+    private final JsonParser parser;
+    private final ResultElementReader<T> elementReader;
+    private final boolean hasElements;
+
+    private ResultStream(
+            InputStream inputStream,
+            JsonParser parser,
+            ResultElementReader<T> elementReader,
+            boolean hasElements) {
+        this.inputStream = inputStream;
+        this.parser = parser;
+        this.elementReader = elementReader;
+        this.hasElements = hasElements;
+    }
+
+    /**
+     * Starts reading the result of a reply.
+     *
+     * @param objectMapper mapper used to read errors
+     * @param inputStream the reply, which is closed with the stream, or null if there is none
+     * @param elementReader reader of the elements of the result
+     * @param <T> type of the elements
+     * @return the stream, positioned before the first element
+     * @throws IOException if the reply is an error or cannot be read
+     */
+    public static <T> ResultStream<T> open(
+            ObjectMapper objectMapper,
+            InputStream inputStream,
+            ResultElementReader<T> elementReader)
+            throws IOException {
+        if (inputStream == null) {
+            return new ResultStream<>(null, null, elementReader, false);
+        }
+
+        JsonParser parser = null;
+        try {
+            parser = objectMapper.getFactory().createParser(inputStream);
+            boolean hasElements =
+                    startResult(objectMapper, parser) && elementReader.startElements(parser);
+            return new ResultStream<>(inputStream, parser, elementReader, hasElements);
+        } catch (IOException | RuntimeException e) {
+            if (parser != null) {
+                parser.close();
+            }
+            inputStream.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Moves the parser to the first token of the result of a reply.
+     *
+     * @return false if the reply has no result
+     * @throws IOException if the reply is an error
+     */
+    private static boolean startResult(ObjectMapper objectMapper, JsonParser parser)
+            throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException(
+                    "Expected a JSON-RPC reply, but found: " + parser.getCurrentToken());
+        }
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            if (field.equals("result")) {
+                return true;
+            } else if (field.equals("error") && parser.getCurrentToken() != JsonToken.VALUE_NULL) {
+                Response.Error error = objectMapper.readValue(parser, Response.Error.class);
+                throw new IOException("Request failed: " + error.getMessage());
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Emits the next element, or completes the emitter once there are no more.
+     *
+     * @param emitter emitter of the elements
+     * @throws IOException if the result cannot be read
+     */
+    public void emitNext(Emitter<T> emitter) throws IOException {
+        if (hasElements) {
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                T element = elementReader.readElement(parser);
+                if (element != null) {
+                    emitter.onNext(element);
+                    return;
+                }
+            }
+        }
+        emitter.onComplete();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (parser != null) {
+            parser.close();
+        }
+        if (inputStream != null) {
+            inputStream.close();
+        }
+    }
+}
@@ -0,0 +1,458 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.deserializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.protocol.core.methods.response.Transaction;
+import org.storm3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Reads blocks, transactions, receipts and logs directly from a {@link JsonParser}, without the
+ * reflection of bean deserialization or intermediate trees. Unknown fields are skipped.
+ *
+ * <p>Each method expects the parser to be positioned on the first token of the value, as it is
+ * when a {@link com.fasterxml.jackson.databind.JsonDeserializer} is called, and leaves it on the
+ * last token of the value.
+ */
+public final class StreamingModelReader {
+
+    /** Reads the logs of an fst_getLogs or fst_getFilterLogs result, skipping any hashes. */
+    public static final ResultElementReader<Log> LOGS =
+            new ResultElementReader<Log>() {
+                @Override
+                public boolean startElements(JsonParser parser) throws IOException {
+                    return startArray(parser);
+                }
+
+                @Override
+                public Log readElement(JsonParser parser) throws IOException {
+                    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        return null;
+                    }
+                    return readLog(parser, new FstLog.LogObject());
+                }
+            };
+
+    /**
+     * Reads the transactions of a block requested with full transaction objects, skipping the
+     * other fields of the block and any transaction hashes.
+     */
+    public static final ResultElementReader<Transaction> BLOCK_TRANSACTIONS =
+            new ResultElementReader<Transaction>() {
+                @Override
+                public boolean startElements(JsonParser parser) throws IOException {
+                    if (!startObject(parser)) {
+                        return false;
+                    }
+                    String field;
+                    while ((field = parser.nextFieldName()) != null) {
+                        parser.nextToken();
+                        if (field.equals("transactions")) {
+                            return startArray(parser);
+                        }
+                        parser.skipChildren();
+                    }
+                    return false;
+                }
+
+                @Override
+                public Transaction readElement(JsonParser parser) throws IOException {
+                    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+                        parser.skipChildren();
+                        return null;
+                    }
+                    return readTransaction(parser, new FstBlock.TransactionObject());
+                }
+            };
+
+    private StreamingModelReader() {}
+
+    public static FstBlock.Block readBlock(JsonParser parser) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        FstBlock.Block block = new FstBlock.Block();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "number":
+                    block.setNumber(text(parser));
+                    break;
+                case "hash":
+                    block.setHash(text(parser));
+                    break;
+                case "parentHash":
+                    block.setParentHash(text(parser));
+                    break;
+                case "nonce":
+                    block.setNonce(text(parser));
+                    break;
+                case "sha3Uncles":
+                    block.setSha3Uncles(text(parser));
+                    break;
+                case "logsBloom":
+                    block.setLogsBloom(text(parser));
+                    break;
+                case "transactionsRoot":
+                    block.setTransactionsRoot(text(parser));
+                    break;
+                case "stateRoot":
+                    block.setStateRoot(text(parser));
+                    break;
+                case "receiptsRoot":
+                    block.setReceiptsRoot(text(parser));
+                    break;
+                case "author":
+                    block.setAuthor(text(parser));
+                    break;
+                case "miner":
+                    block.setMiner(text(parser));
+                    break;
+                case "mixHash":
+                    block.setMixHash(text(parser));
+                    break;
+                case "difficulty":
+                    block.setDifficulty(text(parser));
+                    break;
+                case "totalDifficulty":
+                    block.setTotalDifficulty(text(parser));
+                    break;
+                case "extraData":
+                    block.setExtraData(text(parser));
+                    break;
+                case "size":
+                    block.setSize(text(parser));
+                    break;
+                case "gasLimit":
+                    block.setGasLimit(text(parser));
+                    break;
+                case "gasUsed":
+                    block.setGasUsed(text(parser));
+                    break;
+                case "timestamp":
+                    block.setTimestamp(text(parser));
+                    break;
+                case "transactions":
+                    block.setTransactions(readTransactionResults(parser));
+                    break;
+                case "uncles":
+                    block.setUncles(readStrings(parser));
+                    break;
+                case "sealFields":
+                    block.setSealFields(readStrings(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Reads the transactions of a block, which are either all transaction objects or all hashes.
+     *
+     * @param parser parser positioned on the start of the array
+     * @return the transactions
+     * @throws IOException if the JSON is invalid
+     */
+    public static List<FstBlock.TransactionResult> readTransactionResults(JsonParser parser)
+            throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<FstBlock.TransactionResult> transactionResults = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                transactionResults.add(readTransaction(parser, new FstBlock.TransactionObject()));
+            } else if (token == JsonToken.VALUE_STRING) {
+                transactionResults.add(new FstBlock.TransactionHash(parser.getText()));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return transactionResults;
+    }
+
+    public static <T extends Transaction> T readTransaction(JsonParser parser, T transaction)
+            throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "hash":
+                    transaction.setHash(text(parser));
+                    break;
+                case "nonce":
+                    transaction.setNonce(text(parser));
+                    break;
+                case "blockHash":
+                    transaction.setBlockHash(text(parser));
+                    break;
+                case "blockNumber":
+                    transaction.setBlockNumber(text(parser));
+                    break;
+                case "transactionIndex":
+                    transaction.setTransactionIndex(text(parser));
+                    break;
+                case "from":
+                    transaction.setFrom(text(parser));
+                    break;
+                case "to":
+                    transaction.setTo(text(parser));
+                    break;
+                case "value":
+                    transaction.setValue(text(parser));
+                    break;
+                case "gasPrice":
+                    transaction.setGasPrice(text(parser));
+                    break;
+                case "gas":
+                    transaction.setGas(text(parser));
+                    break;
+                case "input":
+                    transaction.setInput(text(parser));
+                    break;
+                case "creates":
+                    transaction.setCreates(text(parser));
+                    break;
+                case "publicKey":
+                    transaction.setPublicKey(text(parser));
+                    break;
+                case "raw":
+                    transaction.setRaw(text(parser));
+                    break;
+                case "r":
+                    transaction.setR(text(parser));
+                    break;
+                case "s":
+                    transaction.setS(text(parser));
+                    break;
+                case "v":
+                    // Geth returns a hex string, Parity a number
+                    if (token == JsonToken.VALUE_STRING) {
+                        transaction.setV(parser.getText());
+                    } else if (token == JsonToken.VALUE_NUMBER_INT) {
+                        transaction.setV(parser.getLongValue());
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return transaction;
+    }
+
+    public static TransactionReceipt readTransactionReceipt(JsonParser parser)
+            throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        TransactionReceipt receipt = new TransactionReceipt();
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "transactionHash":
+                    receipt.setTransactionHash(text(parser));
+                    break;
+                case "transactionIndex":
+                    receipt.setTransactionIndex(text(parser));
+                    break;
+                case "blockHash":
+                    receipt.setBlockHash(text(parser));
+                    break;
+                case "blockNumber":
+                    receipt.setBlockNumber(text(parser));
+                    break;
+                case "cumulativeGasUsed":
+                    receipt.setCumulativeGasUsed(text(parser));
+                    break;
+                case "gasUsed":
+                    receipt.setGasUsed(text(parser));
+                    break;
+                case "contractAddress":
+                    receipt.setContractAddress(text(parser));
+                    break;
+                case "root":
+                    receipt.setRoot(text(parser));
+                    break;
+                case "status":
+                    receipt.setStatus(text(parser));
+                    break;
+                case "from":
+                    receipt.setFrom(text(parser));
+                    break;
+                case "to":
+                    receipt.setTo(text(parser));
+                    break;
+                case "logs":
+                    receipt.setLogs(readLogs(parser));
+                    break;
+                case "logsBloom":
+                    receipt.setLogsBloom(text(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return receipt;
+    }
+
+    /**
+     * Reads the result of a log filter, which is either all log objects or all hashes.
+     *
+     * @param parser parser positioned on the start of the array
+     * @return the logs
+     * @throws IOException if the JSON is invalid
+     */
+    public static List<FstLog.LogResult> readLogResults(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<FstLog.LogResult> logResults = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                logResults.add(readLog(parser, new FstLog.LogObject()));
+            } else if (token == JsonToken.VALUE_STRING) {
+                logResults.add(new FstLog.Hash(parser.getText()));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return logResults;
+    }
+
+    public static <T extends Log> T readLog(JsonParser parser, T log) throws IOException {
+        if (!startObject(parser)) {
+            return null;
+        }
+
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "removed":
+                    log.setRemoved(token == JsonToken.VALUE_TRUE);
+                    break;
+                case "logIndex":
+                    log.setLogIndex(text(parser));
+                    break;
+                case "transactionIndex":
+                    log.setTransactionIndex(text(parser));
+                    break;
+                case "transactionHash":
+                    log.setTransactionHash(text(parser));
+                    break;
+                case "blockHash":
+                    log.setBlockHash(text(parser));
+                    break;
+                case "blockNumber":
+                    log.setBlockNumber(text(parser));
+                    break;
+                case "address":
+                    log.setAddress(text(parser));
+                    break;
+                case "data":
+                    log.setData(text(parser));
+                    break;
+                case "type":
+                    log.setType(text(parser));
+                    break;
+                case "topics":
+                    log.setTopics(readStrings(parser));
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return log;
+    }
+
+    private static List<Log> readLogs(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<Log> logs = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            logs.add(readLog(parser, new Log()));
+        }
+        return logs;
+    }
+
+    private static List<String> readStrings(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(text(parser));
+        }
+        return values;
+    }
+
+    private static boolean startArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_ARRAY) {
+            return true;
+        } else if (token != JsonToken.VALUE_NULL) {
+            throw new IOException("Expected an array, but found: " + token);
+        }
+        return false;
+    }
+
+    private static boolean startObject(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token == JsonToken.START_OBJECT) {
+            return true;
+        } else if (token != JsonToken.VALUE_NULL) {
+            throw new IOException("Expected an object, but found: " + token);
+        }
+        return false;
+    }
+
+    private static String text(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token.isScalarValue()) {
+            return token == JsonToken.VALUE_NULL ? null : parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
@@ -16,12 +16,17 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.CipherSuite;
 import okhttp3.ConnectionSpec;
+import okhttp3.Dispatcher;
 import okhttp3.Headers;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -29,11 +34,17 @@ import okhttp3.RequestBody;
 import okhttp3.ResponseBody;
 import okhttp3.logging.HttpLoggingInterceptor;
 import okio.Buffer;
+import okio.BufferedSink;
 import okio.BufferedSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import org.storm3j.protocol.RequestEncoder;
 import org.storm3j.protocol.Service;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
 import org.storm3j.protocol.exceptions.ClientConnectionException;
 
 import static okhttp3.ConnectionSpec.CLEARTEXT;
@@ -133,11 +144,20 @@ public class HttpService extends Service {
         this(DEFAULT_URL);
     }
 
-    private static OkHttpClient createOkHttpClient() {
+    /**
+     * Returns a builder for the HTTP client used by default, so that subclasses can customise it.
+     *
+     * @return a builder with the default connection specs and logging configured
+     */
+    public static OkHttpClient.Builder getOkHttpClientBuilder() {
         final OkHttpClient.Builder builder =
                 new OkHttpClient.Builder().connectionSpecs(CONNECTION_SPEC_LIST);
         configureLogging(builder);
-        return builder.build();
+        return builder;
+    }
+
+    private static OkHttpClient createOkHttpClient() {
+        return getOkHttpClientBuilder().build();
     }
 
     private static void configureLogging(OkHttpClient.Builder builder) {
@@ -150,14 +170,108 @@ public class HttpService extends Service {
 
     @Override
     protected InputStream performIO(String request) throws IOException {
+        return execute(RequestBody.create(JSON_MEDIA_TYPE, request));
+    }
+
+    @Override
+    protected InputStream performIO(Request<?, ?> request) throws IOException {
+        return execute(JsonRequestBody.of(requestEncoder, request));
+    }
+
+    @Override
+    protected InputStream performIO(List<? extends Request<?, ?>> requests) throws IOException {
+        return execute(JsonRequestBody.of(requestEncoder, requests));
+    }
+
+    private InputStream execute(RequestBody requestBody) throws IOException {
+        okhttp3.Response response = httpClient.newCall(buildHttpRequest(requestBody)).execute();
+        return processResponse(response);
+    }
+
+    /**
+     * Performs an asynchronous JSON-RPC request using the non-blocking dispatcher of the HTTP
+     * client, rather than parking a thread per request for the duration of the call. The number of
+     * concurrent calls is bounded by the client's {@link Dispatcher}, see {@link
+     * #setMaxRequests(int)} and {@link #setMaxRequestsPerHost(int)}. Requests beyond these limits
+     * are queued by the dispatcher.
+     *
+     * <p>Cancelling the returned future cancels the underlying HTTP call.
+     */
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        try {
+            enqueue(
+                    JsonRequestBody.of(requestEncoder, request),
+                    result,
+                    inputStream -> objectMapper.readValue(inputStream, responseType));
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new BatchResponse(requests, Collections.emptyList()));
+        }
+
+        CompletableFuture<BatchResponse> result = new CompletableFuture<>();
+        try {
+            enqueue(
+                    JsonRequestBody.of(requestEncoder, requests),
+                    result,
+                    inputStream ->
+                            readBatchResponse(requests, objectMapper.readTree(inputStream)));
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    private <T> void enqueue(
+            RequestBody payload, CompletableFuture<T> result, ResponseReader<T> responseReader) {
+        Call call = httpClient.newCall(buildHttpRequest(payload));
+        result.whenComplete(
+                (value, throwable) -> {
+                    if (result.isCancelled()) {
+                        call.cancel();
+                    }
+                });
+
+        call.enqueue(
+                new Callback() {
+                    @Override
+                    public void onFailure(Call call, IOException e) {
+                        result.completeExceptionally(e);
+                    }
+
+                    @Override
+                    public void onResponse(Call call, okhttp3.Response response) {
+                        // The body is deserialized here, on completion of the call
+                        try (InputStream inputStream = processResponse(response)) {
+                            result.complete(
+                                    inputStream == null ? null : responseReader.read(inputStream));
+                        } catch (Exception e) {
+                            result.completeExceptionally(e);
+                        } finally {
+                            response.close();
+                        }
+                    }
+                });
+    }
 
-        RequestBody requestBody = RequestBody.create(JSON_MEDIA_TYPE, request);
+    private okhttp3.Request buildHttpRequest(RequestBody requestBody) {
         Headers headers = buildHeaders();
 
-        okhttp3.Request httpRequest =
-                new okhttp3.Request.Builder().url(url).headers(headers).post(requestBody).build();
+        return new okhttp3.Request.Builder().url(url).headers(headers).post(requestBody).build();
+    }
 
-        okhttp3.Response response = httpClient.newCall(httpRequest).execute();
+    private InputStream processResponse(okhttp3.Response response) throws IOException {
         processHeaders(response.headers());
         ResponseBody responseBody = response.body();
         if (response.isSuccessful()) {
@@ -223,6 +337,77 @@ public class HttpService extends Service {
         return headers;
     }
 
+    /**
+     * Sets the maximum number of asynchronous requests executed concurrently by the HTTP client.
+     * Note that the limit applies to every service sharing the same {@link OkHttpClient}.
+     *
+     * @param maxRequests maximum number of concurrent requests
+     */
+    public void setMaxRequests(int maxRequests) {
+        getDispatcher().setMaxRequests(maxRequests);
+    }
+
+    /**
+     * Sets the maximum number of asynchronous requests executed concurrently against the node.
+     * Note that the limit applies to every service sharing the same {@link OkHttpClient}.
+     *
+     * @param maxRequestsPerHost maximum number of concurrent requests per host
+     */
+    public void setMaxRequestsPerHost(int maxRequestsPerHost) {
+        getDispatcher().setMaxRequestsPerHost(maxRequestsPerHost);
+    }
+
+    public Dispatcher getDispatcher() {
+        return httpClient.dispatcher();
+    }
+
     @Override
     public void close() throws IOException {}
+
+    private interface ResponseReader<T> {
+        T read(InputStream inputStream) throws IOException;
+    }
+
+    /**
+     * Request body holding JSON encoded directly into okio's pooled segments, with no intermediate
+     * string or byte array. The encoded segments are shared rather than copied when the body is
+     * written, so it can be written again if the call is retried.
+     */
+    private static class JsonRequestBody extends RequestBody {
+        private final Buffer json;
+
+        private JsonRequestBody(Buffer json) {
+            this.json = json;
+        }
+
+        static JsonRequestBody of(RequestEncoder encoder, Request<?, ?> request)
+                throws IOException {
+            Buffer json = new Buffer();
+            encoder.write(request, json.outputStream());
+            return new JsonRequestBody(json);
+        }
+
+        static JsonRequestBody of(RequestEncoder encoder, List<? extends Request<?, ?>> requests)
+                throws IOException {
+            Buffer json = new Buffer();
+            encoder.write(requests, json.outputStream());
+            return new JsonRequestBody(json);
+        }
+
+        @Override
+        public MediaType contentType() {
+            return JSON_MEDIA_TYPE;
+        }
+
+        @Override
+        public long contentLength() {
+            return json.size();
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            Buffer copy = json.clone();
+            sink.write(copy, copy.size());
+        }
+    }
 }
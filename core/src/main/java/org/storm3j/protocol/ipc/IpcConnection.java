@@ -0,0 +1,279 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.storm3j.utils.HashedWheelTimer;
+
+/**
+ * A long-lived IPC connection supporting many in-flight requests.
+ *
+ * <p>Requests are written to the channel as soon as they are sent. A dedicated reader thread
+ * splits incoming bytes into JSON messages and completes the pending request with the matching id.
+ * A request that gets no reply within the request timeout fails, so that a lost reply cannot leave
+ * it pending forever.
+ */
+class IpcConnection implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(IpcConnection.class);
+
+    private final ByteChannel channel;
+    private final ObjectMapper objectMapper;
+    private final boolean includeRawResponses;
+    private final int bufferSize;
+    private final HashedWheelTimer timer;
+    private final long requestTimeoutMillis;
+    private final Thread reader;
+
+    private final Object writeLock = new Object();
+    private final Map<Long, PendingReply<?>> pendingForId = new ConcurrentHashMap<>();
+
+    private volatile boolean closed;
+
+    IpcConnection(
+            ByteChannel channel,
+            ObjectMapper objectMapper,
+            boolean includeRawResponses,
+            int bufferSize,
+            HashedWheelTimer timer,
+            long requestTimeoutMillis,
+            String name) {
+        this.channel = channel;
+        this.objectMapper = objectMapper;
+        this.includeRawResponses = includeRawResponses;
+        this.bufferSize = bufferSize;
+        this.timer = timer;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.reader = new Thread(this::readLoop, name);
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    boolean isOpen() {
+        return !closed;
+    }
+
+    int getPendingCount() {
+        return pendingForId.size();
+    }
+
+    /**
+     * Registers a reply for the given request id. This must happen before the request is written
+     * so that a fast reply cannot be missed.
+     */
+    <T> CompletableFuture<T> expectReply(long id, Class<T> responseType) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        PendingReply<T> pending = new PendingReply<>(result, responseType);
+        if (pendingForId.putIfAbsent(id, pending) != null) {
+            result.completeExceptionally(
+                    new IOException(
+                            String.format("Request with id %d is already in flight", id)));
+            return result;
+        }
+
+        HashedWheelTimer.Timeout timeout =
+                timer.newTimeout(
+                        () -> timeoutReply(id, pending),
+                        requestTimeoutMillis,
+                        TimeUnit.MILLISECONDS);
+        result.whenComplete((reply, throwable) -> timeout.cancel());
+        if (closed) {
+            // The reader may already have failed outstanding replies
+            fail(id, new IOException("IPC connection is closed"));
+        }
+        return result;
+    }
+
+    private void timeoutReply(long id, PendingReply<?> pending) {
+        // The id may have been reused by a later request since
+        if (pendingForId.remove(id, pending)) {
+            pending.result.completeExceptionally(
+                    new IOException(String.format("Request with id %d timed out", id)));
+        }
+    }
+
+    /**
+     * Registers a reply to be returned as the bytes of its JSON message, see {@link
+     * #expectReply(long, Class)}.
+     */
+    CompletableFuture<byte[]> expectRawReply(long id) {
+        return expectReply(id, byte[].class);
+    }
+
+    /**
+     * Writes a request in full before returning, so the buffer may be reused by the caller
+     * afterwards.
+     */
+    void write(ByteBuffer payload) throws IOException {
+        synchronized (writeLock) {
+            while (payload.hasRemaining()) {
+                channel.write(payload);
+            }
+        }
+    }
+
+    void fail(long id, Throwable throwable) {
+        PendingReply<?> pending = pendingForId.remove(id);
+        if (pending != null) {
+            pending.result.completeExceptionally(throwable);
+        }
+    }
+
+    private void readLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        JsonFrameDecoder decoder = new JsonFrameDecoder(this::onFrame);
+        IOException failure = null;
+        try {
+            while (!closed) {
+                buffer.clear();
+                if (channel.read(buffer) < 0) {
+                    break;
+                }
+                buffer.flip();
+                decoder.decode(buffer);
+            }
+        } catch (IOException e) {
+            if (!closed) {
+                log.error("IPC connection failed", e);
+                failure = e;
+            }
+        } finally {
+            closeQuietly();
+            failOutstandingReplies(
+                    failure == null
+                            ? new IOException("IPC connection was closed")
+                            : new IOException("IPC connection failed", failure));
+        }
+    }
+
+    private void failOutstandingReplies(IOException cause) {
+        pendingForId.keySet().forEach(id -> fail(id, cause));
+    }
+
+    private void onFrame(byte[] frame, int length) throws IOException {
+        if (frame[0] == '[') {
+            // Batch reply, dispatch each element to its own request
+            JsonNode replies = objectMapper.readTree(new ByteArrayInputStream(frame, 0, length));
+            for (JsonNode reply : replies) {
+                JsonNode idField = reply.get("id");
+                PendingReply<?> pending =
+                        idField == null ? null : pendingForId.remove(idField.asLong());
+                if (pending != null) {
+                    pending.complete(() -> objectMapper.treeToValue(reply, pending.responseType));
+                } else {
+                    log.warn("Received IPC reply for unexpected request id: {}", idField);
+                }
+            }
+            return;
+        }
+
+        Long id = peekId(frame, length);
+        PendingReply<?> pending = id == null ? null : pendingForId.remove(id);
+        if (pending == null) {
+            log.warn("Received IPC message without a pending request, id: {}", id);
+            return;
+        }
+
+        pending.complete(
+                () -> {
+                    if (pending.responseType == byte[].class) {
+                        // The frame buffer is reused for the next message
+                        return Arrays.copyOf(frame, length);
+                    } else if (includeRawResponses) {
+                        // The raw response deserializer needs to re-read the input stream
+                        return objectMapper.readValue(
+                                new ByteArrayInputStream(frame, 0, length), pending.responseType);
+                    } else {
+                        return objectMapper.readValue(frame, 0, length, pending.responseType);
+                    }
+                });
+    }
+
+    /**
+     * Reads the top-level "id" of a reply, stopping as soon as it is found. Nodes write the id
+     * ahead of the result, so this only touches the first few bytes of the message.
+     */
+    private Long peekId(byte[] frame, int length) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(frame, 0, length)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("id".equals(field)) {
+                    return value == JsonToken.VALUE_NUMBER_INT ? parser.getLongValue() : null;
+                }
+                parser.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    private void closeQuietly() {
+        closed = true;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.debug("Failed to close IPC channel", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+
+    private interface ReplyReader<T> {
+        T read() throws IOException;
+    }
+
+    private static class PendingReply<T> {
+        private final CompletableFuture<T> result;
+        private final Class<T> responseType;
+
+        PendingReply(CompletableFuture<T> result, Class<T> responseType) {
+            this.result = result;
+            this.responseType = responseType;
+        }
+
+        void complete(ReplyReader<?> reader) {
+            try {
+                result.complete(responseType.cast(reader.read()));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(
+                        new IOException(
+                                String.format("Failed to parse reply as type %s", responseType),
+                                e));
+            }
+        }
+    }
+}
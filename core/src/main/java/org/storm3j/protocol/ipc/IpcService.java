@@ -44,6 +44,13 @@ public class IpcService extends Service {
         io.write(payload);
         log.debug(">> " + payload);
 
+        if (io instanceof StreamingIOFacade) {
+            // The response bytes are handed to the object mapper as they are
+            InputStream result = ((StreamingIOFacade) io).readStream();
+            io.close();
+            return result;
+        }
+
         String result = io.read();
         log.debug("<< " + result);
         io.close();
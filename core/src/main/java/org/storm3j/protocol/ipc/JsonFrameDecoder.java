@@ -0,0 +1,127 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Splits a stream of bytes into complete top-level JSON messages.
+ *
+ * <p>Message boundaries are found by tracking the nesting depth of objects and arrays at the byte
+ * level, so responses never need to be decoded into characters, and do not need to be terminated
+ * by a newline. Message bytes are accumulated in a reusable array which is handed to the {@link
+ * FrameHandler} once the message is complete.
+ */
+class JsonFrameDecoder {
+
+    private static final int INITIAL_FRAME_SIZE = 8 * 1024;
+    // Frames above this size are not retained after decoding, to release memory after a single
+    // very large response
+    private static final int MAX_RETAINED_FRAME_SIZE = 1024 * 1024;
+
+    interface FrameHandler {
+        /**
+         * Called for each complete JSON message. The frame array is reused once this method
+         * returns.
+         *
+         * @param frame array holding the message
+         * @param length length of the message in the array, starting at offset 0
+         * @throws IOException thrown if the message cannot be processed
+         */
+        void onFrame(byte[] frame, int length) throws IOException;
+    }
+
+    private final FrameHandler handler;
+
+    private byte[] frame = new byte[INITIAL_FRAME_SIZE];
+    private int length;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    JsonFrameDecoder(FrameHandler handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Consumes all remaining bytes of the buffer, emitting every message completed by them.
+     *
+     * @param buffer buffer to consume
+     * @throws IOException thrown if the frame handler fails
+     */
+    void decode(ByteBuffer buffer) throws IOException {
+        int limit = buffer.limit();
+        int segmentStart = depth > 0 ? buffer.position() : -1;
+
+        for (int i = buffer.position(); i < limit; i++) {
+            byte b = buffer.get(i);
+            if (depth == 0) {
+                // Skip whitespace and newline delimiters between messages
+                if (b == '{' || b == '[') {
+                    depth = 1;
+                    segmentStart = i;
+                }
+            } else if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (b == '\\') {
+                    escaped = true;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                depth--;
+                if (depth == 0) {
+                    append(buffer, segmentStart, i + 1);
+                    emit();
+                    segmentStart = -1;
+                }
+            }
+        }
+
+        if (depth > 0) {
+            append(buffer, segmentStart, limit);
+        }
+        buffer.position(limit);
+    }
+
+    private void append(ByteBuffer buffer, int from, int to) {
+        int count = to - from;
+        if (length + count > frame.length) {
+            byte[] expanded = new byte[Math.max(frame.length * 2, length + count)];
+            System.arraycopy(frame, 0, expanded, 0, length);
+            frame = expanded;
+        }
+
+        ByteBuffer segment = buffer.duplicate();
+        segment.limit(to).position(from);
+        segment.get(frame, length, count);
+        length += count;
+    }
+
+    private void emit() throws IOException {
+        try {
+            handler.onFrame(frame, length);
+        } finally {
+            length = 0;
+            if (frame.length > MAX_RETAINED_FRAME_SIZE) {
+                frame = new byte[INITIAL_FRAME_SIZE];
+            }
+        }
+    }
+}
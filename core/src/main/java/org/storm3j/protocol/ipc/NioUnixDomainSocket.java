@@ -0,0 +1,116 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Unix domain socket {@link IOFacade} working directly on a NIO channel.
+ *
+ * <p>Responses are read straight into a reusable {@link ByteBuffer} and returned as bytes, rather
+ * than going through stream adapters and a String, so a socket kept open for many requests
+ * allocates little more than the responses themselves. On JDK 16 and above the channel is
+ * provided by the JDK, on Java 8 jnr-unixsocket is used, see {@link #isJdkNative()}.
+ */
+public class NioUnixDomainSocket implements StreamingIOFacade {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private final ByteChannel channel;
+    private final ByteBuffer buffer;
+    private final JsonFrameDecoder decoder = new JsonFrameDecoder(this::onFrame);
+
+    private byte[] frame;
+    private int frameLength = -1;
+
+    public NioUnixDomainSocket(String ipcSocketPath) {
+        this(ipcSocketPath, DEFAULT_BUFFER_SIZE);
+    }
+
+    public NioUnixDomainSocket(String ipcSocketPath, int bufferSize) {
+        this(openChannel(ipcSocketPath), bufferSize);
+    }
+
+    NioUnixDomainSocket(ByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    private static ByteChannel openChannel(String ipcSocketPath) {
+        try {
+            return UnixDomainSocketChannels.open(ipcSocketPath);
+        } catch (IOException e) {
+            throw new RuntimeException(
+                    "Provided file socket cannot be opened: " + ipcSocketPath, e);
+        }
+    }
+
+    /** @return true if the JDK's own Unix domain socket support is used */
+    public static boolean isJdkNative() {
+        return UnixDomainSocketChannels.isJdkNative();
+    }
+
+    @Override
+    public void write(String payload) throws IOException {
+        ByteBuffer request = ByteBuffer.wrap(payload.getBytes(StandardCharsets.UTF_8));
+        while (request.hasRemaining()) {
+            channel.write(request);
+        }
+    }
+
+    @Override
+    public String read() throws IOException {
+        readFrame();
+        return new String(frame, 0, frameLength, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The stream holds a copy of the response, so it can still be read while this socket reads
+     * the next one.
+     */
+    @Override
+    public InputStream readStream() throws IOException {
+        readFrame();
+        return new ByteArrayInputStream(Arrays.copyOf(frame, frameLength));
+    }
+
+    private void readFrame() throws IOException {
+        frameLength = -1;
+        while (frameLength < 0) {
+            buffer.clear();
+            if (channel.read(buffer) < 0) {
+                throw new IOException("IPC socket closed before a complete response was read");
+            }
+            buffer.flip();
+            decoder.decode(buffer);
+        }
+    }
+
+    private void onFrame(byte[] frame, int length) {
+        this.frame = frame;
+        this.frameLength = length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
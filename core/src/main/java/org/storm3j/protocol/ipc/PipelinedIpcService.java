@@ -0,0 +1,269 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.Flowable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.RequestEncoder;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.deserializer.ResultElementReader;
+import org.storm3j.protocol.deserializer.ResultStream;
+import org.storm3j.protocol.websocket.events.Notification;
+import org.storm3j.utils.HashedWheelTimer;
+
+/**
+ * IPC service keeping a pool of long-lived connections to the node.
+ *
+ * <p>Unlike {@link IpcService}, which opens a connection for every request and waits for its
+ * reply, requests are written to an open connection straight away and many requests can be in
+ * flight on a connection at once. Replies are correlated with their requests by id. Requests are
+ * spread over the pool in a round robin fashion, and a connection that fails is re-opened on next
+ * use. A request that gets no reply within {@link #DEFAULT_REQUEST_TIMEOUT} seconds fails with an
+ * {@link IOException}.
+ */
+public abstract class PipelinedIpcService implements Storm3jService {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelinedIpcService.class);
+
+    public static final int DEFAULT_POOL_SIZE = 1;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final long DEFAULT_REQUEST_TIMEOUT = 60;
+
+    private final ObjectMapper objectMapper;
+    private final RequestEncoder requestEncoder;
+    private final boolean includeRawResponses;
+    private final int bufferSize;
+    private final long requestTimeoutMillis;
+    // Timer to schedule request timeouts
+    private final HashedWheelTimer timer;
+
+    private final IpcConnection[] connections;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    public PipelinedIpcService(int poolSize, int bufferSize, boolean includeRawResponses) {
+        this(
+                poolSize,
+                bufferSize,
+                includeRawResponses,
+                TimeUnit.SECONDS.toMillis(DEFAULT_REQUEST_TIMEOUT));
+    }
+
+    PipelinedIpcService(
+            int poolSize, int bufferSize, boolean includeRawResponses, long requestTimeoutMillis) {
+        if (poolSize < 1) {
+            throw new IllegalArgumentException("Pool size must be at least 1");
+        }
+        this.objectMapper = ObjectMapperFactory.getObjectMapper(includeRawResponses);
+        this.requestEncoder = new RequestEncoder(objectMapper);
+        this.includeRawResponses = includeRawResponses;
+        this.bufferSize = bufferSize;
+        this.requestTimeoutMillis = requestTimeoutMillis;
+        this.timer = new HashedWheelTimer("storm3j-ipc-timeout");
+        this.connections = new IpcConnection[poolSize];
+    }
+
+    public PipelinedIpcService(int poolSize) {
+        this(poolSize, DEFAULT_BUFFER_SIZE, false);
+    }
+
+    public PipelinedIpcService() {
+        this(DEFAULT_POOL_SIZE);
+    }
+
+    /**
+     * Opens a new channel to the node.
+     *
+     * @return connected channel
+     * @throws IOException thrown if the channel cannot be opened
+     */
+    protected abstract ByteChannel openChannel() throws IOException;
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        return get(sendAsync(request, responseType));
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        try {
+            IpcConnection connection = nextConnection();
+            CompletableFuture<T> result = connection.expectReply(request.getId(), responseType);
+            write(connection, requestEncoder.encode(request), request.getId());
+            return result;
+        } catch (IOException e) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return get(sendBatchAsync(batchRequest));
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new BatchResponse(requests, Collections.emptyList()));
+        }
+
+        List<CompletableFuture<? extends Response<?>>> replies = new ArrayList<>(requests.size());
+        try {
+            IpcConnection connection = nextConnection();
+            for (Request<?, ? extends Response<?>> request : requests) {
+                replies.add(connection.expectReply(request.getId(), request.getResponseType()));
+            }
+            ByteBuffer payload = requestEncoder.encode(requests);
+            try {
+                connection.write(payload);
+            } catch (IOException e) {
+                requests.forEach(request -> connection.fail(request.getId(), e));
+            }
+        } catch (IOException e) {
+            CompletableFuture<BatchResponse> result = new CompletableFuture<>();
+            result.completeExceptionally(e);
+            return result;
+        }
+
+        return CompletableFuture.allOf(replies.toArray(new CompletableFuture[0]))
+                .thenApply(
+                        ignored ->
+                                new BatchResponse(
+                                        requests,
+                                        replies.stream()
+                                                .map(CompletableFuture::join)
+                                                .collect(Collectors.toList())));
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>Connections are shared with other requests, so the reply is read off the connection in
+     * full before the elements of its result are read from it and emitted.
+     */
+    @Override
+    public <T> Flowable<T> sendStreaming(Request request, ResultElementReader<T> elementReader) {
+        return Flowable.generate(
+                () ->
+                        ResultStream.open(
+                                objectMapper,
+                                new ByteArrayInputStream(sendRaw(request)),
+                                elementReader),
+                ResultStream<T>::emitNext,
+                ResultStream::close);
+    }
+
+    private byte[] sendRaw(Request<?, ?> request) throws IOException {
+        IpcConnection connection = nextConnection();
+        CompletableFuture<byte[]> reply = connection.expectRawReply(request.getId());
+        write(connection, requestEncoder.encode(request), request.getId());
+        return get(reply);
+    }
+
+    private void write(IpcConnection connection, ByteBuffer payload, long requestId) {
+        try {
+            connection.write(payload);
+        } catch (IOException e) {
+            connection.fail(requestId, e);
+        }
+    }
+
+    private IpcConnection nextConnection() throws IOException {
+        if (closed) {
+            throw new IOException("IPC service is closed");
+        }
+
+        int index = Math.floorMod(next.getAndIncrement(), connections.length);
+        synchronized (connections) {
+            IpcConnection connection = connections[index];
+            if (connection == null || !connection.isOpen()) {
+                log.debug("Opening IPC connection {}", index);
+                connection =
+                        new IpcConnection(
+                                openChannel(),
+                                objectMapper,
+                                includeRawResponses,
+                                bufferSize,
+                                timer,
+                                requestTimeoutMillis,
+                                "storm3j-ipc-reader-" + index);
+                connections[index] = connection;
+            }
+            return connection;
+        }
+    }
+
+    private static <T> T get(CompletableFuture<T> result) throws IOException {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted IPC request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new RuntimeException("Unexpected exception", e.getCause());
+        }
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        throw new UnsupportedOperationException(
+                String.format(
+                        "Service %s does not support subscriptions",
+                        this.getClass().getSimpleName()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        timer.stop();
+        synchronized (connections) {
+            for (IpcConnection connection : connections) {
+                if (connection != null) {
+                    connection.close();
+                }
+            }
+        }
+    }
+}
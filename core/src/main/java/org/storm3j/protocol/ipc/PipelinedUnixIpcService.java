@@ -0,0 +1,46 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.IOException;
+import java.nio.channels.ByteChannel;
+
+/**
+ * Unix domain socket implementation of {@link PipelinedIpcService}. Connections use the JDK's own
+ * Unix domain sockets on JDK 16 and above, and jnr-unixsocket otherwise.
+ */
+public class PipelinedUnixIpcService extends PipelinedIpcService {
+
+    private final String ipcSocketPath;
+
+    public PipelinedUnixIpcService(String ipcSocketPath) {
+        super();
+        this.ipcSocketPath = ipcSocketPath;
+    }
+
+    public PipelinedUnixIpcService(String ipcSocketPath, int poolSize) {
+        super(poolSize);
+        this.ipcSocketPath = ipcSocketPath;
+    }
+
+    public PipelinedUnixIpcService(
+            String ipcSocketPath, int poolSize, int bufferSize, boolean includeRawResponses) {
+        super(poolSize, bufferSize, includeRawResponses);
+        this.ipcSocketPath = ipcSocketPath;
+    }
+
+    @Override
+    protected ByteChannel openChannel() throws IOException {
+        return UnixDomainSocketChannels.open(ipcSocketPath);
+    }
+}
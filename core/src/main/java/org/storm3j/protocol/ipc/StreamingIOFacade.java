@@ -0,0 +1,28 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/** An {@link IOFacade} which can return a response as bytes, without decoding it to a String. */
+public interface StreamingIOFacade extends IOFacade {
+
+    /**
+     * Reads the next response.
+     *
+     * @return stream of the response bytes, valid until the next read from this facade
+     * @throws IOException thrown if the response cannot be read
+     */
+    InputStream readStream() throws IOException;
+}
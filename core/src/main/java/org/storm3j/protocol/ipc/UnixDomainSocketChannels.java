@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.IOException;
+import java.nio.channels.ByteChannel;
+
+import jnr.unixsocket.UnixSocketAddress;
+import jnr.unixsocket.UnixSocketChannel;
+
+/**
+ * Opens Unix domain socket channels.
+ *
+ * <p>This is the Java 8 version of this class, which uses jnr-unixsocket. On JDK 16 and above the
+ * multi-release jar provides a version based on {@code java.nio.channels.SocketChannel} and {@code
+ * UnixDomainSocketAddress} instead, see {@code src/main/java16}.
+ */
+final class UnixDomainSocketChannels {
+
+    private UnixDomainSocketChannels() {}
+
+    static ByteChannel open(String ipcSocketPath) throws IOException {
+        return UnixSocketChannel.open(new UnixSocketAddress(ipcSocketPath));
+    }
+
+    /** @return true if channels are provided by the JDK rather than jnr-unixsocket */
+    static boolean isJdkNative() {
+        return false;
+    }
+}
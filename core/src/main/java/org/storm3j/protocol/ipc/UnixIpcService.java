@@ -12,22 +12,84 @@
  */
 package org.storm3j.protocol.ipc;
 
+import java.io.IOException;
+import java.io.InputStream;
+
 /** Unix domain socket implementation of our services API. */
 public class UnixIpcService extends IpcService {
     private final String ipcSocketPath;
+    private final boolean useNioChannel;
+
+    // Guarded by this
+    private NioUnixDomainSocket socket;
 
     public UnixIpcService(String ipcSocketPath) {
-        super();
-        this.ipcSocketPath = ipcSocketPath;
+        this(ipcSocketPath, false);
     }
 
     public UnixIpcService(String ipcSocketPath, boolean includeRawResponse) {
+        this(ipcSocketPath, includeRawResponse, false);
+    }
+
+    /**
+     * Creates a Unix IPC service.
+     *
+     * @param ipcSocketPath path of the node's IPC socket
+     * @param includeRawResponse whether to include raw responses
+     * @param useNioChannel use {@link NioUnixDomainSocket} rather than {@link UnixDomainSocket},
+     *     which is backed by the JDK's own Unix domain sockets on JDK 16 and above. A single
+     *     socket, with its buffers, is then kept open and used for one request at a time, rather
+     *     than connecting for each request.
+     */
+    public UnixIpcService(
+            String ipcSocketPath, boolean includeRawResponse, boolean useNioChannel) {
         super(includeRawResponse);
         this.ipcSocketPath = ipcSocketPath;
+        this.useNioChannel = useNioChannel;
     }
 
     @Override
     protected IOFacade getIO() {
         return new UnixDomainSocket(ipcSocketPath);
     }
+
+    NioUnixDomainSocket openSocket() {
+        return new NioUnixDomainSocket(ipcSocketPath);
+    }
+
+    @Override
+    protected InputStream performIO(String payload) throws IOException {
+        if (!useNioChannel) {
+            return super.performIO(payload);
+        }
+
+        synchronized (this) {
+            if (socket == null) {
+                socket = openSocket();
+            }
+            try {
+                socket.write(payload);
+                return socket.readStream();
+            } catch (IOException e) {
+                // Part of a reply may be left unread, so the next request connects again
+                closeSocket();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closeSocket();
+        }
+    }
+
+    private void closeSocket() throws IOException {
+        if (socket != null) {
+            NioUnixDomainSocket closing = socket;
+            socket = null;
+            closing.close();
+        }
+    }
 }
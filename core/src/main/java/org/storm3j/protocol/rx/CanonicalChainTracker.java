@@ -0,0 +1,197 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.rx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.core.methods.request.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+
+/**
+ * Follows the canonical chain from a sequence of new heads, turning chain reorganisations into
+ * explicit {@link ChainEvent}s.
+ *
+ * <p>The most recent {@code depth} canonical blocks are kept, indexed by hash. A new head whose
+ * parent is not the current head starts a fork: its ancestors are fetched by hash until one of the
+ * tracked blocks is reached, the tracked blocks above that common ancestor are reverted, newest
+ * first, and the blocks of the new branch are applied, oldest first. Heads that skip blocks are
+ * filled in the same way. A fork deeper than the tracked blocks fails with an
+ * {@link IOException}.
+ *
+ * <p>If a log filter is given, the matching logs of each applied block are fetched by block hash
+ * and kept with the block, so that reverted blocks carry the logs emitted with them.
+ *
+ * <p>Instances are not thread safe, heads should be passed in one at a time.
+ */
+public class CanonicalChainTracker {
+
+    public static final int DEFAULT_DEPTH = 64;
+
+    private static final Comparator<Log> LOG_ORDER = Comparator.comparing(Log::getLogIndex);
+
+    private final Storm3j storm3j;
+    private final int depth;
+    private final boolean fullTransactionObjects;
+    private final FstFilter logFilter;
+
+    private final Deque<TrackedBlock> chain = new ArrayDeque<>();
+    private final Map<String, TrackedBlock> blocksByHash = new HashMap<>();
+
+    public CanonicalChainTracker(Storm3j storm3j, boolean fullTransactionObjects) {
+        this(storm3j, DEFAULT_DEPTH, fullTransactionObjects, null);
+    }
+
+    /**
+     * Creates a chain tracker.
+     *
+     * @param storm3j client to fetch missing blocks and logs with
+     * @param depth number of recent canonical blocks tracked, which bounds the depth of the forks
+     *     that can be followed
+     * @param fullTransactionObjects if true, fetched blocks hold full transactions rather than
+     *     their hashes
+     * @param logFilter filter for the logs to fetch with each applied block, or null for none
+     */
+    public CanonicalChainTracker(
+            Storm3j storm3j, int depth, boolean fullTransactionObjects, FstFilter logFilter) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("Depth must be at least 1");
+        }
+        this.storm3j = storm3j;
+        this.depth = depth;
+        this.fullTransactionObjects = fullTransactionObjects;
+        this.logFilter = logFilter;
+    }
+
+    /**
+     * Moves the canonical chain to a new head.
+     *
+     * @param head the new head
+     * @return the reverted blocks, newest first, followed by the applied blocks, oldest first
+     * @throws IOException if fetching blocks or logs failed, or the fork is deeper than the
+     *     tracked blocks
+     */
+    public List<ChainEvent> onBlock(FstBlock.Block head) throws IOException {
+        if (head == null || blocksByHash.containsKey(head.getHash())) {
+            return Collections.emptyList();
+        }
+
+        // Walk back from the new head to a tracked block, fetching the blocks in between
+        Deque<FstBlock.Block> branch = new ArrayDeque<>();
+        branch.push(head);
+        FstBlock.Block oldest = head;
+        while (!chain.isEmpty() && !blocksByHash.containsKey(oldest.getParentHash())) {
+            if (oldest.getNumber().compareTo(chain.peekFirst().number) <= 0) {
+                throw new IOException(
+                        String.format(
+                                "Chain reorganisation at block %s is deeper than the %d blocks"
+                                        + " tracked",
+                                head.getNumber(),
+                                depth));
+            }
+            oldest = getBlock(oldest.getParentHash());
+            branch.push(oldest);
+        }
+
+        // Everything is fetched before the chain is changed, so that a failed fetch leaves it as
+        // it was and the same head can be passed in again
+        List<TrackedBlock> appliedBlocks = new ArrayList<>(branch.size());
+        for (FstBlock.Block block : branch) {
+            appliedBlocks.add(new TrackedBlock(block, getLogs(block)));
+        }
+
+        List<ChainEvent> events = new ArrayList<>();
+        while (!chain.isEmpty() && !chain.peekLast().hash.equals(oldest.getParentHash())) {
+            TrackedBlock reverted = chain.removeLast();
+            blocksByHash.remove(reverted.hash);
+            events.add(new ChainEvent(ChainEvent.Type.REVERTED, reverted.block, reverted.logs));
+        }
+
+        for (TrackedBlock applied : appliedBlocks) {
+            chain.addLast(applied);
+            blocksByHash.put(applied.hash, applied);
+            events.add(new ChainEvent(ChainEvent.Type.APPLIED, applied.block, applied.logs));
+        }
+
+        while (chain.size() > depth) {
+            blocksByHash.remove(chain.removeFirst().hash);
+        }
+        return events;
+    }
+
+    private FstBlock.Block getBlock(String blockHash) throws IOException {
+        FstBlock fstBlock = storm3j.fstGetBlockByHash(blockHash, fullTransactionObjects).send();
+        if (fstBlock.hasError() || fstBlock.getBlock() == null) {
+            throw new IOException(
+                    String.format(
+                            "Failed to fetch block %s: %s",
+                            blockHash,
+                            fstBlock.hasError()
+                                    ? fstBlock.getError().getMessage()
+                                    : "block not found"));
+        }
+        return fstBlock.getBlock();
+    }
+
+    private List<Log> getLogs(FstBlock.Block block) throws IOException {
+        if (logFilter == null) {
+            return Collections.emptyList();
+        }
+
+        // Fetched by hash, as the block may no longer be canonical by number
+        FstLog fstLog = storm3j.fstGetLogs(logFilter.withBlockHash(block.getHash())).send();
+        if (fstLog.hasError()) {
+            throw new IOException(
+                    String.format(
+                            "Failed to fetch logs of block %s: %s",
+                            block.getHash(), fstLog.getError().getMessage()));
+        }
+
+        List<Log> logs = new ArrayList<>(fstLog.getLogs().size());
+        for (FstLog.LogResult logResult : fstLog.getLogs()) {
+            if (!(logResult instanceof FstLog.LogObject)) {
+                throw new IOException(
+                        "Unexpected result type: " + logResult.get() + " required LogObject");
+            }
+            logs.add(((FstLog.LogObject) logResult).get());
+        }
+        // Nodes return logs in order, but this is not required by the specification
+        logs.sort(LOG_ORDER);
+        return Collections.unmodifiableList(logs);
+    }
+
+    private static class TrackedBlock {
+        private final BigInteger number;
+        private final String hash;
+        private final FstBlock.Block block;
+        private final List<Log> logs;
+
+        TrackedBlock(FstBlock.Block block, List<Log> logs) {
+            this.number = block.getNumber();
+            this.hash = block.getHash();
+            this.block = block;
+            this.logs = logs;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.rx;
+
+import java.util.List;
+
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.Log;
+
+/**
+ * A change of the canonical chain emitted by a {@link CanonicalChainTracker}: a block, along with
+ * its matching logs, either applied to the chain or reverted by a chain reorganisation.
+ */
+public class ChainEvent {
+
+    public enum Type {
+        APPLIED,
+        REVERTED
+    }
+
+    private final Type type;
+    private final FstBlock.Block block;
+    private final List<Log> logs;
+
+    public ChainEvent(Type type, FstBlock.Block block, List<Log> logs) {
+        this.type = type;
+        this.block = block;
+        this.logs = logs;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public boolean isApplied() {
+        return type == Type.APPLIED;
+    }
+
+    public boolean isReverted() {
+        return type == Type.REVERTED;
+    }
+
+    public FstBlock.Block getBlock() {
+        return block;
+    }
+
+    /**
+     * Returns the logs of the block matching the filter of the tracker, in log index order. The
+     * logs of a reverted block are those emitted when it was applied.
+     *
+     * @return the logs of the block, empty if the tracker has no log filter
+     */
+    public List<Log> getLogs() {
+        return logs;
+    }
+
+    @Override
+    public String toString() {
+        return "ChainEvent{"
+                + "type="
+                + type
+                + ", block="
+                + block.getNumberRaw()
+                + ", hash='"
+                + block.getHash()
+                + '\''
+                + ", logs="
+                + logs.size()
+                + '}';
+    }
+}
@@ -29,13 +29,14 @@ import org.storm3j.protocol.core.DefaultBlockParameter;
 import org.storm3j.protocol.core.DefaultBlockParameterName;
 import org.storm3j.protocol.core.DefaultBlockParameterNumber;
 import org.storm3j.protocol.core.filters.BlockFilter;
+import org.storm3j.protocol.core.filters.FilterPoller;
 import org.storm3j.protocol.core.filters.LogFilter;
 import org.storm3j.protocol.core.filters.PendingTransactionFilter;
 import org.storm3j.protocol.core.methods.request.FstFilter;
 import org.storm3j.protocol.core.methods.response.FstBlock;
 import org.storm3j.protocol.core.methods.response.Log;
 import org.storm3j.protocol.core.methods.response.Transaction;
-import org.storm3j.utils.Flowables;
+import org.storm3j.utils.PollingPolicy;
 
 /** storm3j reactive API implementation. */
 public class JsonRpc2_0Rx {
@@ -43,11 +44,22 @@ public class JsonRpc2_0Rx {
     private final Storm3j storm3j;
     private final ScheduledExecutorService scheduledExecutorService;
     private final Scheduler scheduler;
+    private final FilterPoller filterPoller;
+    private final OrderedBlockFetcher blockFetcher;
 
     public JsonRpc2_0Rx(Storm3j storm3j, ScheduledExecutorService scheduledExecutorService) {
+        this(storm3j, scheduledExecutorService, PollingPolicy.fixedRate());
+    }
+
+    public JsonRpc2_0Rx(
+            Storm3j storm3j,
+            ScheduledExecutorService scheduledExecutorService,
+            PollingPolicy pollingPolicy) {
         this.storm3j = storm3j;
         this.scheduledExecutorService = scheduledExecutorService;
         this.scheduler = Schedulers.from(scheduledExecutorService);
+        this.filterPoller = new FilterPoller(storm3j, scheduledExecutorService, pollingPolicy);
+        this.blockFetcher = new OrderedBlockFetcher(storm3j, scheduledExecutorService);
     }
 
     public Flowable<String> fstBlockHashFlowable(long pollingInterval) {
@@ -86,8 +98,9 @@ public class JsonRpc2_0Rx {
             FlowableEmitter<? super T> emitter,
             long pollingInterval) {
 
-        filter.run(scheduledExecutorService, pollingInterval);
-        emitter.setCancellable(filter::cancel);
+        // Filters are polled together, in a single batch per polling interval
+        filterPoller.register(filter, pollingInterval);
+        emitter.setCancellable(() -> filterPoller.cancel(filter));
     }
 
     public Flowable<Transaction> transactionFlowable(long pollingInterval) {
@@ -142,32 +155,17 @@ public class JsonRpc2_0Rx {
             boolean fullTransactionObjects,
             boolean ascending) {
 
-        BigInteger startBlockNumber = null;
-        BigInteger endBlockNumber = null;
+        BigInteger startBlockNumber;
+        BigInteger endBlockNumber;
         try {
             startBlockNumber = getBlockNumber(startBlock);
             endBlockNumber = getBlockNumber(endBlock);
         } catch (IOException e) {
-            Flowable.error(e);
+            return Flowable.error(e);
         }
 
-        if (ascending) {
-            return Flowables.range(startBlockNumber, endBlockNumber)
-                    .flatMap(
-                            i ->
-                                    storm3j.fstGetBlockByNumber(
-                                                    new DefaultBlockParameterNumber(i),
-                                                    fullTransactionObjects)
-                                            .flowable());
-        } else {
-            return Flowables.range(startBlockNumber, endBlockNumber, false)
-                    .flatMap(
-                            i ->
-                                    storm3j.fstGetBlockByNumber(
-                                                    new DefaultBlockParameterNumber(i),
-                                                    fullTransactionObjects)
-                                            .flowable());
-        }
+        return blockFetcher.fetch(
+                startBlockNumber, endBlockNumber, fullTransactionObjects, ascending);
     }
 
     public Flowable<Transaction> replayTransactionsFlowable(
@@ -245,6 +243,54 @@ public class JsonRpc2_0Rx {
                 .flatMapIterable(JsonRpc2_0Rx::toTransactions);
     }
 
+    public Flowable<ChainEvent> canonicalBlockFlowable(
+            boolean fullTransactionObjects, FstFilter logFilter, long pollingInterval) {
+        return trackCanonicalChain(
+                orderedBlockFlowable(fullTransactionObjects, pollingInterval),
+                fullTransactionObjects,
+                logFilter);
+    }
+
+    public Flowable<ChainEvent> replayPastAndFutureCanonicalBlocksFlowable(
+            DefaultBlockParameter startBlock,
+            boolean fullTransactionObjects,
+            FstFilter logFilter,
+            long pollingInterval) {
+        return trackCanonicalChain(
+                replayPastBlocksFlowable(
+                        startBlock,
+                        fullTransactionObjects,
+                        orderedBlockFlowable(fullTransactionObjects, pollingInterval)),
+                fullTransactionObjects,
+                logFilter);
+    }
+
+    private Flowable<FstBlock> orderedBlockFlowable(
+            boolean fullTransactionObjects, long pollingInterval) {
+        // Unlike blockFlowable, keeps the order in which the node reported its new heads
+        return fstBlockHashFlowable(pollingInterval)
+                .concatMap(
+                        blockHash ->
+                                storm3j.fstGetBlockByHash(blockHash, fullTransactionObjects)
+                                        .flowable());
+    }
+
+    private Flowable<ChainEvent> trackCanonicalChain(
+            Flowable<FstBlock> blocks, boolean fullTransactionObjects, FstFilter logFilter) {
+        return Flowable.defer(
+                () -> {
+                    // Each subscriber follows the chain from the first block it receives
+                    CanonicalChainTracker tracker =
+                            new CanonicalChainTracker(
+                                    storm3j,
+                                    CanonicalChainTracker.DEFAULT_DEPTH,
+                                    fullTransactionObjects,
+                                    logFilter);
+                    return blocks.concatMapIterable(
+                            fstBlock -> tracker.onBlock(fstBlock.getBlock()));
+                });
+    }
+
     private BigInteger getLatestBlockNumber() throws IOException {
         return getBlockNumber(DefaultBlockParameterName.LATEST);
     }
@@ -0,0 +1,261 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.rx;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.core.DefaultBlockParameterNumber;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.request.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+
+/**
+ * Fetches the logs of a long block range with {@code fst_getLogs} calls over sub-ranges whose size
+ * adapts to the density of the logs.
+ *
+ * <p>A sub-range that the node rejects for returning too many results, or that times out, is split
+ * in two and retried, and later sub-ranges are made smaller. Sub-ranges returning fewer than half
+ * of {@code targetLogCount} logs make later ones larger, up to {@code maxRange} blocks. Up to
+ * {@code maxConcurrency} sub-ranges are fetched at a time, and logs are emitted in block and log
+ * index order.
+ */
+public class LogBackfiller {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+    public static final long DEFAULT_INITIAL_RANGE = 1000;
+    public static final long DEFAULT_MAX_RANGE = 100_000;
+    public static final int DEFAULT_TARGET_LOG_COUNT = 5000;
+
+    private static final Comparator<Log> LOG_ORDER =
+            Comparator.comparing(Log::getBlockNumber).thenComparing(Log::getLogIndex);
+
+    private final Storm3j storm3j;
+    private final Scheduler scheduler;
+    private final int maxConcurrency;
+    private final long initialRange;
+    private final long maxRange;
+    private final int targetLogCount;
+
+    public LogBackfiller(Storm3j storm3j, ScheduledExecutorService scheduledExecutorService) {
+        this(
+                storm3j,
+                scheduledExecutorService,
+                DEFAULT_MAX_CONCURRENCY,
+                DEFAULT_INITIAL_RANGE,
+                DEFAULT_MAX_RANGE,
+                DEFAULT_TARGET_LOG_COUNT);
+    }
+
+    /**
+     * Creates a log backfiller.
+     *
+     * @param storm3j client to fetch logs with
+     * @param scheduledExecutorService executor sending the requests
+     * @param maxConcurrency maximum number of requests in flight
+     * @param initialRange number of blocks of the first sub-ranges
+     * @param maxRange maximum number of blocks of a sub-range
+     * @param targetLogCount number of logs a sub-range should return, kept well below the node
+     *     result limit
+     */
+    public LogBackfiller(
+            Storm3j storm3j,
+            ScheduledExecutorService scheduledExecutorService,
+            int maxConcurrency,
+            long initialRange,
+            long maxRange,
+            int targetLogCount) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Maximum concurrency must be at least 1");
+        }
+        if (initialRange < 1 || maxRange < initialRange) {
+            throw new IllegalArgumentException(
+                    "Initial range must be at least 1 and no greater than the maximum range");
+        }
+        if (targetLogCount < 1) {
+            throw new IllegalArgumentException("Target log count must be at least 1");
+        }
+        this.storm3j = storm3j;
+        this.scheduler = Schedulers.from(scheduledExecutorService);
+        this.maxConcurrency = maxConcurrency;
+        this.initialRange = initialRange;
+        this.maxRange = maxRange;
+        this.targetLogCount = targetLogCount;
+    }
+
+    /**
+     * Fetches the logs of a block range.
+     *
+     * @param fstFilter addresses and topics to match, its block range is ignored
+     * @param fromBlock first block of the range
+     * @param toBlock last block of the range, inclusive
+     * @return a {@link Flowable} emitting the matching logs in order
+     */
+    public Flowable<Log> backfill(FstFilter fstFilter, BigInteger fromBlock, BigInteger toBlock) {
+        if (fromBlock.signum() < 0) {
+            throw new IllegalArgumentException("Negative start index cannot be used");
+        } else if (fromBlock.compareTo(toBlock) > 0) {
+            throw new IllegalArgumentException("fromBlock must not be greater than toBlock");
+        }
+
+        // Each backfill adapts to the density of its own logs
+        return Flowable.defer(
+                () -> {
+                    AtomicLong rangeSize = new AtomicLong(initialRange);
+                    return ranges(fromBlock, toBlock, rangeSize)
+                            .concatMapEager(
+                                    range -> fetchRange(fstFilter, range, rangeSize),
+                                    maxConcurrency,
+                                    Flowable.bufferSize());
+                });
+    }
+
+    private Flowable<Log> fetchRange(FstFilter fstFilter, BlockRange range, AtomicLong rangeSize) {
+        return Flowable.fromCallable(() -> getLogs(fstFilter, range))
+                .subscribeOn(scheduler)
+                .doOnNext(logs -> onFetched(range, logs.size(), rangeSize))
+                .onErrorResumeNext(
+                        (Throwable throwable) -> {
+                            if (!isRangeTooLarge(throwable) || range.size() == 1) {
+                                return Flowable.error(throwable);
+                            }
+                            // The halves are fetched one after the other in the slot of the range
+                            long half = range.size() / 2;
+                            rangeSize.accumulateAndGet(half, Math::min);
+                            BigInteger split = range.from.add(BigInteger.valueOf(half));
+                            BlockRange lower =
+                                    new BlockRange(range.from, split.subtract(BigInteger.ONE));
+                            BlockRange upper = new BlockRange(split, range.to);
+                            return Flowable.concat(
+                                            fetchRange(fstFilter, lower, rangeSize),
+                                            fetchRange(fstFilter, upper, rangeSize))
+                                    .toList()
+                                    .toFlowable();
+                        })
+                .flatMapIterable(logs -> logs);
+    }
+
+    private void onFetched(BlockRange range, int logCount, AtomicLong rangeSize) {
+        if (logCount > targetLogCount) {
+            // Scale down to the number of blocks expected to hold the target count
+            long size = Math.max(1, range.size() * targetLogCount / logCount);
+            rangeSize.accumulateAndGet(size, Math::min);
+        } else if (logCount < targetLogCount / 2) {
+            long size = Math.min(maxRange, range.size() * 2);
+            rangeSize.accumulateAndGet(size, Math::max);
+        }
+    }
+
+    private List<Log> getLogs(FstFilter fstFilter, BlockRange range) throws IOException {
+        FstLog fstLog =
+                storm3j.fstGetLogs(
+                                fstFilter.withBlockRange(
+                                        new DefaultBlockParameterNumber(range.from),
+                                        new DefaultBlockParameterNumber(range.to)))
+                        .send();
+        if (fstLog.hasError()) {
+            Response.Error error = fstLog.getError();
+            String message =
+                    String.format(
+                            "Failed to fetch logs of blocks %s to %s: %s",
+                            range.from, range.to, error.getMessage());
+            if (isRangeTooLarge(error)) {
+                throw new RangeTooLargeException(message);
+            }
+            throw new IOException(message);
+        }
+
+        List<Log> logs = new ArrayList<>(fstLog.getLogs().size());
+        for (FstLog.LogResult logResult : fstLog.getLogs()) {
+            if (!(logResult instanceof FstLog.LogObject)) {
+                throw new IOException(
+                        "Unexpected result type: " + logResult.get() + " required LogObject");
+            }
+            logs.add(((FstLog.LogObject) logResult).get());
+        }
+        // Nodes return logs in order, but this is not required by the specification
+        logs.sort(LOG_ORDER);
+        return logs;
+    }
+
+    private static boolean isRangeTooLarge(Throwable throwable) {
+        // Read timeouts surface as SocketTimeoutExceptions and call timeouts as
+        // InterruptedIOExceptions
+        return throwable instanceof RangeTooLargeException
+                || throwable instanceof InterruptedIOException;
+    }
+
+    private static boolean isRangeTooLarge(Response.Error error) {
+        if (error.getCode() == Response.Error.LIMIT_EXCEEDED) {
+            return true;
+        }
+        // Nodes use different codes and wording for result and time limits
+        String message =
+                error.getMessage() == null ? "" : error.getMessage().toLowerCase(Locale.ROOT);
+        return message.contains("more than")
+                || message.contains("too many")
+                || message.contains("too large")
+                || message.contains("limit exceeded")
+                || message.contains("timeout")
+                || message.contains("timed out");
+    }
+
+    /** Emits consecutive ranges of the current range size, on request. */
+    private static Flowable<BlockRange> ranges(
+            BigInteger fromBlock, BigInteger toBlock, AtomicLong rangeSize) {
+        return Flowable.generate(
+                () -> fromBlock,
+                (next, emitter) -> {
+                    if (next.compareTo(toBlock) > 0) {
+                        emitter.onComplete();
+                        return next;
+                    }
+                    BigInteger end = next.add(BigInteger.valueOf(rangeSize.get() - 1)).min(toBlock);
+                    emitter.onNext(new BlockRange(next, end));
+                    return end.add(BigInteger.ONE);
+                });
+    }
+
+    private static class BlockRange {
+        private final BigInteger from;
+        private final BigInteger to;
+
+        BlockRange(BigInteger from, BigInteger to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        long size() {
+            return to.subtract(from).longValueExact() + 1;
+        }
+    }
+
+    private static class RangeTooLargeException extends IOException {
+        RangeTooLargeException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.rx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.DefaultBlockParameterNumber;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+
+/**
+ * Fetches a range of blocks with a bounded number of requests in flight, emitting the blocks
+ * strictly in block order.
+ *
+ * <p>Blocks are fetched ahead of the subscriber, up to {@code maxConcurrency} requests at a time.
+ * Fetched blocks are held until the subscriber requests them, at most {@code fetchWindow} of them
+ * in addition to those of the requests in flight, so a slow subscriber bounds the memory used
+ * rather than being overrun. In batch mode each request is a JSON-RPC batch fetching {@code
+ * batchSize} consecutive blocks.
+ */
+public class OrderedBlockFetcher {
+
+    public static final int DEFAULT_MAX_CONCURRENCY = 4;
+    public static final int DEFAULT_FETCH_WINDOW = 64;
+    public static final int DEFAULT_BATCH_SIZE = 1;
+
+    private final Storm3j storm3j;
+    private final Scheduler scheduler;
+    private final int maxConcurrency;
+    private final int fetchWindow;
+    private final int batchSize;
+
+    public OrderedBlockFetcher(Storm3j storm3j, ScheduledExecutorService scheduledExecutorService) {
+        this(
+                storm3j,
+                scheduledExecutorService,
+                DEFAULT_MAX_CONCURRENCY,
+                DEFAULT_FETCH_WINDOW,
+                DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates a block fetcher.
+     *
+     * @param storm3j client to fetch blocks with
+     * @param scheduledExecutorService executor sending the requests
+     * @param maxConcurrency maximum number of requests in flight
+     * @param fetchWindow maximum number of fetched blocks held ahead of the subscriber
+     * @param batchSize number of consecutive blocks fetched per request, sent as a JSON-RPC batch
+     *     if greater than 1
+     */
+    public OrderedBlockFetcher(
+            Storm3j storm3j,
+            ScheduledExecutorService scheduledExecutorService,
+            int maxConcurrency,
+            int fetchWindow,
+            int batchSize) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("Maximum concurrency must be at least 1");
+        }
+        if (fetchWindow < 1) {
+            throw new IllegalArgumentException("Fetch window must be at least 1");
+        }
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.storm3j = storm3j;
+        this.scheduler = Schedulers.from(scheduledExecutorService);
+        this.maxConcurrency = maxConcurrency;
+        this.fetchWindow = fetchWindow;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Fetches the blocks of a range.
+     *
+     * @param startBlock first block of the range
+     * @param endBlock last block of the range, inclusive
+     * @param fullTransactionObjects if true, blocks hold full transactions rather than their hashes
+     * @param ascending true to emit blocks from the start of the range, false from its end
+     * @return a {@link Flowable} emitting the blocks in order
+     */
+    public Flowable<FstBlock> fetch(
+            BigInteger startBlock,
+            BigInteger endBlock,
+            boolean fullTransactionObjects,
+            boolean ascending) {
+        // Inner sources are subscribed to eagerly, but their blocks are emitted in the order of
+        // the chunks. A chunk holds its slot until its blocks are emitted, which bounds the number
+        // of requests in flight.
+        return chunks(startBlock, endBlock, ascending)
+                .concatMapEager(
+                        blockNumbers -> fetchChunk(blockNumbers, fullTransactionObjects),
+                        maxConcurrency,
+                        batchSize)
+                .rebatchRequests(fetchWindow);
+    }
+
+    private Flowable<FstBlock> fetchChunk(
+            List<BigInteger> blockNumbers, boolean fullTransactionObjects) {
+        return Flowable.fromCallable(() -> send(blockNumbers, fullTransactionObjects))
+                .subscribeOn(scheduler)
+                .flatMapIterable(blocks -> blocks);
+    }
+
+    private List<FstBlock> send(List<BigInteger> blockNumbers, boolean fullTransactionObjects)
+            throws IOException {
+        if (blockNumbers.size() == 1) {
+            return Collections.singletonList(
+                    storm3j.fstGetBlockByNumber(
+                                    new DefaultBlockParameterNumber(blockNumbers.get(0)),
+                                    fullTransactionObjects)
+                            .send());
+        }
+
+        BatchRequest batch = storm3j.newBatch();
+        for (BigInteger blockNumber : blockNumbers) {
+            batch.add(
+                    storm3j.fstGetBlockByNumber(
+                            new DefaultBlockParameterNumber(blockNumber), fullTransactionObjects));
+        }
+
+        // Responses are held in the order of the requests
+        List<FstBlock> blocks = new ArrayList<>(blockNumbers.size());
+        for (Response<?> response : batch.send().getResponses()) {
+            blocks.add((FstBlock) response);
+        }
+        return blocks;
+    }
+
+    /** Emits the block numbers of the range in chunks of up to the batch size, on request. */
+    private Flowable<List<BigInteger>> chunks(
+            BigInteger startBlock, BigInteger endBlock, boolean ascending) {
+        if (startBlock.signum() < 0) {
+            throw new IllegalArgumentException("Negative start index cannot be used");
+        } else if (startBlock.compareTo(endBlock) > 0) {
+            throw new IllegalArgumentException("fromBlock must not be greater than toBlock");
+        }
+
+        BigInteger step = ascending ? BigInteger.ONE : BigInteger.ONE.negate();
+        return Flowable.generate(
+                () -> ascending ? startBlock : endBlock,
+                (next, emitter) -> {
+                    List<BigInteger> chunk = new ArrayList<>(batchSize);
+                    BigInteger blockNumber = next;
+                    while (chunk.size() < batchSize
+                            && blockNumber.compareTo(startBlock) >= 0
+                            && blockNumber.compareTo(endBlock) <= 0) {
+                        chunk.add(blockNumber);
+                        blockNumber = blockNumber.add(step);
+                    }
+
+                    if (chunk.isEmpty()) {
+                        emitter.onComplete();
+                    } else {
+                        emitter.onNext(chunk);
+                    }
+                    return blockNumber;
+                });
+    }
+}
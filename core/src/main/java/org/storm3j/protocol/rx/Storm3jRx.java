@@ -186,6 +186,55 @@ public interface Storm3jRx {
      */
     Flowable<Transaction> replayPastAndFutureTransactionsFlowable(DefaultBlockParameter startBlock);
 
+    /**
+     * Creates a {@link Flowable} instance that follows the canonical chain as new blocks are
+     * added. Each new block is emitted as an applied {@link ChainEvent}. On a chain
+     * reorganisation, the blocks of the abandoned branch are emitted as reverted events, newest
+     * first, before the blocks of the new branch are applied.
+     *
+     * @param fullTransactionObjects if true, provides transactions embedded in blocks, otherwise
+     *     transaction hashes
+     * @param logFilter filter for the logs to include with each block, or null for none
+     * @return a {@link Flowable} instance that emits the changes of the canonical chain
+     */
+    Flowable<ChainEvent> canonicalBlockFlowable(
+            boolean fullTransactionObjects, FstFilter logFilter);
+
+    /**
+     * As per {@link #canonicalBlockFlowable(boolean, FstFilter)}, except that the blocks from the
+     * requested block number to the most current are applied first.
+     *
+     * @param startBlock the block number we wish to request from
+     * @param fullTransactionObjects if true, provides transactions embedded in blocks, otherwise
+     *     transaction hashes
+     * @param logFilter filter for the logs to include with each block, or null for none
+     * @return a {@link Flowable} instance that emits the changes of the canonical chain
+     */
+    Flowable<ChainEvent> replayPastAndFutureCanonicalBlocksFlowable(
+            DefaultBlockParameter startBlock, boolean fullTransactionObjects, FstFilter logFilter);
+
+    /**
+     * Performs fst_getLogs, emitting each log as it is read from the response, so that large
+     * ranges can be processed without holding all of their logs in memory. The request is sent on
+     * subscription. Not supported over a {@link org.storm3j.protocol.websocket.WebSocketService},
+     * for which this throws {@link UnsupportedOperationException}.
+     *
+     * @param fstFilter filter to apply
+     * @return a {@link Flowable} instance that emits the matching logs
+     */
+    Flowable<Log> streamLogsFlowable(FstFilter fstFilter);
+
+    /**
+     * Requests a block with full transaction objects, emitting each transaction as it is read
+     * from the response. The request is sent on subscription. Not supported over a {@link
+     * org.storm3j.protocol.websocket.WebSocketService}, for which this throws {@link
+     * UnsupportedOperationException}.
+     *
+     * @param block the block to request
+     * @return a {@link Flowable} instance that emits the transactions of the block
+     */
+    Flowable<Transaction> streamBlockTransactionsFlowable(DefaultBlockParameter block);
+
     /**
      * Creates a {@link Flowable} instance that emits a notification when a new header is appended
      * to a chain, including chain reorganizations.
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A concurrency limit which adapts to the latency and errors of a node, in the style of the TCP
+ * Vegas congestion control algorithm.
+ *
+ * <p>The lowest latency seen estimates the latency of an unloaded node. When measured latency
+ * implies fewer than {@code alpha} requests are queued at the node the limit grows, when it
+ * implies more than {@code beta} the limit shrinks, and on every error the limit is cut by a
+ * multiplicative factor. Requests beyond the limit wait in a FIFO queue instead of failing.
+ */
+public class AdaptiveLimiter {
+
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 500;
+
+    static final double BACKOFF_RATIO = 0.9;
+    // The no-load latency is re-measured periodically, in case the node or network changed
+    static final int MIN_LATENCY_RESET_SAMPLES = 1000;
+
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final Object lock = new Object();
+    private final Deque<Waiter> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private long minLatencyNanos = Long.MAX_VALUE;
+    private int samples;
+
+    public AdaptiveLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    public AdaptiveLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || minLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= minLimit <= maxLimit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Acquire permits to send requests. A batch larger than the limit is let through once nothing
+     * else is in flight.
+     *
+     * @param permits number of requests to send
+     * @return future completed once the permits are granted
+     */
+    public CompletableFuture<Void> acquire(int permits) {
+        synchronized (lock) {
+            if (queue.isEmpty() && canGrant(permits)) {
+                inFlight += permits;
+                return CompletableFuture.completedFuture(null);
+            }
+            Waiter waiter = new Waiter(permits);
+            queue.add(waiter);
+            return waiter.granted;
+        }
+    }
+
+    /**
+     * Withdraw a request for permits which have not been granted yet.
+     *
+     * @param granted future returned by {@link #acquire(int)}
+     * @return false if the permits were already granted, and must be released
+     */
+    public boolean cancel(CompletableFuture<Void> granted) {
+        synchronized (lock) {
+            return queue.removeIf(waiter -> waiter.granted == granted);
+        }
+    }
+
+    /**
+     * Release permits and adjust the limit.
+     *
+     * @param permits number of permits to release
+     * @param latencyNanos latency of the requests sent with the permits
+     * @param failed true if the requests failed in a way that suggests the node is overloaded
+     */
+    public void release(int permits, long latencyNanos, boolean failed) {
+        List<Waiter> granted;
+        synchronized (lock) {
+            update(latencyNanos, failed);
+            inFlight -= permits;
+            granted = grant();
+        }
+        granted.forEach(waiter -> waiter.granted.complete(null));
+    }
+
+    /**
+     * Release permits without adjusting the limit, for requests which were not sent.
+     *
+     * @param permits number of permits to release
+     */
+    public void release(int permits) {
+        List<Waiter> granted;
+        synchronized (lock) {
+            inFlight -= permits;
+            granted = grant();
+        }
+        granted.forEach(waiter -> waiter.granted.complete(null));
+    }
+
+    private void update(long latencyNanos, boolean failed) {
+        if (failed) {
+            limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+            return;
+        }
+
+        samples++;
+        if (latencyNanos < minLatencyNanos || samples % MIN_LATENCY_RESET_SAMPLES == 0) {
+            minLatencyNanos = Math.max(1, latencyNanos);
+        }
+
+        double step = Math.max(1, Math.log10(limit));
+        double alpha = 3 * step;
+        double beta = 6 * step;
+        double queued = limit * (1 - (double) minLatencyNanos / Math.max(1, latencyNanos));
+        if (queued < alpha) {
+            // Only grow if the limit is being used, otherwise it could grow without bound
+            if (inFlight * 2 >= limit) {
+                limit = Math.min(maxLimit, limit + step);
+            }
+        } else if (queued > beta) {
+            limit = Math.max(minLimit, limit - step);
+        }
+    }
+
+    private List<Waiter> grant() {
+        List<Waiter> granted = new ArrayList<>();
+        while (!queue.isEmpty() && canGrant(queue.peek().permits)) {
+            Waiter waiter = queue.poll();
+            inFlight += waiter.permits;
+            granted.add(waiter);
+        }
+        return granted;
+    }
+
+    private boolean canGrant(int permits) {
+        return inFlight == 0 || inFlight + permits <= (int) limit;
+    }
+
+    /** @return the current concurrency limit */
+    public int getLimit() {
+        synchronized (lock) {
+            return (int) limit;
+        }
+    }
+
+    public int getInFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    /** @return number of requests waiting for permits */
+    public int getQueueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "AdaptiveLimiter{"
+                    + "limit="
+                    + (int) limit
+                    + ", inFlight="
+                    + inFlight
+                    + ", queueDepth="
+                    + queue.size()
+                    + '}';
+        }
+    }
+
+    private static class Waiter {
+        private final int permits;
+        private final CompletableFuture<Void> granted = new CompletableFuture<>();
+
+        Waiter(int permits) {
+            this.permits = permits;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Batch size and wait time statistics of a {@link BatchingStorm3jService}. */
+public class BatchingStatistics {
+
+    private final LongAdder batchCount = new LongAdder();
+    private final LongAdder requestCount = new LongAdder();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    void recordBatch(int size) {
+        batchCount.increment();
+        requestCount.add(size);
+        maxBatchSize.accumulateAndGet(size, Math::max);
+    }
+
+    void recordWait(long waitNanos) {
+        totalWaitNanos.add(waitNanos);
+        maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /** @return number of payloads sent to the underlying service */
+    public long getBatchCount() {
+        return batchCount.sum();
+    }
+
+    /** @return number of requests sent through the batching layer */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = getBatchCount();
+        return batches == 0 ? 0 : (double) getRequestCount() / batches;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize.get();
+    }
+
+    /**
+     * Average time a request spent queued before its batch was dispatched.
+     *
+     * @param unit time unit of the result
+     * @return average wait time
+     */
+    public double getAverageWaitTime(TimeUnit unit) {
+        long requests = getRequestCount();
+        return requests == 0 ? 0 : (double) totalWaitNanos.sum() / requests / unit.toNanos(1);
+    }
+
+    public long getMaxWaitTime(TimeUnit unit) {
+        return unit.convert(maxWaitNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "BatchingStatistics{"
+                + "batchCount="
+                + getBatchCount()
+                + ", requestCount="
+                + getRequestCount()
+                + ", averageBatchSize="
+                + getAverageBatchSize()
+                + ", maxBatchSize="
+                + getMaxBatchSize()
+                + ", averageWaitMicros="
+                + getAverageWaitTime(TimeUnit.MICROSECONDS)
+                + ", maxWaitMicros="
+                + getMaxWaitTime(TimeUnit.MICROSECONDS)
+                + '}';
+    }
+}
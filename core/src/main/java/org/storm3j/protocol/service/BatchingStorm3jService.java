@@ -0,0 +1,261 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+
+/**
+ * Coalesces concurrent {@link #sendAsync(Request, Class)} calls into JSON-RPC batches.
+ *
+ * <p>Requests are queued until either {@code maxBatchSize} requests are waiting or {@code
+ * maxDelay} has passed since the first queued request, and are then sent to the underlying service
+ * as a single {@link BatchRequest}. Each reply is dispatched to the future of its request.
+ * Synchronous {@link #send(Request, Class)} calls are not delayed and go straight to the
+ * underlying service.
+ *
+ * <p>Batch sizes and wait times are available via {@link #getStatistics()} to tune the window
+ * against latency.
+ */
+public class BatchingStorm3jService extends ForwardingStorm3jService {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingStorm3jService.class);
+
+    public static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = 5;
+
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final ScheduledExecutorService executor;
+    private final boolean shutdownExecutorOnClose;
+    private final BatchingStatistics statistics = new BatchingStatistics();
+
+    private final Object lock = new Object();
+    private List<PendingRequest<?>> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public BatchingStorm3jService(Storm3jService delegate) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_MAX_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public BatchingStorm3jService(
+            Storm3jService delegate, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        this(
+                delegate,
+                maxBatchSize,
+                maxDelay,
+                unit,
+                Executors.newSingleThreadScheduledExecutor(),
+                true);
+    }
+
+    /**
+     * Creates a batching service.
+     *
+     * @param delegate service the batches are sent to
+     * @param maxBatchSize maximum number of requests in a batch
+     * @param maxDelay maximum time a request is held back waiting for other requests
+     * @param unit time unit of {@code maxDelay}
+     * @param executor executor used to flush batches when {@code maxDelay} elapses. <strong>You
+     *     are responsible for terminating this thread pool</strong>
+     */
+    public BatchingStorm3jService(
+            Storm3jService delegate,
+            int maxBatchSize,
+            long maxDelay,
+            TimeUnit unit,
+            ScheduledExecutorService executor) {
+        this(delegate, maxBatchSize, maxDelay, unit, executor, false);
+    }
+
+    private BatchingStorm3jService(
+            Storm3jService delegate,
+            int maxBatchSize,
+            long maxDelay,
+            TimeUnit unit,
+            ScheduledExecutorService executor,
+            boolean shutdownExecutorOnClose) {
+        super(delegate);
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Maximum batch size must be at least 1");
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.executor = executor;
+        this.shutdownExecutorOnClose = shutdownExecutorOnClose;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        if (request.getResponseType() != responseType) {
+            // Batch replies are decoded using the response type held by the request
+            return delegate.sendAsync(request, responseType);
+        }
+
+        PendingRequest<T> pendingRequest = new PendingRequest<>(request);
+        List<PendingRequest<?>> batch = null;
+        synchronized (lock) {
+            pending.add(pendingRequest);
+            if (pending.size() >= maxBatchSize) {
+                batch = drain();
+            } else if (scheduledFlush == null) {
+                scheduledFlush =
+                        executor.schedule(this::flush, maxDelayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        if (batch != null) {
+            dispatch(batch);
+        }
+        return pendingRequest.result;
+    }
+
+    /** Sends all queued requests immediately. */
+    public void flush() {
+        List<PendingRequest<?>> batch;
+        synchronized (lock) {
+            batch = drain();
+        }
+        dispatch(batch);
+    }
+
+    public BatchingStatistics getStatistics() {
+        return statistics;
+    }
+
+    private List<PendingRequest<?>> drain() {
+        List<PendingRequest<?>> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void dispatch(List<PendingRequest<?>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        BatchRequest batchRequest = new BatchRequest(delegate);
+        List<PendingRequest<?>> batched = new ArrayList<>(batch.size());
+        Set<Long> ids = new HashSet<>();
+        for (PendingRequest<?> pendingRequest : batch) {
+            statistics.recordWait(now - pendingRequest.enqueuedAt);
+            if (ids.add(pendingRequest.request.getId())) {
+                batchRequest.add((Request) pendingRequest.request);
+                batched.add(pendingRequest);
+            } else {
+                // Replies are correlated by id, so a clashing request goes on its own
+                statistics.recordBatch(1);
+                sendSingle(pendingRequest);
+            }
+        }
+
+        statistics.recordBatch(batched.size());
+        if (batched.size() == 1) {
+            sendSingle(batched.get(0));
+            return;
+        }
+
+        log.debug("Sending batch of {} requests", batched.size());
+        delegate.sendBatchAsync(batchRequest)
+                .whenComplete(
+                        (batchResponse, throwable) -> {
+                            if (throwable != null) {
+                                batched.forEach(p -> p.result.completeExceptionally(throwable));
+                            } else if (batchResponse == null) {
+                                // Transports return no response when the reply has no body
+                                IOException failure =
+                                        new IOException("No reply received for batch request");
+                                batched.forEach(p -> p.result.completeExceptionally(failure));
+                            } else {
+                                complete(batched, batchResponse);
+                            }
+                        });
+    }
+
+    private void complete(List<PendingRequest<?>> batched, BatchResponse batchResponse) {
+        List<? extends Response<?>> responses = batchResponse.getResponses();
+        for (int i = 0; i < batched.size(); i++) {
+            batched.get(i)
+                    .complete(responses != null && i < responses.size() ? responses.get(i) : null);
+        }
+    }
+
+    private <T extends Response> void sendSingle(PendingRequest<T> pendingRequest) {
+        delegate.sendAsync(pendingRequest.request, pendingRequest.request.getResponseType())
+                .whenComplete(
+                        (response, throwable) -> {
+                            if (throwable != null) {
+                                pendingRequest.result.completeExceptionally(throwable);
+                            } else {
+                                pendingRequest.result.complete(response);
+                            }
+                        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (shutdownExecutorOnClose) {
+            executor.shutdown();
+        }
+        super.close();
+    }
+
+    private static class PendingRequest<T extends Response> {
+        private final Request<?, T> request;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+
+        PendingRequest(Request<?, T> request) {
+            this.request = request;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Response<?> response) {
+            if (response == null) {
+                result.completeExceptionally(
+                        new IOException(
+                                String.format(
+                                        "No reply received for batched request with id %d",
+                                        request.getId())));
+            } else {
+                result.complete((T) response);
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.storm3j.exceptions.MessageDecodingException;
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlockNumber;
+import org.storm3j.utils.Numeric;
+
+/**
+ * A {@link Storm3jService} that serves repeated requests for data which cannot change from a
+ * {@link ResponseCache}:
+ *
+ * <ul>
+ *   <li>{@code fst_getBlockByHash}
+ *   <li>{@code fst_getTransactionByHash} and {@code fst_getTransactionReceipt}, once the
+ *       transaction is mined in a final block
+ *   <li>{@code fst_getBlockByNumber} and {@code fst_getCode} at a final block number
+ * </ul>
+ *
+ * <p>A block is final once it is a given number of blocks below the head of the chain. The head
+ * is tracked from {@code fst_blockNumber} replies, and refreshed in the background at most once a
+ * second while requests for numbered blocks are made. Batch requests are not cached.
+ */
+public class CachingStorm3jService extends ForwardingStorm3jService {
+
+    public static final int DEFAULT_FINALITY_DEPTH = 12;
+
+    static final long HEAD_REFRESH_INTERVAL_MILLIS = 1000;
+
+    private static final String BLOCK_NUMBER = "fst_blockNumber";
+    private static final String GET_BLOCK_BY_HASH = "fst_getBlockByHash";
+    private static final String GET_BLOCK_BY_NUMBER = "fst_getBlockByNumber";
+    private static final String GET_CODE = "fst_getCode";
+    private static final String GET_TRANSACTION_BY_HASH = "fst_getTransactionByHash";
+    private static final String GET_TRANSACTION_RECEIPT = "fst_getTransactionReceipt";
+
+    private static final Set<String> CACHEABLE_METHODS =
+            new HashSet<>(
+                    Arrays.asList(
+                            GET_BLOCK_BY_HASH,
+                            GET_BLOCK_BY_NUMBER,
+                            GET_CODE,
+                            GET_TRANSACTION_BY_HASH,
+                            GET_TRANSACTION_RECEIPT));
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final ResponseCache cache;
+    private final int finalityDepth;
+
+    private final AtomicLong headBlockNumber = new AtomicLong(-1);
+    private final AtomicBoolean refreshingHead = new AtomicBoolean();
+    private volatile long headRefreshTime;
+
+    public CachingStorm3jService(Storm3jService delegate, long maxBytes) {
+        this(delegate, new ResponseCache(maxBytes), DEFAULT_FINALITY_DEPTH);
+    }
+
+    public CachingStorm3jService(
+            Storm3jService delegate, long maxBytes, boolean offHeap, int finalityDepth) {
+        this(delegate, new ResponseCache(maxBytes, offHeap), finalityDepth);
+    }
+
+    public CachingStorm3jService(
+            Storm3jService delegate, ResponseCache cache, int finalityDepth) {
+        super(delegate);
+        this.cache = cache;
+        this.finalityDepth = finalityDepth;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        String key = cacheKey(request);
+        if (key == null) {
+            T response = delegate.send(request, responseType);
+            onUncachedReply(request, response);
+            return response;
+        }
+
+        byte[] cached = cache.get(key);
+        if (cached != null) {
+            return fromCache(request, cached, responseType);
+        }
+        JsonResult reply = delegate.send(jsonRequest(request), JsonResult.class);
+        return onReply(request, key, reply, responseType);
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        String key = cacheKey(request);
+        if (key == null) {
+            return delegate.sendAsync(request, responseType)
+                    .thenApply(
+                            response -> {
+                                onUncachedReply(request, response);
+                                return response;
+                            });
+        }
+
+        byte[] cached = cache.get(key);
+        if (cached != null) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                result.complete(fromCache(request, cached, responseType));
+            } catch (IOException e) {
+                result.completeExceptionally(e);
+            }
+            return result;
+        }
+        return delegate.sendAsync(jsonRequest(request), JsonResult.class)
+                .thenApply(
+                        reply -> {
+                            try {
+                                return onReply(request, key, reply, responseType);
+                            } catch (IOException e) {
+                                throw new CompletionException(e);
+                            }
+                        });
+    }
+
+    private String cacheKey(Request<?, ?> request) {
+        String method = request.getMethod();
+        if (!CACHEABLE_METHODS.contains(method)) {
+            return null;
+        }
+
+        List<?> params = request.getParams();
+        if (method.equals(GET_BLOCK_BY_NUMBER) && !isFinal(param(params, 0))) {
+            return null;
+        } else if (method.equals(GET_CODE) && !isFinal(param(params, 1))) {
+            return null;
+        }
+
+        try {
+            // Hashes and addresses are case insensitive
+            return method + objectMapper.writeValueAsString(params).toLowerCase();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private <T extends Response> T onReply(
+            Request<?, ?> request, String key, JsonResult reply, Class<T> responseType)
+            throws IOException {
+        JsonNode result = reply.getResult();
+        if (reply.hasError() || result == null || result.isNull()) {
+            return toResponse(request, reply, responseType);
+        }
+
+        String method = request.getMethod();
+        if (method.startsWith("fst_getBlockBy")) {
+            observeBlockNumber(quantity(result.get("number")));
+        }
+        if (isCacheable(method, result)) {
+            cache.put(key, objectMapper.writeValueAsBytes(result));
+        }
+        return toResponse(request, reply, responseType);
+    }
+
+    private boolean isCacheable(String method, JsonNode result) {
+        switch (method) {
+            case GET_TRANSACTION_BY_HASH:
+            case GET_TRANSACTION_RECEIPT:
+                // Pending transactions have no block number
+                return isFinal(quantity(result.get("blockNumber")));
+            default:
+                return true;
+        }
+    }
+
+    private void onUncachedReply(Request<?, ?> request, Response<?> response) {
+        if (BLOCK_NUMBER.equals(request.getMethod())
+                && response != null
+                && !response.hasError()
+                && response.getResult() instanceof String) {
+            observeBlockNumber(quantity((String) response.getResult()));
+        }
+    }
+
+    private boolean isFinal(BigInteger blockNumber) {
+        if (blockNumber == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - headRefreshTime > HEAD_REFRESH_INTERVAL_MILLIS) {
+            refreshHead();
+        }
+        long head = headBlockNumber.get();
+        return head >= 0 && blockNumber.add(BigInteger.valueOf(finalityDepth)).longValue() <= head;
+    }
+
+    private void refreshHead() {
+        if (!refreshingHead.compareAndSet(false, true)) {
+            return;
+        }
+        headRefreshTime = System.currentTimeMillis();
+        try {
+            Request<?, FstBlockNumber> request =
+                    new Request<>(
+                            BLOCK_NUMBER,
+                            Collections.<String>emptyList(),
+                            delegate,
+                            FstBlockNumber.class);
+            delegate.sendAsync(request, FstBlockNumber.class)
+                    .whenComplete(
+                            (response, throwable) -> {
+                                if (throwable == null && !response.hasError()) {
+                                    observeBlockNumber(response.getBlockNumber());
+                                }
+                                refreshingHead.set(false);
+                            });
+        } catch (RuntimeException e) {
+            refreshingHead.set(false);
+        }
+    }
+
+    private void observeBlockNumber(BigInteger blockNumber) {
+        if (blockNumber != null) {
+            headBlockNumber.accumulateAndGet(blockNumber.longValue(), Math::max);
+        }
+    }
+
+    private <T extends Response> T fromCache(
+            Request<?, ?> request, byte[] result, Class<T> responseType) throws IOException {
+        byte[] prefix =
+                ("{\"jsonrpc\":\"2.0\",\"id\":" + request.getId() + ",\"result\":")
+                        .getBytes(StandardCharsets.UTF_8);
+        byte[] json = new byte[prefix.length + result.length + 1];
+        System.arraycopy(prefix, 0, json, 0, prefix.length);
+        System.arraycopy(result, 0, json, prefix.length, result.length);
+        json[json.length - 1] = '}';
+        return objectMapper.readValue(json, responseType);
+    }
+
+    private <T extends Response> T toResponse(
+            Request<?, ?> request, JsonResult reply, Class<T> responseType) throws IOException {
+        ObjectNode node = objectMapper.createObjectNode();
+        node.put("jsonrpc", reply.getJsonrpc());
+        node.put("id", request.getId());
+        if (!reply.hasError()) {
+            node.set("result", reply.getResult());
+        }
+        T response = objectMapper.treeToValue(node, responseType);
+        response.setError(reply.getError());
+        return response;
+    }
+
+    private Request<?, JsonResult> jsonRequest(Request<?, ?> request) {
+        return new Request<>(request.getMethod(), request.getParams(), delegate, JsonResult.class);
+    }
+
+    private static BigInteger param(List<?> params, int index) {
+        if (params.size() <= index || !(params.get(index) instanceof String)) {
+            return null;
+        }
+        return quantity((String) params.get(index));
+    }
+
+    private static BigInteger quantity(JsonNode node) {
+        return node != null && node.isTextual() ? quantity(node.asText()) : null;
+    }
+
+    private static BigInteger quantity(String value) {
+        try {
+            return Numeric.decodeQuantity(value);
+        } catch (MessageDecodingException e) {
+            // A block tag such as latest
+            return null;
+        }
+    }
+
+    /** @return the highest block number seen, or -1 if none has been seen */
+    public long getHeadBlockNumber() {
+        return headBlockNumber.get();
+    }
+
+    public ResponseCache getCache() {
+        return cache;
+    }
+
+    static class JsonResult extends Response<JsonNode> {}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Statistics of the requests merged by a {@link CoalescingStorm3jService}. */
+public class CoalescingStatistics {
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    void recordHit() {
+        hitCount.increment();
+    }
+
+    void recordMiss() {
+        missCount.increment();
+    }
+
+    /** @return number of requests which joined an identical request already in flight */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    /** @return number of requests sent to the underlying service */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "CoalescingStatistics{"
+                + "hitCount="
+                + getHitCount()
+                + ", missCount="
+                + getMissCount()
+                + '}';
+    }
+}
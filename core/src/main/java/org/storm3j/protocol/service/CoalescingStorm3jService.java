@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+
+/**
+ * A {@link Storm3jService} that merges identical read-only requests made while one of them is in
+ * flight, so that they are sent to the node once. Requests are identical if they have the same
+ * method, parameters and response type, ignoring the case of hashes and addresses.
+ *
+ * <p>Merged requests share the reply of the request which was sent, including its id. Nothing is
+ * kept once the reply has arrived, so a request made after that is sent again. Cancelling the
+ * future of one merged request does not affect the others.
+ */
+public class CoalescingStorm3jService extends ForwardingStorm3jService {
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private final ConcurrentHashMap<String, CompletableFuture<? extends Response>> inFlight =
+            new ConcurrentHashMap<>();
+
+    private final CoalescingStatistics statistics = new CoalescingStatistics();
+
+    public CoalescingStorm3jService(Storm3jService delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        String key = key(request, responseType);
+        if (key == null) {
+            return delegate.send(request, responseType);
+        }
+
+        CompletableFuture<T> reply = new CompletableFuture<>();
+        CompletableFuture<T> existing = join(key, reply);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        try {
+            T response = delegate.send(request, responseType);
+            inFlight.remove(key, reply);
+            reply.complete(response);
+            return response;
+        } catch (IOException | RuntimeException e) {
+            inFlight.remove(key, reply);
+            reply.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        String key = key(request, responseType);
+        if (key == null) {
+            return delegate.sendAsync(request, responseType);
+        }
+
+        CompletableFuture<T> reply = new CompletableFuture<>();
+        CompletableFuture<T> existing = join(key, reply);
+        if (existing != null) {
+            return copy(existing);
+        }
+
+        CompletableFuture<T> sent;
+        try {
+            sent = delegate.sendAsync(request, responseType);
+        } catch (RuntimeException e) {
+            sent = new CompletableFuture<>();
+            sent.completeExceptionally(e);
+        }
+        sent.whenComplete(
+                (response, throwable) -> {
+                    // Removed first, so that no request joins a completed reply
+                    inFlight.remove(key, reply);
+                    if (throwable == null) {
+                        reply.complete(response);
+                    } else {
+                        reply.completeExceptionally(
+                                throwable instanceof CompletionException
+                                                && throwable.getCause() != null
+                                        ? throwable.getCause()
+                                        : throwable);
+                    }
+                });
+        return copy(reply);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Response> CompletableFuture<T> join(
+            String key, CompletableFuture<T> reply) {
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, reply);
+        if (existing != null) {
+            statistics.recordHit();
+        } else {
+            statistics.recordMiss();
+        }
+        return existing;
+    }
+
+    private String key(Request<?, ?> request, Class<?> responseType) {
+        if (!ReadOnlyMethods.isReadOnly(request)) {
+            return null;
+        }
+        try {
+            // Hashes and addresses are case insensitive
+            return request.getMethod()
+                    + objectMapper.writeValueAsString(request.getParams()).toLowerCase()
+                    + responseType.getName();
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+
+    private static <T> CompletableFuture<T> copy(CompletableFuture<T> reply) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        reply.whenComplete(
+                (response, throwable) -> {
+                    if (throwable == null) {
+                        result.complete(response);
+                    } else {
+                        result.completeExceptionally(throwable);
+                    }
+                });
+        return result;
+    }
+
+    private static <T> T await(CompletableFuture<T> reply) throws IOException {
+        try {
+            return reply.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for identical request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Unexpected exception", e.getCause());
+        }
+    }
+
+    public CoalescingStatistics getStatistics() {
+        return statistics;
+    }
+
+    /** @return number of distinct requests in flight */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+}
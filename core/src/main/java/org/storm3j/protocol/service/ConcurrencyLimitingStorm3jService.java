@@ -0,0 +1,218 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.exceptions.ClientConnectionException;
+
+/**
+ * A {@link Storm3jService} that limits the number of requests in flight to a node with an {@link
+ * AdaptiveLimiter}. The limit shrinks as the node slows down or starts rejecting requests, and
+ * grows while it stays responsive. Requests over the limit are queued and sent in order.
+ *
+ * <p>A batch takes one permit per request it contains. Subscriptions are not limited.
+ */
+public class ConcurrencyLimitingStorm3jService extends ForwardingStorm3jService {
+
+    private final AdaptiveLimiter limiter;
+
+    public ConcurrencyLimitingStorm3jService(Storm3jService delegate) {
+        this(delegate, new AdaptiveLimiter());
+    }
+
+    public ConcurrencyLimitingStorm3jService(
+            Storm3jService delegate, int initialLimit, int minLimit, int maxLimit) {
+        this(delegate, new AdaptiveLimiter(initialLimit, minLimit, maxLimit));
+    }
+
+    public ConcurrencyLimitingStorm3jService(Storm3jService delegate, AdaptiveLimiter limiter) {
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        return limit(
+                1,
+                () -> delegate.send(request, responseType),
+                ConcurrencyLimitingStorm3jService::isLimitExceeded);
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        return limitAsync(
+                1,
+                () -> delegate.sendAsync(request, responseType),
+                ConcurrencyLimitingStorm3jService::isLimitExceeded);
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return limit(
+                batchRequest.getRequests().size(),
+                () -> delegate.sendBatch(batchRequest),
+                ConcurrencyLimitingStorm3jService::isLimitExceeded);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return limitAsync(
+                batchRequest.getRequests().size(),
+                () -> delegate.sendBatchAsync(batchRequest),
+                ConcurrencyLimitingStorm3jService::isLimitExceeded);
+    }
+
+    private <R> R limit(int permits, Call<R> call, Predicate<R> isLimitExceeded)
+            throws IOException {
+        CompletableFuture<Void> granted = limiter.acquire(permits);
+        try {
+            granted.get();
+        } catch (InterruptedException e) {
+            if (!limiter.cancel(granted)) {
+                limiter.release(permits);
+            }
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting to send request", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Permits cannot fail", e.getCause());
+        }
+
+        long startTime = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            R result = call.call();
+            overloaded = isLimitExceeded.test(result);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            overloaded = isOverloaded(e);
+            throw e;
+        } finally {
+            // Whatever the outcome, the permits must go back to the limiter
+            onComplete(permits, startTime, overloaded);
+        }
+    }
+
+    private <R> CompletableFuture<R> limitAsync(
+            int permits, Supplier<CompletableFuture<R>> call, Predicate<R> isLimitExceeded) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        CompletableFuture<Void> granted = limiter.acquire(permits);
+        granted.thenRun(() -> dispatch(permits, call, isLimitExceeded, result));
+        result.whenComplete(
+                (response, throwable) -> {
+                    if (result.isCancelled()) {
+                        limiter.cancel(granted);
+                    }
+                });
+        return result;
+    }
+
+    private <R> void dispatch(
+            int permits,
+            Supplier<CompletableFuture<R>> call,
+            Predicate<R> isLimitExceeded,
+            CompletableFuture<R> result) {
+        if (result.isDone()) {
+            // Cancelled while the permits were granted
+            limiter.release(permits);
+            return;
+        }
+
+        long startTime = System.nanoTime();
+        CompletableFuture<R> reply;
+        try {
+            reply = call.get();
+        } catch (RuntimeException e) {
+            reply = new CompletableFuture<>();
+            reply.completeExceptionally(e);
+        }
+
+        CompletableFuture<R> sent = reply;
+        result.whenComplete((response, throwable) -> sent.cancel(true));
+        sent.whenComplete(
+                (response, throwable) -> {
+                    Throwable cause =
+                            throwable instanceof CompletionException
+                                            && throwable.getCause() != null
+                                    ? throwable.getCause()
+                                    : throwable;
+                    boolean overloaded = false;
+                    try {
+                        overloaded =
+                                cause == null
+                                        ? isLimitExceeded.test(response)
+                                        : isOverloaded(cause);
+                    } finally {
+                        onComplete(permits, startTime, overloaded);
+                        if (cause == null) {
+                            result.complete(response);
+                        } else {
+                            result.completeExceptionally(cause);
+                        }
+                    }
+                });
+    }
+
+    private void onComplete(int permits, long startTime, boolean overloaded) {
+        limiter.release(permits, System.nanoTime() - startTime, overloaded);
+    }
+
+    private static boolean isOverloaded(Throwable throwable) {
+        // Timeouts and connection failures surface as IOExceptions, while HTTP 429 and 503
+        // responses surface as ClientConnectionExceptions
+        return throwable instanceof IOException || throwable instanceof ClientConnectionException;
+    }
+
+    private static boolean isLimitExceeded(Response<?> response) {
+        return response != null
+                && response.hasError()
+                && response.getError().getCode() == Response.Error.LIMIT_EXCEEDED;
+    }
+
+    private static boolean isLimitExceeded(BatchResponse batchResponse) {
+        // Services return no batch response when the node replied without a body
+        return batchResponse != null
+                && batchResponse.getResponses() != null
+                && batchResponse.getResponses().stream()
+                        .anyMatch(ConcurrencyLimitingStorm3jService::isLimitExceeded);
+    }
+
+    public AdaptiveLimiter getLimiter() {
+        return limiter;
+    }
+
+    /** @return the current concurrency limit */
+    public int getLimit() {
+        return limiter.getLimit();
+    }
+
+    /** @return number of requests waiting to be sent */
+    public int getQueueDepth() {
+        return limiter.getQueueDepth();
+    }
+
+    private interface Call<R> {
+        R call() throws IOException;
+    }
+}
@@ -0,0 +1,705 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Flowable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlockNumber;
+import org.storm3j.protocol.deserializer.ResultElementReader;
+import org.storm3j.protocol.exceptions.ClientConnectionException;
+import org.storm3j.protocol.websocket.events.Notification;
+import org.storm3j.utils.Numeric;
+
+/**
+ * A {@link Storm3jService} backed by a pool of services connected to different nodes, which can
+ * be passed to {@link org.storm3j.protocol.Storm3j#build(Storm3jService)} in place of a single
+ * service.
+ *
+ * <p>Each request is routed to the endpoint with the lowest moving average latency, weighted by
+ * the number of requests it is already serving. An endpoint which fails to answer {@code
+ * maxFailures} requests in a row is ejected from routing for {@code ejectionTime}, after which it
+ * is probed with {@code fst_blockNumber} requests until it answers again. If every endpoint is
+ * ejected, requests are still sent to the one due to be probed first.
+ *
+ * <p>Requests for {@link ReadOnlyMethods read-only methods} which fail with an I/O error are
+ * retried on other endpoints. Filter requests are always sent to the endpoint which installed the
+ * filter, and subscriptions are established on the best endpoint which supports them. As nodes
+ * number their filters independently, the filter ids returned by this service are its own and are
+ * translated to the ids of the installing node when filter requests are forwarded.
+ */
+public class FailoverStorm3jService implements Storm3jService {
+
+    private static final Logger log = LoggerFactory.getLogger(FailoverStorm3jService.class);
+
+    public static final int DEFAULT_MAX_FAILURES = 3;
+    public static final long DEFAULT_EJECTION_MILLIS = 30_000;
+    public static final int DEFAULT_MAX_RETRIES = 2;
+
+    private static final long MAX_PROBE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final Set<String> FILTER_INSTALL_METHODS =
+            new HashSet<>(
+                    Arrays.asList(
+                            "fst_newFilter",
+                            "fst_newBlockFilter",
+                            "fst_newPendingTransactionFilter"));
+    private static final Set<String> FILTER_METHODS =
+            new HashSet<>(
+                    Arrays.asList(
+                            "fst_getFilterChanges", "fst_getFilterLogs", "fst_uninstallFilter"));
+
+    private final List<ServiceEndpoint> endpoints;
+    private final int maxFailures;
+    private final long ejectionNanos;
+    private final int maxRetries;
+    private final ScheduledExecutorService executor;
+    private final boolean shutdownExecutorOnClose;
+
+    // Filters only exist on the node that installed them
+    private final Map<BigInteger, InstalledFilter> filters = new ConcurrentHashMap<>();
+    private final AtomicLong nextFilterId = new AtomicLong();
+
+    public FailoverStorm3jService(List<? extends Storm3jService> services) {
+        this(services, DEFAULT_MAX_FAILURES, DEFAULT_EJECTION_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    public FailoverStorm3jService(
+            List<? extends Storm3jService> services,
+            int maxFailures,
+            long ejectionTime,
+            TimeUnit unit) {
+        this(
+                services,
+                maxFailures,
+                ejectionTime,
+                unit,
+                Executors.newSingleThreadScheduledExecutor(),
+                true);
+    }
+
+    /**
+     * Creates a failover service.
+     *
+     * @param services services connected to the nodes in the pool
+     * @param maxFailures number of consecutive failed requests after which an endpoint is ejected
+     * @param ejectionTime time an ejected endpoint is left alone before it is probed
+     * @param unit time unit of {@code ejectionTime}
+     * @param executor executor used to probe ejected endpoints. <strong>You are responsible for
+     *     terminating this thread pool</strong>
+     */
+    public FailoverStorm3jService(
+            List<? extends Storm3jService> services,
+            int maxFailures,
+            long ejectionTime,
+            TimeUnit unit,
+            ScheduledExecutorService executor) {
+        this(services, maxFailures, ejectionTime, unit, executor, false);
+    }
+
+    private FailoverStorm3jService(
+            List<? extends Storm3jService> services,
+            int maxFailures,
+            long ejectionTime,
+            TimeUnit unit,
+            ScheduledExecutorService executor,
+            boolean shutdownExecutorOnClose) {
+        if (services.isEmpty()) {
+            throw new IllegalArgumentException("At least one service is required");
+        }
+        if (maxFailures < 1) {
+            throw new IllegalArgumentException("Maximum failures must be at least 1");
+        }
+
+        List<ServiceEndpoint> endpoints = new ArrayList<>(services.size());
+        for (int i = 0; i < services.size(); i++) {
+            Storm3jService service = services.get(i);
+            String name = i + ":" + service.getClass().getSimpleName();
+            endpoints.add(new ServiceEndpoint(service, name));
+        }
+        this.endpoints = Collections.unmodifiableList(endpoints);
+        this.maxFailures = maxFailures;
+        this.ejectionNanos = unit.toNanos(ejectionTime);
+        this.maxRetries = Math.min(DEFAULT_MAX_RETRIES, services.size() - 1);
+        this.executor = executor;
+        this.shutdownExecutorOnClose = shutdownExecutorOnClose;
+
+        long probeInterval = Math.max(1, Math.min(ejectionNanos, MAX_PROBE_INTERVAL_NANOS));
+        executor.scheduleWithFixedDelay(
+                this::probeEjectedEndpoints, probeInterval, probeInterval, TimeUnit.NANOSECONDS);
+    }
+
+    public List<ServiceEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        List<Request<?, ?>> requests = Collections.singletonList(request);
+        Request<?, ?> endpointRequest = toEndpointRequest(request);
+        Set<ServiceEndpoint> tried = new HashSet<>();
+        while (true) {
+            ServiceEndpoint endpoint = selectEndpoint(requests, tried);
+            long startTime = endpoint.onRequestStart();
+            try {
+                T response = endpoint.getService().send(endpointRequest, responseType);
+                onSuccess(endpoint, startTime);
+                trackFilter(endpoint, request, response);
+                return response;
+            } catch (IOException | ClientConnectionException e) {
+                onFailure(endpoint, e);
+                if (!canRetry(requests, tried, endpoint)) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                endpoint.onRequestEnd();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        List<Request<?, ?>> requests = Collections.singletonList(request);
+        Request<?, ?> endpointRequest = toEndpointRequest(request);
+        CompletableFuture<T> result = new CompletableFuture<>();
+        sendAsync(
+                requests,
+                endpoint -> endpoint.getService().sendAsync(endpointRequest, responseType),
+                (endpoint, response) -> trackFilter(endpoint, request, response),
+                new HashSet<>(),
+                result);
+        return result;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        Map<ServiceEndpoint, List<Integer>> parts = splitByFilterEndpoint(requests);
+        if (parts != null) {
+            List<BatchResponse> partResponses = new ArrayList<>(parts.size());
+            for (List<Integer> part : parts.values()) {
+                partResponses.add(sendBatch(toPartBatch(batchRequest, part)));
+            }
+            return mergeParts(batchRequest, parts, partResponses);
+        }
+
+        BatchRequest endpointBatch = toEndpointBatch(batchRequest);
+        Set<ServiceEndpoint> tried = new HashSet<>();
+        while (true) {
+            ServiceEndpoint endpoint = selectEndpoint(requests, tried);
+            long startTime = endpoint.onRequestStart();
+            try {
+                BatchResponse response =
+                        fromEndpointBatch(
+                                batchRequest,
+                                endpointBatch,
+                                endpoint.getService().sendBatch(endpointBatch));
+                onSuccess(endpoint, startTime);
+                trackFilters(endpoint, response);
+                return response;
+            } catch (IOException | ClientConnectionException e) {
+                onFailure(endpoint, e);
+                if (!canRetry(requests, tried, endpoint)) {
+                    throw e;
+                }
+            } catch (RuntimeException e) {
+                endpoint.onRequestEnd();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        Map<ServiceEndpoint, List<Integer>> parts =
+                splitByFilterEndpoint(batchRequest.getRequests());
+        if (parts != null) {
+            List<CompletableFuture<BatchResponse>> partReplies = new ArrayList<>(parts.size());
+            for (List<Integer> part : parts.values()) {
+                partReplies.add(sendBatchAsync(toPartBatch(batchRequest, part)));
+            }
+            return CompletableFuture.allOf(partReplies.toArray(new CompletableFuture<?>[0]))
+                    .thenApply(
+                            ignored -> {
+                                List<BatchResponse> partResponses = new ArrayList<>();
+                                for (CompletableFuture<BatchResponse> partReply : partReplies) {
+                                    partResponses.add(partReply.join());
+                                }
+                                return mergeParts(batchRequest, parts, partResponses);
+                            });
+        }
+
+        BatchRequest endpointBatch = toEndpointBatch(batchRequest);
+        CompletableFuture<BatchResponse> result = new CompletableFuture<>();
+        sendAsync(
+                batchRequest.getRequests(),
+                endpoint ->
+                        endpoint.getService()
+                                .sendBatchAsync(endpointBatch)
+                                .thenApply(
+                                        response -> {
+                                            try {
+                                                return fromEndpointBatch(
+                                                        batchRequest, endpointBatch, response);
+                                            } catch (IOException e) {
+                                                throw new CompletionException(e);
+                                            }
+                                        }),
+                this::trackFilters,
+                new HashSet<>(),
+                result);
+        return result;
+    }
+
+    private <R> void sendAsync(
+            List<? extends Request<?, ?>> requests,
+            Sender<R> sender,
+            ReplyListener<R> replyListener,
+            Set<ServiceEndpoint> tried,
+            CompletableFuture<R> result) {
+        ServiceEndpoint endpoint;
+        try {
+            endpoint = selectEndpoint(requests, tried);
+        } catch (IOException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        long startTime = endpoint.onRequestStart();
+        CompletableFuture<R> reply;
+        try {
+            reply = sender.send(endpoint);
+        } catch (RuntimeException e) {
+            reply = new CompletableFuture<>();
+            reply.completeExceptionally(e);
+        }
+
+        CompletableFuture<R> attempt = reply;
+        result.whenComplete(
+                (response, throwable) -> {
+                    if (result.isCancelled()) {
+                        attempt.cancel(true);
+                    }
+                });
+        attempt.whenComplete(
+                (response, throwable) -> {
+                    if (throwable == null) {
+                        onSuccess(endpoint, startTime);
+                        replyListener.onReply(endpoint, response);
+                        result.complete(response);
+                        return;
+                    }
+
+                    Throwable cause = unwrap(throwable);
+                    if (!isConnectionFailure(cause)) {
+                        endpoint.onRequestEnd();
+                        result.completeExceptionally(cause);
+                    } else {
+                        onFailure(endpoint, cause);
+                        if (!result.isDone() && canRetry(requests, tried, endpoint)) {
+                            sendAsync(requests, sender, replyListener, tried, result);
+                        } else {
+                            result.completeExceptionally(cause);
+                        }
+                    }
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The request is sent to the best endpoint when the result is subscribed to. It is not
+     * retried on another endpoint, as elements may already have been emitted when it fails.
+     */
+    @Override
+    public <T> Flowable<T> sendStreaming(Request request, ResultElementReader<T> elementReader) {
+        return Flowable.defer(
+                () -> {
+                    List<Request<?, ?>> requests = Collections.singletonList(request);
+                    ServiceEndpoint endpoint = selectEndpoint(requests, new HashSet<>());
+                    Flowable<T> elements =
+                            endpoint.getService()
+                                    .sendStreaming(toEndpointRequest(request), elementReader);
+                    endpoint.onRequestStart();
+                    // The time taken to stream a result is not a latency sample
+                    return elements.doOnComplete(endpoint::onRequestEnd)
+                            .doOnCancel(endpoint::onRequestEnd)
+                            .doOnError(
+                                    throwable -> {
+                                        if (isConnectionFailure(throwable)) {
+                                            onFailure(endpoint, throwable);
+                                        } else {
+                                            endpoint.onRequestEnd();
+                                        }
+                                    });
+                });
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        UnsupportedOperationException unsupported = null;
+        for (ServiceEndpoint endpoint : rankEndpoints()) {
+            try {
+                return endpoint.getService().subscribe(request, unsubscribeMethod, responseType);
+            } catch (UnsupportedOperationException e) {
+                unsupported = e;
+            }
+        }
+        throw unsupported;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (shutdownExecutorOnClose) {
+            executor.shutdown();
+        }
+
+        IOException failure = null;
+        for (ServiceEndpoint endpoint : endpoints) {
+            try {
+                endpoint.getService().close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private ServiceEndpoint selectEndpoint(
+            List<? extends Request<?, ?>> requests, Set<ServiceEndpoint> tried)
+            throws IOException {
+        for (Request<?, ?> request : requests) {
+            ServiceEndpoint filterEndpoint = getFilterEndpoint(request);
+            if (filterEndpoint != null) {
+                return filterEndpoint;
+            }
+        }
+
+        ServiceEndpoint best = null;
+        double bestCost = Double.MAX_VALUE;
+        for (ServiceEndpoint endpoint : endpoints) {
+            if (!tried.contains(endpoint) && !endpoint.isEjected()) {
+                double cost = endpoint.getCost();
+                if (cost < bestCost) {
+                    best = endpoint;
+                    bestCost = cost;
+                }
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+
+        // Every remaining endpoint is ejected, try the one due to be probed first
+        for (ServiceEndpoint endpoint : endpoints) {
+            if (!tried.contains(endpoint)
+                    && (best == null || endpoint.getEjectedUntil() < best.getEjectedUntil())) {
+                best = endpoint;
+            }
+        }
+        if (best == null) {
+            throw new IOException("No endpoint available");
+        }
+        return best;
+    }
+
+    /** @return endpoints ordered by their routing cost, with ejected endpoints last */
+    private List<ServiceEndpoint> rankEndpoints() {
+        Map<ServiceEndpoint, Double> costs = new HashMap<>();
+        for (ServiceEndpoint endpoint : endpoints) {
+            costs.put(endpoint, endpoint.isEjected() ? Double.MAX_VALUE : endpoint.getCost());
+        }
+
+        List<ServiceEndpoint> ranked = new ArrayList<>(endpoints);
+        ranked.sort(Comparator.comparing(costs::get));
+        return ranked;
+    }
+
+    private boolean canRetry(
+            List<? extends Request<?, ?>> requests,
+            Set<ServiceEndpoint> tried,
+            ServiceEndpoint failed) {
+        tried.add(failed);
+        return tried.size() <= maxRetries
+                && requests.stream().allMatch(ReadOnlyMethods::isReadOnly)
+                && requests.stream().noneMatch(request -> getFilterEndpoint(request) != null);
+    }
+
+    private void onSuccess(ServiceEndpoint endpoint, long startTime) {
+        if (endpoint.onSuccess(startTime)) {
+            log.info("Reinstated endpoint {}", endpoint.getName());
+        }
+    }
+
+    private void onFailure(ServiceEndpoint endpoint, Throwable cause) {
+        if (endpoint.onFailure(maxFailures, ejectionNanos)) {
+            log.warn(
+                    "Ejected endpoint {} after {} consecutive failures",
+                    endpoint.getName(),
+                    maxFailures,
+                    cause);
+        }
+    }
+
+    private void probeEjectedEndpoints() {
+        long now = System.nanoTime();
+        for (ServiceEndpoint endpoint : endpoints) {
+            if (endpoint.startProbe(now)) {
+                probe(endpoint);
+            }
+        }
+    }
+
+    private void probe(ServiceEndpoint endpoint) {
+        CompletableFuture<FstBlockNumber> reply;
+        try {
+            reply =
+                    new Request<>(
+                                    "fst_blockNumber",
+                                    Collections.<String>emptyList(),
+                                    endpoint.getService(),
+                                    FstBlockNumber.class)
+                            .sendAsync();
+        } catch (RuntimeException e) {
+            reply = new CompletableFuture<>();
+            reply.completeExceptionally(e);
+        }
+
+        reply.whenComplete(
+                (response, throwable) -> {
+                    if (endpoint.onProbeResult(throwable == null, ejectionNanos)) {
+                        log.info("Reinstated endpoint {} after probing it", endpoint.getName());
+                    }
+                });
+    }
+
+    private void trackFilters(ServiceEndpoint endpoint, BatchResponse batchResponse) {
+        List<Request<?, ? extends Response<?>>> requests = batchResponse.getRequests();
+        List<? extends Response<?>> responses = batchResponse.getResponses();
+        for (int i = 0; i < requests.size(); i++) {
+            trackFilter(endpoint, requests.get(i), responses.get(i));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void trackFilter(
+            ServiceEndpoint endpoint, Request<?, ?> request, Response<?> response) {
+        if (response == null || response.hasError()) {
+            return;
+        }
+
+        String method = request.getMethod();
+        if (FILTER_INSTALL_METHODS.contains(method)) {
+            if (response.getResult() instanceof String) {
+                // Hand out an id of our own, the node's id may be in use on another endpoint
+                BigInteger filterId = BigInteger.valueOf(nextFilterId.incrementAndGet());
+                filters.put(
+                        filterId, new InstalledFilter(endpoint, (String) response.getResult()));
+                ((Response<String>) response).setResult(Numeric.encodeQuantity(filterId));
+            }
+        } else if ("fst_uninstallFilter".equals(method) && !request.getParams().isEmpty()) {
+            BigInteger filterId = toFilterId(request.getParams().get(0));
+            if (filterId != null) {
+                filters.remove(filterId);
+            }
+        }
+    }
+
+    private InstalledFilter getFilter(Request<?, ?> request) {
+        if (!FILTER_METHODS.contains(request.getMethod()) || request.getParams().isEmpty()) {
+            return null;
+        }
+        BigInteger filterId = toFilterId(request.getParams().get(0));
+        return filterId == null ? null : filters.get(filterId);
+    }
+
+    private ServiceEndpoint getFilterEndpoint(Request<?, ?> request) {
+        InstalledFilter filter = getFilter(request);
+        return filter == null ? null : filter.endpoint;
+    }
+
+    /** @return the request to forward, with our filter id replaced by the node's own */
+    private <T extends Response> Request<?, T> toEndpointRequest(Request<?, T> request) {
+        InstalledFilter filter = getFilter(request);
+        if (filter == null) {
+            return request;
+        }
+
+        List<Object> params = new ArrayList<>(request.getParams());
+        params.set(0, filter.nodeFilterId);
+        Request<Object, T> endpointRequest =
+                new Request<>(request.getMethod(), params, this, request.getResponseType());
+        endpointRequest.setId(request.getId());
+        return endpointRequest;
+    }
+
+    private BatchRequest toEndpointBatch(BatchRequest batchRequest) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.stream().noneMatch(request -> getFilter(request) != null)) {
+            return batchRequest;
+        }
+
+        BatchRequest endpointBatch = new BatchRequest(this);
+        for (Request<?, ? extends Response<?>> request : requests) {
+            endpointBatch.add(toEndpointRequest(request));
+        }
+        return endpointBatch;
+    }
+
+    /**
+     * @throws IOException if the endpoint returned no response, so that the batch is retried on
+     *     another endpoint instead of leaving its requests without responses
+     */
+    private static BatchResponse fromEndpointBatch(
+            BatchRequest batchRequest, BatchRequest endpointBatch, BatchResponse response)
+            throws IOException {
+        if (response == null) {
+            throw new IOException("Endpoint returned no response to the batch request");
+        }
+        if (endpointBatch == batchRequest) {
+            return response;
+        }
+        return new BatchResponse(batchRequest.getRequests(), response.getResponses());
+    }
+
+    /**
+     * Groups the requests of a batch by the endpoint which installed the filters they refer to,
+     * as happens when polling filters installed on different endpoints. Other requests join the
+     * first group.
+     *
+     * @return the indices of the requests to send to each endpoint, or null if the batch does not
+     *     need to be split
+     */
+    private Map<ServiceEndpoint, List<Integer>> splitByFilterEndpoint(
+            List<Request<?, ? extends Response<?>>> requests) {
+        Map<ServiceEndpoint, List<Integer>> parts = new LinkedHashMap<>();
+        ServiceEndpoint first = null;
+        for (Request<?, ?> request : requests) {
+            ServiceEndpoint filterEndpoint = getFilterEndpoint(request);
+            if (first == null) {
+                first = filterEndpoint;
+            } else if (filterEndpoint != null && filterEndpoint != first) {
+                for (int i = 0; i < requests.size(); i++) {
+                    ServiceEndpoint endpoint = getFilterEndpoint(requests.get(i));
+                    if (endpoint == null) {
+                        endpoint = first;
+                    }
+                    parts.computeIfAbsent(endpoint, key -> new ArrayList<>()).add(i);
+                }
+                return parts;
+            }
+        }
+        return null;
+    }
+
+    private BatchRequest toPartBatch(BatchRequest batchRequest, List<Integer> part) {
+        BatchRequest partBatch = new BatchRequest(this);
+        for (int index : part) {
+            partBatch.add(batchRequest.getRequests().get(index));
+        }
+        return partBatch;
+    }
+
+    private static BatchResponse mergeParts(
+            BatchRequest batchRequest,
+            Map<ServiceEndpoint, List<Integer>> parts,
+            List<BatchResponse> partResponses) {
+        Response<?>[] responses = new Response<?>[batchRequest.getRequests().size()];
+        int partIndex = 0;
+        for (List<Integer> part : parts.values()) {
+            List<? extends Response<?>> partReplies = partResponses.get(partIndex++).getResponses();
+            for (int i = 0; i < part.size(); i++) {
+                responses[part.get(i)] = i < partReplies.size() ? partReplies.get(i) : null;
+            }
+        }
+        return new BatchResponse(batchRequest.getRequests(), Arrays.asList(responses));
+    }
+
+    private static BigInteger toFilterId(Object value) {
+        if (!(value instanceof String)) {
+            return null;
+        }
+        try {
+            return new BigInteger(Numeric.cleanHexPrefix((String) value), 16);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static boolean isConnectionFailure(Throwable cause) {
+        return cause instanceof IOException || cause instanceof ClientConnectionException;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        Throwable cause = throwable;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private static final class InstalledFilter {
+        private final ServiceEndpoint endpoint;
+        private final String nodeFilterId;
+
+        private InstalledFilter(ServiceEndpoint endpoint, String nodeFilterId) {
+            this.endpoint = endpoint;
+            this.nodeFilterId = nodeFilterId;
+        }
+    }
+
+    private interface Sender<R> {
+        CompletableFuture<R> send(ServiceEndpoint endpoint);
+    }
+
+    private interface ReplyListener<R> {
+        void onReply(ServiceEndpoint endpoint, R response);
+    }
+}
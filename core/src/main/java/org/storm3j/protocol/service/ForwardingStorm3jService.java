@@ -0,0 +1,80 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import io.reactivex.Flowable;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.deserializer.ResultElementReader;
+import org.storm3j.protocol.websocket.events.Notification;
+
+/**
+ * A {@link Storm3jService} that forwards all calls to a delegate service. Subclasses override the
+ * calls they want to decorate.
+ */
+public abstract class ForwardingStorm3jService implements Storm3jService {
+
+    protected final Storm3jService delegate;
+
+    protected ForwardingStorm3jService(Storm3jService delegate) {
+        this.delegate = delegate;
+    }
+
+    public Storm3jService getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        return delegate.send(request, responseType);
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        return delegate.sendAsync(request, responseType);
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
+        return delegate.sendBatch(batchRequest);
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        return delegate.sendBatchAsync(batchRequest);
+    }
+
+    @Override
+    public <T> Flowable<T> sendStreaming(Request request, ResultElementReader<T> elementReader) {
+        return delegate.sendStreaming(request, elementReader);
+    }
+
+    @Override
+    public <T extends Notification<?>> Flowable<T> subscribe(
+            Request request, String unsubscribeMethod, Class<T> responseType) {
+        return delegate.subscribe(request, unsubscribeMethod, responseType);
+    }
+
+    @Override
+    public void close() throws IOException {
+        delegate.close();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/** Statistics of the duplicate requests sent by a {@link HedgingStorm3jService}. */
+public class HedgingStatistics {
+
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder hedgeCount = new LongAdder();
+    private final LongAdder hedgeWinCount = new LongAdder();
+    private final LongAdder budgetExhaustedCount = new LongAdder();
+
+    void recordRequest() {
+        requestCount.increment();
+    }
+
+    void recordHedge() {
+        hedgeCount.increment();
+    }
+
+    void recordHedgeWin() {
+        hedgeWinCount.increment();
+    }
+
+    void recordBudgetExhausted() {
+        budgetExhaustedCount.increment();
+    }
+
+    /** @return number of requests eligible for hedging */
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    /** @return number of duplicate requests sent */
+    public long getHedgeCount() {
+        return hedgeCount.sum();
+    }
+
+    /** @return number of duplicate requests answered before the original request */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    /** @return number of duplicate requests not sent because the budget was used up */
+    public long getBudgetExhaustedCount() {
+        return budgetExhaustedCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingStatistics{"
+                + "requestCount="
+                + getRequestCount()
+                + ", hedgeCount="
+                + getHedgeCount()
+                + ", hedgeWinCount="
+                + getHedgeWinCount()
+                + ", budgetExhaustedCount="
+                + getBudgetExhaustedCount()
+                + '}';
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.utils.HashedWheelTimer;
+import org.storm3j.utils.LatencySampler;
+
+/**
+ * Cuts tail latency of {@link ReadOnlyMethods read-only} requests by hedging them: if a request
+ * has not completed after a delay derived from a latency percentile, a duplicate is sent and the
+ * first reply wins, while the other request is cancelled.
+ *
+ * <p>Duplicates are sent to {@code hedgeDelegate}, which defaults to the delegate itself. With a
+ * {@link FailoverStorm3jService} delegate they go to another node, as the original request makes
+ * its endpoint busier.
+ *
+ * <p>The extra load is capped by a budget: every request adds {@code budgetRatio} tokens to a
+ * bucket and every duplicate takes one, so with a ratio of 0.05 at most 5% extra requests are
+ * sent over time. Other requests, including transactions, are never duplicated.
+ */
+public class HedgingStorm3jService extends ForwardingStorm3jService {
+
+    public static final double DEFAULT_PERCENTILE = 95;
+    public static final double DEFAULT_BUDGET_RATIO = 0.05;
+    public static final long DEFAULT_MIN_DELAY_MILLIS = 5;
+    public static final long DEFAULT_INITIAL_DELAY_MILLIS = 100;
+
+    // Samples needed before the percentile is used instead of the initial delay
+    static final int MIN_SAMPLES = 20;
+    // Samples between updates of the hedge delay, as computing a percentile sorts the window
+    static final int DELAY_UPDATE_INTERVAL = 64;
+    // Maximum tokens saved up in the budget, which bounds bursts of duplicates
+    static final double MAX_BUDGET_TOKENS = 10;
+
+    private final Storm3jService hedgeDelegate;
+    private final double percentile;
+    private final double budgetRatio;
+    private final long minDelayNanos;
+    private final HashedWheelTimer timer;
+    private final boolean stopTimerOnClose;
+    private final LatencySampler latencies = new LatencySampler();
+    private final AtomicLong sampleCount = new AtomicLong();
+    private final HedgingStatistics statistics = new HedgingStatistics();
+
+    // Guarded by this
+    private double budgetTokens = MAX_BUDGET_TOKENS;
+
+    private volatile long hedgeDelayNanos;
+
+    public HedgingStorm3jService(Storm3jService delegate) {
+        this(
+                delegate,
+                delegate,
+                DEFAULT_PERCENTILE,
+                DEFAULT_MIN_DELAY_MILLIS,
+                TimeUnit.MILLISECONDS,
+                DEFAULT_BUDGET_RATIO);
+    }
+
+    /**
+     * Creates a hedging service.
+     *
+     * @param delegate service original requests are sent to
+     * @param hedgeDelegate service duplicate requests are sent to, which may be the delegate
+     * @param percentile latency percentile after which a request is duplicated
+     * @param minDelay minimum delay before a request is duplicated
+     * @param unit time unit of {@code minDelay}
+     * @param budgetRatio maximum ratio of duplicate requests to requests
+     */
+    public HedgingStorm3jService(
+            Storm3jService delegate,
+            Storm3jService hedgeDelegate,
+            double percentile,
+            long minDelay,
+            TimeUnit unit,
+            double budgetRatio) {
+        this(
+                delegate,
+                hedgeDelegate,
+                percentile,
+                minDelay,
+                unit,
+                budgetRatio,
+                new HashedWheelTimer(1, TimeUnit.MILLISECONDS, 1024, "storm3j-hedging"),
+                true);
+    }
+
+    HedgingStorm3jService(
+            Storm3jService delegate,
+            Storm3jService hedgeDelegate,
+            double percentile,
+            long minDelay,
+            TimeUnit unit,
+            double budgetRatio,
+            HashedWheelTimer timer,
+            boolean stopTimerOnClose) {
+        super(delegate);
+        if (percentile <= 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in range (0, 100]");
+        }
+        if (budgetRatio < 0 || budgetRatio > 1) {
+            throw new IllegalArgumentException("Budget ratio must be in range [0, 1]");
+        }
+        this.hedgeDelegate = hedgeDelegate;
+        this.percentile = percentile;
+        this.minDelayNanos = unit.toNanos(minDelay);
+        this.budgetRatio = budgetRatio;
+        this.timer = timer;
+        this.stopTimerOnClose = stopTimerOnClose;
+        this.hedgeDelayNanos =
+                Math.max(
+                        TimeUnit.MILLISECONDS.toNanos(DEFAULT_INITIAL_DELAY_MILLIS),
+                        minDelayNanos);
+    }
+
+    @Override
+    public <T extends Response> T send(Request request, Class<T> responseType) throws IOException {
+        if (!ReadOnlyMethods.isReadOnly(request)) {
+            return delegate.send(request, responseType);
+        }
+
+        try {
+            return sendAsync(request, responseType).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted hedged request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Unexpected exception", e.getCause());
+        }
+    }
+
+    @Override
+    public <T extends Response> CompletableFuture<T> sendAsync(
+            Request request, Class<T> responseType) {
+        if (!ReadOnlyMethods.isReadOnly(request)) {
+            return delegate.sendAsync(request, responseType);
+        }
+
+        statistics.recordRequest();
+        depositBudget();
+
+        HedgedRequest<T> hedged = new HedgedRequest<>();
+        long startTime = System.nanoTime();
+        CompletableFuture<T> primary = delegate.sendAsync(request, responseType);
+        hedged.add(primary, false);
+        primary.whenComplete(
+                (response, throwable) -> {
+                    // A primary cancelled because its duplicate won was at least as slow as the
+                    // time it ran for, which is recorded so slow replies still raise the
+                    // percentile instead of dropping out of the samples
+                    if (throwable == null || isLostRace(throwable, hedged)) {
+                        recordLatency(System.nanoTime() - startTime);
+                    }
+                });
+
+        if (!hedged.result.isDone()) {
+            HashedWheelTimer.Timeout timeout =
+                    timer.newTimeout(
+                            () -> hedge(hedged, request, responseType),
+                            getHedgeDelay(TimeUnit.NANOSECONDS),
+                            TimeUnit.NANOSECONDS);
+            hedged.result.whenComplete((response, throwable) -> timeout.cancel());
+        }
+        return hedged.result;
+    }
+
+    private <T extends Response> void hedge(
+            HedgedRequest<T> hedged, Request<?, ?> request, Class<T> responseType) {
+        if (hedged.result.isDone()) {
+            return;
+        }
+        if (!withdrawBudget()) {
+            statistics.recordBudgetExhausted();
+            return;
+        }
+
+        statistics.recordHedge();
+        // The duplicate gets its own id, so it can share a connection with the original
+        Request<?, T> duplicate =
+                new Request<>(
+                        request.getMethod(), request.getParams(), hedgeDelegate, responseType);
+        CompletableFuture<T> reply;
+        try {
+            reply = hedgeDelegate.sendAsync(duplicate, responseType);
+        } catch (RuntimeException e) {
+            reply = new CompletableFuture<>();
+            reply.completeExceptionally(e);
+        }
+        hedged.add(reply, true);
+    }
+
+    private static boolean isLostRace(Throwable throwable, HedgedRequest<?> hedged) {
+        return throwable instanceof CancellationException
+                && hedged.result.isDone()
+                && !hedged.result.isCompletedExceptionally();
+    }
+
+    private void recordLatency(long latencyNanos) {
+        latencies.record(latencyNanos, TimeUnit.NANOSECONDS);
+        long samples = sampleCount.incrementAndGet();
+        if (samples >= MIN_SAMPLES && (samples - MIN_SAMPLES) % DELAY_UPDATE_INTERVAL == 0) {
+            hedgeDelayNanos =
+                    Math.max(
+                            latencies.getPercentile(percentile, TimeUnit.NANOSECONDS),
+                            minDelayNanos);
+        }
+    }
+
+    /**
+     * Returns the current delay after which a request is duplicated. It is updated periodically
+     * as latency samples are recorded, rather than computed per request.
+     *
+     * @param unit time unit of the result
+     * @return the hedge delay
+     */
+    public long getHedgeDelay(TimeUnit unit) {
+        return unit.convert(hedgeDelayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public HedgingStatistics getStatistics() {
+        return statistics;
+    }
+
+    private synchronized void depositBudget() {
+        budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + budgetRatio);
+    }
+
+    private synchronized boolean withdrawBudget() {
+        if (budgetTokens < 1) {
+            return false;
+        }
+        budgetTokens--;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (stopTimerOnClose) {
+            timer.stop();
+        }
+        if (hedgeDelegate != delegate) {
+            hedgeDelegate.close();
+        }
+        super.close();
+    }
+
+    /** The original and duplicate requests racing to complete a result. */
+    private class HedgedRequest<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicInteger outstanding = new AtomicInteger();
+
+        void add(CompletableFuture<T> attempt, boolean isHedge) {
+            outstanding.incrementAndGet();
+            // Cancel whichever request loses the race
+            result.whenComplete((response, throwable) -> attempt.cancel(true));
+            attempt.whenComplete(
+                    (response, throwable) -> {
+                        boolean last = outstanding.decrementAndGet() == 0;
+                        if (throwable == null) {
+                            if (result.complete(response) && isHedge) {
+                                statistics.recordHedgeWin();
+                            }
+                        } else if (last) {
+                            // Only fail once no other request can still succeed
+                            result.completeExceptionally(
+                                    throwable instanceof CompletionException
+                                                    && throwable.getCause() != null
+                                            ? throwable.getCause()
+                                            : throwable);
+                        }
+                    });
+        }
+    }
+}
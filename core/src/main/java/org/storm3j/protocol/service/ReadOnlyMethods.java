@@ -0,0 +1,82 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.storm3j.protocol.core.Request;
+
+/**
+ * JSON-RPC methods which only read chain state, so sending them more than once, or to another node,
+ * has no side effects.
+ *
+ * <p>Filter methods are not included, as filters only exist on the node that installed them.
+ */
+public final class ReadOnlyMethods {
+
+    private static final Set<String> METHODS =
+            Collections.unmodifiableSet(
+                    new HashSet<>(
+                            Arrays.asList(
+                                    "web3_clientVersion",
+                                    "web3_sha3",
+                                    "net_version",
+                                    "net_listening",
+                                    "net_peerCount",
+                                    "fst_protocolVersion",
+                                    "fst_syncing",
+                                    "fst_coinbase",
+                                    "fst_mining",
+                                    "fst_hashrate",
+                                    "fst_gasPrice",
+                                    "fst_accounts",
+                                    "fst_blockNumber",
+                                    "fst_getBalance",
+                                    "fst_getStorageAt",
+                                    "fst_getTransactionCount",
+                                    "fst_getBlockTransactionCountByHash",
+                                    "fst_getBlockTransactionCountByNumber",
+                                    "fst_getUncleCountByBlockHash",
+                                    "fst_getUncleCountByBlockNumber",
+                                    "fst_getCode",
+                                    "fst_call",
+                                    "fst_estimateGas",
+                                    "fst_getBlockByHash",
+                                    "fst_getBlockByNumber",
+                                    "fst_getTransactionByHash",
+                                    "fst_getTransactionByBlockHashAndIndex",
+                                    "fst_getTransactionByBlockNumberAndIndex",
+                                    "fst_getTransactionReceipt",
+                                    "fst_getUncleByBlockHashAndIndex",
+                                    "fst_getUncleByBlockNumberAndIndex",
+                                    "fst_getLogs",
+                                    "fst_getCompilers")));
+
+    private ReadOnlyMethods() {}
+
+    public static boolean isReadOnly(String method) {
+        return METHODS.contains(method);
+    }
+
+    public static boolean isReadOnly(Request<?, ?> request) {
+        return isReadOnly(request.getMethod());
+    }
+
+    /** @return the read-only method names */
+    public static Set<String> getMethods() {
+        return METHODS;
+    }
+}
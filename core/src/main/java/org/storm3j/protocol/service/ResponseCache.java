@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A least recently used cache of serialized replies, bounded by the number of bytes it holds
+ * rather than by its number of entries.
+ *
+ * <p>Values can be kept off-heap in direct buffers, so that a large cache adds little to the work
+ * of the garbage collector. In that case the JVM's maximum direct memory size must allow for the
+ * size of the cache.
+ */
+public class ResponseCache {
+
+    // Approximate size of a map entry, its key and value objects, excluding their contents
+    static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long maxBytes;
+    private final boolean offHeap;
+
+    private final LinkedHashMap<String, Object> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeInBytes;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public ResponseCache(long maxBytes) {
+        this(maxBytes, false);
+    }
+
+    public ResponseCache(long maxBytes, boolean offHeap) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.maxBytes = maxBytes;
+        this.offHeap = offHeap;
+    }
+
+    /**
+     * Returns the value cached for a key.
+     *
+     * @param key cache key
+     * @return the value, which must not be modified, or null if it is not cached
+     */
+    public byte[] get(String key) {
+        Object value;
+        synchronized (entries) {
+            value = entries.get(key);
+        }
+        if (value == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+
+        if (value instanceof ByteBuffer) {
+            ByteBuffer buffer = ((ByteBuffer) value).duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return bytes;
+        }
+        return (byte[]) value;
+    }
+
+    /**
+     * Caches a value, evicting the least recently used values as needed to stay within the size
+     * of the cache. Values larger than the cache are not cached.
+     *
+     * @param key cache key
+     * @param value value to cache, which must not be modified afterwards
+     */
+    public void put(String key, byte[] value) {
+        long size = sizeOf(key, value.length);
+        if (size > maxBytes) {
+            return;
+        }
+
+        Object stored = value;
+        if (offHeap) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(value.length);
+            buffer.put(value).flip();
+            stored = buffer;
+        }
+
+        synchronized (entries) {
+            Object previous = entries.put(key, stored);
+            if (previous != null) {
+                sizeInBytes -= sizeOf(key, length(previous));
+            }
+            sizeInBytes += size;
+
+            Iterator<Map.Entry<String, Object>> iterator = entries.entrySet().iterator();
+            while (sizeInBytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Object> eldest = iterator.next();
+                sizeInBytes -= sizeOf(eldest.getKey(), length(eldest.getValue()));
+                iterator.remove();
+                evictionCount.increment();
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            sizeInBytes = 0;
+        }
+    }
+
+    private static long sizeOf(String key, int valueLength) {
+        return ENTRY_OVERHEAD_BYTES + 2L * key.length() + valueLength;
+    }
+
+    private static int length(Object value) {
+        return value instanceof ByteBuffer
+                ? ((ByteBuffer) value).capacity()
+                : ((byte[]) value).length;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /** @return approximate number of bytes held by the cache */
+    public long getSizeInBytes() {
+        synchronized (entries) {
+            return sizeInBytes;
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ResponseCache{"
+                + "sizeInBytes="
+                + getSizeInBytes()
+                + ", entryCount="
+                + getEntryCount()
+                + ", hitCount="
+                + getHitCount()
+                + ", missCount="
+                + getMissCount()
+                + ", evictionCount="
+                + getEvictionCount()
+                + '}';
+    }
+}
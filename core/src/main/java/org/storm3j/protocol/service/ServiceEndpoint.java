@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.storm3j.protocol.Storm3jService;
+
+/**
+ * A node in a {@link FailoverStorm3jService} pool, with the latency and health state used to route
+ * requests to it.
+ */
+public class ServiceEndpoint {
+
+    // Weight of a new sample in the latency moving average
+    static final double LATENCY_DECAY = 0.2;
+    // Time over which the latency of an endpoint without new samples decays, so it gets retried
+    static final long IDLE_DECAY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final Storm3jService service;
+    private final String name;
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final LongAdder requestCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+
+    // Guarded by this
+    private double averageLatencyNanos;
+    private long lastSampleTime = System.nanoTime();
+    private int consecutiveFailures;
+    private boolean ejected;
+    private long ejectedUntil;
+    private boolean probing;
+
+    ServiceEndpoint(Storm3jService service, String name) {
+        this.service = service;
+        this.name = name;
+    }
+
+    public Storm3jService getService() {
+        return service;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getFailureCount() {
+        return failureCount.sum();
+    }
+
+    /** @return exponentially weighted moving average of the latency of successful requests */
+    public synchronized double getAverageLatency(TimeUnit unit) {
+        return averageLatencyNanos / unit.toNanos(1);
+    }
+
+    /** @return true if the endpoint has been ejected from routing because of repeated failures */
+    public synchronized boolean isEjected() {
+        return ejected;
+    }
+
+    /**
+     * Routing cost of the endpoint: its average latency scaled by the requests it is already
+     * serving, so that new requests favour fast and idle endpoints.
+     */
+    synchronized double getCost() {
+        return (getDecayedLatency(System.nanoTime()) + 1) * (inFlightRequests.get() + 1);
+    }
+
+    private double getDecayedLatency(long now) {
+        return averageLatencyNanos * Math.exp(-(double) (now - lastSampleTime) / IDLE_DECAY_NANOS);
+    }
+
+    synchronized long getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    long onRequestStart() {
+        inFlightRequests.incrementAndGet();
+        requestCount.increment();
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a request which was answered by the node.
+     *
+     * @return true if the endpoint was ejected before
+     */
+    synchronized boolean onSuccess(long startTime) {
+        inFlightRequests.decrementAndGet();
+        long now = System.nanoTime();
+        long latency = now - startTime;
+        double average = getDecayedLatency(now);
+        averageLatencyNanos =
+                average == 0 ? latency : average + LATENCY_DECAY * (latency - average);
+        lastSampleTime = now;
+        return reinstate();
+    }
+
+    /**
+     * Record a request which could not be delivered, or was not answered.
+     *
+     * @return true if the endpoint was ejected by this failure
+     */
+    synchronized boolean onFailure(int maxFailures, long ejectionNanos) {
+        inFlightRequests.decrementAndGet();
+        failureCount.increment();
+        consecutiveFailures++;
+        if (consecutiveFailures < maxFailures) {
+            return false;
+        }
+
+        boolean newlyEjected = !ejected;
+        ejected = true;
+        ejectedUntil = System.nanoTime() + ejectionNanos;
+        return newlyEjected;
+    }
+
+    /** Record a request which failed for reasons unrelated to the health of the node. */
+    void onRequestEnd() {
+        inFlightRequests.decrementAndGet();
+    }
+
+    /**
+     * Start probing an ejected endpoint once its ejection time has passed.
+     *
+     * @return true if the caller should send a probe request
+     */
+    synchronized boolean startProbe(long now) {
+        if (!ejected || probing || now - ejectedUntil < 0) {
+            return false;
+        }
+        probing = true;
+        return true;
+    }
+
+    /**
+     * Record the outcome of a probe request.
+     *
+     * @return true if the endpoint was reinstated
+     */
+    synchronized boolean onProbeResult(boolean success, long ejectionNanos) {
+        probing = false;
+        if (success) {
+            return reinstate();
+        }
+        ejectedUntil = System.nanoTime() + ejectionNanos;
+        return false;
+    }
+
+    synchronized boolean reinstate() {
+        boolean wasEjected = ejected;
+        consecutiveFailures = 0;
+        ejected = false;
+        return wasEjected;
+    }
+
+    @Override
+    public String toString() {
+        return "ServiceEndpoint{"
+                + "name="
+                + name
+                + ", inFlightRequests="
+                + getInFlightRequests()
+                + ", averageLatencyMillis="
+                + getAverageLatency(TimeUnit.MILLISECONDS)
+                + ", ejected="
+                + isEjected()
+                + '}';
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.websocket;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.utils.Numeric;
+
+/**
+ * Fetches the events a {@code newHeads} or {@code logs} subscription missed while its connection
+ * was down, starting from the last event it delivered.
+ *
+ * <p>Blocks are requested in batches of {@code fst_getBlockByNumber} calls and logs with
+ * {@code fst_getLogs} calls over bounded block ranges.
+ */
+class SubscriptionBackfill {
+
+    static final int BLOCK_BATCH_SIZE = 100;
+    static final int LOG_BLOCK_RANGE = 1000;
+
+    private final Storm3jService storm3jService;
+    private final ObjectMapper objectMapper;
+
+    SubscriptionBackfill(Storm3jService storm3jService, ObjectMapper objectMapper) {
+        this.storm3jService = storm3jService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Delivers the missed events to a subscription.
+     *
+     * @param subscription subscription being resumed
+     * @param subscriptionId id of the re-established subscription
+     * @throws IOException if fetching the missed events failed
+     */
+    <T> void backfill(WebSocketSubscription<T> subscription, String subscriptionId)
+            throws IOException {
+        String type = subscription.getSubscriptionType();
+        long lastBlockNumber = subscription.getLastBlockNumber();
+        if (lastBlockNumber < 0 || !("newHeads".equals(type) || "logs".equals(type))) {
+            return;
+        }
+
+        long headBlockNumber =
+                Numeric.decodeQuantity(call("fst_blockNumber", Collections.emptyList()).asText())
+                        .longValueExact();
+        if ("newHeads".equals(type)) {
+            backfillBlocks(subscription, subscriptionId, lastBlockNumber + 1, headBlockNumber);
+        } else {
+            // Starts at the last block, as it may have had more logs after the last one delivered
+            backfillLogs(subscription, subscriptionId, lastBlockNumber, headBlockNumber);
+        }
+    }
+
+    private <T> void backfillBlocks(
+            WebSocketSubscription<T> subscription, String subscriptionId, long from, long to)
+            throws IOException {
+        for (long start = from; start <= to; start += BLOCK_BATCH_SIZE) {
+            long end = Math.min(start + BLOCK_BATCH_SIZE - 1, to);
+            BatchRequest batch = new BatchRequest(storm3jService);
+            List<Request<?, JsonResult>> requests = new ArrayList<>();
+            for (long number = start; number <= end; number++) {
+                String blockNumber = Numeric.encodeQuantity(BigInteger.valueOf(number));
+                Request<?, JsonResult> request =
+                        request("fst_getBlockByNumber", Arrays.asList(blockNumber, false));
+                requests.add(request);
+                batch.add(request);
+            }
+
+            BatchResponse response = batch.send();
+            for (Request<?, JsonResult> request : requests) {
+                JsonNode block = getResult(response.getResponse(request));
+                if (block.isNull()) {
+                    // Not yet visible on this node
+                    return;
+                }
+                subscription.onBackfillEvent(toNotification(subscription, subscriptionId, block));
+            }
+        }
+    }
+
+    private <T> void backfillLogs(
+            WebSocketSubscription<T> subscription, String subscriptionId, long from, long to)
+            throws IOException {
+        Map<String, Object> filter = getLogFilter(subscription);
+        for (long start = from; start <= to; start += LOG_BLOCK_RANGE) {
+            long end = Math.min(start + LOG_BLOCK_RANGE - 1, to);
+            Map<String, Object> params = new HashMap<>(filter);
+            params.put("fromBlock", Numeric.encodeQuantity(BigInteger.valueOf(start)));
+            params.put("toBlock", Numeric.encodeQuantity(BigInteger.valueOf(end)));
+
+            for (JsonNode log : call("fst_getLogs", Collections.singletonList(params))) {
+                subscription.onBackfillEvent(toNotification(subscription, subscriptionId, log));
+            }
+        }
+    }
+
+    private static Map<String, Object> getLogFilter(WebSocketSubscription<?> subscription) {
+        Map<String, Object> filter = new HashMap<>();
+        List<?> params = subscription.getSubscribeRequest().getParams();
+        if (params.size() > 1 && params.get(1) instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) params.get(1)).entrySet()) {
+                filter.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+        }
+        return filter;
+    }
+
+    private <T> T toNotification(
+            WebSocketSubscription<T> subscription, String subscriptionId, JsonNode result)
+            throws IOException {
+        ObjectNode params = objectMapper.createObjectNode();
+        params.put("subscription", subscriptionId);
+        params.set("result", result);
+
+        ObjectNode notification = objectMapper.createObjectNode();
+        notification.put("jsonrpc", "2.0");
+        notification.put("method", "fst_subscription");
+        notification.set("params", params);
+        return objectMapper.treeToValue(notification, subscription.getResponseType());
+    }
+
+    private JsonNode call(String method, List<?> params) throws IOException {
+        return getResult(storm3jService.send(request(method, params), JsonResult.class));
+    }
+
+    private Request<?, JsonResult> request(String method, List<?> params) {
+        return new Request<>(method, params, storm3jService, JsonResult.class);
+    }
+
+    private static JsonNode getResult(Response<JsonNode> response) throws IOException {
+        if (response.hasError()) {
+            throw new IOException(
+                    String.format(
+                            "Failed to backfill subscription: %s",
+                            response.getError().getMessage()));
+        }
+        JsonNode result = response.getResult();
+        return result == null ? NullNode.getInstance() : result;
+    }
+
+    /** Response whose result is kept as a JSON tree, to build notifications from. */
+    static class JsonResult extends Response<JsonNode> {}
+}
@@ -13,6 +13,7 @@
 package org.storm3j.protocol.websocket;
 
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.Optional;
 
@@ -56,6 +57,19 @@ public class WebSocketClient extends org.java_websocket.client.WebSocketClient {
                 });
     }
 
+    @Override
+    public void onMessage(ByteBuffer bytes) {
+        log.debug("Received {} bytes from server {}", bytes.remaining(), uri);
+        listenerOpt.ifPresent(
+                listener -> {
+                    try {
+                        listener.onMessage(bytes);
+                    } catch (Exception e) {
+                        log.error("Failed to process binary message from server {}", uri, e);
+                    }
+                });
+    }
+
     @Override
     public void onClose(int code, String reason, boolean remote) {
         log.debug(
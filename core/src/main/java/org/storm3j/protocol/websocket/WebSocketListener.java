@@ -13,6 +13,8 @@
 package org.storm3j.protocol.websocket;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 
 /** A listener used to notify about about new WebSocket messages. */
 public interface WebSocketListener {
@@ -25,6 +27,17 @@ public interface WebSocketListener {
      */
     void onMessage(String message) throws IOException;
 
+    /**
+     * Called when a new WebSocket message is delivered as raw UTF-8 bytes, for instance in a binary
+     * frame. Implementations can override this to decode the bytes without creating a String.
+     *
+     * @param message new WebSocket message
+     * @throws IOException thrown if an observer failed to process the message
+     */
+    default void onMessage(ByteBuffer message) throws IOException {
+        onMessage(StandardCharsets.UTF_8.decode(message).toString());
+    }
+
     void onError(Exception e);
 
     void onClose();
@@ -0,0 +1,179 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.websocket;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+/**
+ * A JSON-RPC message received via WebSocket, decoded in a single pass.
+ *
+ * <p>While the message is tokenized the fields needed to route it, {@code id}, {@code method}
+ * and {@code params.subscription}, are picked up, and all tokens are buffered so the message can
+ * then be bound to its target type without parsing the text again.
+ */
+final class WebSocketMessage {
+
+    private final TokenBuffer tokens;
+    private JsonToken idToken;
+    private long id;
+    private String idText;
+    private boolean hasMethod;
+    private String subscriptionId;
+
+    private WebSocketMessage(JsonParser parser) {
+        this.tokens = new TokenBuffer(parser);
+    }
+
+    /**
+     * Reads a message, which is either a single JSON object or a batch of them.
+     *
+     * @param parser parser positioned before the start of the message
+     * @return messages read, an empty list if the message is neither an object nor an array
+     * @throws IOException if the message is not valid JSON
+     */
+    static List<WebSocketMessage> read(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.START_OBJECT) {
+            return Collections.singletonList(readObject(parser));
+        } else if (token != JsonToken.START_ARRAY) {
+            return Collections.emptyList();
+        }
+
+        List<WebSocketMessage> messages = new ArrayList<>();
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == JsonToken.START_OBJECT) {
+                messages.add(readObject(parser));
+            } else if (token == null) {
+                throw unexpectedEnd(parser);
+            } else {
+                // Buffer scalar elements so they are reported as replies without an id
+                WebSocketMessage message = new WebSocketMessage(parser);
+                message.tokens.copyCurrentStructure(parser);
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    private static WebSocketMessage readObject(JsonParser parser) throws IOException {
+        WebSocketMessage message = new WebSocketMessage(parser);
+        message.tokens.writeStartObject();
+
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            if ("id".equals(fieldName)) {
+                message.tokens.writeFieldName(fieldName);
+                message.readId(nextValue(parser));
+            } else if ("method".equals(fieldName)) {
+                message.hasMethod = true;
+                message.tokens.copyCurrentStructure(parser);
+            } else if ("params".equals(fieldName)) {
+                message.tokens.writeFieldName(fieldName);
+                message.readParams(nextValue(parser));
+            } else {
+                message.tokens.copyCurrentStructure(parser);
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw unexpectedEnd(parser);
+        }
+
+        message.tokens.writeEndObject();
+        return message;
+    }
+
+    private void readId(JsonParser parser) throws IOException {
+        idToken = parser.getCurrentToken();
+        if (idToken == JsonToken.VALUE_NUMBER_INT) {
+            id = parser.getLongValue();
+        } else if (idToken.isScalarValue()) {
+            idText = parser.getText();
+        } else {
+            idText = "";
+        }
+        tokens.copyCurrentStructure(parser);
+    }
+
+    private void readParams(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            tokens.copyCurrentStructure(parser);
+            return;
+        }
+
+        tokens.writeStartObject();
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            String fieldName = parser.getCurrentName();
+            if ("subscription".equals(fieldName)) {
+                tokens.writeFieldName(fieldName);
+                if (nextValue(parser).getCurrentToken().isScalarValue()) {
+                    subscriptionId = parser.getText();
+                }
+                tokens.copyCurrentStructure(parser);
+            } else {
+                tokens.copyCurrentStructure(parser);
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw unexpectedEnd(parser);
+        }
+        tokens.writeEndObject();
+    }
+
+    private static JsonParser nextValue(JsonParser parser) throws IOException {
+        if (parser.nextToken() == null) {
+            throw unexpectedEnd(parser);
+        }
+        return parser;
+    }
+
+    private static IOException unexpectedEnd(JsonParser parser) {
+        return new IOException(
+                String.format("Unexpected end of message at %s", parser.getCurrentLocation()));
+    }
+
+    boolean isReply() {
+        return idToken != null;
+    }
+
+    boolean isSubscriptionEvent() {
+        return hasMethod;
+    }
+
+    long getReplyId() throws IOException {
+        if (idToken != JsonToken.VALUE_NUMBER_INT) {
+            throw new IOException(
+                    String.format("'id' expected to be long, but it is: '%s'", idText));
+        }
+        return id;
+    }
+
+    String getSubscriptionId() {
+        return subscriptionId;
+    }
+
+    <T> T readValue(ObjectMapper objectMapper, Class<T> type) throws IOException {
+        try (JsonParser parser = tokens.asParser(objectMapper)) {
+            return objectMapper.readValue(parser, type);
+        }
+    }
+}
@@ -14,6 +14,8 @@ package org.storm3j.protocol.websocket;
 
 import java.util.concurrent.CompletableFuture;
 
+import org.storm3j.utils.HashedWheelTimer;
+
 /**
  * Objects necessary to process a reply for a request sent via WebSocket protocol.
  *
@@ -22,6 +24,8 @@ import java.util.concurrent.CompletableFuture;
 class WebSocketRequest<T> {
     private CompletableFuture<T> onReply;
     private Class<T> responseType;
+    private final long startTime = System.nanoTime();
+    private volatile HashedWheelTimer.Timeout timeout;
 
     public WebSocketRequest(CompletableFuture<T> onReply, Class<T> responseType) {
         this.onReply = onReply;
@@ -35,4 +39,23 @@ class WebSocketRequest<T> {
     public Class<T> getResponseType() {
         return responseType;
     }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    void setTimeout(HashedWheelTimer.Timeout timeout) {
+        this.timeout = timeout;
+        // A reply may have arrived before the timeout was set
+        if (onReply.isDone()) {
+            cancelTimeout();
+        }
+    }
+
+    void cancelTimeout() {
+        HashedWheelTimer.Timeout timeout = this.timeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
 }
@@ -16,17 +16,25 @@ import java.io.IOException;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.reactivex.BackpressureStrategy;
 import io.reactivex.Flowable;
@@ -36,11 +44,14 @@ import org.slf4j.LoggerFactory;
 
 import org.storm3j.protocol.ObjectMapperFactory;
 import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
 import org.storm3j.protocol.core.Request;
 import org.storm3j.protocol.core.Response;
 import org.storm3j.protocol.core.methods.response.FstSubscribe;
 import org.storm3j.protocol.core.methods.response.FstUnsubscribe;
 import org.storm3j.protocol.websocket.events.Notification;
+import org.storm3j.utils.HashedWheelTimer;
 
 /**
  * Web socket service that allows to interact with JSON-RPC via WebSocket protocol.
@@ -61,8 +72,8 @@ public class WebSocketService implements Storm3jService {
 
     // WebSocket client
     private final WebSocketClient webSocketClient;
-    // Executor to schedule request timeouts
-    private final ScheduledExecutorService executor;
+    // Timer to schedule request timeouts
+    private final HashedWheelTimer timer;
     // Object mapper to map incoming JSON objects
     private final ObjectMapper objectMapper;
 
@@ -75,23 +86,86 @@ public class WebSocketService implements Storm3jService {
     // Map of a subscription id to objects necessary to process incoming events
     private Map<String, WebSocketSubscription<?>> subscriptionForId = new ConcurrentHashMap<>();
 
+    private final WebSocketStatistics statistics = new WebSocketStatistics();
+    // Guards the number of in-flight requests against the configured maximum
+    private final Object inFlightLock = new Object();
+    private final Deque<QueuedSend> queuedSends = new ArrayDeque<>();
+    private int inFlightRequests;
+    private int maxInFlightRequests = Integer.MAX_VALUE;
+
+    // Reconnect policy, reconnecting is disabled by default
+    private volatile int maxReconnectAttempts;
+    private volatile long reconnectDelayMillis;
+    private final AtomicBoolean reconnecting = new AtomicBoolean();
+    private volatile boolean closed;
+
     public WebSocketService(String serverUrl, boolean includeRawResponses) {
         this(new WebSocketClient(parseURI(serverUrl)), includeRawResponses);
     }
 
     public WebSocketService(WebSocketClient webSocketClient, boolean includeRawResponses) {
-        this(webSocketClient, Executors.newScheduledThreadPool(1), includeRawResponses);
+        this(
+                webSocketClient,
+                new HashedWheelTimer("storm3j-websocket-timeout"),
+                includeRawResponses);
     }
 
     WebSocketService(
-            WebSocketClient webSocketClient,
-            ScheduledExecutorService executor,
-            boolean includeRawResponses) {
+            WebSocketClient webSocketClient, HashedWheelTimer timer, boolean includeRawResponses) {
         this.webSocketClient = webSocketClient;
-        this.executor = executor;
+        this.timer = timer;
         this.objectMapper = ObjectMapperFactory.getObjectMapper(includeRawResponses);
     }
 
+    /**
+     * Limit the number of requests waiting for a reply. Once the limit is reached, requests are
+     * queued in order and sent as earlier requests complete. A queued request fails if it is not
+     * sent within the request timeout. Sending never blocks the calling thread.
+     *
+     * @param maxInFlightRequests maximum number of in-flight requests
+     */
+    public void setMaxInFlightRequests(int maxInFlightRequests) {
+        if (maxInFlightRequests < 1) {
+            throw new IllegalArgumentException("Max in-flight requests must be at least 1");
+        }
+        List<QueuedSend> granted;
+        synchronized (inFlightLock) {
+            this.maxInFlightRequests = maxInFlightRequests;
+            granted = grantQueuedSends();
+        }
+        granted.forEach(QueuedSend::send);
+    }
+
+    public int getMaxInFlightRequests() {
+        synchronized (inFlightLock) {
+            return maxInFlightRequests;
+        }
+    }
+
+    /**
+     * Reconnect automatically if the connection is lost.
+     *
+     * <p>Outstanding requests still fail when the connection is lost, but subscriptions are
+     * re-established once reconnected. For {@code newHeads} and {@code logs} subscriptions the
+     * blocks or logs missed while disconnected are fetched and delivered first, continuing from
+     * the last delivered block number and log index, without repeating events.
+     *
+     * @param maxAttempts maximum number of attempts to reconnect, 0 disables reconnecting
+     * @param delay delay before each attempt
+     * @param unit time unit of the delay
+     */
+    public void setReconnectPolicy(int maxAttempts, long delay, TimeUnit unit) {
+        if (maxAttempts < 0) {
+            throw new IllegalArgumentException("Max reconnect attempts must not be negative");
+        }
+        this.reconnectDelayMillis = unit.toMillis(delay);
+        this.maxReconnectAttempts = maxAttempts;
+    }
+
+    public WebSocketStatistics getStatistics() {
+        return statistics;
+    }
+
     /**
      * Connect to a WebSocket server.
      *
@@ -122,6 +196,11 @@ public class WebSocketService implements Storm3jService {
                         onWebSocketMessage(message);
                     }
 
+                    @Override
+                    public void onMessage(ByteBuffer message) throws IOException {
+                        onWebSocketMessage(message);
+                    }
+
                     @Override
                     public void onError(Exception e) {
                         log.error("Received error from a WebSocket connection", e);
@@ -154,59 +233,309 @@ public class WebSocketService implements Storm3jService {
     public <T extends Response> CompletableFuture<T> sendAsync(
             Request request, Class<T> responseType) {
 
-        CompletableFuture<T> result = new CompletableFuture<>();
         long requestId = request.getId();
-        requestForId.put(requestId, new WebSocketRequest<>(result, responseType));
+        CompletableFuture<T> result = new CompletableFuture<>();
+        acquireInFlight(
+                1,
+                result,
+                () -> {
+                    registerRequest(requestId, responseType, result);
+                    try {
+                        sendRequest(request, requestId);
+                    } catch (IOException e) {
+                        closeRequest(requestId, e);
+                    }
+                });
+
+        return result;
+    }
+
+    @Override
+    public BatchResponse sendBatch(BatchRequest batchRequest) throws IOException {
         try {
-            sendRequest(request, requestId);
+            return sendBatchAsync(batchRequest).get();
+        } catch (InterruptedException e) {
+            Thread.interrupted();
+            throw new IOException("Interrupted WebSocket batch request", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new RuntimeException("Unexpected exception", e.getCause());
+        }
+    }
+
+    @Override
+    public CompletableFuture<BatchResponse> sendBatchAsync(BatchRequest batchRequest) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        if (requests.isEmpty()) {
+            return CompletableFuture.completedFuture(
+                    new BatchResponse(requests, Collections.emptyList()));
+        }
+
+        CompletableFuture<BatchResponse> result = new CompletableFuture<>();
+        acquireInFlight(requests.size(), result, () -> dispatchBatch(batchRequest, result));
+        return result;
+    }
+
+    private void dispatchBatch(BatchRequest batchRequest, CompletableFuture<BatchResponse> result) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        List<CompletableFuture<? extends Response<?>>> replies = new ArrayList<>(requests.size());
+        for (Request<?, ? extends Response<?>> request : requests) {
+            replies.add(
+                    registerRequest(
+                            request.getId(), request.getResponseType(), new CompletableFuture<>()));
+        }
+
+        try {
+            sendBatchRequest(batchRequest);
         } catch (IOException e) {
-            closeRequest(requestId, e);
+            requests.forEach(request -> closeRequest(request.getId(), e));
+        }
+
+        CompletableFuture.allOf(replies.toArray(new CompletableFuture[0]))
+                .whenComplete(
+                        (ignored, throwable) -> {
+                            if (throwable != null) {
+                                result.completeExceptionally(unwrap(throwable));
+                            } else {
+                                result.complete(
+                                        new BatchResponse(
+                                                requests,
+                                                replies.stream()
+                                                        .map(CompletableFuture::join)
+                                                        .collect(Collectors.toList())));
+                            }
+                        });
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null
+                ? throwable.getCause()
+                : throwable;
+    }
+
+    /**
+     * Sends requests straight away if they fit under the in-flight limit, or queues them until
+     * earlier requests complete. A queued send that times out fails its result.
+     */
+    private void acquireInFlight(int count, CompletableFuture<?> result, Runnable send) {
+        QueuedSend queuedSend = new QueuedSend(count, result, send);
+        synchronized (inFlightLock) {
+            if (queuedSends.isEmpty() && canSend(count)) {
+                inFlightRequests += count;
+            } else {
+                queuedSends.add(queuedSend);
+                queuedSend.timeout =
+                        timer.newTimeout(
+                                () -> expire(queuedSend), REQUEST_TIMEOUT, TimeUnit.SECONDS);
+                return;
+            }
         }
+        queuedSend.send();
+    }
+
+    private boolean canSend(int count) {
+        // A batch larger than the limit is let through once nothing else is in flight
+        return inFlightRequests == 0 || inFlightRequests + count <= maxInFlightRequests;
+    }
+
+    /** Dequeues the sends that now fit under the limit, in order. Called holding the lock. */
+    private List<QueuedSend> grantQueuedSends() {
+        List<QueuedSend> granted = new ArrayList<>();
+        while (!queuedSends.isEmpty()) {
+            QueuedSend next = queuedSends.peek();
+            if (next.result.isDone()) {
+                // Cancelled by the caller while queued
+                queuedSends.poll();
+                next.cancelTimeout();
+            } else if (canSend(next.count)) {
+                queuedSends.poll();
+                next.cancelTimeout();
+                inFlightRequests += next.count;
+                granted.add(next);
+            } else {
+                break;
+            }
+        }
+        return granted;
+    }
 
+    private void expire(QueuedSend queuedSend) {
+        List<QueuedSend> granted;
+        int inFlight;
+        synchronized (inFlightLock) {
+            if (!queuedSends.remove(queuedSend)) {
+                return;
+            }
+            inFlight = inFlightRequests;
+            // A large batch may have held back smaller requests behind it
+            granted = grantQueuedSends();
+        }
+        statistics.recordTimeout();
+        queuedSend.result.completeExceptionally(
+                new IOException(
+                        String.format(
+                                "Timed out waiting for %d in-flight requests to complete",
+                                inFlight)));
+        granted.forEach(QueuedSend::send);
+    }
+
+    private void releaseInFlight() {
+        List<QueuedSend> granted;
+        synchronized (inFlightLock) {
+            inFlightRequests--;
+            granted = grantQueuedSends();
+        }
+        granted.forEach(QueuedSend::send);
+    }
+
+    private <T> CompletableFuture<T> registerRequest(
+            long requestId, Class<T> responseType, CompletableFuture<T> result) {
+        WebSocketRequest<T> request = new WebSocketRequest<>(result, responseType);
+        requestForId.put(requestId, request);
+        result.whenComplete((reply, throwable) -> onRequestComplete(requestId, request, throwable));
         return result;
     }
 
-    private void sendRequest(Request request, long requestId) throws JsonProcessingException {
+    private void onRequestComplete(long requestId, WebSocketRequest<?> request, Throwable error) {
+        // Covers replies, failures, timeouts and futures cancelled by a caller
+        requestForId.remove(requestId, request);
+        request.cancelTimeout();
+        releaseInFlight();
+        if (error == null) {
+            statistics.recordReply(System.nanoTime() - request.getStartTime());
+        } else {
+            statistics.recordFailure();
+        }
+    }
+
+    private void sendRequest(Request request, long requestId) throws IOException {
         String payload = objectMapper.writeValueAsString(request);
         log.debug("Sending request: {}", payload);
-        webSocketClient.send(payload);
+        sendPayload(payload);
         setRequestTimeout(requestId);
     }
 
+    private void sendBatchRequest(BatchRequest batchRequest) throws IOException {
+        String payload = objectMapper.writeValueAsString(batchRequest.getRequests());
+        log.debug("Sending batch request: {}", payload);
+        sendPayload(payload);
+        batchRequest.getRequests().forEach(request -> setRequestTimeout(request.getId()));
+    }
+
+    private void sendPayload(String payload) throws IOException {
+        try {
+            webSocketClient.send(payload);
+        } catch (RuntimeException e) {
+            // Such as a WebsocketNotConnectedException while the socket is disconnected
+            throw new IOException("Failed to send WebSocket message", e);
+        }
+    }
+
     private void setRequestTimeout(long requestId) {
-        executor.schedule(
-                () ->
-                        closeRequest(
-                                requestId,
-                                new IOException(
-                                        String.format("Request with id %d timed out", requestId))),
-                REQUEST_TIMEOUT,
-                TimeUnit.SECONDS);
+        WebSocketRequest<?> request = requestForId.get(requestId);
+        if (request == null) {
+            // Already replied to
+            return;
+        }
+
+        request.setTimeout(
+                timer.newTimeout(
+                        () -> timeoutRequest(requestId), REQUEST_TIMEOUT, TimeUnit.SECONDS));
+    }
+
+    private void timeoutRequest(long requestId) {
+        if (requestForId.containsKey(requestId)) {
+            statistics.recordTimeout();
+            closeRequest(
+                    requestId,
+                    new IOException(String.format("Request with id %d timed out", requestId)));
+        }
     }
 
     void closeRequest(long requestId, Exception e) {
-        CompletableFuture result = requestForId.get(requestId).getOnReply();
-        requestForId.remove(requestId);
-        result.completeExceptionally(e);
+        WebSocketRequest<?> request = requestForId.remove(requestId);
+        if (request != null) {
+            request.getOnReply().completeExceptionally(e);
+        }
     }
 
     void onWebSocketMessage(String messageStr) throws IOException {
-        JsonNode replyJson = parseToTree(messageStr);
+        List<WebSocketMessage> messages;
+        try (JsonParser parser = objectMapper.getFactory().createParser(messageStr)) {
+            messages = readMessages(parser);
+        }
+        onWebSocketMessage(messages, () -> messageStr);
+    }
+
+    /**
+     * Process a message received as raw UTF-8 bytes, avoiding decoding it to a String first.
+     *
+     * @param message message bytes
+     * @throws IOException thrown if the message could not be processed
+     */
+    void onWebSocketMessage(ByteBuffer message) throws IOException {
+        List<WebSocketMessage> messages;
+        try (JsonParser parser = createParser(message)) {
+            messages = readMessages(parser);
+        }
+        onWebSocketMessage(
+                messages, () -> StandardCharsets.UTF_8.decode(message.duplicate()).toString());
+    }
+
+    private JsonParser createParser(ByteBuffer message) throws IOException {
+        if (message.hasArray()) {
+            return objectMapper
+                    .getFactory()
+                    .createParser(
+                            message.array(),
+                            message.arrayOffset() + message.position(),
+                            message.remaining());
+        }
+
+        byte[] bytes = new byte[message.remaining()];
+        message.duplicate().get(bytes);
+        return objectMapper.getFactory().createParser(bytes);
+    }
+
+    private List<WebSocketMessage> readMessages(JsonParser parser) throws IOException {
+        try {
+            return WebSocketMessage.read(parser);
+        } catch (IOException e) {
+            throw new IOException("Failed to parse incoming WebSocket message", e);
+        }
+    }
 
-        if (isReply(replyJson)) {
-            processRequestReply(messageStr, replyJson);
-        } else if (isSubscriptionEvent(replyJson)) {
-            processSubscriptionEvent(messageStr, replyJson);
+    private void onWebSocketMessage(List<WebSocketMessage> messages, Supplier<String> messageStr)
+            throws IOException {
+        if (messages.size() != 1) {
+            if (messages.isEmpty()) {
+                throw new IOException("Unknown message type");
+            }
+            for (WebSocketMessage reply : messages) {
+                processRequestReply(messageStr, reply);
+            }
+            return;
+        }
+
+        WebSocketMessage message = messages.get(0);
+        if (message.isReply()) {
+            processRequestReply(messageStr, message);
+        } else if (message.isSubscriptionEvent()) {
+            processSubscriptionEvent(messageStr, message);
         } else {
             throw new IOException("Unknown message type");
         }
     }
 
-    private void processRequestReply(String replyStr, JsonNode replyJson) throws IOException {
-        long replyId = getReplyId(replyJson);
+    private void processRequestReply(Supplier<String> replyStr, WebSocketMessage replyMessage)
+            throws IOException {
+        long replyId = getReplyId(replyMessage);
         WebSocketRequest request = getAndRemoveRequest(replyId);
         try {
-            Object reply = objectMapper.convertValue(replyJson, request.getResponseType());
+            Object reply = replyMessage.readValue(objectMapper, request.getResponseType());
             // Instead of sending a reply to a caller asynchronously we need to process it here
             // to avoid race conditions we need to modify state of this class.
             if (reply instanceof FstSubscribe) {
@@ -214,33 +543,24 @@ public class WebSocketService implements Storm3jService {
             }
 
             sendReplyToListener(request, reply);
-        } catch (IllegalArgumentException e) {
-            sendExceptionToListener(replyStr, request, e);
+        } catch (JsonProcessingException e) {
+            sendExceptionToListener(replyStr.get(), request, e);
         }
     }
 
     private void processSubscriptionResponse(long replyId, FstSubscribe reply) throws IOException {
-        WebSocketSubscription subscription = subscriptionRequestForId.get(replyId);
-        processSubscriptionResponse(
-                reply, subscription.getSubject(), subscription.getResponseType());
-    }
-
-    private <T extends Notification<?>> void processSubscriptionResponse(
-            FstSubscribe subscriptionReply, BehaviorSubject<T> subject, Class<T> responseType)
-            throws IOException {
-        if (!subscriptionReply.hasError()) {
-            establishSubscription(subject, responseType, subscriptionReply);
+        WebSocketSubscription<?> subscription = subscriptionRequestForId.remove(replyId);
+        if (!reply.hasError()) {
+            establishSubscription(subscription, reply);
         } else {
-            reportSubscriptionError(subject, subscriptionReply);
+            reportSubscriptionError(subscription.getSubject(), reply);
         }
     }
 
-    private <T extends Notification<?>> void establishSubscription(
-            BehaviorSubject<T> subject, Class<T> responseType, FstSubscribe subscriptionReply) {
+    private void establishSubscription(
+            WebSocketSubscription<?> subscription, FstSubscribe subscriptionReply) {
         log.debug("Subscribed to RPC events with id {}", subscriptionReply.getSubscriptionId());
-        subscriptionForId.put(
-                subscriptionReply.getSubscriptionId(),
-                new WebSocketSubscription<>(subject, responseType));
+        subscriptionForId.put(subscriptionReply.getSubscriptionId(), subscription);
     }
 
     private <T extends Notification<?>> String getSubscriptionId(BehaviorSubject<T> subject) {
@@ -251,8 +571,8 @@ public class WebSocketService implements Storm3jService {
                 .orElse(null);
     }
 
-    private <T extends Notification<?>> void reportSubscriptionError(
-            BehaviorSubject<T> subject, FstSubscribe subscriptionReply) {
+    private void reportSubscriptionError(
+            BehaviorSubject<?> subject, FstSubscribe subscriptionReply) {
         Response.Error error = subscriptionReply.getError();
         log.error("Subscription request returned error: {}", error.getMessage());
         subject.onError(
@@ -266,7 +586,7 @@ public class WebSocketService implements Storm3jService {
     }
 
     private void sendExceptionToListener(
-            String replyStr, WebSocketRequest request, IllegalArgumentException e) {
+            String replyStr, WebSocketRequest request, JsonProcessingException e) {
         request.getOnReply()
                 .completeExceptionally(
                         new IOException(
@@ -276,41 +596,25 @@ public class WebSocketService implements Storm3jService {
                                 e));
     }
 
-    private void processSubscriptionEvent(String replyStr, JsonNode replyJson) {
-        log.debug("Processing event: {}", replyStr);
-        String subscriptionId = extractSubscriptionId(replyJson);
+    private void processSubscriptionEvent(Supplier<String> replyStr, WebSocketMessage message)
+            throws IOException {
+        if (log.isDebugEnabled()) {
+            log.debug("Processing event: {}", replyStr.get());
+        }
+        String subscriptionId = message.getSubscriptionId();
         WebSocketSubscription subscription = subscriptionForId.get(subscriptionId);
 
         if (subscription != null) {
-            sendEventToSubscriber(replyJson, subscription);
+            sendEventToSubscriber(message, subscription);
         } else {
             log.warn("No subscriber for WebSocket event with subscription id {}", subscriptionId);
         }
     }
 
-    private String extractSubscriptionId(JsonNode replyJson) {
-        return replyJson.get("params").get("subscription").asText();
-    }
-
-    private void sendEventToSubscriber(JsonNode replyJson, WebSocketSubscription subscription) {
-        Object event = objectMapper.convertValue(replyJson, subscription.getResponseType());
-        subscription.getSubject().onNext(event);
-    }
-
-    private boolean isReply(JsonNode replyJson) {
-        return replyJson.has("id");
-    }
-
-    private boolean isSubscriptionEvent(JsonNode replyJson) {
-        return replyJson.has("method");
-    }
-
-    private JsonNode parseToTree(String replyStr) throws IOException {
-        try {
-            return objectMapper.readTree(replyStr);
-        } catch (IOException e) {
-            throw new IOException("Failed to parse incoming WebSocket message", e);
-        }
+    private void sendEventToSubscriber(
+            WebSocketMessage message, WebSocketSubscription subscription) throws IOException {
+        Object event = message.readValue(objectMapper, subscription.getResponseType());
+        subscription.onEvent(event);
     }
 
     private WebSocketRequest getAndRemoveRequest(long id) throws IOException {
@@ -323,18 +627,12 @@ public class WebSocketService implements Storm3jService {
         return request;
     }
 
-    private long getReplyId(JsonNode replyJson) throws IOException {
-        JsonNode idField = replyJson.get("id");
-        if (idField == null) {
+    private long getReplyId(WebSocketMessage reply) throws IOException {
+        if (!reply.isReply()) {
             throw new IOException("'id' field is missing in the reply");
         }
 
-        if (!idField.isIntegralNumber()) {
-            throw new IOException(
-                    String.format("'id' expected to be long, but it is: '%s'", idField.asText()));
-        }
-
-        return idField.longValue();
+        return reply.getReplyId();
     }
 
     private static URI parseURI(String serverUrl) {
@@ -367,11 +665,12 @@ public class WebSocketService implements Storm3jService {
             Request request, BehaviorSubject<T> subject, Class<T> responseType) {
 
         subscriptionRequestForId.put(
-                request.getId(), new WebSocketSubscription<>(subject, responseType));
+                request.getId(), new WebSocketSubscription<>(subject, responseType, request));
         try {
             send(request, FstSubscribe.class);
         } catch (IOException e) {
             log.error("Failed to subscribe to RPC events with request id {}", request.getId());
+            subscriptionRequestForId.remove(request.getId());
             subject.onError(e);
         }
     }
@@ -415,16 +714,100 @@ public class WebSocketService implements Storm3jService {
 
     @Override
     public void close() {
+        closed = true;
         webSocketClient.close();
-        executor.shutdown();
+        timer.stop();
     }
 
     void onWebSocketClose() {
         closeOutstandingRequests();
-        closeOutstandingSubscriptions();
+        if (reconnecting.get()) {
+            // A failed reconnect attempt, subscriptions are resumed once one succeeds
+            return;
+        }
+
+        if (closed || maxReconnectAttempts == 0 || !reconnecting.compareAndSet(false, true)) {
+            closeOutstandingSubscriptions();
+            return;
+        }
+
+        List<WebSocketSubscription<?>> subscriptions = new ArrayList<>(subscriptionForId.values());
+        subscriptionForId.clear();
+        subscriptions.forEach(WebSocketSubscription::startResume);
+
+        // Reconnecting blocks, so it can't be done on the WebSocket client thread
+        Thread reconnectThread =
+                new Thread(() -> reconnect(subscriptions), "storm3j-websocket-reconnect");
+        reconnectThread.setDaemon(true);
+        reconnectThread.start();
+    }
+
+    private void reconnect(List<WebSocketSubscription<?>> subscriptions) {
+        try {
+            for (int attempt = 1; attempt <= maxReconnectAttempts && !closed; attempt++) {
+                Thread.sleep(reconnectDelayMillis);
+                if (webSocketClient.reconnectBlocking()) {
+                    log.info("Reconnected via WebSocket protocol after {} attempt(s)", attempt);
+                    reconnecting.set(false);
+                    subscriptions.forEach(this::resumeSubscription);
+                    return;
+                }
+                log.warn("Failed to reconnect via WebSocket protocol, attempt {}", attempt);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        reconnecting.set(false);
+        subscriptions.forEach(
+                subscription ->
+                        subscription
+                                .getSubject()
+                                .onError(new IOException("Connection was closed")));
+    }
+
+    /**
+     * Subscribe again with the original request, then deliver the events missed in the meantime
+     * before any new live events.
+     */
+    private void resumeSubscription(WebSocketSubscription<?> subscription) {
+        Request<?, ?> original = subscription.getSubscribeRequest();
+        if (!subscription.getSubject().hasObservers() || original == null) {
+            // Disposed while disconnected, or not created by this service
+            subscription.getSubject().onError(new IOException("Connection was closed"));
+            return;
+        }
+
+        Request<?, FstSubscribe> request =
+                new Request<>(original.getMethod(), original.getParams(), this, FstSubscribe.class);
+        subscriptionRequestForId.put(request.getId(), subscription);
+        try {
+            FstSubscribe reply = send(request, FstSubscribe.class);
+            if (!reply.hasError()) {
+                new SubscriptionBackfill(this, objectMapper)
+                        .backfill(subscription, reply.getSubscriptionId());
+                subscription.finishResume();
+            }
+        } catch (IOException e) {
+            log.error("Failed to resume subscription with request id {}", request.getId(), e);
+            subscriptionRequestForId.remove(request.getId());
+            subscription.getSubject().onError(e);
+        }
     }
 
     private void closeOutstandingRequests() {
+        List<QueuedSend> queued;
+        synchronized (inFlightLock) {
+            queued = new ArrayList<>(queuedSends);
+            queuedSends.clear();
+        }
+        queued.forEach(
+                queuedSend -> {
+                    queuedSend.cancelTimeout();
+                    queuedSend.result.completeExceptionally(
+                            new IOException("Connection was closed"));
+                });
+
         requestForId
                 .values()
                 .forEach(
@@ -450,4 +833,29 @@ public class WebSocketService implements Storm3jService {
     boolean isWaitingForReply(long requestId) {
         return requestForId.containsKey(requestId);
     }
+
+    /** A request or batch waiting for room under the in-flight limit. */
+    private class QueuedSend {
+        private final int count;
+        private final CompletableFuture<?> result;
+        private final Runnable send;
+        private HashedWheelTimer.Timeout timeout;
+
+        QueuedSend(int count, CompletableFuture<?> result, Runnable send) {
+            this.count = count;
+            this.result = result;
+            this.send = send;
+        }
+
+        void send() {
+            statistics.recordSent(count);
+            send.run();
+        }
+
+        void cancelTimeout() {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+        }
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.websocket;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.storm3j.utils.LatencySampler;
+
+/** Request statistics of a single {@link WebSocketService} connection. */
+public class WebSocketStatistics {
+
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final LongAdder sentRequests = new LongAdder();
+    private final LongAdder completedRequests = new LongAdder();
+    private final LongAdder failedRequests = new LongAdder();
+    private final LongAdder timedOutRequests = new LongAdder();
+    private final LatencySampler replyLatency = new LatencySampler();
+
+    void recordSent(int count) {
+        inFlightRequests.addAndGet(count);
+        sentRequests.add(count);
+    }
+
+    void recordReply(long latencyNanos) {
+        inFlightRequests.decrementAndGet();
+        completedRequests.increment();
+        replyLatency.record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordFailure() {
+        inFlightRequests.decrementAndGet();
+        failedRequests.increment();
+    }
+
+    void recordTimeout() {
+        timedOutRequests.increment();
+    }
+
+    /** @return number of requests sent which have not been replied to, failed or timed out */
+    public int getInFlightRequests() {
+        return inFlightRequests.get();
+    }
+
+    public long getSentRequests() {
+        return sentRequests.sum();
+    }
+
+    /** @return number of requests which received a reply */
+    public long getCompletedRequests() {
+        return completedRequests.sum();
+    }
+
+    /** @return number of requests which failed, including timed out requests */
+    public long getFailedRequests() {
+        return failedRequests.sum();
+    }
+
+    public long getTimedOutRequests() {
+        return timedOutRequests.sum();
+    }
+
+    /**
+     * Reply latency percentile over the most recent replies.
+     *
+     * @param percentile percentile in the range [0, 100]
+     * @param unit time unit of the result
+     * @return reply latency percentile
+     */
+    public long getReplyLatency(double percentile, TimeUnit unit) {
+        return replyLatency.getPercentile(percentile, unit);
+    }
+
+    @Override
+    public String toString() {
+        return "WebSocketStatistics{"
+                + "inFlightRequests="
+                + getInFlightRequests()
+                + ", sentRequests="
+                + getSentRequests()
+                + ", completedRequests="
+                + getCompletedRequests()
+                + ", failedRequests="
+                + getFailedRequests()
+                + ", timedOutRequests="
+                + getTimedOutRequests()
+                + ", p99ReplyLatencyMicros="
+                + getReplyLatency(99, TimeUnit.MICROSECONDS)
+                + '}';
+    }
+}
@@ -12,8 +12,17 @@
  */
 package org.storm3j.protocol.websocket;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import io.reactivex.subjects.BehaviorSubject;
 
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.websocket.events.Log;
+import org.storm3j.protocol.websocket.events.NewHead;
+import org.storm3j.protocol.websocket.events.Notification;
+import org.storm3j.utils.Numeric;
+
 /**
  * Objects necessary to process a new item received via a WebSocket subscription.
  *
@@ -22,6 +31,13 @@ import io.reactivex.subjects.BehaviorSubject;
 public class WebSocketSubscription<T> {
     private BehaviorSubject<T> subject;
     private Class<T> responseType;
+    private Request<?, ?> subscribeRequest;
+
+    // Position of the last delivered event, used to resume the subscription after a reconnect
+    private long lastBlockNumber = -1;
+    private long lastLogIndex = -1;
+    // Live events received while the subscription is being resumed
+    private List<T> pendingEvents;
 
     /**
      * Creates WebSocketSubscription.
@@ -34,6 +50,19 @@ public class WebSocketSubscription<T> {
         this.responseType = responseType;
     }
 
+    /**
+     * Creates WebSocketSubscription which can be re-established if the connection is lost.
+     *
+     * @param subject used to send new data items to listeners
+     * @param responseType type of a data item returned by a WebSocket subscription
+     * @param subscribeRequest request that established the subscription
+     */
+    public WebSocketSubscription(
+            BehaviorSubject<T> subject, Class<T> responseType, Request<?, ?> subscribeRequest) {
+        this(subject, responseType);
+        this.subscribeRequest = subscribeRequest;
+    }
+
     public BehaviorSubject<T> getSubject() {
         return subject;
     }
@@ -41,4 +70,99 @@ public class WebSocketSubscription<T> {
     public Class<T> getResponseType() {
         return responseType;
     }
+
+    public Request<?, ?> getSubscribeRequest() {
+        return subscribeRequest;
+    }
+
+    /** @return subscription type, such as "newHeads" or "logs", if known */
+    String getSubscriptionType() {
+        if (subscribeRequest == null || subscribeRequest.getParams().isEmpty()) {
+            return null;
+        }
+        Object type = subscribeRequest.getParams().get(0);
+        return type instanceof String ? (String) type : null;
+    }
+
+    synchronized long getLastBlockNumber() {
+        return lastBlockNumber;
+    }
+
+    synchronized long getLastLogIndex() {
+        return lastLogIndex;
+    }
+
+    /**
+     * Deliver a live event, or hold it back while the subscription is being resumed.
+     *
+     * @param event event received from the server
+     */
+    synchronized void onEvent(T event) {
+        if (pendingEvents != null) {
+            pendingEvents.add(event);
+        } else {
+            emit(event);
+        }
+    }
+
+    /** Hold back live events until {@link #finishResume()}. */
+    synchronized void startResume() {
+        pendingEvents = new ArrayList<>();
+    }
+
+    /**
+     * Deliver an event fetched to fill the gap left by a reconnect, unless it was already
+     * delivered.
+     *
+     * @param event event built from a backfill request
+     */
+    synchronized void onBackfillEvent(T event) {
+        if (isAfterLastEvent(event)) {
+            emit(event);
+        }
+    }
+
+    /** Deliver the live events held back during the resume, dropping backfilled ones. */
+    synchronized void finishResume() {
+        List<T> events = pendingEvents;
+        pendingEvents = null;
+        if (events != null) {
+            events.stream().filter(this::isAfterLastEvent).forEach(this::emit);
+        }
+    }
+
+    private void emit(T event) {
+        Object result = getResult(event);
+        if (result instanceof NewHead) {
+            lastBlockNumber = decode(((NewHead) result).getNumber());
+        } else if (result instanceof Log) {
+            lastBlockNumber = decode(((Log) result).getBlockNumber());
+            lastLogIndex = decode(((Log) result).getLogIndex());
+        }
+        subject.onNext(event);
+    }
+
+    private boolean isAfterLastEvent(T event) {
+        Object result = getResult(event);
+        if (result instanceof NewHead) {
+            return decode(((NewHead) result).getNumber()) > lastBlockNumber;
+        } else if (result instanceof Log) {
+            long blockNumber = decode(((Log) result).getBlockNumber());
+            return blockNumber > lastBlockNumber
+                    || (blockNumber == lastBlockNumber
+                            && decode(((Log) result).getLogIndex()) > lastLogIndex);
+        }
+        return true;
+    }
+
+    private static Object getResult(Object event) {
+        if (event instanceof Notification && ((Notification<?>) event).getParams() != null) {
+            return ((Notification<?>) event).getParams().getResult();
+        }
+        return null;
+    }
+
+    private static long decode(String quantity) {
+        return quantity == null ? -1 : Numeric.decodeQuantity(quantity).longValueExact();
+    }
 }
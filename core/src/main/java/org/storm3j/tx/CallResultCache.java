@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.tx;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.storm3j.crypto.Hash;
+import org.storm3j.protocol.core.DefaultBlockParameter;
+import org.storm3j.protocol.core.DefaultBlockParameterNumber;
+
+/**
+ * A cache of {@code fst_call} results at numbered blocks, where the result can no longer change.
+ * Calls at a block tag such as {@code latest} are always sent to the node.
+ *
+ * <p>Results are keyed by a digest of the sender, contract and call data, and the block number,
+ * so a cached entry does not hold on to the call data and a lookup compares a few bytes.
+ *
+ * <p>A single cache can be shared by any number of contract wrappers, see {@link
+ * ManagedTransaction#setCallResultCache(CallResultCache)}.
+ */
+public class CallResultCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private final int maxEntries;
+    private final Map<CallKey, String> results;
+
+    final LongAdder hitCount = new LongAdder();
+    final LongAdder missCount = new LongAdder();
+
+    public CallResultCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public CallResultCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.results =
+                new LinkedHashMap<CallKey, String>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<CallKey, String> eldest) {
+                        return size() > CallResultCache.this.maxEntries;
+                    }
+                };
+    }
+
+    /**
+     * Performs a call with a transaction manager, unless its result at the given block is cached.
+     *
+     * @param transactionManager transaction manager to call with
+     * @param to contract address
+     * @param data encoded function call
+     * @param defaultBlockParameter block to call at
+     * @return the result of the call
+     * @throws IOException if the call fails
+     */
+    public String sendCall(
+            TransactionManager transactionManager,
+            String to,
+            String data,
+            DefaultBlockParameter defaultBlockParameter)
+            throws IOException {
+        if (!(defaultBlockParameter instanceof DefaultBlockParameterNumber)) {
+            return transactionManager.sendCall(to, data, defaultBlockParameter);
+        }
+
+        CallKey key =
+                new CallKey(
+                        transactionManager.getFromAddress(),
+                        to,
+                        data,
+                        ((DefaultBlockParameterNumber) defaultBlockParameter)
+                                .getBlockNumber()
+                                .longValue());
+        String result;
+        synchronized (results) {
+            result = results.get(key);
+        }
+        if (result != null) {
+            hitCount.increment();
+            return result;
+        }
+
+        missCount.increment();
+        result = transactionManager.sendCall(to, data, defaultBlockParameter);
+        if (result != null) {
+            synchronized (results) {
+                results.put(key, result);
+            }
+        }
+        return result;
+    }
+
+    public void invalidateAll() {
+        synchronized (results) {
+            results.clear();
+        }
+    }
+
+    public int getEntryCount() {
+        synchronized (results) {
+            return results.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Identifies a call by a SHA-256 digest of its sender, contract and call data, so that keys
+     * stay small however long the call data is, and by its block number.
+     */
+    static final class CallKey {
+        private final byte[] digest;
+        private final long blockNumber;
+        private final int hash;
+
+        CallKey(String from, String to, String data, long blockNumber) {
+            ByteBuffer input = ByteBuffer.allocate(length(from) + length(to) + length(data));
+            put(input, from);
+            put(input, to);
+            put(input, data);
+            this.digest = Hash.sha256(input.array());
+            this.blockNumber = blockNumber;
+            this.hash = 31 * ByteBuffer.wrap(digest).getInt() + Long.hashCode(blockNumber);
+        }
+
+        private static int length(String value) {
+            return Integer.BYTES + (value == null ? 0 : value.length());
+        }
+
+        private static void put(ByteBuffer input, String value) {
+            // Length prefixed, so that moving a character between values changes the digest and
+            // null differs from an empty value
+            if (value == null) {
+                input.putInt(-1);
+                return;
+            }
+            input.putInt(value.length());
+            for (int i = 0; i < value.length(); i++) {
+                // Addresses and data are hex, which is case insensitive
+                input.put((byte) Character.toLowerCase(value.charAt(i)));
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CallKey)) {
+                return false;
+            }
+            CallKey callKey = (CallKey) o;
+            return hash == callKey.hash
+                    && blockNumber == callKey.blockNumber
+                    && Arrays.equals(digest, callKey.digest);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
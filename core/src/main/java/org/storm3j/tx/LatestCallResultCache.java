@@ -0,0 +1,325 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.tx;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.Scheduler;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.core.DefaultBlockParameter;
+import org.storm3j.protocol.core.DefaultBlockParameterName;
+import org.storm3j.protocol.core.methods.request.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Transaction;
+
+/**
+ * A {@link CallResultCache} which also caches calls at the {@code latest} block. Each result is
+ * kept until a new block touches the contract which was called, or the chain reorganises.
+ *
+ * <p>By default a block touches the recipients of its transactions and the contracts which
+ * emitted its logs. This misses contracts whose state is changed by an internal call without
+ * emitting a log, and calls whose result depends on another contract or on the block itself. A
+ * more precise {@link TouchedAddresses}, such as one based on state diffs, can be supplied.
+ *
+ * <p>Empty results are not cached. A call to an account without code returns an empty result,
+ * which changes once a contract is created at that address, and the creation does not touch it.
+ *
+ * <p>Calls at {@code latest} are only cached while new blocks are being received, see {@link
+ * #start()} and {@link #onBlock(FstBlock.Block)}.
+ */
+public class LatestCallResultCache extends CallResultCache {
+
+    // Delay before receiving new blocks again after the block flowable failed
+    static final long RESUBSCRIBE_DELAY_MILLIS = 1000;
+
+    private final Storm3j storm3j;
+    private final TouchedAddresses touchedAddresses;
+    private final int maxEntries;
+    private final Scheduler scheduler;
+
+    private final Object lock = new Object();
+    private final Map<String, Set<CallKey>> keysByAddress = new HashMap<>();
+    private final LinkedHashMap<CallKey, LatestResult> results;
+    private long headBlockNumber = -1;
+    private String headBlockHash;
+
+    private volatile Disposable subscription;
+
+    public LatestCallResultCache(Storm3j storm3j) {
+        this(storm3j, DEFAULT_MAX_ENTRIES, null);
+    }
+
+    /**
+     * Creates a cache.
+     *
+     * @param storm3j client to receive new blocks from
+     * @param maxEntries maximum number of results cached, for each kind of block parameter
+     * @param touchedAddresses finds the accounts touched by a block, or null to use transaction
+     *     recipients and log addresses
+     */
+    public LatestCallResultCache(
+            Storm3j storm3j, int maxEntries, TouchedAddresses touchedAddresses) {
+        this(storm3j, maxEntries, touchedAddresses, Schedulers.computation());
+    }
+
+    LatestCallResultCache(
+            Storm3j storm3j,
+            int maxEntries,
+            TouchedAddresses touchedAddresses,
+            Scheduler scheduler) {
+        super(maxEntries);
+        this.storm3j = storm3j;
+        this.maxEntries = maxEntries;
+        this.scheduler = scheduler;
+        this.touchedAddresses =
+                touchedAddresses != null ? touchedAddresses : this::logsAndRecipients;
+        this.results =
+                new LinkedHashMap<CallKey, LatestResult>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<CallKey, LatestResult> eldest) {
+                        if (size() > LatestCallResultCache.this.maxEntries) {
+                            unindex(eldest.getKey(), eldest.getValue().address);
+                            return true;
+                        }
+                        return false;
+                    }
+                };
+    }
+
+    /**
+     * Starts receiving new blocks, to invalidate results touched by them. If receiving blocks
+     * fails, the results at {@code latest} are cleared and blocks are received again after a
+     * delay.
+     */
+    public void start() {
+        subscription =
+                Flowable.defer(() -> storm3j.blockFlowable(true))
+                        .doOnError(throwable -> reset())
+                        .retryWhen(
+                                errors ->
+                                        errors.flatMap(
+                                                throwable ->
+                                                        Flowable.timer(
+                                                                RESUBSCRIBE_DELAY_MILLIS,
+                                                                TimeUnit.MILLISECONDS,
+                                                                scheduler)))
+                        .subscribe(fstBlock -> onBlock(fstBlock.getBlock()));
+    }
+
+    /** Stops receiving new blocks, and clears the results at {@code latest}. */
+    public void stop() {
+        Disposable current = subscription;
+        if (current != null) {
+            current.dispose();
+        }
+        reset();
+    }
+
+    @Override
+    public String sendCall(
+            TransactionManager transactionManager,
+            String to,
+            String data,
+            DefaultBlockParameter defaultBlockParameter)
+            throws IOException {
+        if (defaultBlockParameter != DefaultBlockParameterName.LATEST) {
+            return super.sendCall(transactionManager, to, data, defaultBlockParameter);
+        }
+
+        CallKey key = new CallKey(transactionManager.getFromAddress(), to, data, -1);
+        long blockNumber;
+        synchronized (lock) {
+            LatestResult cached = results.get(key);
+            if (cached != null) {
+                hitCount.increment();
+                return cached.value;
+            }
+            blockNumber = headBlockNumber;
+        }
+
+        missCount.increment();
+        String result = transactionManager.sendCall(to, data, defaultBlockParameter);
+        if (result != null && to != null && !isEmptyResult(result)) {
+            synchronized (lock) {
+                // A result which may predate the latest block is not cached
+                if (blockNumber >= 0 && blockNumber == headBlockNumber) {
+                    String address = to.toLowerCase();
+                    results.put(key, new LatestResult(address, result));
+                    keysByAddress.computeIfAbsent(address, a -> new HashSet<>()).add(key);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Processes a new block, invalidating the results of calls to the contracts it touches.
+     *
+     * @param block the new block, including full transaction objects
+     */
+    public void onBlock(FstBlock.Block block) {
+        long blockNumber = block.getNumber().longValue();
+        synchronized (lock) {
+            if (headBlockNumber >= 0
+                    && blockNumber == headBlockNumber
+                    && block.getHash().equals(headBlockHash)) {
+                return;
+            }
+            if (headBlockNumber < 0
+                    || blockNumber != headBlockNumber + 1
+                    || !block.getParentHash().equals(headBlockHash)) {
+                // A reorganisation, a missed block, or the first block seen
+                clear();
+                setHead(block);
+                return;
+            }
+        }
+
+        Collection<String> touched;
+        try {
+            touched = touchedAddresses.touchedBy(block);
+        } catch (IOException e) {
+            synchronized (lock) {
+                clear();
+                setHead(block);
+            }
+            return;
+        }
+
+        synchronized (lock) {
+            for (String address : touched) {
+                Set<CallKey> keys = keysByAddress.remove(address.toLowerCase());
+                if (keys != null) {
+                    keys.forEach(results::remove);
+                }
+            }
+            setHead(block);
+        }
+    }
+
+    private Collection<String> logsAndRecipients(FstBlock.Block block) throws IOException {
+        Set<String> addresses = new HashSet<>();
+        for (FstBlock.TransactionResult<?> transactionResult : block.getTransactions()) {
+            Object transaction = transactionResult.get();
+            if (!(transaction instanceof Transaction)) {
+                throw new IOException("Block does not include full transaction objects");
+            }
+            if (((Transaction) transaction).getTo() != null) {
+                addresses.add(((Transaction) transaction).getTo());
+            }
+        }
+
+        if (block.getLogsBloom() == null || !isEmptyBloom(block.getLogsBloom())) {
+            // Fetched by hash, as the block may no longer be canonical by number
+            FstFilter filter =
+                    new FstFilter(null, null, Collections.<String>emptyList())
+                            .withBlockHash(block.getHash());
+            FstLog fstLog = storm3j.fstGetLogs(filter).send();
+            if (fstLog.hasError()) {
+                throw new IOException(fstLog.getError().getMessage());
+            }
+            for (FstLog.LogResult<?> logResult : fstLog.getLogs()) {
+                if (logResult instanceof FstLog.LogObject) {
+                    addresses.add(((FstLog.LogObject) logResult).getAddress());
+                }
+            }
+        }
+        return addresses;
+    }
+
+    private static boolean isEmptyResult(String result) {
+        return result.isEmpty() || result.equals("0x");
+    }
+
+    private static boolean isEmptyBloom(String logsBloom) {
+        for (int i = 2; i < logsBloom.length(); i++) {
+            if (logsBloom.charAt(i) != '0') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setHead(FstBlock.Block block) {
+        headBlockNumber = block.getNumber().longValue();
+        headBlockHash = block.getHash();
+    }
+
+    private void reset() {
+        synchronized (lock) {
+            clear();
+            headBlockNumber = -1;
+            headBlockHash = null;
+        }
+    }
+
+    private void clear() {
+        results.clear();
+        keysByAddress.clear();
+    }
+
+    private void unindex(CallKey key, String address) {
+        Set<CallKey> keys = keysByAddress.get(address);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByAddress.remove(address);
+            }
+        }
+    }
+
+    @Override
+    public void invalidateAll() {
+        super.invalidateAll();
+        synchronized (lock) {
+            clear();
+        }
+    }
+
+    @Override
+    public int getEntryCount() {
+        synchronized (lock) {
+            return super.getEntryCount() + results.size();
+        }
+    }
+
+    /** @return number of the latest block seen, or -1 if none has been seen */
+    public long getHeadBlockNumber() {
+        synchronized (lock) {
+            return headBlockNumber;
+        }
+    }
+
+    private static class LatestResult {
+        private final String address;
+        private final String value;
+
+        LatestResult(String address, String value) {
+            this.address = address;
+            this.value = value;
+        }
+    }
+}
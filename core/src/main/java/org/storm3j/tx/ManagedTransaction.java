@@ -37,6 +37,8 @@ public abstract class ManagedTransaction {
 
     protected EnsResolver ensResolver;
 
+    protected CallResultCache callResultCache;
+
     protected ManagedTransaction(Storm3j storm3j, TransactionManager transactionManager) {
         this(new EnsResolver(storm3j), storm3j, transactionManager);
     }
@@ -115,9 +117,27 @@ public abstract class ManagedTransaction {
                 gasPrice, gasLimit, to, data, value, constructor);
     }
 
+    /**
+     * Sets a cache for the results of calls made at a numbered block, see {@link
+     * Contract#setDefaultBlockParameter(DefaultBlockParameter)}. The cache may be shared with other
+     * instances.
+     *
+     * @param callResultCache the cache, or null to disable caching
+     */
+    public void setCallResultCache(CallResultCache callResultCache) {
+        this.callResultCache = callResultCache;
+    }
+
+    public CallResultCache getCallResultCache() {
+        return callResultCache;
+    }
+
     protected String call(String to, String data, DefaultBlockParameter defaultBlockParameter)
             throws IOException {
 
+        if (callResultCache != null) {
+            return callResultCache.sendCall(transactionManager, to, data, defaultBlockParameter);
+        }
         return transactionManager.sendCall(to, data, defaultBlockParameter);
     }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.tx;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import org.storm3j.protocol.core.methods.response.FstBlock;
+
+/**
+ * Finds the accounts whose state may have changed in a block, for {@link LatestCallResultCache}.
+ */
+public interface TouchedAddresses {
+
+    /**
+     * Returns the addresses of the accounts touched by a block.
+     *
+     * @param block a block including full transaction objects
+     * @return the touched addresses
+     * @throws IOException if the addresses cannot be determined
+     */
+    Collection<String> touchedBy(FstBlock.Block block) throws IOException;
+}
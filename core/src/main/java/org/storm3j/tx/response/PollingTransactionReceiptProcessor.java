@@ -18,17 +18,25 @@ import java.util.Optional;
 import org.storm3j.protocol.Storm3j;
 import org.storm3j.protocol.core.methods.response.TransactionReceipt;
 import org.storm3j.protocol.exceptions.TransactionException;
+import org.storm3j.utils.PollingPolicy;
 
-/** With each provided transaction hash, poll until we obtain a transaction receipt. */
+/**
+ * With each provided transaction hash, poll until we obtain a transaction receipt.
+ *
+ * <p>Polls are spaced by the sleep duration, unless the {@link PollingPolicy} of the {@link
+ * Storm3j} instance decides otherwise.
+ */
 public class PollingTransactionReceiptProcessor extends TransactionReceiptProcessor {
 
     protected final long sleepDuration;
     protected final int attempts;
+    protected final PollingPolicy pollingPolicy;
 
     public PollingTransactionReceiptProcessor(Storm3j storm3j, long sleepDuration, int attempts) {
         super(storm3j);
         this.sleepDuration = sleepDuration;
         this.attempts = attempts;
+        this.pollingPolicy = getPollingPolicy(storm3j);
     }
 
     @Override
@@ -42,15 +50,20 @@ public class PollingTransactionReceiptProcessor extends TransactionReceiptProces
             String transactionHash, long sleepDuration, int attempts)
             throws IOException, TransactionException {
 
+        PollingPolicy.Schedule schedule = pollingPolicy.newSchedule(sleepDuration);
+        long start = System.currentTimeMillis();
         Optional<TransactionReceipt> receiptOptional =
                 (Optional<TransactionReceipt>) sendTransactionReceiptRequest(transactionHash);
         for (int i = 0; i < attempts; i++) {
             if (!receiptOptional.isPresent()) {
                 try {
-                    Thread.sleep(sleepDuration);
+                    // Counted from the start of the last poll, so that polls don't drift
+                    long delay = schedule.nextDelay(false) - (System.currentTimeMillis() - start);
+                    Thread.sleep(Math.max(0, delay));
                 } catch (InterruptedException e) {
                     throw new TransactionException(e);
                 }
+                start = System.currentTimeMillis();
                 receiptOptional =
                         (Optional<TransactionReceipt>)
                                 sendTransactionReceiptRequest(transactionHash);
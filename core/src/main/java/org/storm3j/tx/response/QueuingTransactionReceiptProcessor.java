@@ -23,6 +23,7 @@ import org.storm3j.protocol.Storm3j;
 import org.storm3j.protocol.core.methods.response.TransactionReceipt;
 import org.storm3j.protocol.exceptions.TransactionException;
 import org.storm3j.utils.Async;
+import org.storm3j.utils.PollingPolicy;
 
 /**
  * Transaction receipt processor that uses a single thread to query for transaction receipts.
@@ -30,28 +31,46 @@ import org.storm3j.utils.Async;
  * <p><em>Note:</em>When initially invoked, this processor returns a transaction receipt containing
  * only the transaction hash of the submitted transaction. This is encapsulated in an {@link
  * EmptyTransactionReceipt}.
+ *
+ * <p>Receipts are polled at the given frequency, unless a {@link PollingPolicy} decides otherwise,
+ * by default the policy of the {@link Storm3j} instance. The number of polling attempts per
+ * transaction hash is then a number of polls rather than an amount of time.
  */
 public class QueuingTransactionReceiptProcessor extends TransactionReceiptProcessor {
 
     private final int pollingAttemptsPerTxHash;
+    private final long pollingFrequency;
 
     private final ScheduledExecutorService scheduledExecutorService;
     private final Callback callback;
     private final BlockingQueue<RequestWrapper> pendingTransactions;
+    private final PollingPolicy.Schedule schedule;
 
     public QueuingTransactionReceiptProcessor(
             Storm3j storm3j, Callback callback, int pollingAttemptsPerTxHash, long pollingFrequency) {
+        this(
+                storm3j,
+                callback,
+                pollingAttemptsPerTxHash,
+                pollingFrequency,
+                getPollingPolicy(storm3j));
+    }
+
+    public QueuingTransactionReceiptProcessor(
+            Storm3j storm3j,
+            Callback callback,
+            int pollingAttemptsPerTxHash,
+            long pollingFrequency,
+            PollingPolicy pollingPolicy) {
         super(storm3j);
         this.scheduledExecutorService = Async.defaultExecutorService();
         this.callback = callback;
         this.pendingTransactions = new LinkedBlockingQueue<>();
         this.pollingAttemptsPerTxHash = pollingAttemptsPerTxHash;
+        this.pollingFrequency = pollingFrequency;
+        this.schedule = pollingPolicy.newSchedule(pollingFrequency);
 
-        scheduledExecutorService.scheduleAtFixedRate(
-                this::sendTransactionReceiptRequests,
-                pollingFrequency,
-                pollingFrequency,
-                TimeUnit.MILLISECONDS);
+        scheduledExecutorService.schedule(this::poll, pollingFrequency, TimeUnit.MILLISECONDS);
     }
 
     @Override
@@ -62,7 +81,27 @@ public class QueuingTransactionReceiptProcessor extends TransactionReceiptProces
         return new EmptyTransactionReceipt(transactionHash);
     }
 
-    private void sendTransactionReceiptRequests() {
+    private void poll() {
+        long start = System.currentTimeMillis();
+        long delay = pollingFrequency;
+        try {
+            if (pendingTransactions.isEmpty()) {
+                // Don't back off while there is nothing to wait for
+                schedule.reset();
+            } else {
+                boolean received = sendTransactionReceiptRequests();
+                // Counted from the start of this poll, so that polls don't drift
+                delay = schedule.nextDelay(received) - (System.currentTimeMillis() - start);
+            }
+        } finally {
+            scheduledExecutorService.schedule(
+                    this::poll, Math.max(0, delay), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** @return true if any receipt was received */
+    private boolean sendTransactionReceiptRequests() {
+        boolean received = false;
         for (RequestWrapper requestWrapper : pendingTransactions) {
             try {
                 String transactionHash = requestWrapper.getTransactionHash();
@@ -70,6 +109,7 @@ public class QueuingTransactionReceiptProcessor extends TransactionReceiptProces
                         (Optional<TransactionReceipt>)
                                 sendTransactionReceiptRequest(transactionHash);
                 if (transactionReceipt.isPresent()) {
+                    received = true;
                     callback.accept(transactionReceipt.get());
                     pendingTransactions.remove(requestWrapper);
                 } else {
@@ -90,6 +130,7 @@ public class QueuingTransactionReceiptProcessor extends TransactionReceiptProces
                 callback.exception(e);
             }
         }
+        return received;
     }
 
     /**
@@ -19,6 +19,7 @@ import org.storm3j.protocol.Storm3j;
 import org.storm3j.protocol.core.methods.response.FstGetTransactionReceipt;
 import org.storm3j.protocol.core.methods.response.TransactionReceipt;
 import org.storm3j.protocol.exceptions.TransactionException;
+import org.storm3j.utils.PollingPolicy;
 
 /** Abstraction for managing how we wait for transaction receipts to be generated on the network. */
 public abstract class TransactionReceiptProcessor {
@@ -43,4 +44,13 @@ public abstract class TransactionReceiptProcessor {
 
         return transactionReceipt.getTransactionReceipt();
     }
+
+    /**
+     * Returns the polling policy of a {@link Storm3j} instance, or a fixed rate for instances
+     * without one, such as mocks and proxies.
+     */
+    static PollingPolicy getPollingPolicy(Storm3j storm3j) {
+        PollingPolicy pollingPolicy = storm3j.getPollingPolicy();
+        return pollingPolicy != null ? pollingPolicy : PollingPolicy.fixedRate();
+    }
 }
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.utils;
+
+import java.math.BigInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Polling policy that learns the block interval of the chain, so that components poll when a new
+ * block is expected rather than at a fixed rate.
+ *
+ * <p>The block interval is averaged over the timestamps of the blocks passed to {@link
+ * #onBlock(BigInteger, BigInteger)}. Until one is known, the polling interval configured for a
+ * component is taken as the block interval. A component waits until the next block is expected,
+ * then polls at the minimum delay. While its polls keep returning nothing, the delay doubles up to
+ * a multiple of its polling interval, so that components whose results are rare, such as log
+ * filters of quiet contracts, back off.
+ */
+public class AdaptivePollingPolicy implements PollingPolicy {
+
+    public static final long DEFAULT_MIN_DELAY = 250;
+    public static final int DEFAULT_MAX_DELAY_FACTOR = 4;
+
+    private final long minDelay;
+    private final int maxDelayFactor;
+    private final LongSupplier clock;
+
+    private long blockInterval = -1;
+    private long lastBlockNumber = -1;
+    private long lastBlockTimestamp;
+    private long nextBlockAt;
+
+    public AdaptivePollingPolicy() {
+        this(DEFAULT_MIN_DELAY, DEFAULT_MAX_DELAY_FACTOR);
+    }
+
+    /**
+     * Creates a policy.
+     *
+     * @param minDelay minimum delay between polls, in milliseconds
+     * @param maxDelayFactor maximum delay between polls, as a multiple of the polling interval of
+     *     a component
+     */
+    public AdaptivePollingPolicy(long minDelay, int maxDelayFactor) {
+        this(minDelay, maxDelayFactor, System::currentTimeMillis);
+    }
+
+    AdaptivePollingPolicy(long minDelay, int maxDelayFactor, LongSupplier clock) {
+        if (minDelay < 1) {
+            throw new IllegalArgumentException("Minimum delay must be at least 1");
+        }
+        if (maxDelayFactor < 1) {
+            throw new IllegalArgumentException("Maximum delay factor must be at least 1");
+        }
+        this.minDelay = minDelay;
+        this.maxDelayFactor = maxDelayFactor;
+        this.clock = clock;
+    }
+
+    @Override
+    public Schedule newSchedule(long pollingInterval) {
+        return new AdaptiveSchedule(pollingInterval);
+    }
+
+    @Override
+    public synchronized void onBlock(BigInteger number, BigInteger timestamp) {
+        long blockNumber = number.longValue();
+        if (blockNumber <= lastBlockNumber) {
+            return;
+        }
+
+        long blockTimestamp = timestamp.longValue() * 1000;
+        if (lastBlockNumber >= 0) {
+            long sample = (blockTimestamp - lastBlockTimestamp) / (blockNumber - lastBlockNumber);
+            if (sample > 0) {
+                blockInterval = blockInterval < 0 ? sample : (3 * blockInterval + sample) / 4;
+            }
+        }
+        lastBlockNumber = blockNumber;
+        lastBlockTimestamp = blockTimestamp;
+
+        if (blockInterval > 0) {
+            // The next block is seen as late after its timestamp as this one, bounded in case
+            // the clocks of the node and ours disagree
+            long now = clock.getAsLong();
+            long lag = Math.max(0, Math.min(now - blockTimestamp, blockInterval));
+            nextBlockAt = now - lag + blockInterval;
+        }
+    }
+
+    @Override
+    public boolean learnsBlockTime() {
+        return true;
+    }
+
+    /**
+     * Returns the learnt block interval.
+     *
+     * @return block interval in milliseconds, or -1 if it is not known yet
+     */
+    public synchronized long getBlockInterval() {
+        return blockInterval;
+    }
+
+    private synchronized void onChange(long now, long pollingInterval) {
+        // Something new means a block was mined since the last poll. Unless a block timestamp
+        // told us better, expect the next one an interval from now.
+        long interval = blockInterval > 0 ? blockInterval : pollingInterval;
+        if (nextBlockAt <= now) {
+            nextBlockAt = now + interval;
+        }
+    }
+
+    private synchronized long millisUntilNextBlock(long now, long pollingInterval) {
+        return nextBlockAt == 0 ? pollingInterval : nextBlockAt - now;
+    }
+
+    private class AdaptiveSchedule implements Schedule {
+
+        private final long pollingInterval;
+        private final long minScheduleDelay;
+        private final long maxScheduleDelay;
+
+        // Consecutive polls that returned nothing
+        private int misses;
+
+        AdaptiveSchedule(long pollingInterval) {
+            this.pollingInterval = pollingInterval;
+            this.minScheduleDelay = Math.max(1, Math.min(minDelay, pollingInterval));
+            this.maxScheduleDelay = Math.max(minScheduleDelay, pollingInterval * maxDelayFactor);
+        }
+
+        @Override
+        public synchronized long nextDelay(boolean changed) {
+            long now = clock.getAsLong();
+            if (changed) {
+                misses = 0;
+                onChange(now, pollingInterval);
+            } else if (misses < Integer.MAX_VALUE) {
+                misses++;
+            }
+
+            long backoff = minScheduleDelay;
+            for (int i = 1; i < misses && backoff < maxScheduleDelay; i++) {
+                backoff <<= 1;
+            }
+            long untilNextBlock = millisUntilNextBlock(now, pollingInterval);
+            return Math.min(Math.max(untilNextBlock, backoff), maxScheduleDelay);
+        }
+
+        @Override
+        public synchronized void reset() {
+            misses = 0;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps a window of the most recent latency samples, to report latency percentiles.
+ *
+ * <p>Recording a sample is cheap. Computing a percentile sorts a copy of the window, so it is
+ * meant to be called for reporting rather than per request.
+ */
+public class LatencySampler {
+
+    public static final int DEFAULT_WINDOW_SIZE = 1024;
+
+    private final long[] samples;
+    private long count;
+
+    public LatencySampler() {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    public LatencySampler(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be at least 1");
+        }
+        this.samples = new long[windowSize];
+    }
+
+    public synchronized void record(long latency, TimeUnit unit) {
+        samples[(int) (count++ % samples.length)] = unit.toNanos(latency);
+    }
+
+    /** @return total number of samples recorded */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a latency percentile over the recent samples.
+     *
+     * @param percentile percentile in the range [0, 100]
+     * @param unit time unit of the result
+     * @return the latency percentile, or 0 if nothing was recorded yet
+     */
+    public long getPercentile(double percentile, TimeUnit unit) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile must be in range [0, 100]");
+        }
+
+        long[] window;
+        synchronized (this) {
+            window = Arrays.copyOf(samples, (int) Math.min(count, samples.length));
+        }
+        if (window.length == 0) {
+            return 0;
+        }
+
+        Arrays.sort(window);
+        int index = (int) Math.ceil(percentile / 100 * window.length) - 1;
+        return unit.convert(window[Math.max(index, 0)], TimeUnit.NANOSECONDS);
+    }
+}
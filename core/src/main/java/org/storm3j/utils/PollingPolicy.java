@@ -0,0 +1,77 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.utils;
+
+import java.math.BigInteger;
+
+/**
+ * Decides when components that poll the node, such as filters and transaction receipt processors,
+ * poll next. A single policy is shared by all the components of a {@link
+ * org.storm3j.protocol.Storm3j} instance, each of which polls according to its own {@link
+ * Schedule}.
+ */
+public interface PollingPolicy {
+
+    /**
+     * Creates the schedule of a polling component.
+     *
+     * @param pollingInterval polling interval configured for the component, in milliseconds
+     * @return new schedule
+     */
+    Schedule newSchedule(long pollingInterval);
+
+    /**
+     * Records a block seen by a component, so that the policy can learn the block time of the
+     * chain.
+     *
+     * @param number block number
+     * @param timestamp block timestamp, in seconds
+     */
+    default void onBlock(BigInteger number, BigInteger timestamp) {}
+
+    /**
+     * Returns whether the policy learns from the blocks passed to {@link #onBlock(BigInteger,
+     * BigInteger)}. Components only fetch blocks they would not otherwise need for a policy that
+     * does.
+     *
+     * @return true if the policy learns the block time of the chain
+     */
+    default boolean learnsBlockTime() {
+        return false;
+    }
+
+    /**
+     * Returns a policy polling at the configured interval, regardless of the results of polls.
+     *
+     * @return fixed rate policy
+     */
+    static PollingPolicy fixedRate() {
+        return pollingInterval -> changed -> pollingInterval;
+    }
+
+    /** The polling schedule of a single component. */
+    interface Schedule {
+
+        /**
+         * Returns the delay until the next poll. Components count it from the start of the last
+         * poll, so that the time taken by polls does not add up to the delay.
+         *
+         * @param changed true if the last poll returned anything new
+         * @return delay in milliseconds
+         */
+        long nextDelay(boolean changed);
+
+        /** Forgets about polls that returned nothing, e.g. once there is nothing to poll for. */
+        default void reset() {}
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import org.storm3j.protocol.core.DefaultBlockParameterName;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.request.Transaction;
+import org.storm3j.protocol.core.methods.response.FstBlockNumber;
+import org.storm3j.protocol.core.methods.response.FstCall;
+import org.storm3j.protocol.core.methods.response.FstGasPrice;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RequestEncoderTest {
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+    private final RequestEncoder encoder = new RequestEncoder(objectMapper);
+
+    @Test
+    public void testFrequentMethod() throws IOException {
+        Request<?, FstCall> request =
+                new Request<>(
+                        "fst_call",
+                        Arrays.asList(
+                                Transaction.createFstCallTransaction(
+                                        "0xa70e8dd61c5d32be8058bb8eb970870f07233155",
+                                        "0xb60e8dd61c5d32be8058bb8eb970870f07233155",
+                                        "0x70a08231"),
+                                DefaultBlockParameterName.LATEST),
+                        null,
+                        FstCall.class);
+
+        assertEncoded(request);
+    }
+
+    @Test
+    public void testOtherMethod() throws IOException {
+        assertEncoded(
+                new Request<>(
+                        "fst_gasPrice", Collections.<String>emptyList(), null, FstGasPrice.class));
+        assertEncoded(
+                new Request<>(
+                        "fst_getBlockByNumber",
+                        Arrays.asList(BigInteger.TEN, "x\"\u00e9"),
+                        null,
+                        FstGasPrice.class));
+    }
+
+    @Test
+    public void testEmptyRequest() throws IOException {
+        assertEncoded(new Request<>());
+    }
+
+    @Test
+    public void testBatch() throws IOException {
+        List<Request<?, ?>> requests =
+                Arrays.asList(
+                        new Request<>(
+                                "fst_blockNumber",
+                                Collections.<String>emptyList(),
+                                null,
+                                FstBlockNumber.class),
+                        new Request<>(
+                                "fst_gasPrice",
+                                Collections.<String>emptyList(),
+                                null,
+                                FstGasPrice.class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(requests, out);
+        assertEquals(objectMapper.writeValueAsString(requests), out.toString("UTF-8"));
+        assertEquals(objectMapper.writeValueAsString(requests), toString(encoder.encode(requests)));
+    }
+
+    @Test
+    public void testEncodeReusesBuffer() throws IOException {
+        Request<?, ?> first =
+                new Request<>(
+                        "fst_blockNumber",
+                        Collections.<String>emptyList(),
+                        null,
+                        FstBlockNumber.class);
+        Request<?, ?> second = new Request<>();
+
+        ByteBuffer firstBuffer = encoder.encode(first);
+        assertEquals(objectMapper.writeValueAsString(first), toString(firstBuffer));
+        ByteBuffer secondBuffer = encoder.encode(second);
+        assertEquals(objectMapper.writeValueAsString(second), toString(secondBuffer));
+
+        assertSame(firstBuffer.array(), secondBuffer.array());
+    }
+
+    private void assertEncoded(Request<?, ?> request) throws IOException {
+        String expected = objectMapper.writeValueAsString(request);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.write(request, out);
+        assertEquals(expected, out.toString("UTF-8"));
+        assertEquals(expected, toString(encoder.encode(request)));
+    }
+
+    private static String toString(ByteBuffer buffer) {
+        return StandardCharsets.UTF_8.decode(buffer.duplicate()).toString();
+    }
+}
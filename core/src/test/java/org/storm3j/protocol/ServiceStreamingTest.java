@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.Test;
+
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.protocol.core.methods.response.Transaction;
+import org.storm3j.protocol.deserializer.StreamingModelReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ServiceStreamingTest {
+
+    private final InMemoryService service = new InMemoryService();
+
+    @Test
+    public void testLogsAreReadAsRequested() {
+        service.reply =
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":["
+                        + log("0x0")
+                        + ","
+                        + log("0x1")
+                        + ","
+                        + log("0x2")
+                        + "]}";
+
+        TestSubscriber<Log> subscriber =
+                request(FstLog.class).streamResult(StreamingModelReader.LOGS).test(2);
+        subscriber.assertValueCount(2);
+        subscriber.assertNotComplete();
+        assertFalse(service.closed);
+
+        subscriber.requestMore(10);
+        subscriber.assertValueCount(3);
+        subscriber.assertComplete();
+        assertEquals("0x2", subscriber.values().get(2).getLogIndexRaw());
+        assertTrue(service.closed);
+    }
+
+    @Test
+    public void testCancelClosesResponse() {
+        service.reply = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[" + log("0x0") + "]}";
+
+        TestSubscriber<Log> subscriber =
+                request(FstLog.class).streamResult(StreamingModelReader.LOGS).test(0);
+        subscriber.cancel();
+
+        assertTrue(service.closed);
+    }
+
+    @Test
+    public void testErrorReply() {
+        service.reply =
+                "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                        + "\"error\":{\"code\":-32005,"
+                        + "\"message\":\"query returned more than 10000 results\"}}";
+
+        request(FstLog.class)
+                .streamResult(StreamingModelReader.LOGS)
+                .test()
+                .assertError(IOException.class)
+                .assertErrorMessage("Request failed: query returned more than 10000 results");
+        assertTrue(service.closed);
+    }
+
+    @Test
+    public void testNullResult() {
+        service.reply = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":null}";
+
+        request(FstBlock.class)
+                .streamResult(StreamingModelReader.BLOCK_TRANSACTIONS)
+                .test()
+                .assertNoValues()
+                .assertComplete();
+    }
+
+    @Test
+    public void testBlockTransactions() {
+        service.reply =
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"number\":\"0x1b4\","
+                        + "\"uncles\":[],\"transactions\":["
+                        + "{\"hash\":\"0x1\",\"v\":27},{\"hash\":\"0x2\",\"v\":\"0x1c\"}],"
+                        + "\"transactionsRoot\":\"0x3\"}}";
+
+        TestSubscriber<Transaction> subscriber =
+                request(FstBlock.class)
+                        .streamResult(StreamingModelReader.BLOCK_TRANSACTIONS)
+                        .test();
+
+        subscriber.assertValueCount(2).assertComplete();
+        assertEquals("0x2", subscriber.values().get(1).getHash());
+        assertEquals(28, subscriber.values().get(1).getV());
+    }
+
+    private <T extends org.storm3j.protocol.core.Response> Request<?, T> request(Class<T> type) {
+        return new Request<>("fst_getLogs", Collections.<String>emptyList(), service, type);
+    }
+
+    private static String log(String logIndex) {
+        return "{\"logIndex\":\"" + logIndex + "\",\"address\":\"0x1\",\"topics\":[]}";
+    }
+
+    private static class InMemoryService extends Service {
+
+        private String reply;
+        private boolean closed;
+
+        InMemoryService() {
+            super(false);
+        }
+
+        @Override
+        protected InputStream performIO(String payload) {
+            closed = false;
+            return new ByteArrayInputStream(reply.getBytes(StandardCharsets.UTF_8)) {
+                @Override
+                public void close() {
+                    closed = true;
+                }
+            };
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.filters;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.FstUninstallFilter;
+import org.storm3j.utils.PollingPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FilterPollerTest {
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private Storm3jService storm3jService;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture schedule;
+    private Storm3j storm3j;
+    private FilterPoller poller;
+
+    @Before
+    public void setUp() throws Exception {
+        storm3jService = mock(Storm3jService.class);
+        executor = mock(ScheduledExecutorService.class);
+        schedule = mock(ScheduledFuture.class);
+        when(executor.schedule(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenReturn(schedule);
+        when(storm3jService.send(any(Request.class), eq(FstFilter.class)))
+                .thenReturn(reply("\"0x1\"", FstFilter.class));
+        when(storm3jService.send(any(Request.class), eq(FstUninstallFilter.class)))
+                .thenReturn(reply("true", FstUninstallFilter.class));
+
+        storm3j = Storm3j.build(storm3jService, 1000, executor);
+        poller = new FilterPoller(storm3j, executor);
+    }
+
+    @Test
+    public void testFiltersArePolledInOneBatch() throws Exception {
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        poller.register(new BlockFilter(storm3j, first::add), 1000);
+        poller.register(new PendingTransactionFilter(storm3j, second::add), 1000);
+
+        when(storm3jService.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(
+                        invocation ->
+                                new BatchResponse(
+                                        ((BatchRequest) invocation.getArguments()[0])
+                                                .getRequests(),
+                                        Arrays.asList(
+                                                reply("[\"0xa\",\"0xb\"]", FstLog.class),
+                                                reply("[\"0xc\"]", FstLog.class))));
+
+        tick();
+
+        verify(storm3jService, times(1)).sendBatch(any(BatchRequest.class));
+        verify(storm3jService, never()).send(any(Request.class), eq(FstLog.class));
+        assertEquals(Arrays.asList("0xa", "0xb"), first);
+        assertEquals(Arrays.asList("0xc"), second);
+        assertEquals(2, poller.getFilterCount());
+    }
+
+    @Test
+    public void testSingleFilterIsNotBatched() throws Exception {
+        List<String> hashes = new ArrayList<>();
+        poller.register(new BlockFilter(storm3j, hashes::add), 1000);
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenReturn(reply("[\"0xa\"]", FstLog.class));
+
+        tick();
+
+        verify(storm3jService, never()).sendBatch(any(BatchRequest.class));
+        assertEquals(Arrays.asList("0xa"), hashes);
+    }
+
+    @Test
+    public void testFilterNotFoundIsReinstalled() throws Exception {
+        poller.register(new BlockFilter(storm3j, hash -> {}), 1000);
+        poller.register(new BlockFilter(storm3j, hash -> {}), 1000);
+
+        when(storm3jService.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(
+                        invocation ->
+                                new BatchResponse(
+                                        ((BatchRequest) invocation.getArguments()[0])
+                                                .getRequests(),
+                                        Arrays.asList(
+                                                reply("[]", FstLog.class),
+                                                filterNotFound())));
+
+        tick();
+
+        verify(storm3jService, times(3)).send(any(Request.class), eq(FstFilter.class));
+    }
+
+    @Test
+    public void testTickIsRescheduledByPolicy() throws Exception {
+        poller =
+                new FilterPoller(
+                        storm3j,
+                        executor,
+                        pollingInterval -> changed -> changed ? 10 : 20,
+                        () -> 0);
+        poller.register(new BlockFilter(storm3j, hash -> {}), 1000);
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenReturn(reply("[\"0xa\"]", FstLog.class))
+                .thenReturn(reply("[]", FstLog.class));
+
+        tick();
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).schedule(task.capture(), eq(10L), eq(TimeUnit.MILLISECONDS));
+
+        task.getValue().run();
+        verify(executor).schedule(any(Runnable.class), eq(20L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testDelayIsCountedFromTickStart() throws Exception {
+        AtomicLong now = new AtomicLong();
+        poller = new FilterPoller(storm3j, executor, PollingPolicy.fixedRate(), now::get);
+        poller.register(new BlockFilter(storm3j, hash -> {}), 1000);
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenAnswer(
+                        invocation -> {
+                            now.addAndGet(300);
+                            return reply("[]", FstLog.class);
+                        });
+
+        tick();
+
+        verify(executor).schedule(any(Runnable.class), eq(700L), eq(TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPolicyLearnsFromNewestHead() throws Exception {
+        RecordingPolicy policy = new RecordingPolicy();
+        poller = new FilterPoller(storm3j, executor, policy, () -> 0);
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenReturn(reply("[]", FstLog.class));
+        poller.register(new BlockFilter(storm3j, hash -> {}), 1000);
+        poller.register(
+                new LogFilter(
+                        storm3j,
+                        log -> {},
+                        new org.storm3j.protocol.core.methods.request.FstFilter()),
+                1000);
+        when(storm3jService.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(
+                        invocation ->
+                                new BatchResponse(
+                                        ((BatchRequest) invocation.getArguments()[0])
+                                                .getRequests(),
+                                        Arrays.asList(
+                                                reply("[\"0xa\",\"0xb\"]", FstLog.class),
+                                                reply(logs("0x9", "0xc"), FstLog.class))));
+        when(storm3jService.send(any(Request.class), eq(FstBlock.class)))
+                .thenReturn(reply(block("0x5", "0x64"), FstBlock.class));
+
+        tick();
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).schedule(task.capture(), eq(1000L), eq(TimeUnit.MILLISECONDS));
+        task.getValue().run();
+
+        // The same head is only fetched once
+        ArgumentCaptor<Request> request = ArgumentCaptor.forClass(Request.class);
+        verify(storm3jService).send(request.capture(), eq(FstBlock.class));
+        assertEquals("fst_getBlockByHash", request.getValue().getMethod());
+        assertEquals(Arrays.asList("0xb", false), request.getValue().getParams());
+        assertEquals(Arrays.asList(BigInteger.valueOf(5)), policy.numbers);
+        assertEquals(Arrays.asList(BigInteger.valueOf(100)), policy.timestamps);
+    }
+
+    @Test
+    public void testPolicyLearnsFromNewestLog() throws Exception {
+        RecordingPolicy policy = new RecordingPolicy();
+        poller = new FilterPoller(storm3j, executor, policy);
+        // The initial logs, then the changes
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenReturn(reply("[]", FstLog.class))
+                .thenReturn(reply(logs("0x4", "0xd", "0x3", "0xc"), FstLog.class));
+        poller.register(
+                new LogFilter(
+                        storm3j,
+                        log -> {},
+                        new org.storm3j.protocol.core.methods.request.FstFilter()),
+                1000);
+        when(storm3jService.send(any(Request.class), eq(FstBlock.class)))
+                .thenReturn(reply(block("0x4", "0x64"), FstBlock.class));
+
+        tick();
+
+        ArgumentCaptor<Request> request = ArgumentCaptor.forClass(Request.class);
+        verify(storm3jService).send(request.capture(), eq(FstBlock.class));
+        assertEquals(Arrays.asList("0xd", false), request.getValue().getParams());
+        assertEquals(Arrays.asList(BigInteger.valueOf(4)), policy.numbers);
+    }
+
+    @Test
+    public void testBlocksAreNotFetchedForFixedRate() throws Exception {
+        poller.register(new BlockFilter(storm3j, hash -> {}), 1000);
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenReturn(reply("[\"0xa\"]", FstLog.class));
+
+        tick();
+
+        verify(storm3jService, never()).send(any(Request.class), eq(FstBlock.class));
+    }
+
+    @Test
+    public void testSchedulesAreSharedPerInterval() {
+        Filter<String> first = new BlockFilter(storm3j, hash -> {});
+        Filter<String> second = new BlockFilter(storm3j, hash -> {});
+        poller.register(first, 1000);
+        poller.register(second, 1000);
+        poller.register(new BlockFilter(storm3j, hash -> {}), 500);
+
+        verify(executor, times(2)).schedule(any(Runnable.class), eq(0L), eq(TimeUnit.MILLISECONDS));
+
+        poller.cancel(first);
+        verify(schedule, never()).cancel(false);
+        poller.cancel(second);
+        verify(schedule).cancel(false);
+        assertEquals(1, poller.getFilterCount());
+    }
+
+    private void tick() {
+        ArgumentCaptor<Runnable> task = ArgumentCaptor.forClass(Runnable.class);
+        verify(executor).schedule(task.capture(), eq(0L), eq(TimeUnit.MILLISECONDS));
+        task.getValue().run();
+    }
+
+    private FstLog filterNotFound() throws Exception {
+        return objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                        + "\"error\":{\"code\":-32000,\"message\":\"filter not found\"}}",
+                FstLog.class);
+    }
+
+    /** @return logs from the given pairs of block number and block hash */
+    private static String logs(String... blocks) {
+        List<String> logs = new ArrayList<>();
+        for (int i = 0; i < blocks.length; i += 2) {
+            logs.add(
+                    "{\"blockNumber\":\""
+                            + blocks[i]
+                            + "\",\"blockHash\":\""
+                            + blocks[i + 1]
+                            + "\",\"topics\":[]}");
+        }
+        return "[" + String.join(",", logs) + "]";
+    }
+
+    private static String block(String number, String timestamp) {
+        return "{\"number\":\"" + number + "\",\"timestamp\":\"" + timestamp + "\"}";
+    }
+
+    private <T> T reply(String result, Class<T> type) throws Exception {
+        return objectMapper.readValue(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":" + result + "}", type);
+    }
+
+    private static class RecordingPolicy implements PollingPolicy {
+        private final List<BigInteger> numbers = new ArrayList<>();
+        private final List<BigInteger> timestamps = new ArrayList<>();
+
+        @Override
+        public Schedule newSchedule(long pollingInterval) {
+            return changed -> pollingInterval;
+        }
+
+        @Override
+        public void onBlock(BigInteger number, BigInteger timestamp) {
+            numbers.add(number);
+            timestamps.add(timestamp);
+        }
+
+        @Override
+        public boolean learnsBlockTime() {
+            return true;
+        }
+    }
+}
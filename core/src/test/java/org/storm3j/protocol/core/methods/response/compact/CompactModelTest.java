@@ -0,0 +1,247 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.core.methods.response.compact;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.storm3j.exceptions.MessageDecodingException;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.protocol.core.methods.response.Transaction;
+import org.storm3j.protocol.core.methods.response.TransactionReceipt;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class CompactModelTest {
+
+    private static final String BLOCK_HASH =
+            "0x8216c5785ac562ff41e2dcfdf5785ac562ff41e2dcfdf829c5a142f1fccd7d00";
+    private static final String TRANSACTION_HASH =
+            "0xdf829c5a142f1fccd7d8216c5785ac562ff41e2dcfdf5785ac562ff41e2dcf01";
+    private static final String TOPIC =
+            "0x59ebeb90bc63057b6515673c3ecf9438e5058bca0f92585014eced636878c9a5";
+    private static final String ADDRESS = "0x16c5785ac562ff41e2dcfdf829c5a142f1fccd7d";
+    private static final String OTHER_ADDRESS = "0xf829c5a142f1fccd7d16c5785ac562ff41e2dcfd";
+
+    @Test
+    public void testHash() {
+        CompactHash hash = CompactHash.of(TOPIC);
+
+        assertThat(hash.toString(), is(TOPIC));
+        assertThat(CompactHash.of(hash.toBytes()), equalTo(hash));
+        assertThat(CompactHash.of(TOPIC.toUpperCase().replace("0X", "0x")), equalTo(hash));
+        assertThat(hash.hashCode(), is(CompactHash.of(TOPIC).hashCode()));
+        assertFalse(hash.equals(CompactHash.of(BLOCK_HASH)));
+        assertThat(CompactHash.of((String) null), nullValue());
+        assertThat(new HashSet<>(Arrays.asList(hash, CompactHash.of(TOPIC))).size(), is(1));
+    }
+
+    @Test
+    public void testAddress() {
+        CompactAddress address = CompactAddress.of(ADDRESS);
+
+        assertThat(address.toString(), is(ADDRESS));
+        assertThat(CompactAddress.of(address.toBytes()), equalTo(address));
+        assertThat(
+                CompactAddress.of("0xFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFFF").toString(),
+                is("0xffffffffffffffffffffffffffffffffffffffff"));
+        assertFalse(address.equals(CompactAddress.of(OTHER_ADDRESS)));
+    }
+
+    @Test(expected = MessageDecodingException.class)
+    public void testHashRejectsShortValue() {
+        CompactHash.of("0x1");
+    }
+
+    @Test(expected = MessageDecodingException.class)
+    public void testAddressRejectsNonHex() {
+        CompactAddress.of("0x16c5785ac562ff41e2dcfdf829c5a142f1fccdzz");
+    }
+
+    @Test
+    public void testLog() {
+        Log log = log("0x1");
+        CompactLog compactLog = CompactLog.from(log);
+
+        assertThat(compactLog.getLogIndex(), is(1L));
+        assertThat(compactLog.getBlockNumber(), is(0x1b4L));
+        assertThat(compactLog.getAddress(), equalTo(CompactAddress.of(ADDRESS)));
+        assertThat(
+                compactLog.getTopics(),
+                equalTo(Collections.singletonList(CompactHash.of(TOPIC))));
+        assertThat(compactLog.toLog(), equalTo(log));
+    }
+
+    @Test
+    public void testPendingLog() {
+        Log log = new Log();
+        log.setAddress(ADDRESS);
+        log.setData("0x");
+        log.setTopics(Collections.<String>emptyList());
+        CompactLog compactLog = CompactLog.from(log);
+
+        assertThat(compactLog.getBlockNumber(), is(-1L));
+        assertThat(compactLog.getBlockHash(), nullValue());
+        assertThat(compactLog.toLog(), equalTo(log));
+    }
+
+    @Test
+    public void testLogsShareHashes() {
+        List<CompactLog> logs = CompactLog.from(Arrays.asList(log("0x0"), log("0x1")));
+
+        assertThat(logs.get(1).getBlockHash(), sameInstance(logs.get(0).getBlockHash()));
+        assertThat(
+                logs.get(1).getTransactionHash(), sameInstance(logs.get(0).getTransactionHash()));
+    }
+
+    @Test
+    public void testTransaction() {
+        Transaction transaction = transaction(new Transaction());
+        CompactTransaction compactTransaction = CompactTransaction.from(transaction);
+
+        assertThat(compactTransaction.getGas(), is(0x5208L));
+        assertThat(compactTransaction.getTo(), nullValue());
+        assertThat(compactTransaction.getV(), is(37L));
+        assertThat(compactTransaction.toTransaction(), equalTo(transaction));
+    }
+
+    @Test
+    public void testTransactionReceipt() {
+        TransactionReceipt receipt =
+                new TransactionReceipt(
+                        TRANSACTION_HASH,
+                        "0x0",
+                        BLOCK_HASH,
+                        "0x1b4",
+                        "0x5208",
+                        "0x5208",
+                        null,
+                        null,
+                        "0x0",
+                        ADDRESS,
+                        OTHER_ADDRESS,
+                        Arrays.asList(log("0x0"), log("0x1")),
+                        "0x0000");
+        CompactTransactionReceipt compactReceipt = CompactTransactionReceipt.from(receipt);
+
+        assertFalse(compactReceipt.isStatusOK());
+        assertThat(compactReceipt.getLogs().size(), is(2));
+        assertThat(
+                compactReceipt.getLogs().get(1).getBlockHash(),
+                sameInstance(compactReceipt.getBlockHash()));
+        assertThat(compactReceipt.toTransactionReceipt(), equalTo(receipt));
+
+        receipt.setStatus(null);
+        assertTrue(CompactTransactionReceipt.from(receipt).isStatusOK());
+    }
+
+    @Test
+    public void testBlockWithTransactions() {
+        FstBlock.Block block = block();
+        block.setTransactions(
+                Collections.<FstBlock.TransactionResult>singletonList(
+                        transaction(new FstBlock.TransactionObject())));
+        CompactBlock compactBlock = CompactBlock.from(block);
+
+        assertThat(compactBlock.getNumber(), is(0x1b4L));
+        assertThat(compactBlock.getTransactions().size(), is(1));
+        assertThat(
+                compactBlock.getTransactionHashes(),
+                equalTo(Collections.singletonList(CompactHash.of(TRANSACTION_HASH))));
+        assertThat(
+                compactBlock.getTransactions().get(0).getBlockHash(),
+                sameInstance(compactBlock.getHash()));
+        assertThat(compactBlock.toBlock(), equalTo(block));
+    }
+
+    @Test
+    public void testBlockWithTransactionHashes() {
+        FstBlock.Block block = block();
+        block.setTransactions(
+                Collections.<FstBlock.TransactionResult>singletonList(
+                        new FstBlock.TransactionHash(TRANSACTION_HASH)));
+        CompactBlock compactBlock = CompactBlock.from(block);
+
+        assertThat(compactBlock.getTransactions().isEmpty(), is(true));
+        assertThat(
+                compactBlock.getTransactionHashes(),
+                equalTo(Collections.singletonList(CompactHash.of(TRANSACTION_HASH))));
+        assertThat(compactBlock.toBlock(), equalTo(block));
+    }
+
+    private static Log log(String logIndex) {
+        return new Log(
+                false,
+                logIndex,
+                "0x0",
+                TRANSACTION_HASH,
+                BLOCK_HASH,
+                "0x1b4",
+                ADDRESS,
+                "0x0000000000000000000000000000000000000000000000000000000000000001",
+                "mined",
+                Collections.singletonList(TOPIC));
+    }
+
+    private static <T extends Transaction> T transaction(T transaction) {
+        transaction.setHash(TRANSACTION_HASH);
+        transaction.setNonce("0x15");
+        transaction.setBlockHash(BLOCK_HASH);
+        transaction.setBlockNumber("0x1b4");
+        transaction.setTransactionIndex("0x0");
+        transaction.setFrom(ADDRESS);
+        transaction.setValue("0xde0b6b3a7640000");
+        transaction.setGasPrice("0x4a817c800");
+        transaction.setGas("0x5208");
+        transaction.setInput("0x603880600c6000396000f3");
+        transaction.setCreates(OTHER_ADDRESS);
+        transaction.setR("0xf115cc4d7516dd430046504e1c888198e0323e8ded016d755f89c226ba3481dc");
+        transaction.setS("0x4a2ae8ee49f1100b5c0202b37ed8bacf4caeddebde6b7f77e12e7a55893e9f62");
+        transaction.setV("0x25");
+        return transaction;
+    }
+
+    private static FstBlock.Block block() {
+        FstBlock.Block block = new FstBlock.Block();
+        block.setNumber("0x1b4");
+        block.setHash(BLOCK_HASH);
+        block.setParentHash(TOPIC);
+        block.setNonce("0xe04d296d2460cfb8");
+        block.setSha3Uncles(TOPIC);
+        block.setLogsBloom("0x0000");
+        block.setTransactionsRoot(TOPIC);
+        block.setStateRoot(TOPIC);
+        block.setReceiptsRoot(TOPIC);
+        block.setMiner(ADDRESS);
+        block.setDifficulty("0x27f07");
+        block.setTotalDifficulty("0x27f07");
+        block.setExtraData("0x");
+        block.setSize("0x27f07");
+        block.setGasLimit("0x9f759");
+        block.setGasUsed("0x9f759");
+        block.setTimestamp("0x54e34e8e");
+        block.setUncles(Collections.singletonList(TOPIC));
+        return block;
+    }
+}
@@ -0,0 +1,346 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.deserializer;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstGetTransactionReceipt;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.TransactionReceipt;
+
+/**
+ * Compares decoding blocks, receipts and logs with {@link StreamingModelReader} against bean
+ * deserialization of the same model classes, which is how they were decoded before.
+ *
+ * <p>Run with {@code main}, arguments are the number of seconds per measurement round and the
+ * number of rounds. Each case runs on the main thread, first warming up for one round. The median
+ * over the rounds is printed for the elapsed wall-clock time per operation, the CPU time of the
+ * main thread per operation as reported by {@link ThreadMXBean#getCurrentThreadCpuTime()}, and
+ * the bytes allocated by the main thread per operation as reported by {@link
+ * com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long)}, where the JVM supports them.
+ * All depend on the JVM, its flags and the machine, so only compare cases from the same run.
+ */
+public class StreamingModelReaderBenchmark {
+
+    private static final String HASH =
+            "\"0xb903239f8543d04b5dc1ba6579132b143087c68db1b2168786408fcbce568238\"";
+    private static final String ADDRESS = "\"0x407d73d8a49eeb85d32cf465507dd71d507100c1\"";
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        String block = blockJson(200);
+        String logs = logsJson(1000);
+        String receipt = receiptJson(10);
+
+        ObjectMapper streaming = ObjectMapperFactory.getObjectMapper();
+        ObjectMapper beans = ObjectMapperFactory.getObjectMapper().copy();
+        beans.addMixIn(FstBlock.class, BeanBlockResponse.class);
+        beans.addMixIn(FstBlock.Block.class, BeanBlock.class);
+        beans.addMixIn(FstLog.class, BeanLogResponse.class);
+        beans.addMixIn(FstGetTransactionReceipt.class, BeanReceiptResponse.class);
+
+        run(
+                "block, 200 transactions, beans",
+                seconds,
+                rounds,
+                () -> decode(beans, block, FstBlock.class));
+        run(
+                "block, 200 transactions, streaming",
+                seconds,
+                rounds,
+                () -> decode(streaming, block, FstBlock.class));
+        run("1000 logs, beans", seconds, rounds, () -> decode(beans, logs, FstLog.class));
+        run("1000 logs, streaming", seconds, rounds, () -> decode(streaming, logs, FstLog.class));
+        run(
+                "receipt, 10 logs, beans",
+                seconds,
+                rounds,
+                () -> decode(beans, receipt, FstGetTransactionReceipt.class));
+        run(
+                "receipt, 10 logs, streaming",
+                seconds,
+                rounds,
+                () -> decode(streaming, receipt, FstGetTransactionReceipt.class));
+    }
+
+    private static Object decode(ObjectMapper objectMapper, String json, Class<?> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static void run(String name, long seconds, int rounds, Decoder decoder) {
+        // Warm up for as long as a round
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        while (System.nanoTime() < end) {
+            decoder.decode();
+        }
+
+        double[] micros = new double[rounds];
+        double[] cpuMicros = new double[rounds];
+        double[] bytes = new double[rounds];
+        for (int round = 0; round < rounds; round++) {
+            long count = 0;
+            long startBytes = allocatedBytes();
+            long startCpu = cpuTime();
+            long start = System.nanoTime();
+            end = start + TimeUnit.SECONDS.toNanos(seconds);
+            while (System.nanoTime() < end) {
+                decoder.decode();
+                count++;
+            }
+            micros[round] = (System.nanoTime() - start) / 1000.0 / count;
+            cpuMicros[round] = startCpu < 0 ? -1 : (cpuTime() - startCpu) / 1000.0 / count;
+            bytes[round] = startBytes < 0 ? -1 : (double) (allocatedBytes() - startBytes) / count;
+        }
+        System.out.printf(
+                "%-40s %10.1f us/op %10.1f cpu-us/op %12.0f B/op%n",
+                name,
+                median(micros),
+                median(cpuMicros),
+                median(bytes));
+    }
+
+    private static double median(double[] values) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    /** @return CPU time of the current thread so far in nanoseconds, or -1 if not supported */
+    private static long cpuTime() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!threadMXBean.isCurrentThreadCpuTimeSupported()
+                || !threadMXBean.isThreadCpuTimeEnabled()) {
+            return -1;
+        }
+        return threadMXBean.getCurrentThreadCpuTime();
+    }
+
+    /** @return bytes allocated by the current thread so far, or -1 if not supported */
+    private static long allocatedBytes() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        if (!(threadMXBean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        com.sun.management.ThreadMXBean allocationBean =
+                (com.sun.management.ThreadMXBean) threadMXBean;
+        if (!allocationBean.isThreadAllocatedMemorySupported()
+                || !allocationBean.isThreadAllocatedMemoryEnabled()) {
+            return -1;
+        }
+        return allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private interface Decoder {
+        Object decode();
+    }
+
+    static String blockJson(int transactions) {
+        StringBuilder json =
+                new StringBuilder(
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{"
+                                + "\"number\":\"0x1b4\",\"hash\":"
+                                + HASH
+                                + ",\"parentHash\":"
+                                + HASH
+                                + ",\"nonce\":\"0xe04d296d2460cfb8\""
+                                + ",\"sha3Uncles\":"
+                                + HASH
+                                + ",\"logsBloom\":\"0x"
+                                + repeat("0", 512)
+                                + "\",\"transactionsRoot\":"
+                                + HASH
+                                + ",\"stateRoot\":"
+                                + HASH
+                                + ",\"receiptsRoot\":"
+                                + HASH
+                                + ",\"miner\":"
+                                + ADDRESS
+                                + ",\"difficulty\":\"0x027f07\",\"totalDifficulty\":\"0x027f07\""
+                                + ",\"extraData\":\"0x0000000000000000000000000000000000000000\""
+                                + ",\"size\":\"0x027f07\",\"gasLimit\":\"0x9f759\""
+                                + ",\"gasUsed\":\"0x9f759\",\"timestamp\":\"0x54e34e8e\""
+                                + ",\"uncles\":[],\"transactions\":[");
+        for (int i = 0; i < transactions; i++) {
+            json.append(i == 0 ? "" : ",").append(transactionJson(i));
+        }
+        return json.append("]}}").toString();
+    }
+
+    static String transactionJson(int index) {
+        return "{\"hash\":"
+                + HASH
+                + ",\"nonce\":\"0x"
+                + Integer.toHexString(index)
+                + "\",\"blockHash\":"
+                + HASH
+                + ",\"blockNumber\":\"0x1b4\",\"transactionIndex\":\"0x"
+                + Integer.toHexString(index)
+                + "\",\"from\":"
+                + ADDRESS
+                + ",\"to\":"
+                + ADDRESS
+                + ",\"value\":\"0x7f110\",\"gas\":\"0x7f110\",\"gasPrice\":\"0x09184e72a000\""
+                + ",\"input\":\"0x603880600c6000396000f300603880600c6000396000f3603880600c60\""
+                + ",\"r\":\"0xf115cc4d7516dd430046504e1c888198e0323e8ded016d755f89c226ba3481dc\""
+                + ",\"s\":\"0x4a2ae8ee49f1100b5c0202b37ed8bacf4caeddebde6b7f77e12e7a55893e9f62\""
+                + ",\"v\":\"0x25\"}";
+    }
+
+    static String logJson(int index) {
+        return "{\"removed\":false,\"logIndex\":\"0x"
+                + Integer.toHexString(index)
+                + "\",\"transactionIndex\":\"0x0\",\"transactionHash\":"
+                + HASH
+                + ",\"blockHash\":"
+                + HASH
+                + ",\"blockNumber\":\"0x1b4\",\"address\":"
+                + ADDRESS
+                + ",\"data\":\"0x0000000000000000000000000000000000000000000000000000000000000001\""
+                + ",\"topics\":["
+                + HASH
+                + ","
+                + HASH
+                + ","
+                + HASH
+                + "]}";
+    }
+
+    static String logsJson(int logs) {
+        StringBuilder json = new StringBuilder("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[");
+        for (int i = 0; i < logs; i++) {
+            json.append(i == 0 ? "" : ",").append(logJson(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    static String receiptJson(int logs) {
+        StringBuilder json =
+                new StringBuilder(
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"transactionHash\":"
+                                + HASH
+                                + ",\"transactionIndex\":\"0x1\",\"blockHash\":"
+                                + HASH
+                                + ",\"blockNumber\":\"0xb\",\"cumulativeGasUsed\":\"0x33bc\""
+                                + ",\"gasUsed\":\"0x4dc\",\"contractAddress\":null"
+                                + ",\"status\":\"0x1\""
+                                + ",\"from\":"
+                                + ADDRESS
+                                + ",\"to\":"
+                                + ADDRESS
+                                + ",\"logsBloom\":\"0x"
+                                + repeat("0", 512)
+                                + "\",\"logs\":[");
+        for (int i = 0; i < logs; i++) {
+            json.append(i == 0 ? "" : ",").append(logJson(i));
+        }
+        return json.append("]}}").toString();
+    }
+
+    private static String repeat(String value, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    abstract static class BeanBlockResponse {
+        @JsonDeserialize(using = BeanBlockDeserialiser.class)
+        abstract void setResult(FstBlock.Block result);
+    }
+
+    abstract static class BeanBlock {
+        @JsonDeserialize(using = BeanTransactionsDeserialiser.class)
+        abstract void setTransactions(List<FstBlock.TransactionResult> transactions);
+    }
+
+    abstract static class BeanLogResponse {
+        @JsonDeserialize(using = BeanLogsDeserialiser.class)
+        abstract void setResult(List<FstLog.LogResult> result);
+    }
+
+    abstract static class BeanReceiptResponse {
+        @JsonDeserialize(as = TransactionReceipt.class)
+        abstract void setResult(TransactionReceipt result);
+    }
+
+    static class BeanBlockDeserialiser extends JsonDeserializer<FstBlock.Block> {
+        @Override
+        public FstBlock.Block deserialize(JsonParser jsonParser, DeserializationContext context)
+                throws IOException {
+            return context.readValue(jsonParser, FstBlock.Block.class);
+        }
+    }
+
+    static class BeanTransactionsDeserialiser
+            extends JsonDeserializer<List<FstBlock.TransactionResult>> {
+
+        private final ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
+
+        @Override
+        public List<FstBlock.TransactionResult> deserialize(
+                JsonParser jsonParser, DeserializationContext context) throws IOException {
+            List<FstBlock.TransactionResult> transactionResults = new ArrayList<>();
+            if (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+                Iterator<FstBlock.TransactionObject> iterator =
+                        objectReader.readValues(jsonParser, FstBlock.TransactionObject.class);
+                while (iterator.hasNext()) {
+                    transactionResults.add(iterator.next());
+                }
+            }
+            return transactionResults;
+        }
+    }
+
+    static class BeanLogsDeserialiser extends JsonDeserializer<List<FstLog.LogResult>> {
+
+        private final ObjectReader objectReader = ObjectMapperFactory.getObjectReader();
+
+        @Override
+        public List<FstLog.LogResult> deserialize(
+                JsonParser jsonParser, DeserializationContext context) throws IOException {
+            List<FstLog.LogResult> logResults = new ArrayList<>();
+            if (jsonParser.nextToken() == JsonToken.START_OBJECT) {
+                Iterator<FstLog.LogObject> iterator =
+                        objectReader.readValues(jsonParser, FstLog.LogObject.class);
+                while (iterator.hasNext()) {
+                    logResults.add(iterator.next());
+                }
+            }
+            return logResults;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.deserializer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.protocol.core.methods.response.Transaction;
+import org.storm3j.protocol.core.methods.response.TransactionReceipt;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class StreamingModelReaderTest {
+
+    private static final String LOG =
+            "{\"removed\":true,\"logIndex\":\"0x1\",\"transactionIndex\":\"0x0\","
+                    + "\"transactionHash\":\"0xdf829c5a142f1fccd7d8216c5785ac562ff41e2dcf\","
+                    + "\"blockHash\":\"0x8216c5785ac562ff41e2dcfdf5785ac562ff41e2dcf\","
+                    + "\"blockNumber\":\"0x1b4\","
+                    + "\"address\":\"0x16c5785ac562ff41e2dcfdf829c5a142f1fccd7d\","
+                    + "\"data\":\"0x0000000000000000000000000000000000000000\","
+                    + "\"type\":\"mined\",\"unknown\":{\"nested\":[1,2,{\"a\":null}]},"
+                    + "\"topics\":[\"0x59ebeb90bc63057b6515673c3ecf9438e5058bca0f925850\"]}";
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    @Test
+    public void testLogMatchesBeanDeserialisation() throws IOException {
+        assertThat(
+                StreamingModelReader.readLog(parser(LOG), new Log()),
+                equalTo(objectMapper.readValue(LOG, Log.class)));
+    }
+
+    @Test
+    public void testLogResults() throws IOException {
+        FstLog fstLog =
+                objectMapper.readValue(
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[" + LOG + "]}", FstLog.class);
+        assertThat(
+                fstLog.getLogs(),
+                equalTo(
+                        Collections.<FstLog.LogResult>singletonList(
+                                objectMapper.readValue(LOG, FstLog.LogObject.class))));
+
+        fstLog =
+                objectMapper.readValue(
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":[\"0x1\",\"0x2\"]}",
+                        FstLog.class);
+        assertThat(
+                fstLog.getLogs(),
+                equalTo(
+                        Arrays.<FstLog.LogResult>asList(
+                                new FstLog.Hash("0x1"), new FstLog.Hash("0x2"))));
+    }
+
+    @Test
+    public void testTransactionWithNumericV() throws IOException {
+        String json =
+                "{\"hash\":\"0x1\",\"nonce\":\"0x2\",\"to\":null,\"creates\":\"0x3\","
+                        + "\"input\":\"0x\",\"v\":28,\"condition\":{\"block\":1}}";
+        Transaction transaction =
+                StreamingModelReader.readTransaction(parser(json), new Transaction());
+
+        assertThat(transaction, equalTo(objectMapper.readValue(json, Transaction.class)));
+        assertThat(transaction.getV(), is(28L));
+        assertThat(transaction.getTo(), nullValue());
+    }
+
+    @Test
+    public void testTransactionWithHexV() throws IOException {
+        String json = "{\"hash\":\"0x1\",\"v\":\"0x25\"}";
+        Transaction transaction =
+                StreamingModelReader.readTransaction(parser(json), new Transaction());
+
+        assertThat(transaction, equalTo(objectMapper.readValue(json, Transaction.class)));
+        assertThat(transaction.getV(), is(37L));
+    }
+
+    @Test
+    public void testReceiptWithLogs() throws IOException {
+        String json =
+                "{\"transactionHash\":\"0x1\",\"blockNumber\":\"0xb\",\"status\":\"0x1\","
+                        + "\"contractAddress\":null,\"logs\":["
+                        + LOG
+                        + "],\"logsBloom\":\"0x00\"}";
+
+        assertThat(
+                StreamingModelReader.readTransactionReceipt(parser(json)),
+                equalTo(objectMapper.readValue(json, TransactionReceipt.class)));
+    }
+
+    @Test
+    public void testBlockWithTransactionHashes() throws IOException {
+        FstBlock fstBlock =
+                objectMapper.readValue(
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"number\":\"0x1b4\","
+                                + "\"extra\":[{}],\"uncles\":[\"0x4\"],\"sealFields\":[],"
+                                + "\"transactions\":[\"0x1\",\"0x2\"]}}",
+                        FstBlock.class);
+        FstBlock.Block block = fstBlock.getBlock();
+
+        assertThat(block.getNumberRaw(), is("0x1b4"));
+        assertThat(block.getUncles(), equalTo(Collections.singletonList("0x4")));
+        assertThat(block.getSealFields(), equalTo(Collections.<String>emptyList()));
+        assertThat(
+                block.getTransactions(),
+                equalTo(
+                        Arrays.<FstBlock.TransactionResult>asList(
+                                new FstBlock.TransactionHash("0x1"),
+                                new FstBlock.TransactionHash("0x2"))));
+    }
+
+    @Test
+    public void testBlockWithTransactionObjects() throws IOException {
+        String transaction = "{\"hash\":\"0x1\",\"blockNumber\":\"0x1b4\",\"v\":27}";
+        FstBlock fstBlock =
+                objectMapper.readValue(
+                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":{\"number\":\"0x1b4\","
+                                + "\"transactions\":["
+                                + transaction
+                                + "]}}",
+                        FstBlock.class);
+
+        assertThat(
+                fstBlock.getBlock().getTransactions(),
+                equalTo(
+                        Collections.<FstBlock.TransactionResult>singletonList(
+                                objectMapper.readValue(
+                                        transaction, FstBlock.TransactionObject.class))));
+    }
+
+    @Test
+    public void testNullResults() throws IOException {
+        assertThat(
+                objectMapper
+                        .readValue("{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":null}", FstBlock.class)
+                        .getBlock(),
+                nullValue());
+        assertThat(StreamingModelReader.readTransactionReceipt(parser("null")), nullValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsNonObject() throws IOException {
+        StreamingModelReader.readLog(parser("[]"), new Log());
+    }
+
+    private JsonParser parser(String json) throws IOException {
+        JsonParser parser = objectMapper.getFactory().createParser(json);
+        parser.nextToken();
+        return parser;
+    }
+}
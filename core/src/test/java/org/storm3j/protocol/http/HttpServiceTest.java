@@ -16,8 +16,12 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
 
 import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Protocol;
 import okhttp3.Response;
@@ -32,6 +36,7 @@ import org.storm3j.protocol.core.methods.response.FstSubscribe;
 import org.storm3j.protocol.exceptions.ClientConnectionException;
 import org.storm3j.protocol.websocket.events.NewHeadsNotification;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class HttpServiceTest {
@@ -105,6 +110,78 @@ public class HttpServiceTest {
         Assert.fail("No exception");
     }
 
+    @Test
+    public void testSendAsyncUsesAsynchronousCall() throws Exception {
+        Response response =
+                new Response.Builder()
+                        .code(200)
+                        .message("")
+                        .body(
+                                ResponseBody.create(
+                                        MediaType.parse("application/json"),
+                                        "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x10\"}"))
+                        .request(new okhttp3.Request.Builder().url(HttpService.DEFAULT_URL).build())
+                        .protocol(Protocol.HTTP_1_1)
+                        .build();
+
+        OkHttpClient httpClient = Mockito.mock(OkHttpClient.class);
+        Call call = Mockito.mock(Call.class);
+        Mockito.when(httpClient.newCall(Mockito.any())).thenReturn(call);
+        Mockito.doAnswer(
+                        invocation -> {
+                            Callback callback = (Callback) invocation.getArguments()[0];
+                            callback.onResponse(call, response);
+                            return null;
+                        })
+                .when(call)
+                .enqueue(Mockito.any());
+        HttpService mockedHttpService = new HttpService(httpClient);
+
+        Request<String, FstBlockNumber> request =
+                new Request<>(
+                        "fst_blockNumber",
+                        Collections.emptyList(),
+                        mockedHttpService,
+                        FstBlockNumber.class);
+        CompletableFuture<FstBlockNumber> result =
+                mockedHttpService.sendAsync(request, FstBlockNumber.class);
+
+        Mockito.verify(call, Mockito.never()).execute();
+        assertTrue(result.isDone());
+        assertEquals(16, result.get().getBlockNumber().intValue());
+    }
+
+    @Test
+    public void testCancelSendAsyncCancelsCall() {
+        OkHttpClient httpClient = Mockito.mock(OkHttpClient.class);
+        Call call = Mockito.mock(Call.class);
+        Mockito.when(httpClient.newCall(Mockito.any())).thenReturn(call);
+        HttpService mockedHttpService = new HttpService(httpClient);
+
+        Request<String, FstBlockNumber> request =
+                new Request<>(
+                        "fst_blockNumber",
+                        Collections.emptyList(),
+                        mockedHttpService,
+                        FstBlockNumber.class);
+        mockedHttpService.sendAsync(request, FstBlockNumber.class).cancel(true);
+
+        Mockito.verify(call).cancel();
+    }
+
+    @Test
+    public void testConfigureDispatcher() {
+        Dispatcher dispatcher = new Dispatcher();
+        OkHttpClient httpClient = new OkHttpClient.Builder().dispatcher(dispatcher).build();
+        HttpService service = new HttpService(httpClient);
+
+        service.setMaxRequests(16);
+        service.setMaxRequestsPerHost(8);
+
+        assertEquals(16, dispatcher.getMaxRequests());
+        assertEquals(8, dispatcher.getMaxRequestsPerHost());
+    }
+
     @Test(expected = UnsupportedOperationException.class)
     public void subscriptionNotSupported() {
         Request<Object, FstSubscribe> subscribeRequest =
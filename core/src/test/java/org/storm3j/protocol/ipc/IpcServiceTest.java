@@ -13,13 +13,20 @@
 package org.storm3j.protocol.ipc;
 
 import java.io.IOException;
+import java.util.Collections;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
 import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.NetVersion;
 import org.storm3j.protocol.core.methods.response.Storm3ClientVersion;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -52,4 +59,70 @@ public class IpcServiceTest {
 
         verify(ioFacade).write("{\"jsonrpc\":\"2.0\",\"method\":null,\"params\":null,\"id\":0}");
     }
+
+    @Test
+    public void testSendBatch() throws IOException {
+        Request<?, Storm3ClientVersion> clientVersion =
+                new Request<>(
+                        "web3_clientVersion",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        Storm3ClientVersion.class);
+        clientVersion.setId(1);
+        Request<?, NetVersion> netVersion =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        NetVersion.class);
+        netVersion.setId(2);
+
+        when(ioFacade.read())
+                .thenReturn(
+                        "[{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":\"3\"},"
+                                + "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                                + "\"result\":\"Geth/v1.5.4-stable-b70acf3c/darwin/go1.7.3\"}"
+                                + "]\n");
+
+        BatchResponse response =
+                new BatchRequest(ipcService).add(clientVersion).add(netVersion).send();
+
+        verify(ioFacade)
+                .write(
+                        "[{\"jsonrpc\":\"2.0\",\"method\":\"web3_clientVersion\","
+                                + "\"params\":[],\"id\":1},"
+                                + "{\"jsonrpc\":\"2.0\",\"method\":\"net_version\","
+                                + "\"params\":[],\"id\":2}]");
+        assertEquals(
+                "Geth/v1.5.4-stable-b70acf3c/darwin/go1.7.3",
+                response.getResponse(clientVersion).getStorm3ClientVersion());
+        assertEquals("3", response.getResponse(netVersion).getNetVersion());
+    }
+
+    @Test
+    public void testSendBatchWithUnansweredRequestFails() throws IOException {
+        Request<?, NetVersion> first =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        NetVersion.class);
+        first.setId(1);
+        Request<?, NetVersion> second =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        NetVersion.class);
+        second.setId(2);
+
+        when(ioFacade.read()).thenReturn("[{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"3\"}]\n");
+
+        try {
+            new BatchRequest(ipcService).add(first).add(second).send();
+            fail("Expected an IOException for the unanswered request");
+        } catch (IOException e) {
+            assertEquals("No batch reply for request ids: [2]", e.getMessage());
+        }
+    }
 }
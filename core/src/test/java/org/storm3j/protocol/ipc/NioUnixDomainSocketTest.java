@@ -0,0 +1,121 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.Storm3ClientVersion;
+
+import static org.junit.Assert.assertEquals;
+
+public class NioUnixDomainSocketTest {
+
+    private static final String RESPONSE =
+            "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                    + "\"result\":\"Geth/v1.5.4-stable-b70acf3c/darwin/go1.7.3\"}\n";
+
+    private Pipe pipe;
+    private ByteArrayOutputStream written;
+
+    @Before
+    public void setUp() throws IOException {
+        pipe = Pipe.open();
+        written = new ByteArrayOutputStream();
+    }
+
+    @Test
+    public void testWrite() throws IOException {
+        NioUnixDomainSocket socket = new NioUnixDomainSocket(new LoopbackChannel(), 16);
+
+        socket.write("test request");
+
+        assertEquals("test request", new String(written.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadExceedsBuffer() throws IOException {
+        NioUnixDomainSocket socket =
+                new NioUnixDomainSocket(new LoopbackChannel(), RESPONSE.length() / 3);
+        reply(RESPONSE);
+
+        assertEquals(RESPONSE.trim(), socket.read());
+    }
+
+    @Test
+    public void testSlowResponse() throws Exception {
+        NioUnixDomainSocket socket = new NioUnixDomainSocket(new LoopbackChannel(), 1024);
+        reply(RESPONSE.substring(0, 50));
+        new Thread(
+                        () -> {
+                            try {
+                                Thread.sleep(100);
+                                reply(RESPONSE.substring(50));
+                            } catch (Exception e) {
+                                throw new RuntimeException(e);
+                            }
+                        })
+                .start();
+
+        IpcService ipcService =
+                new IpcService() {
+                    @Override
+                    protected IOFacade getIO() {
+                        return socket;
+                    }
+                };
+        Storm3ClientVersion version = ipcService.send(new Request(), Storm3ClientVersion.class);
+
+        assertEquals(
+                "Geth/v1.5.4-stable-b70acf3c/darwin/go1.7.3", version.getStorm3ClientVersion());
+    }
+
+    private void reply(String segment) throws IOException {
+        pipe.sink().write(ByteBuffer.wrap(segment.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Reads node replies from the pipe and records written requests. */
+    private class LoopbackChannel implements ByteChannel {
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return pipe.source().read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            written.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return pipe.source().isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pipe.source().close();
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.protocol.core.methods.response.NetVersion;
+import org.storm3j.protocol.core.methods.response.Storm3ClientVersion;
+import org.storm3j.protocol.deserializer.StreamingModelReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PipelinedIpcServiceTest {
+
+    private Pipe pipe;
+    private ByteArrayOutputStream written;
+    private PipelinedIpcService ipcService;
+
+    @Before
+    public void setUp() throws IOException {
+        pipe = Pipe.open();
+        written = new ByteArrayOutputStream();
+        ipcService =
+                new PipelinedIpcService() {
+                    @Override
+                    protected ByteChannel openChannel() {
+                        return new LoopbackChannel();
+                    }
+                };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ipcService.close();
+    }
+
+    @Test
+    public void testPipelinedRequestsAreCorrelatedById() throws Exception {
+        Request<?, Storm3ClientVersion> clientVersion =
+                new Request<>(
+                        "web3_clientVersion",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        Storm3ClientVersion.class);
+        clientVersion.setId(1);
+        Request<?, NetVersion> netVersion =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        NetVersion.class);
+        netVersion.setId(2);
+
+        CompletableFuture<Storm3ClientVersion> clientVersionReply =
+                ipcService.sendAsync(clientVersion, Storm3ClientVersion.class);
+        CompletableFuture<NetVersion> netVersionReply =
+                ipcService.sendAsync(netVersion, NetVersion.class);
+
+        assertEquals(
+                "{\"jsonrpc\":\"2.0\",\"method\":\"web3_clientVersion\",\"params\":[],\"id\":1}"
+                        + "{\"jsonrpc\":\"2.0\",\"method\":\"net_version\",\"params\":[],\"id\":2}",
+                new String(written.toByteArray(), StandardCharsets.UTF_8));
+        assertFalse(clientVersionReply.isDone());
+
+        // Replies arrive out of order, split over several reads
+        reply("{\"jsonrpc\":\"2.0\",\"id\":2,\"res");
+        reply("ult\":\"3\"}\n{\"jsonrpc\":\"2.0\",\"id\":1,");
+        reply("\"result\":\"Geth/v1.9.0 {\\\"quoted\\\"}\"}\n");
+
+        assertEquals("3", netVersionReply.get(1, TimeUnit.SECONDS).getNetVersion());
+        assertEquals(
+                "Geth/v1.9.0 {\"quoted\"}",
+                clientVersionReply.get(1, TimeUnit.SECONDS).getStorm3ClientVersion());
+    }
+
+    @Test
+    public void testOutstandingRequestsFailWhenConnectionCloses() throws Exception {
+        Request<?, NetVersion> netVersion =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        NetVersion.class);
+        CompletableFuture<NetVersion> reply = ipcService.sendAsync(netVersion, NetVersion.class);
+
+        pipe.sink().close();
+
+        try {
+            reply.get(1, TimeUnit.SECONDS);
+            fail("Request should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+    @Test
+    public void testRequestWithoutReplyTimesOut() throws Exception {
+        ipcService.close();
+        ipcService =
+                new PipelinedIpcService(1, PipelinedIpcService.DEFAULT_BUFFER_SIZE, false, 100) {
+                    @Override
+                    protected ByteChannel openChannel() {
+                        return new LoopbackChannel();
+                    }
+                };
+        Request<?, NetVersion> netVersion =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        NetVersion.class);
+        netVersion.setId(1);
+
+        CompletableFuture<NetVersion> reply = ipcService.sendAsync(netVersion, NetVersion.class);
+
+        try {
+            reply.get(1, TimeUnit.SECONDS);
+            fail("Request should have timed out");
+        } catch (ExecutionException e) {
+            assertEquals("Request with id 1 timed out", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testStreamedReplySharesConnection() throws Exception {
+        Request<?, FstLog> getLogs =
+                new Request<>(
+                        "fst_getLogs", Collections.<String>emptyList(), ipcService, FstLog.class);
+        getLogs.setId(1);
+        Request<?, NetVersion> netVersion =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        ipcService,
+                        NetVersion.class);
+        netVersion.setId(2);
+
+        TestSubscriber<Log> subscriber =
+                getLogs.streamResult(StreamingModelReader.LOGS)
+                        .subscribeOn(Schedulers.io())
+                        .test();
+        CompletableFuture<NetVersion> netVersionReply =
+                ipcService.sendAsync(netVersion, NetVersion.class);
+        // The streamed request is sent from the subscribing thread
+        while (!new String(written.toByteArray(), StandardCharsets.UTF_8).contains("id\":1")) {
+            Thread.sleep(1);
+        }
+
+        reply("{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":\"3\"}\n");
+        reply(
+                "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":["
+                        + "{\"logIndex\":\"0x0\",\"address\":\"0x1\",\"topics\":[]},"
+                        + "{\"logIndex\":\"0x1\",\"address\":\"0x1\",\"topics\":[]}]}\n");
+
+        assertTrue(subscriber.awaitTerminalEvent(1, TimeUnit.SECONDS));
+        subscriber.assertValueCount(2).assertComplete();
+        assertEquals("0x1", subscriber.values().get(1).getLogIndexRaw());
+        assertEquals("3", netVersionReply.get(1, TimeUnit.SECONDS).getNetVersion());
+    }
+
+    private void reply(String segment) throws IOException {
+        pipe.sink().write(ByteBuffer.wrap(segment.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /** Reads node replies from the pipe and records written requests. */
+    private class LoopbackChannel implements ByteChannel {
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return pipe.source().read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            written.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return pipe.source().isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pipe.source().close();
+        }
+    }
+}
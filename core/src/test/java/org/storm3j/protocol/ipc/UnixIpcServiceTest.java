@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.Storm3ClientVersion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public class UnixIpcServiceTest {
+
+    private static final String RESPONSE =
+            "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                    + "\"result\":\"Geth/v1.5.4-stable-b70acf3c/darwin/go1.7.3\"}\n";
+
+    private final Deque<LoopbackChannel> channels = new ArrayDeque<>();
+    private int opened;
+    private UnixIpcService ipcService;
+
+    @Before
+    public void setUp() {
+        ipcService =
+                new UnixIpcService("unused", false, true) {
+                    @Override
+                    NioUnixDomainSocket openSocket() {
+                        opened++;
+                        return new NioUnixDomainSocket(channels.removeFirst(), 16);
+                    }
+                };
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        ipcService.close();
+    }
+
+    @Test
+    public void testSocketIsReusedAcrossRequests() throws Exception {
+        LoopbackChannel channel = new LoopbackChannel();
+        channels.add(channel);
+
+        for (int i = 0; i < 3; i++) {
+            // Replies are queued first, as a request blocks until its reply is read
+            channel.reply(RESPONSE);
+            assertEquals(
+                    "Geth/v1.5.4-stable-b70acf3c/darwin/go1.7.3",
+                    ipcService
+                            .send(new Request(), Storm3ClientVersion.class)
+                            .getStorm3ClientVersion());
+        }
+
+        assertEquals(1, opened);
+    }
+
+    @Test
+    public void testReconnectsAfterFailure() throws Exception {
+        LoopbackChannel broken = new LoopbackChannel();
+        LoopbackChannel replacement = new LoopbackChannel();
+        channels.add(broken);
+        channels.add(replacement);
+        broken.closeReplies();
+
+        try {
+            ipcService.send(new Request(), Storm3ClientVersion.class);
+            fail("Expected the closed socket to fail the request");
+        } catch (IOException e) {
+            assertFalse(broken.isOpen());
+        }
+
+        replacement.reply(RESPONSE);
+        ipcService.send(new Request(), Storm3ClientVersion.class);
+        assertEquals(2, opened);
+    }
+
+    /** Reads node replies from a pipe and records written requests. */
+    private static class LoopbackChannel implements ByteChannel {
+        private final Pipe pipe = Pipe.open();
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        LoopbackChannel() throws IOException {}
+
+        void reply(String reply) throws IOException {
+            pipe.sink().write(ByteBuffer.wrap(reply.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        void closeReplies() throws IOException {
+            pipe.sink().close();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return pipe.source().read(dst);
+        }
+
+        @Override
+        public int write(ByteBuffer src) {
+            int count = src.remaining();
+            byte[] bytes = new byte[count];
+            src.get(bytes);
+            written.write(bytes, 0, count);
+            return count;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return pipe.source().isOpen();
+        }
+
+        @Override
+        public void close() throws IOException {
+            pipe.source().close();
+        }
+    }
+}
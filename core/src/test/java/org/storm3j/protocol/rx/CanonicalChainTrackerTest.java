@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.rx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.request.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.utils.Numeric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CanonicalChainTrackerTest {
+
+    private final Map<String, FstBlock.Block> blocksByHash = new HashMap<>();
+    private final List<String> fetchedLogs = new ArrayList<>();
+    private final Map<String, List<FstLog.LogResult>> logsByHash = new HashMap<>();
+
+    private Storm3jService storm3jService;
+    private Storm3j storm3j;
+
+    @Before
+    public void setUp() throws Exception {
+        storm3jService = mock(Storm3jService.class);
+        storm3j = Storm3j.build(storm3jService, 1000, mock(ScheduledExecutorService.class));
+
+        when(storm3jService.send(any(Request.class), eq(FstBlock.class)))
+                .thenAnswer(
+                        invocation -> {
+                            Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                            FstBlock fstBlock = new FstBlock();
+                            fstBlock.setResult(blocksByHash.get(request.getParams().get(0)));
+                            return fstBlock;
+                        });
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenAnswer(
+                        invocation -> {
+                            Request<?, ?> request = (Request<?, ?>) invocation.getArguments()[0];
+                            String blockHash =
+                                    ((FstFilter) request.getParams().get(0)).getBlockHash();
+                            fetchedLogs.add(blockHash);
+                            FstLog fstLog = new FstLog();
+                            if (logsByHash.containsKey(blockHash)) {
+                                List<FstLog.LogResult> logs = logsByHash.get(blockHash);
+                                if (logs == null) {
+                                    fstLog.setError(new Response.Error(-32000, "Unavailable"));
+                                } else {
+                                    fstLog.setResult(logs);
+                                }
+                            } else {
+                                fstLog.setResult(
+                                        Collections.singletonList(newLog(blockHash, "0x0")));
+                            }
+                            return fstLog;
+                        });
+    }
+
+    @Test
+    public void testBlocksAreApplied() throws Exception {
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, false);
+        FstBlock.Block a0 = block(0, "a0", "genesis");
+        FstBlock.Block a1 = block(1, "a1", "a0");
+
+        assertEquals(Collections.singletonList("+a0"), describe(tracker.onBlock(a0)));
+        assertEquals(Collections.singletonList("+a1"), describe(tracker.onBlock(a1)));
+        // A head reported again is ignored
+        assertTrue(tracker.onBlock(a1).isEmpty());
+        verify(storm3jService, never()).send(any(Request.class), eq(FstBlock.class));
+    }
+
+    @Test
+    public void testSkippedBlocksAreFetched() throws Exception {
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, false);
+        tracker.onBlock(block(0, "a0", "genesis"));
+        block(1, "a1", "a0");
+        block(2, "a2", "a1");
+
+        List<ChainEvent> events = tracker.onBlock(block(3, "a3", "a2"));
+
+        assertEquals(Arrays.asList("+a1", "+a2", "+a3"), describe(events));
+        verify(storm3jService, times(2)).send(any(Request.class), eq(FstBlock.class));
+    }
+
+    @Test
+    public void testReorganisation() throws Exception {
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, false);
+        tracker.onBlock(block(0, "a0", "genesis"));
+        tracker.onBlock(block(1, "a1", "a0"));
+        tracker.onBlock(block(2, "a2", "a1"));
+        tracker.onBlock(block(3, "a3", "a2"));
+        block(2, "b2", "a1");
+
+        List<ChainEvent> events = tracker.onBlock(block(3, "b3", "b2"));
+
+        assertEquals(Arrays.asList("-a3", "-a2", "+b2", "+b3"), describe(events));
+        // Only the missing block of the new branch is fetched
+        verify(storm3jService, times(1)).send(any(Request.class), eq(FstBlock.class));
+
+        // The replaced branch is no longer tracked
+        events = tracker.onBlock(block(3, "a3", "a2"));
+        assertEquals(Arrays.asList("-b3", "-b2", "+a2", "+a3"), describe(events));
+    }
+
+    @Test
+    public void testShorterBranch() throws Exception {
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, false);
+        tracker.onBlock(block(0, "a0", "genesis"));
+        tracker.onBlock(block(1, "a1", "a0"));
+        tracker.onBlock(block(2, "a2", "a1"));
+
+        List<ChainEvent> events = tracker.onBlock(block(1, "b1", "a0"));
+
+        assertEquals(Arrays.asList("-a2", "-a1", "+b1"), describe(events));
+    }
+
+    @Test
+    public void testLogsAreRevertedWithTheirBlocks() throws Exception {
+        FstFilter logFilter = new FstFilter(null, null, "0x1").addSingleTopic("0x2");
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, 64, false, logFilter);
+        tracker.onBlock(block(0, "a0", "genesis"));
+        tracker.onBlock(block(1, "a1", "a0"));
+
+        List<ChainEvent> events = tracker.onBlock(block(1, "b1", "a0"));
+
+        assertEquals(2, events.size());
+        assertTrue(events.get(0).isReverted());
+        assertEquals("a1", events.get(0).getLogs().get(0).getBlockHash());
+        assertTrue(events.get(1).isApplied());
+        assertEquals("b1", events.get(1).getLogs().get(0).getBlockHash());
+        // Logs are fetched once per applied block, by hash
+        assertEquals(Arrays.asList("a0", "a1", "b1"), fetchedLogs);
+    }
+
+    @Test
+    public void testFailedLogFetchLeavesChainUnchanged() throws Exception {
+        FstFilter logFilter = new FstFilter(null, null, "0x1").addSingleTopic("0x2");
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, 64, false, logFilter);
+        tracker.onBlock(block(0, "a0", "genesis"));
+        tracker.onBlock(block(1, "a1", "a0"));
+        FstBlock.Block b1 = block(1, "b1", "a0");
+        logsByHash.put("b1", null);
+
+        try {
+            tracker.onBlock(b1);
+            fail("Expected the log fetch to fail");
+        } catch (IOException e) {
+            // The reorganisation is followed once the logs can be fetched
+        }
+
+        logsByHash.remove("b1");
+        List<ChainEvent> events = tracker.onBlock(b1);
+        assertEquals(Arrays.asList("-a1", "+b1"), describe(events));
+        assertEquals("a1", events.get(0).getLogs().get(0).getBlockHash());
+    }
+
+    @Test
+    public void testLogsAreInLogIndexOrder() throws Exception {
+        FstFilter logFilter = new FstFilter(null, null, "0x1").addSingleTopic("0x2");
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, 64, false, logFilter);
+        logsByHash.put("a0", Arrays.asList(newLog("a0", "0x2"), newLog("a0", "0x1")));
+
+        List<ChainEvent> events = tracker.onBlock(block(0, "a0", "genesis"));
+
+        List<Log> logs = events.get(0).getLogs();
+        assertEquals(BigInteger.ONE, logs.get(0).getLogIndex());
+        assertEquals(BigInteger.valueOf(2), logs.get(1).getLogIndex());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReorganisationDeeperThanTracked() throws Exception {
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, 2, false, null);
+        tracker.onBlock(block(0, "a0", "genesis"));
+        tracker.onBlock(block(1, "a1", "a0"));
+        tracker.onBlock(block(2, "a2", "a1"));
+        block(1, "b1", "a0");
+        block(2, "b2", "b1");
+
+        tracker.onBlock(block(3, "b3", "b2"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingBlock() throws Exception {
+        CanonicalChainTracker tracker = new CanonicalChainTracker(storm3j, false);
+        tracker.onBlock(block(0, "a0", "genesis"));
+
+        tracker.onBlock(block(2, "a2", "a1"));
+    }
+
+    private FstBlock.Block block(long number, String hash, String parentHash) {
+        FstBlock.Block block = new FstBlock.Block();
+        block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.setHash(hash);
+        block.setParentHash(parentHash);
+        blocksByHash.put(hash, block);
+        return block;
+    }
+
+    private static FstLog.LogObject newLog(String blockHash, String logIndex) {
+        return new FstLog.LogObject(
+                false,
+                logIndex,
+                "0x0",
+                "0x0",
+                blockHash,
+                "0x0",
+                "0x1",
+                "0x",
+                "mined",
+                Collections.singletonList("0x2"));
+    }
+
+    private static List<String> describe(List<ChainEvent> events) {
+        List<String> descriptions = new ArrayList<>();
+        for (ChainEvent event : events) {
+            descriptions.add((event.isApplied() ? "+" : "-") + event.getBlock().getHash());
+        }
+        return descriptions;
+    }
+}
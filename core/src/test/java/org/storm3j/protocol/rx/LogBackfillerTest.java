@@ -0,0 +1,252 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.rx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongUnaryOperator;
+
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.DefaultBlockParameter;
+import org.storm3j.protocol.core.DefaultBlockParameterNumber;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.request.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.utils.Numeric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LogBackfillerTest {
+
+    private static final String ADDRESS = "0x0000000000000000000000000000000000000001";
+    private static final int RESULT_LIMIT = 100;
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+    private final AtomicLong maxRangeSent = new AtomicLong();
+
+    private final FstFilter fstFilter =
+            new FstFilter(null, null, ADDRESS).addSingleTopic("0x01").addNullTopic();
+
+    private Storm3jService storm3jService;
+    private ScheduledExecutorService executor;
+    private Storm3j storm3j;
+
+    private LongUnaryOperator logsPerBlock = number -> number % 3;
+    private long timeoutRange = Long.MAX_VALUE;
+
+    @Before
+    public void setUp() throws Exception {
+        storm3jService = mock(Storm3jService.class);
+        executor = Executors.newScheduledThreadPool(8);
+        storm3j = Storm3j.build(storm3jService, 1000, executor);
+
+        when(storm3jService.send(any(Request.class), eq(FstLog.class)))
+                .thenAnswer(invocation -> getLogs((Request<?, ?>) invocation.getArguments()[0]));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testLogsAreEmittedInOrder() {
+        LogBackfiller backfiller = new LogBackfiller(storm3j, executor, 3, 10, 1000, 50);
+
+        List<Log> logs = backfill(backfiller, 0, 999);
+
+        assertEquals(expectedLogs(0, 999), logIds(logs));
+        assertTrue(maxInFlight.get() <= 3);
+    }
+
+    @Test
+    public void testRangeGrowsOnSparseResults() {
+        logsPerBlock = number -> 0;
+        LogBackfiller backfiller = new LogBackfiller(storm3j, executor, 1, 10, 1000, 50);
+
+        backfill(backfiller, 0, 999);
+
+        // Ranges of 10, 20, 40, 80, 160, 320 and the remaining 370 blocks
+        assertEquals(7, sent.get());
+        assertEquals(370, maxRangeSent.get());
+    }
+
+    @Test
+    public void testRangeIsSplitOnTooManyResults() {
+        logsPerBlock = number -> 10;
+        LogBackfiller backfiller = new LogBackfiller(storm3j, executor, 2, 64, 1000, 50);
+
+        List<Log> logs = backfill(backfiller, 0, 199);
+
+        assertEquals(expectedLogs(0, 199), logIds(logs));
+    }
+
+    @Test
+    public void testRangeIsSplitOnTimeout() {
+        timeoutRange = 16;
+        LogBackfiller backfiller = new LogBackfiller(storm3j, executor, 2, 100, 1000, 50);
+
+        List<Log> logs = backfill(backfiller, 0, 299);
+
+        assertEquals(expectedLogs(0, 299), logIds(logs));
+    }
+
+    @Test
+    public void testBlockOverLimitFails() {
+        logsPerBlock = number -> number == 5 ? RESULT_LIMIT + 1 : 1;
+        LogBackfiller backfiller = new LogBackfiller(storm3j, executor, 2, 10, 1000, 50);
+
+        TestSubscriber<Log> subscriber =
+                backfiller.backfill(fstFilter, BigInteger.ZERO, BigInteger.valueOf(19)).test();
+
+        assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        subscriber.assertError(IOException.class);
+    }
+
+    @Test
+    public void testOtherErrorsAreNotRetried() throws Exception {
+        FstLog fstLog = new FstLog();
+        fstLog.setError(new Response.Error(-32000, "header not found"));
+        when(storm3jService.send(any(Request.class), eq(FstLog.class))).thenReturn(fstLog);
+        LogBackfiller backfiller = new LogBackfiller(storm3j, executor, 1, 100, 1000, 50);
+
+        TestSubscriber<Log> subscriber =
+                backfiller.backfill(fstFilter, BigInteger.ZERO, BigInteger.valueOf(99)).test();
+
+        assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        subscriber.assertError(IOException.class);
+        verify(storm3jService, times(1)).send(any(Request.class), eq(FstLog.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new LogBackfiller(storm3j, executor).backfill(fstFilter, BigInteger.TEN, BigInteger.ONE);
+    }
+
+    private List<Log> backfill(LogBackfiller backfiller, long from, long to) {
+        TestSubscriber<Log> subscriber =
+                backfiller
+                        .backfill(fstFilter, BigInteger.valueOf(from), BigInteger.valueOf(to))
+                        .test();
+
+        assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        subscriber.assertComplete();
+        return subscriber.values();
+    }
+
+    private FstLog getLogs(Request<?, ?> request) throws Exception {
+        FstFilter filter = (FstFilter) request.getParams().get(0);
+        long from = blockNumber(filter.getFromBlock());
+        long to = blockNumber(filter.getToBlock());
+        // Each range keeps the addresses and topics of the backfilled filter
+        assertEquals(fstFilter.getAddress(), filter.getAddress());
+        assertEquals(fstFilter.getTopics(), filter.getTopics());
+
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            // Later ranges are returned sooner, so replies complete out of order
+            Thread.sleep(10 - from % 10);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        if (to - from + 1 > timeoutRange) {
+            throw new SocketTimeoutException("timeout");
+        }
+
+        List<FstLog.LogResult> results = new ArrayList<>();
+        for (long number = from; number <= to; number++) {
+            for (long index = 0; index < logsPerBlock.applyAsLong(number); index++) {
+                results.add(newLog(number, index));
+            }
+        }
+
+        FstLog fstLog = new FstLog();
+        if (results.size() > RESULT_LIMIT) {
+            fstLog.setError(
+                    new Response.Error(
+                            -32005, "query returned more than " + RESULT_LIMIT + " results"));
+            return fstLog;
+        }
+
+        sent.incrementAndGet();
+        maxRangeSent.accumulateAndGet(to - from + 1, Math::max);
+        // Logs are not required to be ordered
+        Collections.reverse(results);
+        fstLog.setResult(results);
+        return fstLog;
+    }
+
+    private static long blockNumber(DefaultBlockParameter blockParameter) {
+        return ((DefaultBlockParameterNumber) blockParameter).getBlockNumber().longValue();
+    }
+
+    private static FstLog.LogObject newLog(long blockNumber, long logIndex) {
+        return new FstLog.LogObject(
+                false,
+                Numeric.encodeQuantity(BigInteger.valueOf(logIndex)),
+                "0x0",
+                "0x" + blockNumber,
+                "0x" + blockNumber,
+                Numeric.encodeQuantity(BigInteger.valueOf(blockNumber)),
+                ADDRESS,
+                "0x",
+                "mined",
+                Collections.singletonList("0x01"));
+    }
+
+    private List<String> expectedLogs(long from, long to) {
+        List<String> ids = new ArrayList<>();
+        for (long number = from; number <= to; number++) {
+            for (long index = 0; index < logsPerBlock.applyAsLong(number); index++) {
+                ids.add(number + ":" + index);
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> logIds(List<Log> logs) {
+        List<String> ids = new ArrayList<>();
+        for (Log log : logs) {
+            ids.add(log.getBlockNumber() + ":" + log.getLogIndex());
+        }
+        return ids;
+    }
+}
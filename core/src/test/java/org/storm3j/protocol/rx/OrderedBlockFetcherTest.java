@@ -0,0 +1,180 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.rx;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import io.reactivex.subscribers.TestSubscriber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.utils.Numeric;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class OrderedBlockFetcherTest {
+
+    private final AtomicInteger sent = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private Storm3jService storm3jService;
+    private ScheduledExecutorService executor;
+    private Storm3j storm3j;
+
+    @Before
+    public void setUp() throws Exception {
+        storm3jService = mock(Storm3jService.class);
+        executor = Executors.newScheduledThreadPool(8);
+        storm3j = Storm3j.build(storm3jService, 1000, executor);
+
+        when(storm3jService.send(any(Request.class), eq(FstBlock.class)))
+                .thenAnswer(invocation -> fetch((Request<?, ?>) invocation.getArguments()[0]));
+        when(storm3jService.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(
+                        invocation -> {
+                            BatchRequest batch = (BatchRequest) invocation.getArguments()[0];
+                            List<Response<?>> responses = new ArrayList<>();
+                            for (Request<?, ?> request : batch.getRequests()) {
+                                responses.add(fetch(request));
+                            }
+                            return new BatchResponse(batch.getRequests(), responses);
+                        });
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBlocksAreEmittedInOrder() throws Exception {
+        OrderedBlockFetcher fetcher = new OrderedBlockFetcher(storm3j, executor, 3, 5, 1);
+
+        TestSubscriber<FstBlock> subscriber =
+                fetcher.fetch(BigInteger.ZERO, BigInteger.valueOf(19), false, true).test();
+
+        assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        subscriber.assertComplete();
+        assertEquals(range(0, 19), numbers(subscriber.values()));
+        assertTrue(maxInFlight.get() <= 3);
+        verify(storm3jService, never()).sendBatch(any(BatchRequest.class));
+    }
+
+    @Test
+    public void testDescending() {
+        OrderedBlockFetcher fetcher = new OrderedBlockFetcher(storm3j, executor, 3, 5, 1);
+
+        TestSubscriber<FstBlock> subscriber =
+                fetcher.fetch(BigInteger.valueOf(5), BigInteger.valueOf(9), false, false).test();
+
+        assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        List<Long> expected = range(5, 9);
+        Collections.reverse(expected);
+        assertEquals(expected, numbers(subscriber.values()));
+    }
+
+    @Test
+    public void testBatchMode() throws Exception {
+        OrderedBlockFetcher fetcher = new OrderedBlockFetcher(storm3j, executor, 2, 8, 4);
+
+        TestSubscriber<FstBlock> subscriber =
+                fetcher.fetch(BigInteger.ZERO, BigInteger.valueOf(9), true, true).test();
+
+        assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        assertEquals(range(0, 9), numbers(subscriber.values()));
+        // Chunks of 4, 4 and 2 blocks
+        verify(storm3jService, times(3)).sendBatch(any(BatchRequest.class));
+        verify(storm3jService, never()).send(any(Request.class), eq(FstBlock.class));
+    }
+
+    @Test
+    public void testSlowSubscriberBoundsPrefetch() throws Exception {
+        OrderedBlockFetcher fetcher = new OrderedBlockFetcher(storm3j, executor, 2, 2, 1);
+
+        TestSubscriber<FstBlock> subscriber =
+                fetcher.fetch(BigInteger.ZERO, BigInteger.valueOf(99), false, true).test(0);
+        Thread.sleep(500);
+
+        // Blocks held for the subscriber, plus those of the requests holding their slots
+        assertTrue(sent.get() <= 4);
+        subscriber.assertValueCount(0);
+
+        subscriber.request(Long.MAX_VALUE);
+        assertTrue(subscriber.awaitTerminalEvent(5, TimeUnit.SECONDS));
+        assertEquals(range(0, 99), numbers(subscriber.values()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() {
+        new OrderedBlockFetcher(storm3j, executor)
+                .fetch(BigInteger.TEN, BigInteger.ONE, false, true);
+    }
+
+    private FstBlock fetch(Request<?, ?> request) throws InterruptedException {
+        long number = Numeric.decodeQuantity((String) request.getParams().get(0)).longValue();
+        sent.incrementAndGet();
+        int current = inFlight.incrementAndGet();
+        maxInFlight.accumulateAndGet(current, Math::max);
+        try {
+            // Later blocks are returned sooner, so replies complete out of order
+            Thread.sleep(20 - number % 20);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+
+        FstBlock fstBlock = new FstBlock();
+        FstBlock.Block block = new FstBlock.Block();
+        block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        fstBlock.setResult(block);
+        return fstBlock;
+    }
+
+    private static List<Long> range(long first, long last) {
+        List<Long> numbers = new ArrayList<>();
+        for (long number = first; number <= last; number++) {
+            numbers.add(number);
+        }
+        return numbers;
+    }
+
+    private static List<Long> numbers(List<FstBlock> blocks) {
+        return blocks.stream()
+                .map(fstBlock -> fstBlock.getBlock().getNumber().longValue())
+                .collect(Collectors.toList());
+    }
+}
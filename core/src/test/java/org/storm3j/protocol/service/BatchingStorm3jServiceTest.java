@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.NetVersion;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BatchingStorm3jServiceTest {
+
+    private Storm3jService delegate;
+    private ScheduledExecutorService executor;
+    private BatchingStorm3jService service;
+
+    @Before
+    public void setUp() {
+        delegate = mock(Storm3jService.class);
+        executor = mock(ScheduledExecutorService.class);
+        service = new BatchingStorm3jService(delegate, 2, 10, TimeUnit.MILLISECONDS, executor);
+    }
+
+    @Test
+    public void testRequestsAreCoalescedWhenBatchIsFull() throws Exception {
+        Request<?, NetVersion> first = netVersionRequest();
+        Request<?, NetVersion> second = netVersionRequest();
+        NetVersion firstReply = netVersion("1");
+        NetVersion secondReply = netVersion("2");
+        BatchResponse batchResponse =
+                new BatchResponse(
+                        Arrays.asList(first, second), Arrays.asList(firstReply, secondReply));
+        when(delegate.sendBatchAsync(any(BatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(batchResponse));
+
+        CompletableFuture<NetVersion> firstResult = service.sendAsync(first, NetVersion.class);
+        assertFalse(firstResult.isDone());
+        verify(executor).schedule(any(Runnable.class), eq(10_000_000L), eq(TimeUnit.NANOSECONDS));
+
+        CompletableFuture<NetVersion> secondResult = service.sendAsync(second, NetVersion.class);
+
+        ArgumentCaptor<BatchRequest> batch = ArgumentCaptor.forClass(BatchRequest.class);
+        verify(delegate).sendBatchAsync(batch.capture());
+        assertEquals(Arrays.asList(first, second), batch.getValue().getRequests());
+        assertSame(firstReply, firstResult.get());
+        assertSame(secondReply, secondResult.get());
+        assertEquals(1, service.getStatistics().getBatchCount());
+        assertEquals(2, service.getStatistics().getMaxBatchSize());
+    }
+
+    @Test
+    public void testSingleRequestIsNotBatched() throws Exception {
+        Request<?, NetVersion> request = netVersionRequest();
+        NetVersion reply = netVersion("1");
+        when(delegate.sendAsync(request, NetVersion.class))
+                .thenReturn(CompletableFuture.completedFuture(reply));
+
+        CompletableFuture<NetVersion> result = service.sendAsync(request, NetVersion.class);
+        service.flush();
+
+        verify(delegate, never()).sendBatchAsync(any(BatchRequest.class));
+        assertTrue(result.isDone());
+        assertSame(reply, result.get());
+    }
+
+    @Test
+    public void testBatchFailureIsPropagatedToEveryRequest() {
+        CompletableFuture<BatchResponse> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IOException("boom"));
+        when(delegate.sendBatchAsync(any(BatchRequest.class))).thenReturn(failure);
+
+        CompletableFuture<NetVersion> first =
+                service.sendAsync(netVersionRequest(), NetVersion.class);
+        CompletableFuture<NetVersion> second =
+                service.sendAsync(netVersionRequest(), NetVersion.class);
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testMissingBatchResponseFailsEveryRequest() {
+        when(delegate.sendBatchAsync(any(BatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        CompletableFuture<NetVersion> first =
+                service.sendAsync(netVersionRequest(), NetVersion.class);
+        CompletableFuture<NetVersion> second =
+                service.sendAsync(netVersionRequest(), NetVersion.class);
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+    }
+
+    private Request<?, NetVersion> netVersionRequest() {
+        return new Request<>(
+                "net_version", Collections.<String>emptyList(), service, NetVersion.class);
+    }
+
+    private static NetVersion netVersion(String version) {
+        NetVersion netVersion = new NetVersion();
+        netVersion.setResult(version);
+        return netVersion;
+    }
+}
@@ -0,0 +1,233 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstBlockNumber;
+import org.storm3j.protocol.core.methods.response.FstGetTransactionReceipt;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CachingStorm3jServiceTest {
+
+    private static final String BLOCK_HASH =
+            "0xe670ec64341771606e55d6b4ca35a1a6b75ee3d5145a99d05921026d1527331";
+    private static final String TRANSACTION_HASH =
+            "0xb903239f8543d04b5dc1ba6579132b143087c68db1b2168786408fcbce568238";
+
+    private final ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+
+    private Storm3jService delegate;
+    private CachingStorm3jService service;
+
+    @Before
+    public void setUp() throws Exception {
+        delegate = mock(Storm3jService.class);
+        service = new CachingStorm3jService(delegate, 1024 * 1024);
+
+        FstBlockNumber blockNumber = new FstBlockNumber();
+        blockNumber.setResult("0x64");
+        when(delegate.send(any(Request.class), eq(FstBlockNumber.class))).thenReturn(blockNumber);
+        when(delegate.sendAsync(any(Request.class), eq(FstBlockNumber.class)))
+                .thenReturn(CompletableFuture.completedFuture(blockNumber));
+    }
+
+    @Test
+    public void testBlockByHashIsCached() throws Exception {
+        replyWith("{\"hash\":\"" + BLOCK_HASH + "\",\"number\":\"0x10\"}");
+
+        FstBlock first = service.send(blockByHash(), FstBlock.class);
+        Request<?, FstBlock> request = blockByHash();
+        FstBlock second = service.send(request, FstBlock.class);
+
+        verify(delegate, times(1))
+                .send(any(Request.class), eq(CachingStorm3jService.JsonResult.class));
+        assertEquals(request.getId(), second.getId());
+        assertEquals(first.getBlock(), second.getBlock());
+        assertEquals(BLOCK_HASH, second.getBlock().getHash());
+        assertEquals(1, service.getCache().getHitCount());
+    }
+
+    @Test
+    public void testCachedReplyAsync() throws Exception {
+        replyWith("{\"hash\":\"" + BLOCK_HASH + "\",\"number\":\"0x10\"}");
+
+        service.sendAsync(blockByHash(), FstBlock.class).get();
+        FstBlock block = service.sendAsync(blockByHash(), FstBlock.class).get();
+
+        verify(delegate, times(1))
+                .sendAsync(any(Request.class), eq(CachingStorm3jService.JsonResult.class));
+        assertEquals(BLOCK_HASH, block.getBlock().getHash());
+    }
+
+    @Test
+    public void testLatestBlockIsNotCached() throws Exception {
+        when(delegate.send(any(Request.class), eq(FstBlock.class))).thenReturn(new FstBlock());
+
+        service.send(blockByNumber("latest"), FstBlock.class);
+        service.send(blockByNumber("latest"), FstBlock.class);
+
+        verify(delegate, times(2)).send(any(Request.class), eq(FstBlock.class));
+        assertEquals(0, service.getCache().getEntryCount());
+    }
+
+    @Test
+    public void testOnlyFinalBlocksAreCached() throws Exception {
+        service.send(blockNumber(), FstBlockNumber.class);
+        assertEquals(100, service.getHeadBlockNumber());
+        replyWith("{\"number\":\"0x58\"}");
+        when(delegate.send(any(Request.class), eq(FstBlock.class))).thenReturn(new FstBlock());
+
+        service.send(blockByNumber("0x58"), FstBlock.class);
+        service.send(blockByNumber("0x58"), FstBlock.class);
+        service.send(blockByNumber("0x59"), FstBlock.class);
+        service.send(blockByNumber("0x59"), FstBlock.class);
+
+        verify(delegate, times(1))
+                .send(any(Request.class), eq(CachingStorm3jService.JsonResult.class));
+        verify(delegate, times(2)).send(any(Request.class), eq(FstBlock.class));
+    }
+
+    @Test
+    public void testPendingReceiptIsNotCached() throws Exception {
+        service.send(blockNumber(), FstBlockNumber.class);
+        replyWith(null);
+
+        FstGetTransactionReceipt receipt =
+                service.send(receipt(), FstGetTransactionReceipt.class);
+        service.send(receipt(), FstGetTransactionReceipt.class);
+
+        assertFalse(receipt.getTransactionReceipt().isPresent());
+        verify(delegate, times(2))
+                .send(any(Request.class), eq(CachingStorm3jService.JsonResult.class));
+    }
+
+    @Test
+    public void testMinedReceiptIsCached() throws Exception {
+        service.send(blockNumber(), FstBlockNumber.class);
+        replyWith(
+                "{\"transactionHash\":\""
+                        + TRANSACTION_HASH
+                        + "\",\"blockNumber\":\"0x10\",\"status\":\"0x1\"}");
+
+        service.send(receipt(), FstGetTransactionReceipt.class);
+        FstGetTransactionReceipt receipt =
+                service.send(receipt(), FstGetTransactionReceipt.class);
+
+        assertEquals(
+                TRANSACTION_HASH, receipt.getTransactionReceipt().get().getTransactionHash());
+        verify(delegate, times(1))
+                .send(any(Request.class), eq(CachingStorm3jService.JsonResult.class));
+    }
+
+    @Test
+    public void testErrorIsNotCached() throws Exception {
+        CachingStorm3jService.JsonResult reply = new CachingStorm3jService.JsonResult();
+        reply.setJsonrpc("2.0");
+        reply.setError(new Response.Error(-32000, "header not found"));
+        when(delegate.send(any(Request.class), eq(CachingStorm3jService.JsonResult.class)))
+                .thenReturn(reply);
+
+        FstBlock block = service.send(blockByHash(), FstBlock.class);
+        service.send(blockByHash(), FstBlock.class);
+
+        assertTrue(block.hasError());
+        assertEquals("header not found", block.getError().getMessage());
+        assertEquals(0, service.getCache().getEntryCount());
+    }
+
+    @Test
+    public void testEvictionBySize() {
+        byte[] value = new byte[100];
+        long entrySize = ResponseCache.ENTRY_OVERHEAD_BYTES + 2 + value.length;
+        ResponseCache cache = new ResponseCache(entrySize * 2, true);
+
+        cache.put("a", value);
+        cache.put("b", value);
+        cache.get("a");
+        cache.put("c", value);
+
+        assertArrayEquals(value, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(entrySize * 2, cache.getSizeInBytes());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void testValueLargerThanCacheIsNotCached() {
+        ResponseCache cache = new ResponseCache(100);
+        cache.put("a", new byte[100]);
+
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    private void replyWith(String result) throws IOException {
+        CachingStorm3jService.JsonResult reply = new CachingStorm3jService.JsonResult();
+        reply.setJsonrpc("2.0");
+        reply.setResult(result == null ? null : objectMapper.readTree(result));
+        when(delegate.send(any(Request.class), eq(CachingStorm3jService.JsonResult.class)))
+                .thenReturn(reply);
+        when(delegate.sendAsync(any(Request.class), eq(CachingStorm3jService.JsonResult.class)))
+                .thenReturn(CompletableFuture.completedFuture(reply));
+    }
+
+    private Request<?, FstBlockNumber> blockNumber() {
+        return new Request<>(
+                "fst_blockNumber", Collections.emptyList(), delegate, FstBlockNumber.class);
+    }
+
+    private Request<?, FstBlock> blockByHash() {
+        return new Request<>(
+                "fst_getBlockByHash", Arrays.asList(BLOCK_HASH, false), delegate, FstBlock.class);
+    }
+
+    private Request<?, FstBlock> blockByNumber(String blockNumber) {
+        return new Request<>(
+                "fst_getBlockByNumber",
+                Arrays.asList(blockNumber, false),
+                delegate,
+                FstBlock.class);
+    }
+
+    private Request<?, FstGetTransactionReceipt> receipt() {
+        return new Request<>(
+                "fst_getTransactionReceipt",
+                Collections.singletonList(TRANSACTION_HASH),
+                delegate,
+                FstGetTransactionReceipt.class);
+    }
+}
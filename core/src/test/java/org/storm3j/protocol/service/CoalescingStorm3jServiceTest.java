@@ -0,0 +1,186 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.FstBlockNumber;
+import org.storm3j.protocol.core.methods.response.FstGetBalance;
+import org.storm3j.protocol.core.methods.response.FstSendTransaction;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CoalescingStorm3jServiceTest {
+
+    private Storm3jService delegate;
+    private CoalescingStorm3jService service;
+
+    @Before
+    public void setUp() {
+        delegate = mock(Storm3jService.class);
+        service = new CoalescingStorm3jService(delegate);
+    }
+
+    @Test
+    public void testIdenticalRequestsShareReply() throws Exception {
+        CompletableFuture<FstBlockNumber> reply = new CompletableFuture<>();
+        when(delegate.sendAsync(any(Request.class), eq(FstBlockNumber.class))).thenReturn(reply);
+
+        CompletableFuture<FstBlockNumber> first =
+                service.sendAsync(blockNumber(), FstBlockNumber.class);
+        CompletableFuture<FstBlockNumber> second =
+                service.sendAsync(blockNumber(), FstBlockNumber.class);
+        assertEquals(1, service.getInFlightCount());
+
+        FstBlockNumber response = new FstBlockNumber();
+        reply.complete(response);
+
+        assertSame(response, first.get());
+        assertSame(response, second.get());
+        verify(delegate, times(1)).sendAsync(any(Request.class), eq(FstBlockNumber.class));
+        assertEquals(1, service.getStatistics().getHitCount());
+        assertEquals(1, service.getStatistics().getMissCount());
+        assertEquals(0, service.getInFlightCount());
+    }
+
+    @Test
+    public void testRequestsAfterCompletionAreSent() throws Exception {
+        when(delegate.sendAsync(any(Request.class), eq(FstBlockNumber.class)))
+                .thenReturn(CompletableFuture.completedFuture(new FstBlockNumber()));
+
+        service.sendAsync(blockNumber(), FstBlockNumber.class).get();
+        service.sendAsync(blockNumber(), FstBlockNumber.class).get();
+
+        verify(delegate, times(2)).sendAsync(any(Request.class), eq(FstBlockNumber.class));
+        assertEquals(0, service.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void testDifferentParamsAreNotMerged() {
+        when(delegate.sendAsync(any(Request.class), eq(FstGetBalance.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        service.sendAsync(balance("0x1"), FstGetBalance.class);
+        service.sendAsync(balance("0x2"), FstGetBalance.class);
+        service.sendAsync(balance("0x1"), FstGetBalance.class);
+
+        verify(delegate, times(2)).sendAsync(any(Request.class), eq(FstGetBalance.class));
+        assertEquals(1, service.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void testAddressCaseIsIgnored() {
+        when(delegate.sendAsync(any(Request.class), eq(FstGetBalance.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        service.sendAsync(balance("0xabcdef"), FstGetBalance.class);
+        service.sendAsync(balance("0xABCDEF"), FstGetBalance.class);
+        service.sendAsync(balance("0xAbCdEf"), FstGetBalance.class);
+
+        verify(delegate, times(1)).sendAsync(any(Request.class), eq(FstGetBalance.class));
+        assertEquals(2, service.getStatistics().getHitCount());
+    }
+
+    @Test
+    public void testWritesAreNotMerged() {
+        Request<?, FstSendTransaction> request =
+                new Request<>(
+                        "fst_sendRawTransaction",
+                        Collections.singletonList("0xf8"),
+                        delegate,
+                        FstSendTransaction.class);
+        when(delegate.sendAsync(request, FstSendTransaction.class))
+                .thenReturn(new CompletableFuture<>());
+
+        service.sendAsync(request, FstSendTransaction.class);
+        service.sendAsync(request, FstSendTransaction.class);
+
+        verify(delegate, times(2)).sendAsync(request, FstSendTransaction.class);
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception {
+        CompletableFuture<FstBlockNumber> reply = new CompletableFuture<>();
+        when(delegate.sendAsync(any(Request.class), eq(FstBlockNumber.class))).thenReturn(reply);
+
+        CompletableFuture<FstBlockNumber> first =
+                service.sendAsync(blockNumber(), FstBlockNumber.class);
+        CompletableFuture<FstBlockNumber> second =
+                service.sendAsync(blockNumber(), FstBlockNumber.class);
+        reply.completeExceptionally(new IOException("failed"));
+
+        try {
+            second.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertTrue(first.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCancellationIsNotShared() {
+        CompletableFuture<FstBlockNumber> reply = new CompletableFuture<>();
+        when(delegate.sendAsync(any(Request.class), eq(FstBlockNumber.class))).thenReturn(reply);
+
+        CompletableFuture<FstBlockNumber> first =
+                service.sendAsync(blockNumber(), FstBlockNumber.class);
+        CompletableFuture<FstBlockNumber> second =
+                service.sendAsync(blockNumber(), FstBlockNumber.class);
+        first.cancel(true);
+
+        assertFalse(second.isDone());
+        assertFalse(reply.isCancelled());
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        FstBlockNumber response = new FstBlockNumber();
+        when(delegate.send(any(Request.class), eq(FstBlockNumber.class))).thenReturn(response);
+
+        assertSame(response, service.send(blockNumber(), FstBlockNumber.class));
+        assertEquals(0, service.getInFlightCount());
+    }
+
+    private Request<?, FstBlockNumber> blockNumber() {
+        return new Request<>(
+                "fst_blockNumber", Collections.emptyList(), delegate, FstBlockNumber.class);
+    }
+
+    private Request<?, FstGetBalance> balance(String address) {
+        return new Request<>(
+                "fst_getBalance",
+                Arrays.asList(address, "latest"),
+                delegate,
+                FstGetBalance.class);
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlockNumber;
+import org.storm3j.protocol.exceptions.ClientConnectionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConcurrencyLimitingStorm3jServiceTest {
+
+    private Storm3jService delegate;
+    private ConcurrencyLimitingStorm3jService service;
+
+    @Before
+    public void setUp() {
+        delegate = mock(Storm3jService.class);
+        service = new ConcurrencyLimitingStorm3jService(delegate, 2, 1, 10);
+    }
+
+    @Test
+    public void testExcessRequestsAreQueued() throws Exception {
+        Request<?, FstBlockNumber> first = request();
+        Request<?, FstBlockNumber> second = request();
+        Request<?, FstBlockNumber> third = request();
+        CompletableFuture<FstBlockNumber> firstReply = new CompletableFuture<>();
+        when(delegate.sendAsync(first, FstBlockNumber.class)).thenReturn(firstReply);
+        when(delegate.sendAsync(second, FstBlockNumber.class))
+                .thenReturn(new CompletableFuture<>());
+        FstBlockNumber reply = new FstBlockNumber();
+        when(delegate.sendAsync(third, FstBlockNumber.class))
+                .thenReturn(CompletableFuture.completedFuture(reply));
+
+        service.sendAsync(first, FstBlockNumber.class);
+        service.sendAsync(second, FstBlockNumber.class);
+        CompletableFuture<FstBlockNumber> result = service.sendAsync(third, FstBlockNumber.class);
+
+        assertFalse(result.isDone());
+        assertEquals(1, service.getQueueDepth());
+        verify(delegate, never()).sendAsync(third, FstBlockNumber.class);
+
+        firstReply.complete(new FstBlockNumber());
+
+        assertSame(reply, result.get());
+        assertEquals(0, service.getQueueDepth());
+    }
+
+    @Test
+    public void testCancelledQueuedRequestIsNotSent() {
+        Request<?, FstBlockNumber> first = request();
+        Request<?, FstBlockNumber> second = request();
+        Request<?, FstBlockNumber> third = request();
+        CompletableFuture<FstBlockNumber> firstReply = new CompletableFuture<>();
+        when(delegate.sendAsync(first, FstBlockNumber.class)).thenReturn(firstReply);
+        when(delegate.sendAsync(second, FstBlockNumber.class))
+                .thenReturn(new CompletableFuture<>());
+
+        service.sendAsync(first, FstBlockNumber.class);
+        service.sendAsync(second, FstBlockNumber.class);
+        service.sendAsync(third, FstBlockNumber.class).cancel(true);
+        assertEquals(0, service.getQueueDepth());
+
+        firstReply.complete(new FstBlockNumber());
+
+        verify(delegate, never()).sendAsync(third, FstBlockNumber.class);
+        assertEquals(1, service.getLimiter().getInFlight());
+    }
+
+    @Test
+    public void testPermitsAreReleasedForMissingBatchResponse() throws Exception {
+        BatchRequest batch = new BatchRequest(delegate).add(request()).add(request());
+        when(delegate.sendBatch(batch)).thenReturn(null);
+        when(delegate.sendBatchAsync(batch))
+                .thenReturn(CompletableFuture.<BatchResponse>completedFuture(null));
+
+        assertNull(service.sendBatch(batch));
+        assertNull(service.sendBatchAsync(batch).get());
+
+        assertEquals(0, service.getLimiter().getInFlight());
+    }
+
+    @Test
+    public void testPermitsAreReleasedWhenCheckingResponseFails() throws Exception {
+        Request<?, FstBlockNumber> request = request();
+        FstBlockNumber reply = mock(FstBlockNumber.class);
+        when(reply.hasError()).thenThrow(new IllegalStateException("Broken response"));
+        when(delegate.send(request, FstBlockNumber.class)).thenReturn(reply);
+
+        try {
+            service.send(request, FstBlockNumber.class);
+            fail("Checking the response should have failed");
+        } catch (IllegalStateException e) {
+            assertEquals(0, service.getLimiter().getInFlight());
+        }
+    }
+
+    @Test
+    public void testLimitShrinksOnErrors() throws Exception {
+        service = new ConcurrencyLimitingStorm3jService(delegate, 10, 1, 10);
+        Request<?, FstBlockNumber> request = request();
+        when(delegate.send(request, FstBlockNumber.class))
+                .thenThrow(new ClientConnectionException("Invalid response received: 429; "));
+
+        for (int i = 0; i < 5; i++) {
+            try {
+                service.send(request, FstBlockNumber.class);
+                fail();
+            } catch (ClientConnectionException e) {
+                // expected
+            }
+        }
+
+        assertTrue(service.getLimit() < 10);
+        assertEquals(0, service.getLimiter().getInFlight());
+    }
+
+    @Test
+    public void testLimitShrinksOnRateLimitedResponse() throws Exception {
+        service = new ConcurrencyLimitingStorm3jService(delegate, 10, 1, 10);
+        Request<?, FstBlockNumber> request = request();
+        FstBlockNumber rateLimited = new FstBlockNumber();
+        rateLimited.setError(new Response.Error(Response.Error.LIMIT_EXCEEDED, "rate limited"));
+        when(delegate.sendAsync(request, FstBlockNumber.class))
+                .thenReturn(CompletableFuture.completedFuture(rateLimited));
+
+        service.sendAsync(request, FstBlockNumber.class).get();
+
+        assertEquals(9, service.getLimit());
+    }
+
+    @Test
+    public void testLimitDoesNotGoBelowMinimum() throws Exception {
+        Request<?, FstBlockNumber> request = request();
+        when(delegate.send(request, FstBlockNumber.class)).thenThrow(new IOException("timeout"));
+
+        for (int i = 0; i < 20; i++) {
+            try {
+                service.send(request, FstBlockNumber.class);
+                fail();
+            } catch (IOException e) {
+                // expected
+            }
+        }
+
+        assertEquals(1, service.getLimit());
+    }
+
+    @Test
+    public void testLimitGrowsWhenHealthy() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10);
+        for (int i = 0; i < 5; i++) {
+            int limit = limiter.getLimit();
+            limiter.acquire(limit);
+            limiter.release(limit, TimeUnit.MILLISECONDS.toNanos(10), false);
+        }
+
+        assertTrue(limiter.getLimit() > 2);
+    }
+
+    @Test
+    public void testLimitShrinksWhenLatencyRises() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 1, 10);
+        limiter.acquire(10);
+        limiter.release(10, TimeUnit.MILLISECONDS.toNanos(10), false);
+
+        limiter.acquire(10);
+        limiter.release(10, TimeUnit.MILLISECONDS.toNanos(100), false);
+
+        assertEquals(9, limiter.getLimit());
+    }
+
+    @Test
+    public void testLargeBatchIsAdmittedWhenIdle() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 1, 10);
+
+        assertTrue(limiter.acquire(5).isDone());
+        assertFalse(limiter.acquire(1).isDone());
+        assertEquals(1, limiter.getQueueDepth());
+    }
+
+    private Request<?, FstBlockNumber> request() {
+        return new Request<>(
+                "fst_blockNumber", Collections.emptyList(), delegate, FstBlockNumber.class);
+    }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import io.reactivex.Flowable;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.protocol.core.methods.response.FstSendTransaction;
+import org.storm3j.protocol.core.methods.response.Log;
+import org.storm3j.protocol.core.methods.response.NetVersion;
+import org.storm3j.protocol.deserializer.StreamingModelReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class FailoverStorm3jServiceTest {
+
+    private Storm3jService first;
+    private Storm3jService second;
+    private FailoverStorm3jService service;
+
+    @Before
+    public void setUp() {
+        first = mock(Storm3jService.class);
+        second = mock(Storm3jService.class);
+        service =
+                new FailoverStorm3jService(
+                        Arrays.asList(first, second),
+                        2,
+                        30,
+                        TimeUnit.SECONDS,
+                        mock(ScheduledExecutorService.class));
+    }
+
+    @Test
+    public void testRetriesReadOnlyRequestOnAnotherEndpoint() throws Exception {
+        Request<?, NetVersion> request = request("net_version", NetVersion.class);
+        NetVersion reply = new NetVersion();
+        when(first.send(request, NetVersion.class)).thenThrow(new IOException("Connection reset"));
+        when(second.send(request, NetVersion.class)).thenReturn(reply);
+
+        assertSame(reply, service.send(request, NetVersion.class));
+        assertEquals(1, service.getEndpoints().get(0).getFailureCount());
+    }
+
+    @Test
+    public void testRetriesAsyncReadOnlyRequestOnAnotherEndpoint() throws Exception {
+        Request<?, NetVersion> request = request("net_version", NetVersion.class);
+        NetVersion reply = new NetVersion();
+        CompletableFuture<NetVersion> failure = new CompletableFuture<>();
+        failure.completeExceptionally(new IOException("Connection reset"));
+        when(first.sendAsync(request, NetVersion.class)).thenReturn(failure);
+        when(second.sendAsync(request, NetVersion.class))
+                .thenReturn(CompletableFuture.completedFuture(reply));
+
+        assertSame(reply, service.sendAsync(request, NetVersion.class).get());
+    }
+
+    @Test
+    public void testDoesNotRetryTransactions() throws Exception {
+        Request<?, FstSendTransaction> request =
+                request("fst_sendRawTransaction", FstSendTransaction.class);
+        when(first.send(request, FstSendTransaction.class))
+                .thenThrow(new IOException("Connection reset"));
+
+        try {
+            service.send(request, FstSendTransaction.class);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Connection reset", e.getMessage());
+        }
+        verify(second, never()).send(any(Request.class), any());
+    }
+
+    @Test
+    public void testEjectsFailingEndpoint() throws Exception {
+        Request<?, FstSendTransaction> request =
+                request("fst_sendRawTransaction", FstSendTransaction.class);
+        FstSendTransaction reply = new FstSendTransaction();
+        when(first.send(request, FstSendTransaction.class))
+                .thenThrow(new IOException("Connection reset"));
+        when(second.send(request, FstSendTransaction.class)).thenReturn(reply);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                service.send(request, FstSendTransaction.class);
+                fail();
+            } catch (IOException e) {
+                // expected
+            }
+        }
+        assertTrue(service.getEndpoints().get(0).isEjected());
+
+        assertSame(reply, service.send(request, FstSendTransaction.class));
+        verify(first, times(2)).send(request, FstSendTransaction.class);
+    }
+
+    @Test
+    public void testRoutesToLessBusyEndpoint() throws Exception {
+        Request<?, NetVersion> request = request("net_version", NetVersion.class);
+        when(first.sendAsync(request, NetVersion.class)).thenReturn(new CompletableFuture<>());
+        when(second.sendAsync(request, NetVersion.class)).thenReturn(new CompletableFuture<>());
+
+        service.sendAsync(request, NetVersion.class);
+        service.sendAsync(request, NetVersion.class);
+
+        verify(first).sendAsync(request, NetVersion.class);
+        verify(second).sendAsync(request, NetVersion.class);
+        assertEquals(1, service.getEndpoints().get(0).getInFlightRequests());
+        assertEquals(1, service.getEndpoints().get(1).getInFlightRequests());
+    }
+
+    @Test
+    public void testFilterRequestsGoToInstallingEndpoint() throws Exception {
+        String filterId = installBlockFilter(first, "0x1f");
+        keepBusy(first);
+
+        FstLog logs = new FstLog();
+        when(first.send(any(Request.class), eq(FstLog.class))).thenReturn(logs);
+
+        assertSame(logs, service.send(filterChanges(filterId), FstLog.class));
+        assertEquals(Collections.singletonList("0x1f"), sentFilterParams(first));
+        verify(second, never()).send(any(Request.class), eq(FstLog.class));
+    }
+
+    @Test
+    public void testSameFilterIdOnDifferentEndpoints() throws Exception {
+        String firstFilterId = installBlockFilter(first, "0x1");
+        keepBusy(first);
+        String secondFilterId = installBlockFilter(second, "0x1");
+        assertNotEquals(firstFilterId, secondFilterId);
+
+        FstLog firstLogs = new FstLog();
+        FstLog secondLogs = new FstLog();
+        when(first.send(any(Request.class), eq(FstLog.class))).thenReturn(firstLogs);
+        when(second.send(any(Request.class), eq(FstLog.class))).thenReturn(secondLogs);
+
+        assertSame(secondLogs, service.send(filterChanges(secondFilterId), FstLog.class));
+        assertSame(firstLogs, service.send(filterChanges(firstFilterId), FstLog.class));
+        assertEquals(Collections.singletonList("0x1"), sentFilterParams(first));
+        assertEquals(Collections.singletonList("0x1"), sentFilterParams(second));
+    }
+
+    @Test
+    public void testBatchIsSplitByFilterEndpoint() throws Exception {
+        String firstFilterId = installBlockFilter(first, "0x1");
+        keepBusy(first);
+        String secondFilterId = installBlockFilter(second, "0x1");
+
+        FstLog firstLogs = new FstLog();
+        FstLog secondLogs = new FstLog();
+        when(first.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(invocation -> batchReply(invocation.getArguments()[0], firstLogs));
+        when(second.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(invocation -> batchReply(invocation.getArguments()[0], secondLogs));
+
+        BatchRequest batchRequest =
+                new BatchRequest(service)
+                        .add(filterChanges(firstFilterId))
+                        .add(filterChanges(secondFilterId));
+        BatchResponse batchResponse = service.sendBatch(batchRequest);
+
+        assertSame(batchRequest.getRequests(), batchResponse.getRequests());
+        assertEquals(Arrays.asList(firstLogs, secondLogs), batchResponse.getResponses());
+    }
+
+    @Test
+    public void testRetriesBatchWithoutResponseOnAnotherEndpoint() throws Exception {
+        BatchRequest batchRequest =
+                new BatchRequest(service).add(request("net_version", NetVersion.class));
+        BatchResponse reply =
+                new BatchResponse(
+                        batchRequest.getRequests(), Collections.singletonList(new NetVersion()));
+        when(first.sendBatch(any(BatchRequest.class))).thenReturn(null);
+        when(second.sendBatch(any(BatchRequest.class))).thenReturn(reply);
+
+        assertSame(reply, service.sendBatch(batchRequest));
+        assertEquals(1, service.getEndpoints().get(0).getFailureCount());
+    }
+
+    @Test
+    public void testRetriesAsyncBatchWithoutResponseOnAnotherEndpoint() throws Exception {
+        BatchRequest batchRequest =
+                new BatchRequest(service).add(request("net_version", NetVersion.class));
+        BatchResponse reply =
+                new BatchResponse(
+                        batchRequest.getRequests(), Collections.singletonList(new NetVersion()));
+        when(first.sendBatchAsync(any(BatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(second.sendBatchAsync(any(BatchRequest.class)))
+                .thenReturn(CompletableFuture.completedFuture(reply));
+
+        assertSame(reply, service.sendBatchAsync(batchRequest).get());
+    }
+
+    @Test
+    public void testStreamingUsesBestEndpoint() {
+        Log log = new Log();
+        keepBusy(first);
+        when(second.sendStreaming(any(Request.class), eq(StreamingModelReader.LOGS)))
+                .thenReturn(Flowable.just(log));
+
+        service.sendStreaming(request("fst_getLogs", FstLog.class), StreamingModelReader.LOGS)
+                .test()
+                .assertValues(log)
+                .assertComplete();
+
+        verify(first, never()).sendStreaming(any(Request.class), any());
+        assertEquals(0, service.getEndpoints().get(1).getInFlightRequests());
+    }
+
+    @Test
+    public void testCancelPropagatesToEndpoint() {
+        Request<?, NetVersion> request = request("net_version", NetVersion.class);
+        CompletableFuture<NetVersion> reply = new CompletableFuture<>();
+        when(first.sendAsync(request, NetVersion.class)).thenReturn(reply);
+
+        service.sendAsync(request, NetVersion.class).cancel(true);
+
+        assertTrue(reply.isCancelled());
+        assertFalse(service.getEndpoints().get(0).isEjected());
+        assertEquals(0, service.getEndpoints().get(0).getInFlightRequests());
+    }
+
+    private String installBlockFilter(Storm3jService endpoint, String nodeFilterId)
+            throws IOException {
+        Request<?, FstFilter> newFilter = request("fst_newBlockFilter", FstFilter.class);
+        FstFilter filter = new FstFilter();
+        filter.setResult(nodeFilterId);
+        when(endpoint.send(newFilter, FstFilter.class)).thenReturn(filter);
+        return service.send(newFilter, FstFilter.class).getResult();
+    }
+
+    // Keeps an endpoint busy, so it is no longer the best one
+    private void keepBusy(Storm3jService endpoint) {
+        Request<?, NetVersion> netVersion = request("net_version", NetVersion.class);
+        AtomicBoolean busy = new AtomicBoolean();
+        for (Storm3jService other : Arrays.asList(first, second)) {
+            when(other.sendAsync(netVersion, NetVersion.class))
+                    .thenAnswer(
+                            invocation -> {
+                                busy.compareAndSet(false, other == endpoint);
+                                return new CompletableFuture<>();
+                            });
+        }
+
+        // The endpoint may not be the best one yet, e.g. if the other one has no latency samples
+        while (!busy.get()) {
+            service.sendAsync(netVersion, NetVersion.class);
+        }
+    }
+
+    private Request<?, FstLog> filterChanges(String filterId) {
+        return new Request<>(
+                "fst_getFilterChanges", Collections.singletonList(filterId), service, FstLog.class);
+    }
+
+    private static List<?> sentFilterParams(Storm3jService endpoint) throws IOException {
+        ArgumentCaptor<Request> sent = ArgumentCaptor.forClass(Request.class);
+        verify(endpoint).send(sent.capture(), eq(FstLog.class));
+        return sent.getValue().getParams();
+    }
+
+    private static BatchResponse batchReply(Object batchRequest, FstLog logs) {
+        List<Request<?, ? extends Response<?>>> requests =
+                ((BatchRequest) batchRequest).getRequests();
+        assertEquals(Collections.singletonList("0x1"), requests.get(0).getParams());
+        return new BatchResponse(requests, Collections.singletonList(logs));
+    }
+
+    private <T extends Response<?>> Request<?, T> request(
+            String method, Class<T> responseType) {
+        return new Request<>(method, Collections.<String>emptyList(), service, responseType);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.service;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstCall;
+import org.storm3j.protocol.core.methods.response.FstSendTransaction;
+import org.storm3j.utils.HashedWheelTimer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HedgingStorm3jServiceTest {
+
+    private Storm3jService delegate;
+    private Storm3jService hedgeDelegate;
+    private HashedWheelTimer timer;
+    private HedgingStorm3jService service;
+
+    @Before
+    public void setUp() {
+        delegate = mock(Storm3jService.class);
+        hedgeDelegate = mock(Storm3jService.class);
+        timer = mock(HashedWheelTimer.class);
+        when(timer.newTimeout(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenReturn(mock(HashedWheelTimer.Timeout.class));
+        service =
+                new HedgingStorm3jService(
+                        delegate,
+                        hedgeDelegate,
+                        95,
+                        5,
+                        TimeUnit.MILLISECONDS,
+                        0.05,
+                        timer,
+                        false);
+    }
+
+    @Test
+    public void testHedgeWinsAndOriginalIsCancelled() throws Exception {
+        Request<?, FstCall> request = request("fst_call", FstCall.class);
+        CompletableFuture<FstCall> original = new CompletableFuture<>();
+        FstCall hedgeReply = new FstCall();
+        when(delegate.sendAsync(request, FstCall.class)).thenReturn(original);
+        when(hedgeDelegate.sendAsync(any(Request.class), eq(FstCall.class)))
+                .thenReturn(CompletableFuture.completedFuture(hedgeReply));
+
+        CompletableFuture<FstCall> result = service.sendAsync(request, FstCall.class);
+        assertFalse(result.isDone());
+
+        fireHedgeTimer();
+
+        assertSame(hedgeReply, result.get());
+        assertTrue(original.isCancelled());
+        assertEquals(1, service.getStatistics().getHedgeCount());
+        assertEquals(1, service.getStatistics().getHedgeWinCount());
+    }
+
+    @Test
+    public void testHedgeUsesNewRequestId() throws Exception {
+        Request<?, FstCall> request = request("fst_call", FstCall.class);
+        when(delegate.sendAsync(request, FstCall.class)).thenReturn(new CompletableFuture<>());
+        when(hedgeDelegate.sendAsync(any(Request.class), eq(FstCall.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        service.sendAsync(request, FstCall.class);
+        fireHedgeTimer();
+
+        ArgumentCaptor<Request> duplicate = ArgumentCaptor.forClass(Request.class);
+        verify(hedgeDelegate).sendAsync(duplicate.capture(), eq(FstCall.class));
+        assertEquals("fst_call", duplicate.getValue().getMethod());
+        assertFalse(request.getId() == duplicate.getValue().getId());
+    }
+
+    @Test
+    public void testNoHedgeWhenOriginalCompletesFirst() throws Exception {
+        Request<?, FstCall> request = request("fst_call", FstCall.class);
+        FstCall reply = new FstCall();
+        when(delegate.sendAsync(request, FstCall.class))
+                .thenReturn(CompletableFuture.completedFuture(reply));
+
+        assertSame(reply, service.sendAsync(request, FstCall.class).get());
+
+        verify(timer, never()).newTimeout(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        verify(hedgeDelegate, never()).sendAsync(any(Request.class), any());
+    }
+
+    @Test
+    public void testTransactionsAreNeverHedged() throws Exception {
+        Request<?, FstSendTransaction> request =
+                request("fst_sendRawTransaction", FstSendTransaction.class);
+        CompletableFuture<FstSendTransaction> reply = new CompletableFuture<>();
+        when(delegate.sendAsync(request, FstSendTransaction.class)).thenReturn(reply);
+
+        assertSame(reply, service.sendAsync(request, FstSendTransaction.class));
+
+        verify(timer, never()).newTimeout(any(Runnable.class), anyLong(), any(TimeUnit.class));
+        assertEquals(0, service.getStatistics().getRequestCount());
+    }
+
+    @Test
+    public void testBudgetCapsHedges() throws Exception {
+        when(delegate.sendAsync(any(Request.class), eq(FstCall.class)))
+                .thenReturn(new CompletableFuture<>());
+        when(hedgeDelegate.sendAsync(any(Request.class), eq(FstCall.class)))
+                .thenReturn(new CompletableFuture<>());
+
+        int requests = 100;
+        for (int i = 0; i < requests; i++) {
+            service.sendAsync(request("fst_call", FstCall.class), FstCall.class);
+        }
+        ArgumentCaptor<Runnable> hedges = ArgumentCaptor.forClass(Runnable.class);
+        verify(timer, times(requests))
+                .newTimeout(hedges.capture(), anyLong(), any(TimeUnit.class));
+        hedges.getAllValues().forEach(Runnable::run);
+
+        // The bucket was already full while the requests were sent, so only its tokens are spent
+        long expected = (long) HedgingStorm3jService.MAX_BUDGET_TOKENS;
+        assertEquals(expected, service.getStatistics().getHedgeCount());
+        assertEquals(requests - expected, service.getStatistics().getBudgetExhaustedCount());
+    }
+
+    @Test
+    public void testLosingOriginalsAreSampled() throws Exception {
+        service =
+                new HedgingStorm3jService(
+                        delegate, hedgeDelegate, 95, 5, TimeUnit.MILLISECONDS, 1, timer, false);
+        when(delegate.sendAsync(any(Request.class), eq(FstCall.class)))
+                .thenAnswer(invocation -> new CompletableFuture<>());
+        when(hedgeDelegate.sendAsync(any(Request.class), eq(FstCall.class)))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(new FstCall()));
+
+        // Hedge every request straight away
+        when(timer.newTimeout(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenAnswer(
+                        invocation -> {
+                            ((Runnable) invocation.getArguments()[0]).run();
+                            return mock(HashedWheelTimer.Timeout.class);
+                        });
+
+        for (int i = 0; i < HedgingStorm3jService.MIN_SAMPLES; i++) {
+            service.sendAsync(request("fst_call", FstCall.class), FstCall.class);
+        }
+
+        // Without samples from the cancelled originals, the initial delay would still be used
+        assertEquals(
+                HedgingStorm3jService.MIN_SAMPLES, service.getStatistics().getHedgeWinCount());
+        assertTrue(
+                service.getHedgeDelay(TimeUnit.MILLISECONDS)
+                        < HedgingStorm3jService.DEFAULT_INITIAL_DELAY_MILLIS);
+    }
+
+    private void fireHedgeTimer() {
+        ArgumentCaptor<Runnable> hedge = ArgumentCaptor.forClass(Runnable.class);
+        verify(timer).newTimeout(hedge.capture(), anyLong(), any(TimeUnit.class));
+        hedge.getValue().run();
+    }
+
+    private <T extends Response<?>> Request<?, T> request(String method, Class<T> responseType) {
+        return new Request<>(method, Collections.<String>emptyList(), service, responseType);
+    }
+}
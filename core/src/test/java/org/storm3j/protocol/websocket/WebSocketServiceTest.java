@@ -14,40 +14,58 @@ package org.storm3j.protocol.websocket;
 
 import java.io.IOException;
 import java.net.ConnectException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.reactivex.Flowable;
 import io.reactivex.disposables.Disposable;
+import org.java_websocket.exceptions.WebsocketNotConnectedException;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
 import org.reactivestreams.Subscriber;
 import org.reactivestreams.Subscription;
 
+import org.storm3j.protocol.ObjectMapperFactory;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
 import org.storm3j.protocol.core.Request;
 import org.storm3j.protocol.core.Response;
 import org.storm3j.protocol.core.methods.response.FstSubscribe;
+import org.storm3j.protocol.core.methods.response.NetVersion;
 import org.storm3j.protocol.core.methods.response.Storm3ClientVersion;
 import org.storm3j.protocol.websocket.events.NewHeadsNotification;
+import org.storm3j.utils.HashedWheelTimer;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.contains;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -56,9 +74,9 @@ public class WebSocketServiceTest {
     private static final int REQUEST_ID = 1;
 
     private WebSocketClient webSocketClient = mock(WebSocketClient.class);
-    private ScheduledExecutorService executorService = mock(ScheduledExecutorService.class);
+    private HashedWheelTimer timer = mock(HashedWheelTimer.class);
 
-    private WebSocketService service = new WebSocketService(webSocketClient, executorService, true);
+    private WebSocketService service = new WebSocketService(webSocketClient, timer, true);
 
     private Request<?, Storm3ClientVersion> request =
             new Request<>(
@@ -178,6 +196,27 @@ public class WebSocketServiceTest {
         assertEquals("geth-version", reply.get().getStorm3ClientVersion());
     }
 
+    @Test
+    public void testReceiveReplyAsBytes() throws Exception {
+        CompletableFuture<Storm3ClientVersion> reply =
+                service.sendAsync(request, Storm3ClientVersion.class);
+        service.onWebSocketMessage(
+                ByteBuffer.wrap(
+                        "{\"result\":\"geth-version\",\"jsonrpc\":\"2.0\",\"id\":1}"
+                                .getBytes(StandardCharsets.UTF_8)));
+
+        assertTrue(reply.isDone());
+        assertEquals("geth-version", reply.get().getStorm3ClientVersion());
+    }
+
+    @Test
+    public void testReceiveInvalidReplyAsBytes() throws Exception {
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Failed to parse incoming WebSocket message");
+        service.sendAsync(request, Storm3ClientVersion.class);
+        service.onWebSocketMessage(ByteBuffer.wrap(new byte[] {'{'}));
+    }
+
     @Test
     public void testReceiveError() throws Exception {
         CompletableFuture<Storm3ClientVersion> reply =
@@ -190,6 +229,40 @@ public class WebSocketServiceTest {
         assertEquals(new Response.Error(-1, "Error message"), version.getError());
     }
 
+    @Test
+    public void testReceiveBatchReply() throws Exception {
+        Request<?, NetVersion> netVersionRequest =
+                new Request<>(
+                        "net_version", Collections.<String>emptyList(), service, NetVersion.class);
+        netVersionRequest.setId(2);
+
+        CompletableFuture<BatchResponse> reply =
+                new BatchRequest(service).add(request).add(netVersionRequest).sendAsync();
+
+        verify(webSocketClient)
+                .send(
+                        "["
+                                + "{\"jsonrpc\":\"2.0\",\"method\":\"web3_clientVersion\","
+                                + "\"params\":[],\"id\":1},"
+                                + "{\"jsonrpc\":\"2.0\",\"method\":\"net_version\","
+                                + "\"params\":[],\"id\":2}"
+                                + "]");
+
+        service.onWebSocketMessage(
+                "["
+                        + "{\"jsonrpc\":\"2.0\",\"id\":2,\"result\":\"3\"},"
+                        + "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"geth-version\"}"
+                        + "]");
+
+        assertTrue(reply.isDone());
+        BatchResponse batchResponse = reply.get();
+        assertEquals(
+                "geth-version", batchResponse.getResponse(request).getStorm3ClientVersion());
+        assertEquals("3", batchResponse.getResponse(netVersionRequest).getNetVersion());
+        assertFalse(service.isWaitingForReply(1));
+        assertFalse(service.isWaitingForReply(2));
+    }
+
     @Test
     public void testCloseRequestWhenConnectionIsClosed() throws Exception {
         thrown.expect(ExecutionException.class);
@@ -203,7 +276,7 @@ public class WebSocketServiceTest {
 
     @Test(expected = ExecutionException.class)
     public void testCancelRequestAfterTimeout() throws Exception {
-        when(executorService.schedule(
+        when(timer.newTimeout(
                         any(Runnable.class),
                         eq(WebSocketService.REQUEST_TIMEOUT),
                         eq(TimeUnit.SECONDS)))
@@ -221,6 +294,150 @@ public class WebSocketServiceTest {
         reply.get();
     }
 
+    @Test
+    public void testCancelTimeoutOnReply() throws Exception {
+        HashedWheelTimer.Timeout timeout = mock(HashedWheelTimer.Timeout.class);
+        when(timer.newTimeout(any(Runnable.class), anyLong(), any(TimeUnit.class)))
+                .thenReturn(timeout);
+
+        service.sendAsync(request, Storm3ClientVersion.class);
+        sendGethVersionReply();
+
+        verify(timeout).cancel();
+    }
+
+    @Test
+    public void testStatistics() throws Exception {
+        CompletableFuture<Storm3ClientVersion> reply =
+                service.sendAsync(request, Storm3ClientVersion.class);
+        assertEquals(1, service.getStatistics().getInFlightRequests());
+
+        sendGethVersionReply();
+        reply.get();
+
+        WebSocketStatistics statistics = service.getStatistics();
+        assertEquals(0, statistics.getInFlightRequests());
+        assertEquals(1, statistics.getSentRequests());
+        assertEquals(1, statistics.getCompletedRequests());
+        assertEquals(0, statistics.getFailedRequests());
+        assertFalse(service.isWaitingForReply(REQUEST_ID));
+    }
+
+    @Test
+    public void testTimeoutStatistics() throws Exception {
+        when(timer.newTimeout(
+                        any(Runnable.class),
+                        eq(WebSocketService.REQUEST_TIMEOUT),
+                        eq(TimeUnit.SECONDS)))
+                .then(
+                        invocation -> {
+                            Runnable runnable = invocation.getArgumentAt(0, Runnable.class);
+                            runnable.run();
+                            return null;
+                        });
+
+        service.sendAsync(request, Storm3ClientVersion.class);
+
+        WebSocketStatistics statistics = service.getStatistics();
+        assertEquals(0, statistics.getInFlightRequests());
+        assertEquals(1, statistics.getFailedRequests());
+        assertEquals(1, statistics.getTimedOutRequests());
+    }
+
+    @Test
+    public void testMaxInFlightRequests() throws Exception {
+        service.setMaxInFlightRequests(1);
+        service.sendAsync(request, Storm3ClientVersion.class);
+
+        // Queued without blocking the caller
+        CompletableFuture<NetVersion> secondReply =
+                service.sendAsync(netVersionRequest(2), NetVersion.class);
+        assertFalse(secondReply.isDone());
+        verify(webSocketClient, never()).send(contains("net_version"));
+
+        sendGethVersionReply();
+
+        verify(webSocketClient).send(contains("net_version"));
+        assertTrue(service.isWaitingForReply(2));
+    }
+
+    @Test
+    public void testSendFailureWhileDisconnectedReleasesInFlight() throws Exception {
+        service.setMaxInFlightRequests(1);
+        doThrow(new WebsocketNotConnectedException())
+                .when(webSocketClient)
+                .send(contains("web3_clientVersion"));
+
+        CompletableFuture<Storm3ClientVersion> reply =
+                service.sendAsync(request, Storm3ClientVersion.class);
+
+        try {
+            reply.get();
+            fail("Request should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertFalse(service.isWaitingForReply(REQUEST_ID));
+
+        // The permit of the failed request is available again
+        service.sendAsync(netVersionRequest(2), NetVersion.class);
+        verify(webSocketClient).send(contains("net_version"));
+        assertEquals(1, service.getStatistics().getInFlightRequests());
+    }
+
+    @Test
+    public void testBatchSendFailureWhileDisconnectedReleasesInFlight() throws Exception {
+        service.setMaxInFlightRequests(2);
+        doThrow(new WebsocketNotConnectedException())
+                .when(webSocketClient)
+                .send(startsWith("["));
+        BatchRequest batch = new BatchRequest(service).add(request).add(netVersionRequest(2));
+
+        CompletableFuture<BatchResponse> reply = service.sendBatchAsync(batch);
+
+        assertTrue(reply.isCompletedExceptionally());
+        assertFalse(service.isWaitingForReply(REQUEST_ID));
+        assertFalse(service.isWaitingForReply(2));
+        assertEquals(0, service.getStatistics().getInFlightRequests());
+    }
+
+    @Test
+    public void testQueuedRequestsAreSentInOrder() throws Exception {
+        service.setMaxInFlightRequests(1);
+        service.sendAsync(request, Storm3ClientVersion.class);
+        service.sendAsync(netVersionRequest(2), NetVersion.class);
+        service.sendAsync(netVersionRequest(3), NetVersion.class);
+
+        sendGethVersionReply();
+        assertTrue(service.isWaitingForReply(2));
+        assertFalse(service.isWaitingForReply(3));
+
+        sendNetVersionReply(2);
+        assertTrue(service.isWaitingForReply(3));
+    }
+
+    @Test
+    public void testQueuedRequestTimesOut() throws Exception {
+        service.setMaxInFlightRequests(1);
+        service.sendAsync(request, Storm3ClientVersion.class);
+        CompletableFuture<NetVersion> secondReply =
+                service.sendAsync(netVersionRequest(2), NetVersion.class);
+
+        // The request timeout of the first request, then the queue timeout of the second
+        ArgumentCaptor<Runnable> timeouts = ArgumentCaptor.forClass(Runnable.class);
+        verify(timer, times(2))
+                .newTimeout(
+                        timeouts.capture(),
+                        eq(WebSocketService.REQUEST_TIMEOUT),
+                        eq(TimeUnit.SECONDS));
+        timeouts.getAllValues().get(1).run();
+
+        assertTrue(secondReply.isCompletedExceptionally());
+        assertEquals(1, service.getStatistics().getTimedOutRequests());
+        assertEquals(1, service.getStatistics().getInFlightRequests());
+        verify(webSocketClient, never()).send(contains("net_version"));
+    }
+
     @Test
     public void testSyncRequest() throws Exception {
         CountDownLatch requestSent = new CountDownLatch(1);
@@ -255,7 +472,7 @@ public class WebSocketServiceTest {
         service.close();
 
         verify(webSocketClient).close();
-        verify(executorService).shutdown();
+        verify(timer).stop();
     }
 
     @Test
@@ -386,6 +603,65 @@ public class WebSocketServiceTest {
         assertEquals("Connection was closed", actualThrowable.get().getMessage());
     }
 
+    @Test
+    public void testResumeSubscriptionAfterReconnect() throws Exception {
+        ObjectMapper objectMapper = ObjectMapperFactory.getObjectMapper();
+        when(webSocketClient.reconnectBlocking()).thenReturn(true);
+        service.setReconnectPolicy(1, 0, TimeUnit.MILLISECONDS);
+
+        // Replies synchronously to every request, like a node whose head is block 5
+        doAnswer(
+                        invocation -> {
+                            String payload = invocation.getArgumentAt(0, String.class);
+                            JsonNode request = objectMapper.readTree(payload);
+                            if (request.isArray()) {
+                                StringBuilder reply = new StringBuilder("[");
+                                for (JsonNode blockRequest : request) {
+                                    String number = blockRequest.get("params").get(0).asText();
+                                    reply.append(reply.length() > 1 ? "," : "")
+                                            .append(jsonRpcReply(blockRequest, newHead(number)));
+                                }
+                                service.onWebSocketMessage(reply.append("]").toString());
+                                return null;
+                            }
+
+                            String method = request.get("method").asText();
+                            if (method.equals("fst_subscribe")) {
+                                service.onWebSocketMessage(jsonRpcReply(request, "\"0x2\""));
+                            } else if (method.equals("fst_blockNumber")) {
+                                // Blocks announced while backfilling
+                                sendNewHeadEvent("0x2", "0x5");
+                                sendNewHeadEvent("0x2", "0x6");
+                                service.onWebSocketMessage(jsonRpcReply(request, "\"0x5\""));
+                            }
+                            return null;
+                        })
+                .when(webSocketClient)
+                .send(anyString());
+
+        Request<?, FstSubscribe> newHeadsRequest =
+                new Request<>(
+                        "fst_subscribe",
+                        Collections.singletonList("newHeads"),
+                        service,
+                        FstSubscribe.class);
+        List<String> blockNumbers = new CopyOnWriteArrayList<>();
+        CountDownLatch resumed = new CountDownLatch(6);
+        service.subscribe(newHeadsRequest, "fst_unsubscribe", NewHeadsNotification.class)
+                .subscribe(
+                        notification -> {
+                            blockNumbers.add(notification.getParams().getResult().getNumber());
+                            resumed.countDown();
+                        });
+
+        sendNewHeadEvent("0x2", "0x1");
+        sendNewHeadEvent("0x2", "0x2");
+        service.onWebSocketClose();
+
+        assertTrue(resumed.await(2, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("0x1", "0x2", "0x3", "0x4", "0x5", "0x6"), blockNumbers);
+    }
+
     @Test
     public void testIfCloseObserverIfSubscriptionRequestFailed() throws Exception {
         CountDownLatch errorReceived = new CountDownLatch(1);
@@ -453,6 +729,22 @@ public class WebSocketServiceTest {
                         + "}");
     }
 
+    private Request<?, NetVersion> netVersionRequest(long id) {
+        Request<?, NetVersion> netVersionRequest =
+                new Request<>(
+                        "net_version",
+                        Collections.<String>emptyList(),
+                        service,
+                        NetVersion.class);
+        netVersionRequest.setId(id);
+        return netVersionRequest;
+    }
+
+    private void sendNetVersionReply(long id) throws IOException {
+        service.onWebSocketMessage(
+                "{\"jsonrpc\":\"2.0\",\"id\":" + id + ",\"result\":\"3\"}");
+    }
+
     private void sendGethVersionReply() throws IOException {
         service.onWebSocketMessage(
                 "{"
@@ -508,4 +800,27 @@ public class WebSocketServiceTest {
                         + "  }"
                         + "}");
     }
+
+    private void sendNewHeadEvent(String subscriptionId, String blockNumber) throws IOException {
+        service.onWebSocketMessage(
+                "{"
+                        + "  \"jsonrpc\":\"2.0\","
+                        + "  \"method\":\"fst_subscription\","
+                        + "  \"params\":{"
+                        + "    \"subscription\":\""
+                        + subscriptionId
+                        + "\","
+                        + "    \"result\":"
+                        + newHead(blockNumber)
+                        + "  }"
+                        + "}");
+    }
+
+    private static String newHead(String blockNumber) {
+        return "{\"number\":\"" + blockNumber + "\"}";
+    }
+
+    private static String jsonRpcReply(JsonNode request, String result) {
+        return "{\"jsonrpc\":\"2.0\",\"id\":" + request.get("id") + ",\"result\":" + result + "}";
+    }
 }
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.tx;
+
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.core.DefaultBlockParameter;
+import org.storm3j.protocol.core.DefaultBlockParameterName;
+import org.storm3j.protocol.core.DefaultBlockParameterNumber;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CallResultCacheTest {
+
+    private static final String TO = "0x6bc272fcfcf89c14cebfc57b8f1543f5137f97de";
+    private static final String DATA = "0x70a08231";
+
+    private TransactionManager transactionManager;
+    private CallResultCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        transactionManager = mock(TransactionManager.class);
+        when(transactionManager.getFromAddress()).thenReturn("0x1");
+        when(transactionManager.sendCall(
+                        anyString(), anyString(), any(DefaultBlockParameter.class)))
+                .thenReturn("0x2a");
+        cache = new CallResultCache(2);
+    }
+
+    @Test
+    public void testCallAtNumberedBlockIsCached() throws IOException {
+        DefaultBlockParameter block = new DefaultBlockParameterNumber(100);
+
+        assertEquals("0x2a", cache.sendCall(transactionManager, TO, DATA, block));
+        assertEquals(
+                "0x2a",
+                cache.sendCall(
+                        transactionManager, TO, DATA, new DefaultBlockParameterNumber(100)));
+
+        verify(transactionManager, times(1)).sendCall(TO, DATA, block);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testCallAtLatestBlockIsNotCached() throws IOException {
+        cache.sendCall(transactionManager, TO, DATA, DefaultBlockParameterName.LATEST);
+        cache.sendCall(transactionManager, TO, DATA, DefaultBlockParameterName.LATEST);
+
+        verify(transactionManager, times(2)).sendCall(TO, DATA, DefaultBlockParameterName.LATEST);
+        assertEquals(0, cache.getEntryCount());
+    }
+
+    @Test
+    public void testKeyIncludesBlockAndData() throws IOException {
+        cache.sendCall(transactionManager, TO, DATA, new DefaultBlockParameterNumber(100));
+        cache.sendCall(transactionManager, TO, DATA, new DefaultBlockParameterNumber(101));
+        cache.sendCall(transactionManager, TO, DATA + "00", new DefaultBlockParameterNumber(100));
+
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            cache.sendCall(transactionManager, TO, DATA, new DefaultBlockParameterNumber(i));
+        }
+
+        assertEquals(2, cache.getEntryCount());
+    }
+
+    @Test
+    public void testCallKey() {
+        assertEquals(
+                new CallResultCache.CallKey("0x1", TO, DATA, 1),
+                new CallResultCache.CallKey("0x1", TO.toUpperCase(), DATA, 1));
+        assertNotEquals(
+                new CallResultCache.CallKey("0x1", TO, DATA, 1),
+                new CallResultCache.CallKey("0x2", TO, DATA, 1));
+        assertNotEquals(
+                new CallResultCache.CallKey("0x1", "0x12", "0x3", 1),
+                new CallResultCache.CallKey("0x1", "0x1", "0x23", 1));
+        assertNotEquals(
+                new CallResultCache.CallKey(null, TO, DATA, 1),
+                new CallResultCache.CallKey("", TO, DATA, 1));
+    }
+
+    @Test
+    public void testCallKeysDifferingInLongCallDataAreDistinct() {
+        StringBuilder data = new StringBuilder("0x");
+        for (int i = 0; i < 1000; i++) {
+            data.append("ab");
+        }
+        CallResultCache.CallKey key =
+                new CallResultCache.CallKey("0x1", TO, data.toString() + "0", 1);
+        assertNotEquals(key, new CallResultCache.CallKey("0x1", TO, data.toString() + "1", 1));
+        assertEquals(
+                key,
+                new CallResultCache.CallKey("0x1", TO, data.toString().toUpperCase() + "0", 1));
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.tx;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Flowable;
+import io.reactivex.schedulers.TestScheduler;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import org.storm3j.protocol.Storm3j;
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.DefaultBlockParameter;
+import org.storm3j.protocol.core.DefaultBlockParameterName;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.request.FstFilter;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.core.methods.response.FstLog;
+import org.storm3j.utils.Numeric;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LatestCallResultCacheTest {
+
+    private static final String CONTRACT = "0x6bc272fcfcf89c14cebfc57b8f1543f5137f97de";
+    private static final String OTHER_CONTRACT = "0x2a65aca4d5fc5b5c859090a6c34d164135398226";
+    private static final String DATA = "0x70a08231";
+
+    private TransactionManager transactionManager;
+    private Set<String> touched;
+    private LatestCallResultCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        transactionManager = mock(TransactionManager.class);
+        when(transactionManager.getFromAddress()).thenReturn("0x1");
+        when(transactionManager.sendCall(
+                        anyString(), anyString(), any(DefaultBlockParameter.class)))
+                .thenReturn("0x2a");
+        touched = new HashSet<>();
+        cache = new LatestCallResultCache(mock(Storm3j.class), 100, block -> touched);
+    }
+
+    @Test
+    public void testNotCachedBeforeFirstBlock() throws IOException {
+        call(CONTRACT);
+        call(CONTRACT);
+
+        verifyCalls(CONTRACT, 2);
+    }
+
+    @Test
+    public void testCachedUntilContractIsTouched() throws IOException {
+        cache.onBlock(block(1));
+        call(CONTRACT);
+        call(OTHER_CONTRACT);
+
+        touched.add(OTHER_CONTRACT.toUpperCase().replace("0X", "0x"));
+        cache.onBlock(block(2));
+        call(CONTRACT);
+        call(OTHER_CONTRACT);
+
+        verifyCalls(CONTRACT, 1);
+        verifyCalls(OTHER_CONTRACT, 2);
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testInvalidatedOnReorganisation() throws IOException {
+        cache.onBlock(block(1));
+        call(CONTRACT);
+
+        FstBlock.Block uncle = block(2);
+        uncle.setParentHash("0xdead");
+        cache.onBlock(uncle);
+        call(CONTRACT);
+
+        verifyCalls(CONTRACT, 2);
+    }
+
+    @Test
+    public void testInvalidatedOnMissedBlock() throws IOException {
+        cache.onBlock(block(1));
+        call(CONTRACT);
+
+        cache.onBlock(block(3));
+        call(CONTRACT);
+
+        verifyCalls(CONTRACT, 2);
+    }
+
+    @Test
+    public void testInvalidatedWhenTouchedAddressesFail() throws IOException {
+        cache =
+                new LatestCallResultCache(
+                        mock(Storm3j.class),
+                        100,
+                        block -> {
+                            throw new IOException("failed");
+                        });
+        cache.onBlock(block(1));
+        call(CONTRACT);
+
+        cache.onBlock(block(2));
+        call(CONTRACT);
+
+        verifyCalls(CONTRACT, 2);
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        cache = new LatestCallResultCache(mock(Storm3j.class), 1, block -> touched);
+        cache.onBlock(block(1));
+        call(CONTRACT);
+        call(OTHER_CONTRACT);
+        call(CONTRACT);
+
+        verifyCalls(CONTRACT, 2);
+        assertEquals(1, cache.getEntryCount());
+    }
+
+    @Test
+    public void testRecipientsAreTouched() throws IOException {
+        Storm3jService storm3jService = mock(Storm3jService.class);
+        cache = new LatestCallResultCache(Storm3j.build(storm3jService));
+        cache.onBlock(block(1));
+        call(CONTRACT);
+        call(OTHER_CONTRACT);
+
+        FstBlock.Block block = block(2);
+        block.setTransactions(Collections.singletonList(transaction(CONTRACT)));
+        block.setLogsBloom(Numeric.toHexStringWithPrefixZeroPadded(BigInteger.ZERO, 512));
+        cache.onBlock(block);
+        call(CONTRACT);
+        call(OTHER_CONTRACT);
+
+        verifyCalls(CONTRACT, 2);
+        verifyCalls(OTHER_CONTRACT, 1);
+        // The bloom filter shows the block has no logs
+        verify(storm3jService, never()).send(any(Request.class), eq(FstLog.class));
+    }
+
+    @Test
+    public void testLogAddressesAreTouched() throws IOException {
+        Storm3jService storm3jService = mock(Storm3jService.class);
+        FstLog.LogObject log = new FstLog.LogObject();
+        log.setAddress(OTHER_CONTRACT);
+        FstLog logs = new FstLog();
+        logs.setResult(Collections.singletonList(log));
+        when(storm3jService.send(any(Request.class), eq(FstLog.class))).thenReturn(logs);
+        cache = new LatestCallResultCache(Storm3j.build(storm3jService));
+        cache.onBlock(block(1));
+        call(CONTRACT);
+        call(OTHER_CONTRACT);
+
+        cache.onBlock(block(2));
+        call(CONTRACT);
+        call(OTHER_CONTRACT);
+
+        verifyCalls(CONTRACT, 1);
+        verifyCalls(OTHER_CONTRACT, 2);
+        ArgumentCaptor<Request> getLogs = ArgumentCaptor.forClass(Request.class);
+        verify(storm3jService).send(getLogs.capture(), eq(FstLog.class));
+        FstFilter filter = (FstFilter) getLogs.getValue().getParams().get(0);
+        assertEquals(hash(2), filter.getBlockHash());
+    }
+
+    @Test
+    public void testEmptyResultsAreNotCached() throws IOException {
+        when(transactionManager.sendCall(CONTRACT, DATA, DefaultBlockParameterName.LATEST))
+                .thenReturn("0x");
+        cache.onBlock(block(1));
+
+        // The address may have no code yet, and a contract created there does not touch it
+        cache.sendCall(transactionManager, CONTRACT, DATA, DefaultBlockParameterName.LATEST);
+        cache.sendCall(transactionManager, CONTRACT, DATA, DefaultBlockParameterName.LATEST);
+
+        verifyCalls(CONTRACT, 2);
+    }
+
+    @Test
+    public void testReceivesBlocksAgainAfterError() throws IOException {
+        Storm3j storm3j = mock(Storm3j.class);
+        FstBlock fstBlock = new FstBlock();
+        fstBlock.setResult(block(1));
+        when(storm3j.blockFlowable(true))
+                .thenReturn(Flowable.error(new IOException("Filter not found")))
+                .thenReturn(Flowable.just(fstBlock));
+        TestScheduler scheduler = new TestScheduler();
+        cache = new LatestCallResultCache(storm3j, 100, block -> touched, scheduler);
+
+        cache.start();
+        assertEquals(-1, cache.getHeadBlockNumber());
+
+        scheduler.advanceTimeBy(
+                LatestCallResultCache.RESUBSCRIBE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(1, cache.getHeadBlockNumber());
+        call(CONTRACT);
+        call(CONTRACT);
+        verifyCalls(CONTRACT, 1);
+    }
+
+    @Test
+    public void testInvalidatedOnBlockWithoutTransactionObjects() throws IOException {
+        Storm3jService storm3jService = mock(Storm3jService.class);
+        cache = new LatestCallResultCache(Storm3j.build(storm3jService));
+        cache.onBlock(block(1));
+        call(CONTRACT);
+
+        // Recipients are unknown when the block only includes transaction hashes
+        FstBlock.Block block = block(2);
+        block.setTransactions(Collections.singletonList(new FstBlock.TransactionHash(hash(3))));
+        cache.onBlock(block);
+        call(CONTRACT);
+
+        verifyCalls(CONTRACT, 2);
+        assertEquals(2, cache.getHeadBlockNumber());
+    }
+
+    private void call(String contract) throws IOException {
+        assertEquals(
+                "0x2a",
+                cache.sendCall(
+                        transactionManager, contract, DATA, DefaultBlockParameterName.LATEST));
+    }
+
+    private void verifyCalls(String contract, int times) throws IOException {
+        verify(transactionManager, times(times))
+                .sendCall(contract, DATA, DefaultBlockParameterName.LATEST);
+    }
+
+    private static FstBlock.Block block(long number) {
+        FstBlock.Block block = new FstBlock.Block();
+        block.setNumber(Numeric.encodeQuantity(BigInteger.valueOf(number)));
+        block.setHash(hash(number));
+        block.setParentHash(hash(number - 1));
+        block.setTransactions(Collections.emptyList());
+        return block;
+    }
+
+    private static FstBlock.TransactionObject transaction(String to) {
+        FstBlock.TransactionObject transaction = new FstBlock.TransactionObject();
+        transaction.setTo(to);
+        return transaction;
+    }
+
+    private static String hash(long number) {
+        return Numeric.toHexStringWithPrefixZeroPadded(BigInteger.valueOf(number), 64);
+    }
+}
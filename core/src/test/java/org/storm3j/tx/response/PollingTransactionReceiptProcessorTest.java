@@ -13,6 +13,9 @@
 package org.storm3j.tx.response;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -76,6 +79,29 @@ public class PollingTransactionReceiptProcessorTest {
         }
     }
 
+    @Test
+    public void pollsAsDecidedByThePollingPolicy() throws Exception {
+        List<Long> intervals = new ArrayList<>();
+        when(storm3j.getPollingPolicy())
+                .thenReturn(
+                        pollingInterval ->
+                                changed -> {
+                                    intervals.add(pollingInterval);
+                                    return 0;
+                                });
+        processor = new PollingTransactionReceiptProcessor(storm3j, sleepDuration, attempts);
+        doReturn(requestReturning(response(null)))
+                .when(storm3j)
+                .fstGetTransactionReceipt(TRANSACTION_HASH);
+
+        try {
+            processor.waitForTransactionReceipt(TRANSACTION_HASH);
+            fail("call should fail with TransactionException");
+        } catch (TransactionException e) {
+            assertEquals(Arrays.asList(100L, 100L, 100L), intervals);
+        }
+    }
+
     private static <T extends Response<?>> Request<String, T> requestReturning(T response) {
         Request<String, T> request = mock(Request.class);
         try {
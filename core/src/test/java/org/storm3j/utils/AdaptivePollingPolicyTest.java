@@ -0,0 +1,107 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.utils;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class AdaptivePollingPolicyTest {
+
+    private final AtomicLong now = new AtomicLong(1_001_000L);
+    private final AdaptivePollingPolicy policy =
+            new AdaptivePollingPolicy(100, 4, now::get);
+
+    @Test
+    public void testBlockIntervalIsLearnt() {
+        assertEquals(-1, policy.getBlockInterval());
+
+        block(10, 1000);
+        block(11, 1005);
+        assertEquals(5000, policy.getBlockInterval());
+
+        // Averaged over blocks, gaps included
+        block(13, 1011);
+        assertEquals(4500, policy.getBlockInterval());
+
+        // Blocks seen again or out of order are ignored
+        block(12, 1008);
+        assertEquals(4500, policy.getBlockInterval());
+    }
+
+    @Test
+    public void testPollsWhenNextBlockIsExpected() {
+        PollingPolicy.Schedule schedule = policy.newSchedule(1000);
+
+        block(10, 1000);
+        now.set(1_001_500L);
+        block(11, 1001);
+
+        // Block 11 was seen 500ms after its timestamp, so block 12 is expected at 1_002_000
+        now.set(1_001_600L);
+        assertEquals(400, schedule.nextDelay(true));
+    }
+
+    @Test
+    public void testBacksOffWhilePollsReturnNothing() {
+        PollingPolicy.Schedule schedule = policy.newSchedule(1000);
+        block(10, 1000);
+        block(11, 1001);
+
+        now.set(1_002_000L);
+        assertEquals(100, schedule.nextDelay(false));
+        assertEquals(200, schedule.nextDelay(false));
+        assertEquals(400, schedule.nextDelay(false));
+        assertEquals(800, schedule.nextDelay(false));
+        assertEquals(1600, schedule.nextDelay(false));
+        assertEquals(3200, schedule.nextDelay(false));
+        assertEquals(4000, schedule.nextDelay(false));
+        assertEquals(4000, schedule.nextDelay(false));
+
+        schedule.reset();
+        assertEquals(100, schedule.nextDelay(false));
+    }
+
+    @Test
+    public void testChangesAnchorNextBlockWithoutTimestamps() {
+        PollingPolicy.Schedule schedule = policy.newSchedule(2000);
+
+        // No block seen yet, so the polling interval is taken as the block interval
+        assertEquals(2000, schedule.nextDelay(false));
+        assertEquals(2000, schedule.nextDelay(true));
+
+        now.addAndGet(1500);
+        assertEquals(500, schedule.nextDelay(false));
+    }
+
+    @Test
+    public void testSchedulesKeepTheirOwnMisses() {
+        PollingPolicy.Schedule quiet = policy.newSchedule(1000);
+        PollingPolicy.Schedule busy = policy.newSchedule(1000);
+        block(10, 1000);
+        block(11, 1001);
+        now.set(1_002_000L);
+
+        quiet.nextDelay(false);
+        quiet.nextDelay(false);
+        assertEquals(400, quiet.nextDelay(false));
+        assertEquals(100, busy.nextDelay(false));
+    }
+
+    private void block(long number, long timestamp) {
+        policy.onBlock(BigInteger.valueOf(number), BigInteger.valueOf(timestamp));
+    }
+}
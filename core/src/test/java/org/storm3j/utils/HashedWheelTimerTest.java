@@ -0,0 +1,76 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HashedWheelTimerTest {
+
+    private final HashedWheelTimer timer =
+            new HashedWheelTimer(10, TimeUnit.MILLISECONDS, 8, "test-timer");
+
+    @After
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void testTimeoutExpires() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        HashedWheelTimer.Timeout timeout =
+                timer.newTimeout(expired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(expired.await(1, TimeUnit.SECONDS));
+        assertTrue(timeout.isExpired());
+    }
+
+    @Test
+    public void testTimeoutSpanningSeveralRounds() throws Exception {
+        CountDownLatch expired = new CountDownLatch(1);
+        long start = System.nanoTime();
+        timer.newTimeout(expired::countDown, 200, TimeUnit.MILLISECONDS);
+
+        assertTrue(expired.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testCancelledTimeoutDoesNotExpire() throws Exception {
+        AtomicBoolean ran = new AtomicBoolean();
+        HashedWheelTimer.Timeout timeout =
+                timer.newTimeout(() -> ran.set(true), 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+        Thread.sleep(150);
+
+        assertFalse(ran.get());
+        assertTrue(timeout.isCancelled());
+        assertEquals(0, timer.getPendingTimeouts());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewTimeoutAfterStop() {
+        timer.stop();
+        timer.newTimeout(() -> {}, 1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ipc;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UnixDomainSocketChannelsTest {
+
+    private static final String RESPONSE =
+            "{\"jsonrpc\":\"2.0\",\"id\":1,"
+                    + "\"result\":\"Geth/v1.5.4-stable-b70acf3c/darwin/go1.7.3\"}\n";
+
+    private Path directory;
+    private Path socketPath;
+    private ServerSocketChannel server;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("storm3j-ipc");
+        socketPath = directory.resolve("node.ipc");
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socketPath));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(socketPath);
+        Files.deleteIfExists(directory);
+    }
+
+    @Test
+    public void testJdkChannelsAreUsed() {
+        assertTrue(UnixDomainSocketChannels.isJdkNative());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        try (ByteChannel channel = UnixDomainSocketChannels.open(socketPath.toString());
+                SocketChannel peer = server.accept()) {
+            NioUnixDomainSocket socket = new NioUnixDomainSocket(channel, 16);
+            socket.write("test request");
+
+            ByteBuffer request = ByteBuffer.allocate(64);
+            while (request.position() < "test request".length()) {
+                peer.read(request);
+            }
+            request.flip();
+            assertEquals("test request", StandardCharsets.UTF_8.decode(request).toString());
+
+            peer.write(StandardCharsets.UTF_8.encode(RESPONSE));
+            assertEquals(RESPONSE.trim(), socket.read());
+        }
+    }
+}
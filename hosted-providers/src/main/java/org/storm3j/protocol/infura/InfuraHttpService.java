@@ -16,8 +16,12 @@ import java.util.Collections;
 import java.util.Map;
 
 import org.storm3j.protocol.http.HttpService;
+import org.storm3j.protocol.ratelimit.QuotaThrottle;
 
-/** HttpService for working with <a href="https://infura.io/">Infura</a> clients. */
+/**
+ * HttpService for working with <a href="https://infura.io/">Infura</a> clients. Requests are
+ * paced with a {@link QuotaThrottle} when Infura returns rate limit headers.
+ */
 public class InfuraHttpService extends HttpService {
 
     private static final String INFURA_ETHEREUM_PREFERRED_CLIENT =
@@ -25,8 +29,16 @@ public class InfuraHttpService extends HttpService {
 
     private final Map<String, String> clientVersionHeader;
 
+    private final QuotaThrottle throttle;
+
     public InfuraHttpService(String url, String clientVersion, boolean required) {
-        super(url);
+        this(url, clientVersion, required, new QuotaThrottle());
+    }
+
+    private InfuraHttpService(
+            String url, String clientVersion, boolean required, QuotaThrottle throttle) {
+        super(url, throttle.install(HttpService.getOkHttpClientBuilder().build()));
+        this.throttle = throttle;
         clientVersionHeader = buildClientVersionHeader(clientVersion, required);
         addHeaders(clientVersionHeader);
     }
@@ -39,6 +51,10 @@ public class InfuraHttpService extends HttpService {
         this(url, "", false);
     }
 
+    public QuotaThrottle getThrottle() {
+        return throttle;
+    }
+
     static Map<String, String> buildClientVersionHeader(String clientVersion, boolean required) {
         if (clientVersion == null || clientVersion.equals("")) {
             return Collections.emptyMap();
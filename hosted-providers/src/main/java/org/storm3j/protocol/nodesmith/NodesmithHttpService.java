@@ -20,10 +20,12 @@ import okhttp3.Headers;
 import okhttp3.OkHttpClient;
 
 import org.storm3j.protocol.http.HttpService;
+import org.storm3j.protocol.ratelimit.QuotaThrottle;
 
 /**
  * HttpService for working with <a href="https://nodesmith.io/">Nodesmith's</a> hosted
- * infrastructure.
+ * infrastructure. Requests are paced with a {@link QuotaThrottle} to stay within the rate limit of
+ * the api key.
  */
 public class NodesmithHttpService extends HttpService {
 
@@ -31,20 +33,31 @@ public class NodesmithHttpService extends HttpService {
     static final String NS_RATELIMIT_REMAINING = "x-ratelimit-remaining";
     static final String NS_RATELIMIT_RESET = "x-ratelimit-reset";
 
+    private final QuotaThrottle throttle;
+
     private RateLimitInfo latestRateLimitInfo = null;
 
     public NodesmithHttpService(String url, OkHttpClient httpClient) {
-        super(url, httpClient);
+        this(url, httpClient, new QuotaThrottle(NS_RATELIMIT_REMAINING, NS_RATELIMIT_RESET));
     }
 
     public NodesmithHttpService(String url) {
-        super(url);
+        this(url, HttpService.getOkHttpClientBuilder().build());
+    }
+
+    private NodesmithHttpService(String url, OkHttpClient httpClient, QuotaThrottle throttle) {
+        super(url, throttle.install(httpClient));
+        this.throttle = throttle;
     }
 
     public RateLimitInfo getLatestRateLimitInfo() {
         return this.latestRateLimitInfo;
     }
 
+    public QuotaThrottle getThrottle() {
+        return throttle;
+    }
+
     @Override
     protected void processHeaders(Headers headers) {
         Optional<RateLimitInfo> info = createRateLimitFromHeaders(headers);
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ratelimit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import okhttp3.Headers;
+import okhttp3.Interceptor;
+import okhttp3.OkHttpClient;
+import okhttp3.Response;
+
+/**
+ * Paces requests to a hosted provider according to the rate limit headers in its responses, so
+ * that the remaining quota is spread evenly over what is left of the window instead of being used
+ * up in a burst followed by HTTP 429 responses.
+ *
+ * <p>The reset header may hold either the epoch second at which the window resets, or the number
+ * of seconds until it does. A {@code Retry-After} header on a 429 response pauses all requests
+ * for the time given. Until rate limit headers are seen requests are not delayed.
+ *
+ * <p>Requests are delayed on the thread performing the HTTP call, which for asynchronous requests
+ * is a thread of the client's dispatcher.
+ */
+public class QuotaThrottle implements Interceptor {
+
+    public static final String DEFAULT_REMAINING_HEADER = "x-ratelimit-remaining";
+    public static final String DEFAULT_RESET_HEADER = "x-ratelimit-reset";
+
+    static final String RETRY_AFTER_HEADER = "Retry-After";
+    static final int TOO_MANY_REQUESTS = 429;
+
+    // Reset values below this are seconds until the reset, rather than an epoch second
+    static final long EPOCH_SECONDS_THRESHOLD = 1_000_000_000L;
+
+    private final String remainingHeader;
+    private final String resetHeader;
+    private final LongSupplier clock;
+
+    private final Object lock = new Object();
+    private long remaining = -1;
+    private long resetTimeMillis;
+    private long nextSendTimeMillis;
+
+    private final LongAdder delayedCount = new LongAdder();
+
+    public QuotaThrottle() {
+        this(DEFAULT_REMAINING_HEADER, DEFAULT_RESET_HEADER);
+    }
+
+    public QuotaThrottle(String remainingHeader, String resetHeader) {
+        this(remainingHeader, resetHeader, System::currentTimeMillis);
+    }
+
+    QuotaThrottle(String remainingHeader, String resetHeader, LongSupplier clock) {
+        this.remainingHeader = remainingHeader;
+        this.resetHeader = resetHeader;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns a client sharing the connection pool and dispatcher of the given client, which paces
+     * its requests with this throttle.
+     *
+     * @param httpClient client to throttle
+     * @return the throttled client
+     */
+    public OkHttpClient install(OkHttpClient httpClient) {
+        return httpClient.newBuilder().addInterceptor(this).build();
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        long delay = reserve(clock.getAsLong());
+        if (delay > 0) {
+            delayedCount.increment();
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for rate limit quota");
+            }
+        }
+
+        Response response = chain.proceed(chain.request());
+        update(response.code(), response.headers(), clock.getAsLong());
+        return response;
+    }
+
+    /**
+     * Reserve a slot for a request.
+     *
+     * @param now current time in milliseconds
+     * @return milliseconds to wait before sending the request
+     */
+    long reserve(long now) {
+        synchronized (lock) {
+            if (remaining < 0 || now >= resetTimeMillis) {
+                return 0;
+            }
+            if (remaining == 0) {
+                return resetTimeMillis - now;
+            }
+
+            long sendTime = Math.max(now, nextSendTimeMillis);
+            nextSendTimeMillis = sendTime + (resetTimeMillis - sendTime) / remaining;
+            remaining--;
+            return sendTime - now;
+        }
+    }
+
+    void update(int code, Headers headers, long now) {
+        if (code == TOO_MANY_REQUESTS) {
+            Long retryAfter = parse(headers.get(RETRY_AFTER_HEADER));
+            if (retryAfter != null) {
+                synchronized (lock) {
+                    remaining = 0;
+                    resetTimeMillis = now + retryAfter * 1000;
+                }
+                return;
+            }
+        }
+
+        Long quota = parse(headers.get(remainingHeader));
+        Long reset = parse(headers.get(resetHeader));
+        if (quota == null || reset == null) {
+            return;
+        }
+        long windowEnd = reset >= EPOCH_SECONDS_THRESHOLD ? reset * 1000 : now + reset * 1000;
+
+        synchronized (lock) {
+            if (remaining >= 0 && Math.abs(windowEnd - resetTimeMillis) < 1000) {
+                // Same window, responses may arrive out of order and requests in flight have
+                // already been counted
+                remaining = Math.min(remaining, quota);
+            } else {
+                remaining = quota;
+                resetTimeMillis = windowEnd;
+            }
+        }
+    }
+
+    private static Long parse(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /** @return requests remaining in the current window, or -1 if unknown */
+    public long getRemainingInWindow() {
+        synchronized (lock) {
+            return clock.getAsLong() < resetTimeMillis ? remaining : -1;
+        }
+    }
+
+    /** @return number of requests which were delayed to stay within the quota */
+    public long getDelayedRequestCount() {
+        return delayedCount.sum();
+    }
+}
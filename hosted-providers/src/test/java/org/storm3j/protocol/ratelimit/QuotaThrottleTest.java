@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.ratelimit;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import okhttp3.Headers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.methods.response.FstBlockNumber;
+import org.storm3j.protocol.exceptions.ClientConnectionException;
+import org.storm3j.protocol.nodesmith.NodesmithHttpService;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class QuotaThrottleTest {
+
+    private static final String REPLY = "{\"jsonrpc\":\"2.0\",\"id\":1,\"result\":\"0x1\"}";
+
+    private HttpServer server;
+    private NodesmithHttpService service;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.start();
+        service = new NodesmithHttpService("http://localhost:" + server.getAddress().getPort());
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testRequestsAreNotDelayedWithoutHeaders() {
+        QuotaThrottle throttle = new QuotaThrottle("remaining", "reset", () -> 0);
+
+        assertEquals(0, throttle.reserve(0));
+        assertEquals(-1, throttle.getRemainingInWindow());
+    }
+
+    @Test
+    public void testRemainingQuotaIsSpreadOverWindow() {
+        QuotaThrottle throttle = new QuotaThrottle("remaining", "reset", () -> 0);
+        throttle.update(200, Headers.of("remaining", "4", "reset", "10"), 0);
+
+        assertEquals(0, throttle.reserve(0));
+        assertEquals(2500, throttle.reserve(0));
+        assertEquals(5000, throttle.reserve(0));
+        assertEquals(1, throttle.getRemainingInWindow());
+    }
+
+    @Test
+    public void testExhaustedQuotaWaitsForReset() {
+        QuotaThrottle throttle = new QuotaThrottle("remaining", "reset", () -> 0);
+        throttle.update(200, Headers.of("remaining", "0", "reset", "1553385403"), 1553385400000L);
+
+        assertEquals(3000, throttle.reserve(1553385400000L));
+        assertEquals(0, throttle.reserve(1553385403000L));
+    }
+
+    @Test
+    public void testStaleQuotaIsIgnored() {
+        QuotaThrottle throttle = new QuotaThrottle("remaining", "reset", () -> 0);
+        throttle.update(200, Headers.of("remaining", "5", "reset", "10"), 0);
+        throttle.update(200, Headers.of("remaining", "8", "reset", "10"), 100);
+
+        assertEquals(5, throttle.getRemainingInWindow());
+    }
+
+    @Test
+    public void testRetryAfter() {
+        QuotaThrottle throttle = new QuotaThrottle("remaining", "reset", () -> 0);
+        throttle.update(429, Headers.of(QuotaThrottle.RETRY_AFTER_HEADER, "2"), 0);
+
+        assertEquals(2000, throttle.reserve(0));
+    }
+
+    @Test
+    public void testPacingAgainstServer() throws Exception {
+        int limit = 5;
+        long windowEnd = System.currentTimeMillis() / 1000 + 2;
+        AtomicInteger requests = new AtomicInteger();
+        server.createContext(
+                "/",
+                exchange -> {
+                    int count = requests.incrementAndGet();
+                    exchange.getResponseHeaders()
+                            .add(QuotaThrottle.DEFAULT_REMAINING_HEADER, "" + (limit - count));
+                    exchange.getResponseHeaders()
+                            .add(QuotaThrottle.DEFAULT_RESET_HEADER, "" + windowEnd);
+                    send(exchange, count > limit ? 429 : 200);
+                });
+
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < limit; i++) {
+            request().send();
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(limit, requests.get());
+        assertEquals(0, service.getThrottle().getRemainingInWindow());
+        assertTrue(service.getThrottle().getDelayedRequestCount() >= limit - 2);
+        assertTrue(elapsed >= 500);
+    }
+
+    @Test
+    public void testRetryAfterTooManyRequests() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        server.createContext(
+                "/",
+                exchange -> {
+                    if (requests.incrementAndGet() == 1) {
+                        exchange.getResponseHeaders().add(QuotaThrottle.RETRY_AFTER_HEADER, "1");
+                        send(exchange, 429);
+                    } else {
+                        send(exchange, 200);
+                    }
+                });
+
+        try {
+            request().send();
+            fail();
+        } catch (ClientConnectionException e) {
+            // expected
+        }
+
+        long start = System.currentTimeMillis();
+        request().send();
+
+        assertTrue(System.currentTimeMillis() - start >= 900);
+        assertEquals(1, service.getThrottle().getDelayedRequestCount());
+    }
+
+    private Request<?, FstBlockNumber> request() {
+        return new Request<>(
+                "fst_blockNumber", Collections.emptyList(), service, FstBlockNumber.class);
+    }
+
+    private static void send(HttpExchange exchange, int code) throws IOException {
+        byte[] body = REPLY.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+}
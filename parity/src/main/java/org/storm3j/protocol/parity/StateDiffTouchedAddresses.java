@@ -0,0 +1,73 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.parity;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.parity.methods.response.ParityFullTraceResponse;
+import org.storm3j.tx.TouchedAddresses;
+
+/**
+ * Finds the accounts touched by a block from the state diffs of its transactions, which include
+ * changes made by internal calls. The transactions of a block are replayed in a single batch.
+ */
+public class StateDiffTouchedAddresses implements TouchedAddresses {
+
+    private static final List<String> STATE_DIFF = Collections.singletonList("stateDiff");
+
+    private final Parity parity;
+
+    public StateDiffTouchedAddresses(Parity parity) {
+        this.parity = parity;
+    }
+
+    @Override
+    public Collection<String> touchedBy(FstBlock.Block block) throws IOException {
+        List<FstBlock.TransactionResult> transactions = block.getTransactions();
+        if (transactions.isEmpty()) {
+            return Collections.emptySet();
+        }
+
+        BatchRequest batch = parity.newBatch();
+        for (FstBlock.TransactionResult<?> transaction : transactions) {
+            String hash =
+                    transaction instanceof FstBlock.TransactionObject
+                            ? ((FstBlock.TransactionObject) transaction).getHash()
+                            : (String) transaction.get();
+            batch.add(parity.traceReplayTransaction(hash, STATE_DIFF));
+        }
+
+        BatchResponse batchResponse = batch.send();
+        Set<String> addresses = new HashSet<>();
+        for (Response<?> response : batchResponse.getResponses()) {
+            if (response.hasError()) {
+                throw new IOException(response.getError().getMessage());
+            }
+            ParityFullTraceResponse trace = (ParityFullTraceResponse) response;
+            if (trace.getFullTraceInfo() != null
+                    && trace.getFullTraceInfo().getStateDiff() != null) {
+                addresses.addAll(trace.getFullTraceInfo().getStateDiff().keySet());
+            }
+        }
+        return addresses;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Web3 Labs LTD.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the License is distributed on
+ * an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+package org.storm3j.protocol.parity;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import org.storm3j.protocol.Storm3jService;
+import org.storm3j.protocol.core.BatchRequest;
+import org.storm3j.protocol.core.BatchResponse;
+import org.storm3j.protocol.core.Request;
+import org.storm3j.protocol.core.Response;
+import org.storm3j.protocol.core.methods.response.FstBlock;
+import org.storm3j.protocol.parity.methods.response.FullTraceInfo;
+import org.storm3j.protocol.parity.methods.response.ParityFullTraceResponse;
+import org.storm3j.protocol.parity.methods.response.StateDiff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StateDiffTouchedAddressesTest {
+
+    private static final String FIRST_HASH =
+            "0xb903239f8543d04b5dc1ba6579132b143087c68db1b2168786408fcbce568238";
+    private static final String SECOND_HASH =
+            "0x5c504ed432cb51138bcf09aa5e8a410dd4a1e204ef84bfed1be16dfba1b22060";
+
+    private Storm3jService storm3jService;
+    private StateDiffTouchedAddresses touchedAddresses;
+
+    @Before
+    public void setUp() {
+        storm3jService = mock(Storm3jService.class);
+        touchedAddresses = new StateDiffTouchedAddresses(Parity.build(storm3jService));
+    }
+
+    @Test
+    public void testTouchedAddressesAreCollectedFromStateDiffs() throws IOException {
+        when(storm3jService.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(
+                        invocation ->
+                                reply(
+                                        (BatchRequest) invocation.getArguments()[0],
+                                        trace(stateDiff("0x1", "0x2")),
+                                        trace(stateDiff("0x3")),
+                                        trace(null)));
+
+        FstBlock.Block block =
+                block(
+                        transaction(FIRST_HASH),
+                        new FstBlock.TransactionHash(SECOND_HASH),
+                        transaction(FIRST_HASH));
+
+        assertEquals(
+                new HashSet<>(Arrays.asList("0x1", "0x2", "0x3")),
+                touchedAddresses.touchedBy(block));
+    }
+
+    @Test
+    public void testFailedReplayThrows() throws IOException {
+        ParityFullTraceResponse failed = new ParityFullTraceResponse();
+        failed.setError(new Response.Error(-32000, "replay failed"));
+        when(storm3jService.sendBatch(any(BatchRequest.class)))
+                .thenAnswer(
+                        invocation ->
+                                reply(
+                                        (BatchRequest) invocation.getArguments()[0],
+                                        trace(stateDiff("0x1")),
+                                        failed));
+
+        try {
+            touchedAddresses.touchedBy(
+                    block(transaction(FIRST_HASH), new FstBlock.TransactionHash(SECOND_HASH)));
+            fail();
+        } catch (IOException e) {
+            assertEquals("replay failed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testEmptyBlockIsNotReplayed() throws IOException {
+        assertTrue(touchedAddresses.touchedBy(block()).isEmpty());
+
+        verify(storm3jService, never()).sendBatch(any(BatchRequest.class));
+    }
+
+    private static BatchResponse reply(
+            BatchRequest batchRequest, ParityFullTraceResponse... traces) {
+        List<Request<?, ? extends Response<?>>> requests = batchRequest.getRequests();
+        assertEquals(traces.length, requests.size());
+        List<Object> expectedHashes = Arrays.asList(FIRST_HASH, SECOND_HASH, FIRST_HASH);
+        for (int i = 0; i < requests.size(); i++) {
+            Request<?, ?> request = requests.get(i);
+            assertEquals("trace_replayTransaction", request.getMethod());
+            assertEquals(
+                    Arrays.asList(
+                            expectedHashes.get(i), Collections.singletonList("stateDiff")),
+                    request.getParams());
+        }
+        return new BatchResponse(requests, Arrays.asList(traces));
+    }
+
+    private static ParityFullTraceResponse trace(Map<String, StateDiff> stateDiff) {
+        ParityFullTraceResponse response = new ParityFullTraceResponse();
+        response.setResult(new FullTraceInfo("0x", stateDiff, null, null));
+        return response;
+    }
+
+    private static Map<String, StateDiff> stateDiff(String... addresses) {
+        Map<String, StateDiff> stateDiff = new HashMap<>();
+        for (String address : addresses) {
+            stateDiff.put(address, new StateDiff());
+        }
+        return stateDiff;
+    }
+
+    private static FstBlock.TransactionObject transaction(String hash) {
+        FstBlock.TransactionObject transaction = new FstBlock.TransactionObject();
+        transaction.setHash(hash);
+        return transaction;
+    }
+
+    private static FstBlock.Block block(FstBlock.TransactionResult... transactions) {
+        FstBlock.Block block = new FstBlock.Block();
+        block.setTransactions(Arrays.asList(transactions));
+        return block;
+    }
+}